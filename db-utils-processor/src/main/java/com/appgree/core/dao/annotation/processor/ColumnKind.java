@@ -0,0 +1,208 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.annotation.processor;
+
+/**
+ * The families of java types the processor can map, with the JDBC accessors each of them uses.
+ */
+enum ColumnKind {
+
+    /** A primitive, never null. */
+    PRIMITIVE,
+
+    /** A primitive wrapper, null when the column is NULL. */
+    BOXED,
+
+    /** An ObjectId, stored as BIGINT and NULL for the null id. */
+    OBJECT_ID,
+
+    /** A String, BigDecimal, Timestamp or byte array, with a direct JDBC accessor. */
+    DIRECT,
+
+    /** A java.util.Date, stored as TIMESTAMP. */
+    DATE,
+
+    /** An enum, stored as its name. */
+    ENUM;
+
+    /**
+     * Gets the accessor suffix for a primitive or wrapper type, e.g. Long for long.
+     *
+     * @param type the type
+     * @return the string
+     */
+    private static String accessor(String type) {
+        switch (type) {
+            case "int":
+            case "java.lang.Integer":
+                return "Int";
+            case "java.lang.Long":
+                return "Long";
+            case "java.lang.Short":
+                return "Short";
+            case "java.lang.Byte":
+                return "Byte";
+            case "java.lang.Double":
+                return "Double";
+            case "java.lang.Float":
+                return "Float";
+            case "java.lang.Boolean":
+                return "Boolean";
+            case "java.lang.String":
+                return "String";
+            case "java.math.BigDecimal":
+                return "BigDecimal";
+            case "java.sql.Timestamp":
+                return "Timestamp";
+            case "byte[]":
+                return "Bytes";
+            default:
+                return Character.toUpperCase(type.charAt(0)) + type.substring(1);
+        }
+    }
+
+    /**
+     * Gets the PreparedStatement setter.
+     *
+     * @param type the type
+     * @return the string
+     */
+    String setter(String type) {
+        switch (this) {
+            case OBJECT_ID:
+                return "setLong";
+            case DATE:
+                return "setTimestamp";
+            case ENUM:
+                return "setString";
+            default:
+                return "set" + accessor(type);
+        }
+    }
+
+    /**
+     * Gets the ResultSet getter.
+     *
+     * @param type the type
+     * @return the string
+     */
+    String getter(String type) {
+        switch (this) {
+            case OBJECT_ID:
+                return "getLong";
+            case DATE:
+                return "getTimestamp";
+            case ENUM:
+                return "getString";
+            default:
+                return "get" + accessor(type);
+        }
+    }
+
+    /**
+     * Gets the java.sql.Types constant used to bind nulls.
+     *
+     * @param type the type
+     * @return the string
+     */
+    String sqlType(String type) {
+        switch (this) {
+            case OBJECT_ID:
+                return "BIGINT";
+            case DATE:
+                return "TIMESTAMP";
+            case ENUM:
+                return "VARCHAR";
+            default:
+                switch (type) {
+                    case "java.lang.Integer":
+                        return "INTEGER";
+                    case "java.lang.Long":
+                        return "BIGINT";
+                    case "java.lang.Short":
+                        return "SMALLINT";
+                    case "java.lang.Byte":
+                        return "TINYINT";
+                    case "java.lang.Double":
+                        return "DOUBLE";
+                    case "java.lang.Float":
+                        return "REAL";
+                    case "java.lang.Boolean":
+                        return "BOOLEAN";
+                    case "java.math.BigDecimal":
+                        return "DECIMAL";
+                    case "java.sql.Timestamp":
+                        return "TIMESTAMP";
+                    case "byte[]":
+                        return "VARBINARY";
+                    default:
+                        return "VARCHAR";
+                }
+        }
+    }
+
+    /**
+     * Gets the primitive type of a wrapper.
+     *
+     * @param type the type
+     * @return the string
+     */
+    String primitive(String type) {
+        String accessor = accessor(type);
+        return Character.toLowerCase(accessor.charAt(0)) + accessor.substring(1);
+    }
+
+    /**
+     * Gets the type returned by the ResultSet getter.
+     *
+     * @param type the type
+     * @return the string
+     */
+    String storedType(String type) {
+        switch (this) {
+            case DATE:
+                return "java.sql.Timestamp";
+            case ENUM:
+                return "String";
+            default:
+                return type;
+        }
+    }
+
+    /**
+     * Converts a non null field value to the value bound to the statement.
+     *
+     * @param type the type
+     * @param value the value expression
+     * @return the string
+     */
+    String toColumn(String type, String value) {
+        switch (this) {
+            case DATE:
+                return "new java.sql.Timestamp(" + value + ".getTime())";
+            case ENUM:
+                return value + ".name()";
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Converts a non null column value to the field value.
+     *
+     * @param type the type
+     * @param value the value expression
+     * @return the string
+     */
+    String fromColumn(String type, String value) {
+        switch (this) {
+            case DATE:
+                return "new " + type + "(" + value + ".getTime())";
+            case ENUM:
+                return type + ".valueOf(" + value + ")";
+            default:
+                return value;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.annotation.processor;
+
+/**
+ * Describes how a model field is mapped to a column: how its value is read from the object and bound to a statement, and how it is read from
+ * a result set and stored in the object.
+ */
+class ColumnMapping {
+
+    /** The column name. */
+    private final String column;
+
+    /** The expression reading the value from "object". */
+    private final String getter;
+
+    /** The statement storing "value" in "object", with a %s placeholder for the value expression. */
+    private final String setter;
+
+    /** The java type of the value. */
+    private final String type;
+
+    /** The column type. */
+    private final ColumnKind kind;
+
+    /**
+     * Instantiates a new column mapping.
+     *
+     * @param column the column
+     * @param getter the getter expression
+     * @param setter the setter statement format
+     * @param type the java type
+     * @param kind the kind
+     */
+    ColumnMapping(String column, String getter, String setter, String type, ColumnKind kind) {
+        this.column = column;
+        this.getter = getter;
+        this.setter = setter;
+        this.type = type;
+        this.kind = kind;
+    }
+
+    /**
+     * Gets the column.
+     *
+     * @return the column
+     */
+    String getColumn() {
+        return column;
+    }
+
+    /**
+     * Appends the code binding the value of the field to a statement parameter.
+     *
+     * @param sb the sb
+     * @param parameter the parameter index
+     * @param indent the indent
+     */
+    void appendBind(StringBuilder sb, int parameter, String indent) {
+        String value = "value" + parameter;
+        sb.append(indent).append(type).append(' ').append(value).append(" = ").append(getter).append(";\n");
+        switch (kind) {
+            case PRIMITIVE:
+                sb.append(indent).append("stmt.").append(kind.setter(type)).append('(').append(parameter).append(", ").append(value).append(");\n");
+                break;
+            case OBJECT_ID:
+                sb.append(indent).append("setNullable(stmt, ").append(parameter).append(", ").append(value).append(");\n");
+                break;
+            default:
+                sb.append(indent).append("if (").append(value).append(" == null) {\n");
+                sb.append(indent).append("    stmt.setNull(").append(parameter).append(", Types.").append(kind.sqlType(type)).append(");\n");
+                sb.append(indent).append("} else {\n");
+                sb.append(indent).append("    stmt.").append(kind.setter(type)).append('(').append(parameter).append(", ")
+                        .append(kind.toColumn(type, value)).append(");\n");
+                sb.append(indent).append("}\n");
+                break;
+        }
+    }
+
+    /**
+     * Appends the code reading the column from a result set and storing it in the object.
+     *
+     * @param sb the sb
+     * @param column the column index
+     * @param indent the indent
+     */
+    void appendRead(StringBuilder sb, int column, String indent) {
+        String read = "resultSet." + kind.getter(type) + "(" + column + ")";
+        switch (kind) {
+            case PRIMITIVE:
+                sb.append(indent).append(String.format(setter, read)).append('\n');
+                break;
+            case OBJECT_ID:
+                sb.append(indent).append(String.format(setter, "ObjectId.fromLong(" + read + ")")).append('\n');
+                break;
+            case BOXED:
+                String primitive = "column" + column;
+                sb.append(indent).append(kind.primitive(type)).append(' ').append(primitive).append(" = ").append(read).append(";\n");
+                sb.append(indent).append(String.format(setter, "resultSet.wasNull() ? null : " + type + ".valueOf(" + primitive + ")"))
+                        .append('\n');
+                break;
+            default:
+                String stored = kind.storedType(type);
+                if (stored.equals(type)) {
+                    sb.append(indent).append(String.format(setter, read)).append('\n');
+                } else {
+                    String raw = "column" + column;
+                    sb.append(indent).append(stored).append(' ').append(raw).append(" = ").append(read).append(";\n");
+                    sb.append(indent).append(String.format(setter, raw + " == null ? null : " + kind.fromColumn(type, raw))).append('\n');
+                }
+                break;
+        }
+    }
+}
@@ -0,0 +1,567 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.annotation.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a &lt;Class&gt;GeneratedDAO for every class annotated with com.appgree.core.dao.annotation.Table. The generated DAO fills the
+ * fields list and implements serialize and deserialize with plain JDBC calls, returns precomputed insert, update and select SQL, and
+ * declares the result set index of every column, so mapping runs as fast as hand written code and needs no reflection.
+ */
+@SupportedAnnotationTypes(DAOAnnotationProcessor.TABLE_ANNOTATION)
+public class DAOAnnotationProcessor extends AbstractProcessor {
+
+    /** The Constant TABLE_ANNOTATION. */
+    static final String TABLE_ANNOTATION = "com.appgree.core.dao.annotation.Table";
+
+    /** The Constant COLUMN_ANNOTATION. */
+    private static final String COLUMN_ANNOTATION = "com.appgree.core.dao.annotation.Column";
+
+    /** The Constant OBJECT_ID. */
+    private static final String OBJECT_ID = "com.appgree.core.id.ObjectId";
+
+    /** The Constant ID_FIELD. */
+    private static final String ID_FIELD = "ID";
+
+    /** The Constant VERSION_FIELD. */
+    private static final String VERSION_FIELD = "VERSION";
+
+    /** The Constant VERSIONED. */
+    private static final String VERSIONED = "com.appgree.core.dao.Versioned";
+
+    /** The Constant GENERATED_SUFFIX. */
+    static final String GENERATED_SUFFIX = "GeneratedDAO";
+
+    /** The Constant INDENT. */
+    private static final String INDENT = "        ";
+
+    /** The java types with a direct JDBC accessor. */
+    private static final Set<String> DIRECT_TYPES = new HashSet<>();
+
+    /** The primitive wrappers. */
+    private static final Set<String> BOXED_TYPES = new HashSet<>();
+
+    static {
+        Collections.addAll(DIRECT_TYPES, "java.lang.String", "java.math.BigDecimal", "java.sql.Timestamp", "byte[]");
+        Collections.addAll(BOXED_TYPES, "java.lang.Integer", "java.lang.Long", "java.lang.Short", "java.lang.Byte", "java.lang.Double",
+                "java.lang.Float", "java.lang.Boolean");
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.annotation.processing.AbstractProcessor#getSupportedSourceVersion()
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.annotation.processing.AbstractProcessor#process(java.util.Set, javax.annotation.processing.RoundEnvironment)
+     */
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    error(element, "@Table can only be used on classes");
+                    continue;
+                }
+                try {
+                    generate((TypeElement) element);
+                } catch (IOException e) {
+                    error(element, "Cannot write generated DAO: " + e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Generates the DAO of a model class.
+     *
+     * @param type the type
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void generate(TypeElement type) throws IOException {
+        if (!isIdentifiable(type)) {
+            error(type, "@Table classes must implement com.appgree.core.id.Identifiable");
+            return;
+        }
+        if (type.getModifiers().contains(Modifier.ABSTRACT) || !hasDefaultConstructor(type)) {
+            error(type, "@Table classes must be concrete and have a non private constructor without arguments");
+            return;
+        }
+
+        List<ColumnMapping> columns = new ArrayList<>();
+        if (!collectColumns(type, type, columns)) {
+            return;
+        }
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String modelName = type.getQualifiedName().toString();
+        String daoName = generatedName(type);
+        String tableName = (String) annotationValue(type, TABLE_ANNOTATION);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("/*\n * Generated by ").append(DAOAnnotationProcessor.class.getName()).append(" from ").append(modelName)
+                .append(". Do not edit.\n */\n");
+        if (!packageName.isEmpty()) {
+            sb.append("package ").append(packageName).append(";\n\n");
+        }
+        sb.append("import java.sql.PreparedStatement;\n");
+        sb.append("import java.sql.ResultSet;\n");
+        sb.append("import java.sql.Types;\n\n");
+        sb.append("import com.appgree.core.dao.BaseDAO;\n");
+        sb.append("import com.appgree.core.id.ObjectId;\n\n");
+        sb.append("/**\n * DAO for {@link ").append(modelName).append("} mapped to table ").append(tableName).append(".\n */\n");
+        sb.append("public class ").append(daoName).append(" extends BaseDAO<").append(modelName).append("> {\n\n");
+
+        appendConstants(sb, tableName, columns, isVersioned(type, columns));
+
+        sb.append("    /**\n     * Instantiates a new DAO.\n     */\n");
+        sb.append("    public ").append(daoName).append("() {\n");
+        sb.append("        super(TABLE_NAME);\n");
+        sb.append("        this.fields.add(").append(constantName(ID_FIELD)).append(");\n");
+        for (ColumnMapping column : columns) {
+            sb.append("        this.fields.add(").append(constantName(column.getColumn())).append(");\n");
+        }
+        sb.append("    }\n\n");
+
+        appendClauses(sb);
+
+        // parameters follow the BaseDAO convention: every column but ID in order, then ID
+        sb.append("    @Override\n");
+        sb.append("    public void serialize(").append(modelName).append(" object, PreparedStatement stmt) throws Exception {\n");
+        int parameter = 0;
+        for (ColumnMapping column : columns) {
+            column.appendBind(sb, ++parameter, INDENT);
+        }
+        sb.append(INDENT).append("setNullable(stmt, ").append(++parameter).append(", object.getId());\n");
+        sb.append("    }\n\n");
+
+        sb.append("    @Override\n");
+        sb.append("    public ").append(modelName).append(" deserialize(ResultSet resultSet) throws Exception {\n");
+        sb.append(INDENT).append(modelName).append(" object = new ").append(modelName).append("();\n");
+        sb.append(INDENT).append("object.setId(ObjectId.fromLong(resultSet.getLong(1)));\n");
+        int index = 1;
+        for (ColumnMapping column : columns) {
+            column.appendRead(sb, ++index, INDENT);
+        }
+        sb.append(INDENT).append("return object;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+
+        String qualifiedName = packageName.isEmpty() ? daoName : packageName + "." + daoName;
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+        Writer writer = file.openWriter();
+        try {
+            writer.write(sb.toString());
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Appends the table, column name, column index and SQL constants.
+     *
+     * @param sb the sb
+     * @param tableName the table name
+     * @param columns the columns
+     * @param versioned if updates compare and increment the VERSION column, as BaseDAO does for Versioned objects
+     */
+    private static void appendConstants(StringBuilder sb, String tableName, List<ColumnMapping> columns, boolean versioned) {
+        List<String> names = new ArrayList<>();
+        names.add(ID_FIELD);
+        for (ColumnMapping column : columns) {
+            names.add(column.getColumn());
+        }
+
+        sb.append("    /** The table name. */\n");
+        sb.append("    public static final String TABLE_NAME = ").append(literal(tableName)).append(";\n\n");
+        int index = 0;
+        for (String name : names) {
+            index++;
+            sb.append("    /** The ").append(name).append(" column. */\n");
+            sb.append("    public static final String ").append(constantName(name)).append(" = ").append(literal(name)).append(";\n\n");
+            sb.append("    /** Result set index of the ").append(name).append(" column in rows read with the select clause. */\n");
+            sb.append("    public static final int ").append(constantName(name)).append("_INDEX = ").append(index).append(";\n\n");
+        }
+
+        StringBuilder select = new StringBuilder();
+        StringBuilder insert = new StringBuilder("INSERT INTO ").append(tableName).append(" (");
+        StringBuilder values = new StringBuilder();
+        StringBuilder update = new StringBuilder("UPDATE ").append(tableName).append(" SET ");
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                select.append(", ");
+                values.append(", ");
+            }
+            select.append(names.get(i));
+            values.append('?');
+        }
+        for (int i = 1; i < names.size(); i++) {
+            insert.append(names.get(i)).append(", ");
+            update.append(names.get(i)).append(versioned && VERSION_FIELD.equals(names.get(i)) ? "=?+1" : "=?");
+            if (i < names.size() - 1) {
+                update.append(", ");
+            }
+        }
+        insert.append(ID_FIELD).append(") VALUES (").append(values).append(')');
+        update.append(" WHERE ").append(ID_FIELD).append("=?");
+        if (versioned) {
+            update.append(" AND ").append(VERSION_FIELD).append("=?");
+        }
+        if (names.size() == 1) {
+            // nothing to set, keep the statement valid and with a single parameter
+            update = new StringBuilder("UPDATE ").append(tableName).append(" SET ID=ID WHERE ID=?");
+        }
+
+        sb.append("    /** The select clause. */\n");
+        sb.append("    private static final String SELECT_CLAUSE = ").append(literal(select + " FROM " + tableName + " A")).append(";\n\n");
+        sb.append("    /** The insert clause. */\n");
+        sb.append("    private static final String INSERT_CLAUSE = ").append(literal(insert.toString())).append(";\n\n");
+        sb.append("    /** The insert ignore clause. */\n");
+        sb.append("    private static final String INSERT_IGNORE_CLAUSE = ").append(literal("INSERT IGNORE" + insert.substring("INSERT".length())))
+                .append(";\n\n");
+        sb.append("    /** The update clause. */\n");
+        sb.append("    private static final String UPDATE_CLAUSE = ").append(literal(update.toString())).append(";\n\n");
+    }
+
+    /**
+     * Appends the overrides returning the precomputed SQL.
+     *
+     * @param sb the sb
+     */
+    private static void appendClauses(StringBuilder sb) {
+        sb.append("    @Override\n");
+        sb.append("    protected String insertClause(boolean ignoreErrors) {\n");
+        sb.append("        return ignoreErrors ? INSERT_IGNORE_CLAUSE : INSERT_CLAUSE;\n");
+        sb.append("    }\n\n");
+        sb.append("    @Override\n");
+        sb.append("    protected String updateClause() {\n");
+        sb.append("        return UPDATE_CLAUSE;\n");
+        sb.append("    }\n\n");
+        sb.append("    @Override\n");
+        sb.append("    protected String selectClause() {\n");
+        sb.append("        return SELECT_CLAUSE;\n");
+        sb.append("    }\n\n");
+    }
+
+    /**
+     * Collects the mapped columns of a class and its superclasses, superclass columns first.
+     *
+     * @param model the annotated class
+     * @param type the class being inspected
+     * @param columns the columns
+     * @return true if every annotated field could be mapped
+     */
+    private boolean collectColumns(TypeElement model, TypeElement type, List<ColumnMapping> columns) {
+        boolean valid = true;
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() == TypeKind.DECLARED) {
+            valid = collectColumns(model, (TypeElement) ((DeclaredType) superclass).asElement(), columns);
+        }
+
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (findAnnotation(field, COLUMN_ANNOTATION) == null) {
+                continue;
+            }
+            String column = (String) annotationValue(field, COLUMN_ANNOTATION);
+            if (column == null || column.isEmpty()) {
+                column = columnName(field.getSimpleName().toString());
+            }
+            if (ID_FIELD.equals(column)) {
+                error(field, "The ID column is always mapped through Identifiable.getId and setId");
+                valid = false;
+                continue;
+            }
+
+            String typeName = field.asType().toString();
+            ColumnKind kind = kindOf(field.asType());
+            if (kind == null) {
+                error(field, "Unsupported column type " + typeName);
+                valid = false;
+                continue;
+            }
+
+            String getter = findGetter(model, field);
+            String setter = findSetter(model, field);
+            if (getter == null || setter == null) {
+                error(field, "Column fields need a non private getter and setter or must not be private");
+                valid = false;
+                continue;
+            }
+            columns.add(new ColumnMapping(column, getter, setter, typeName, kind));
+        }
+
+        return valid;
+    }
+
+    /**
+     * Gets the kind of a field type.
+     *
+     * @param type the type
+     * @return the kind or null if the type is not supported
+     */
+    private ColumnKind kindOf(TypeMirror type) {
+        String name = type.toString();
+        if (type.getKind().isPrimitive() && type.getKind() != TypeKind.CHAR) {
+            return ColumnKind.PRIMITIVE;
+        }
+        if (BOXED_TYPES.contains(name)) {
+            return ColumnKind.BOXED;
+        }
+        if (DIRECT_TYPES.contains(name)) {
+            return ColumnKind.DIRECT;
+        }
+        if (OBJECT_ID.equals(name)) {
+            return ColumnKind.OBJECT_ID;
+        }
+        if ("java.util.Date".equals(name)) {
+            return ColumnKind.DATE;
+        }
+        if (type.getKind() == TypeKind.DECLARED && ((DeclaredType) type).asElement().getKind() == ElementKind.ENUM) {
+            return ColumnKind.ENUM;
+        }
+        return null;
+    }
+
+    /**
+     * Finds the expression reading a field from "object".
+     *
+     * @param model the model
+     * @param field the field
+     * @return the expression or null if the field is not accessible
+     */
+    private String findGetter(TypeElement model, VariableElement field) {
+        String capitalized = capitalize(field.getSimpleName().toString());
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(model))) {
+            String name = method.getSimpleName().toString();
+            if (method.getParameters().isEmpty() && !method.getModifiers().contains(Modifier.PRIVATE)
+                    && !method.getModifiers().contains(Modifier.STATIC)
+                    && processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType())
+                    && (name.equals("get" + capitalized) || name.equals("is" + capitalized))) {
+                return "object." + name + "()";
+            }
+        }
+        if (!field.getModifiers().contains(Modifier.PRIVATE)) {
+            return "object." + field.getSimpleName();
+        }
+        return null;
+    }
+
+    /**
+     * Finds the statement format storing a value in a field of "object".
+     *
+     * @param model the model
+     * @param field the field
+     * @return the format or null if the field is not accessible
+     */
+    private String findSetter(TypeElement model, VariableElement field) {
+        String name = "set" + capitalize(field.getSimpleName().toString());
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(model))) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == 1
+                    && !method.getModifiers().contains(Modifier.PRIVATE) && !method.getModifiers().contains(Modifier.STATIC)
+                    && processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), field.asType())) {
+                return "object." + name + "(%s);";
+            }
+        }
+        if (!field.getModifiers().contains(Modifier.PRIVATE) && !field.getModifiers().contains(Modifier.FINAL)) {
+            return "object." + field.getSimpleName() + " = %s;";
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a class implements Identifiable.
+     *
+     * @param type the type
+     * @return true, if is identifiable
+     */
+    private boolean isIdentifiable(TypeElement type) {
+        TypeElement identifiable = processingEnv.getElementUtils().getTypeElement("com.appgree.core.id.Identifiable");
+        return identifiable != null && processingEnv.getTypeUtils().isAssignable(type.asType(), identifiable.asType());
+    }
+
+    /**
+     * Checks if a class implements Versioned and maps a VERSION column.
+     *
+     * @param type the type
+     * @param columns the columns
+     * @return true, if is versioned
+     */
+    private boolean isVersioned(TypeElement type, List<ColumnMapping> columns) {
+        TypeElement versioned = processingEnv.getElementUtils().getTypeElement(VERSIONED);
+        if (versioned == null || !processingEnv.getTypeUtils().isAssignable(type.asType(), versioned.asType())) {
+            return false;
+        }
+        for (ColumnMapping column : columns) {
+            if (VERSION_FIELD.equals(column.getColumn())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks for a non private constructor without arguments.
+     *
+     * @param type the type
+     * @return true, if successful
+     */
+    private static boolean hasDefaultConstructor(TypeElement type) {
+        if (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)) {
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the generated class name, prefixed with the enclosing class names for nested classes.
+     *
+     * @param type the type
+     * @return the string
+     */
+    private static String generatedName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing.getKind().isClass()) {
+            name.insert(0, enclosing.getSimpleName());
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name.append(GENERATED_SUFFIX).toString();
+    }
+
+    /**
+     * Finds an annotation on an element.
+     *
+     * @param element the element
+     * @param annotation the annotation class name
+     * @return the annotation mirror or null
+     */
+    private static AnnotationMirror findAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the explicit value of an annotation.
+     *
+     * @param element the element
+     * @param annotation the annotation class name
+     * @return the value or null if it has the default value
+     */
+    private static Object annotationValue(Element element, String annotation) {
+        AnnotationMirror mirror = findAnnotation(element, annotation);
+        for (ExecutableElement key : mirror.getElementValues().keySet()) {
+            if (key.getSimpleName().contentEquals("value")) {
+                AnnotationValue value = mirror.getElementValues().get(key);
+                return value.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converts a field name to a column name, e.g. idUser to ID_USER.
+     *
+     * @param field the field
+     * @return the string
+     */
+    static String columnName(String field) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (Character.isUpperCase(c) && i > 0 && !Character.isUpperCase(field.charAt(i - 1))) {
+                sb.append('_');
+            }
+            sb.append(Character.toUpperCase(c));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Converts a column name to the name of its constant, e.g. ID_USER to ID_USER_COLUMN.
+     *
+     * @param column the column
+     * @return the string
+     */
+    private static String constantName(String column) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < column.length(); i++) {
+            char c = column.charAt(i);
+            sb.append(Character.isJavaIdentifierPart(c) ? Character.toUpperCase(c) : '_');
+        }
+        return sb.append("_COLUMN").toString();
+    }
+
+    /**
+     * Capitalizes a name.
+     *
+     * @param name the name
+     * @return the string
+     */
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Creates a java string literal.
+     *
+     * @param value the value
+     * @return the string
+     */
+    private static String literal(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * Reports an error on an element.
+     *
+     * @param element the element
+     * @param message the message
+     */
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.annotation.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.appgree.core.dao.BaseDAO;
+import com.appgree.core.id.Identifiable;
+import com.appgree.core.id.ObjectId;
+
+/**
+ * The Class TestDAOAnnotationProcessor.
+ */
+public class TestDAOAnnotationProcessor {
+
+    /** The Constant USER_SOURCE. */
+    private static final String USER_SOURCE = "package test.model;\n"
+            + "import com.appgree.core.dao.annotation.Column;\n"
+            + "import com.appgree.core.dao.annotation.Table;\n"
+            + "import com.appgree.core.id.Identifiable;\n"
+            + "import com.appgree.core.id.ObjectId;\n"
+            + "@Table(\"USERS\")\n"
+            + "public class User implements Identifiable {\n"
+            + "    private ObjectId id;\n"
+            + "    @Column private String name;\n"
+            + "    @Column(\"ID_LEADER\") private ObjectId leader;\n"
+            + "    @Column int loginCount;\n"
+            + "    @Column private Long score;\n"
+            + "    @Column private boolean active;\n"
+            + "    @Column private java.util.Date created;\n"
+            + "    @Column private java.util.concurrent.TimeUnit unit;\n"
+            + "    public ObjectId getId() { return id; }\n"
+            + "    public void setId(ObjectId id) { this.id = id; }\n"
+            + "    public String getName() { return name; }\n"
+            + "    public void setName(String name) { this.name = name; }\n"
+            + "    public ObjectId getLeader() { return leader; }\n"
+            + "    public void setLeader(ObjectId leader) { this.leader = leader; }\n"
+            + "    public Long getScore() { return score; }\n"
+            + "    public void setScore(Long score) { this.score = score; }\n"
+            + "    public boolean isActive() { return active; }\n"
+            + "    public void setActive(boolean active) { this.active = active; }\n"
+            + "    public java.util.Date getCreated() { return created; }\n"
+            + "    public void setCreated(java.util.Date created) { this.created = created; }\n"
+            + "    public java.util.concurrent.TimeUnit getUnit() { return unit; }\n"
+            + "    public void setUnit(java.util.concurrent.TimeUnit unit) { this.unit = unit; }\n"
+            + "}\n";
+
+    /**
+     * Test the generated DAO maps every column in the BaseDAO order.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testGeneratedDAO() throws Exception {
+        File dir = Files.createTempDirectory("dao-processor").toFile();
+        DiagnosticCollector<JavaFileObject> diagnostics = compile(dir, "User", USER_SOURCE);
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), diagnostics.getDiagnostics().isEmpty());
+
+        URLClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }, getClass().getClassLoader());
+        Class<?> daoClass = loader.loadClass("test.model.UserGeneratedDAO");
+        Class<?> userClass = loader.loadClass("test.model.User");
+        @SuppressWarnings("unchecked")
+        BaseDAO<Identifiable> dao = (BaseDAO<Identifiable>) daoClass.newInstance();
+        Assert.assertSame(dao, BaseDAO.getInstanceForClass(userClass.asSubclass(Identifiable.class)));
+
+        Assert.assertEquals(1, daoClass.getField("ID_COLUMN_INDEX").getInt(null));
+        Assert.assertEquals(3, daoClass.getField("ID_LEADER_COLUMN_INDEX").getInt(null));
+        Assert.assertEquals("LOGIN_COUNT", daoClass.getField("LOGIN_COUNT_COLUMN").get(null));
+        Assert.assertEquals("INSERT INTO USERS (NAME, ID_LEADER, LOGIN_COUNT, SCORE, ACTIVE, CREATED, UNIT, ID) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                invoke(dao, "insertClause", false));
+        Assert.assertEquals("UPDATE USERS SET NAME=?, ID_LEADER=?, LOGIN_COUNT=?, SCORE=?, ACTIVE=?, CREATED=?, UNIT=? WHERE ID=?",
+                invoke(dao, "updateClause"));
+        Assert.assertEquals("ID, NAME, ID_LEADER, LOGIN_COUNT, SCORE, ACTIVE, CREATED, UNIT FROM USERS A", invoke(dao, "selectClause"));
+
+        Identifiable user = (Identifiable) userClass.newInstance();
+        user.setId(ObjectId.fromLong(7));
+        userClass.getMethod("setName", String.class).invoke(user, "john");
+        userClass.getMethod("setActive", boolean.class).invoke(user, true);
+        userClass.getMethod("setCreated", Date.class).invoke(user, new Date(1000));
+        userClass.getMethod("setUnit", TimeUnit.class).invoke(user, TimeUnit.SECONDS);
+
+        Map<Integer, Object> parameters = new HashMap<>();
+        dao.serialize(user, recorder(PreparedStatement.class, parameters));
+        Assert.assertEquals("john", parameters.get(1));
+        Assert.assertNull(parameters.get(2));
+        Assert.assertEquals(0, parameters.get(3));
+        Assert.assertNull(parameters.get(4));
+        Assert.assertEquals(true, parameters.get(5));
+        Assert.assertEquals(1000L, ((Date) parameters.get(6)).getTime());
+        Assert.assertEquals("SECONDS", parameters.get(7));
+        Assert.assertEquals(7L, parameters.get(8));
+
+        // the select order is ID first, then the other columns as bound
+        Map<Integer, Object> columns = new HashMap<>();
+        columns.put(1, 7L);
+        for (int i = 1; i < 8; i++) {
+            columns.put(i + 1, parameters.get(i));
+        }
+        Identifiable read = dao.deserialize(recorder(ResultSet.class, columns));
+        Assert.assertEquals(user.getId(), read.getId());
+        Assert.assertEquals("john", userClass.getMethod("getName").invoke(read));
+        Assert.assertTrue(ObjectId.isNull((ObjectId) userClass.getMethod("getLeader").invoke(read)));
+        Assert.assertNull(userClass.getMethod("getScore").invoke(read));
+        Assert.assertEquals(true, userClass.getMethod("isActive").invoke(read));
+        Assert.assertEquals(new Date(1000), userClass.getMethod("getCreated").invoke(read));
+        Assert.assertEquals(TimeUnit.SECONDS, userClass.getMethod("getUnit").invoke(read));
+        loader.close();
+    }
+
+    /**
+     * Test versioned models get a compare and set update clause.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testVersionedDAO() throws Exception {
+        String source = "package test.model;\n"
+                + "import com.appgree.core.dao.Versioned;\n"
+                + "import com.appgree.core.dao.annotation.Column;\n"
+                + "import com.appgree.core.dao.annotation.Table;\n"
+                + "import com.appgree.core.id.ObjectId;\n"
+                + "@Table(\"DOCUMENTS\")\n"
+                + "public class Document implements Versioned {\n"
+                + "    private ObjectId id;\n"
+                + "    @Column String title;\n"
+                + "    @Column long version;\n"
+                + "    public ObjectId getId() { return id; }\n"
+                + "    public void setId(ObjectId id) { this.id = id; }\n"
+                + "    public long getVersion() { return version; }\n"
+                + "    public void setVersion(long version) { this.version = version; }\n"
+                + "}\n";
+        File dir = Files.createTempDirectory("dao-processor").toFile();
+        DiagnosticCollector<JavaFileObject> diagnostics = compile(dir, "Document", source);
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), diagnostics.getDiagnostics().isEmpty());
+
+        URLClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }, getClass().getClassLoader());
+        Object dao = loader.loadClass("test.model.DocumentGeneratedDAO").newInstance();
+        Assert.assertEquals("UPDATE DOCUMENTS SET TITLE=?, VERSION=?+1 WHERE ID=? AND VERSION=?", invoke(dao, "updateClause"));
+        loader.close();
+    }
+
+    /**
+     * Test unsupported columns are reported as compile errors.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testUnsupportedColumn() throws Exception {
+        String source = USER_SOURCE.replace("@Column private Long score;", "@Column private Object score;");
+        DiagnosticCollector<JavaFileObject> diagnostics = compile(Files.createTempDirectory("dao-processor").toFile(), "User", source);
+        Assert.assertFalse(diagnostics.getDiagnostics().isEmpty());
+        Assert.assertTrue(diagnostics.getDiagnostics().get(0).getMessage(null).contains("Unsupported column type"));
+    }
+
+    /**
+     * Test column names derived from field names.
+     */
+    @Test
+    public void testColumnName() {
+        Assert.assertEquals("ID_USER", DAOAnnotationProcessor.columnName("idUser"));
+        Assert.assertEquals("NAME", DAOAnnotationProcessor.columnName("name"));
+        Assert.assertEquals("URL_PATH", DAOAnnotationProcessor.columnName("urlPath"));
+    }
+
+    /**
+     * Compiles a model class in test.model running the processor.
+     *
+     * @param dir the output dir
+     * @param name the class name
+     * @param source the source
+     * @return the diagnostics
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static DiagnosticCollector<JavaFileObject> compile(File dir, String name, String source) throws IOException {
+        File sourceDir = new File(dir, "test/model");
+        sourceDir.mkdirs();
+        File sourceFile = new File(sourceDir, name + ".java");
+        Files.write(sourceFile.toPath(), source.getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+        try {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    Arrays.asList("-classpath", System.getProperty("java.class.path"), "-d", dir.getPath(), "-s", dir.getPath()), null,
+                    fileManager.getJavaFileObjects(sourceFile));
+            task.setProcessors(Collections.singletonList(new DAOAnnotationProcessor()));
+            task.call();
+        } finally {
+            fileManager.close();
+        }
+        return diagnostics;
+    }
+
+    /**
+     * Creates a PreparedStatement recording set calls or a ResultSet returning the given columns.
+     *
+     * @param <K> the key type
+     * @param clazz the clazz
+     * @param values the values by index
+     * @return the proxy
+     */
+    private static <K> K recorder(Class<K> clazz, final Map<Integer, Object> values) {
+        InvocationHandler handler = new InvocationHandler() {
+
+            private Object last;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("setNull")) {
+                    values.put((Integer) args[0], null);
+                    return null;
+                } else if (name.startsWith("set")) {
+                    values.put((Integer) args[0], args[1]);
+                    return null;
+                } else if (name.equals("wasNull")) {
+                    return last == null;
+                }
+                last = values.get(args[0]);
+                if (last != null || !method.getReturnType().isPrimitive()) {
+                    return last;
+                }
+                return method.getReturnType() == boolean.class ? Boolean.FALSE : method.getReturnType() == int.class ? (Object) 0 : (Object) 0L;
+            }
+        };
+        return clazz.cast(Proxy.newProxyInstance(TestDAOAnnotationProcessor.class.getClassLoader(), new Class<?>[] { clazz }, handler));
+    }
+
+    /**
+     * Invokes a protected DAO method.
+     *
+     * @param dao the dao
+     * @param name the name
+     * @param args the args
+     * @return the object
+     * @throws Exception the exception
+     */
+    private static Object invoke(Object dao, String name, Object... args) throws Exception {
+        Class<?>[] types = new Class<?>[args.length];
+        for (int i = 0; i < args.length; i++) {
+            types[i] = args[i] instanceof Boolean ? boolean.class : args[i].getClass();
+        }
+        Method method = dao.getClass().getDeclaredMethod(name, types);
+        method.setAccessible(true);
+        return method.invoke(dao, args);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.appgree.core.id.Identifiable;
+import com.appgree.core.id.LongList;
+import com.appgree.core.id.LongObjectMap;
+import com.appgree.core.id.LongSet;
+import com.appgree.core.id.ObjectId;
+
+/**
+ * Loads the objects referenced by foreign ids of a list of objects with one query per referenced class, instead of one query per object.
+ * Associations are registered first and loaded together: the ids referenced through every association to the same class are merged and
+ * fetched with a single BaseDAO.findByIds of the DAO registered for the class, then every object is linked to its referenced object. Loaded
+ * objects are kept, so later loads only fetch new ids. A loader is not thread safe.
+ *
+ * <pre>
+ * AssociationLoader loader = new AssociationLoader();
+ * loader.add(orders, Customer.class, new AssociationLoader.Association&lt;Order, Customer&gt;() { ... });
+ * loader.add(orders, Product.class, new AssociationLoader.Association&lt;Order, Product&gt;() { ... });
+ * loader.load(); // 2 queries
+ * </pre>
+ */
+public class AssociationLoader {
+
+    /**
+     * How an object references another one.
+     *
+     * @param <S> the type of the referencing objects
+     * @param <K> the type of the referenced objects
+     */
+    public interface Association<S, K extends Identifiable> {
+
+        /**
+         * Gets the id of the referenced object.
+         *
+         * @param source the referencing object
+         * @return the id, null if it references nothing
+         */
+        public ObjectId getForeignId(S source);
+
+        /**
+         * Links the referenced object.
+         *
+         * @param source the referencing object
+         * @param target the referenced object, null if it does not exist
+         */
+        public void link(S source, K target);
+    }
+
+    /**
+     * A registered association with its objects.
+     *
+     * @param <S> the type of the referencing objects
+     * @param <K> the type of the referenced objects
+     */
+    private static class Link<S, K extends Identifiable> {
+
+        /** The referencing objects. */
+        private final Collection<? extends S> sources;
+
+        /** The association. */
+        private final Association<S, K> association;
+
+        /**
+         * Instantiates a new link.
+         *
+         * @param sources the sources
+         * @param association the association
+         */
+        private Link(Collection<? extends S> sources, Association<S, K> association) {
+            this.sources = sources;
+            this.association = association;
+        }
+
+        /**
+         * Links every object to its referenced object.
+         *
+         * @param targets the loaded objects
+         */
+        private void link(LongObjectMap<K> targets) {
+            for (S source : sources) {
+                if (source != null) {
+                    ObjectId id = association.getForeignId(source);
+                    association.link(source, ObjectId.isNull(id) ? null : targets.get(id));
+                }
+            }
+        }
+    }
+
+    /**
+     * The pending and loaded objects of a class.
+     *
+     * @param <K> the key type
+     */
+    private static class Target<K extends Identifiable> {
+
+        /** The class. */
+        private final Class<K> clazz;
+
+        /** The associations to link on the next load. */
+        private final List<Link<?, K>> links = new ArrayList<>();
+
+        /** The ids to fetch on the next load. */
+        private final LongSet pendingIds = new LongSet();
+
+        /** The loaded objects. */
+        private final LongObjectMap<K> loaded = new LongObjectMap<>();
+
+        /** The ids loaded so far, including those without row. */
+        private final LongSet loadedIds = new LongSet();
+
+        /**
+         * Instantiates a new target.
+         *
+         * @param clazz the clazz
+         */
+        private Target(Class<K> clazz) {
+            this.clazz = clazz;
+        }
+
+        /**
+         * Registers an association.
+         *
+         * @param <S> the type of the referencing objects
+         * @param sources the sources
+         * @param association the association
+         */
+        private <S> void add(Collection<? extends S> sources, Association<S, K> association) {
+            links.add(new Link<S, K>(sources, association));
+            for (S source : sources) {
+                if (source != null) {
+                    ObjectId id = association.getForeignId(source);
+                    if (!ObjectId.isNull(id) && !loadedIds.contains(id)) {
+                        pendingIds.add(id);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Fetches the pending ids and links the registered associations.
+         *
+         * @return the number of queried ids
+         * @throws Exception the exception
+         */
+        private int load() throws Exception {
+            int queried = pendingIds.size();
+            if (queried > 0) {
+                BaseDAO<K> dao = BaseDAO.getInstanceForClass(clazz);
+                if (dao == null) {
+                    throw new IllegalArgumentException("No DAO registered for " + clazz.getName());
+                }
+                LongList ids = pendingIds.toList();
+                for (K object : dao.findByIds(ids.toIds())) {
+                    loaded.put(object.getId(), object);
+                }
+                for (int i = 0; i < ids.size(); i++) {
+                    loadedIds.add(ids.get(i));
+                }
+                pendingIds.clear();
+            }
+
+            for (Link<?, K> link : links) {
+                link.link(loaded);
+            }
+            links.clear();
+            return queried;
+        }
+    }
+
+    /** The targets by class, in registration order. */
+    private final Map<Class<? extends Identifiable>, Target<? extends Identifiable>> targets = new LinkedHashMap<>();
+
+    /**
+     * Registers an association of a list of objects, to be linked on the next load.
+     *
+     * @param <S> the type of the referencing objects
+     * @param <K> the type of the referenced objects
+     * @param sources the referencing objects
+     * @param clazz the class of the referenced objects
+     * @param association the association
+     * @return this loader
+     */
+    public <S, K extends Identifiable> AssociationLoader add(Collection<? extends S> sources, Class<K> clazz, Association<S, K> association) {
+        if (sources != null && !sources.isEmpty()) {
+            targetFor(clazz).add(sources, association);
+        }
+        return this;
+    }
+
+    /**
+     * Fetches the objects referenced by the registered associations, with one query per class, and links them.
+     *
+     * @return the number of queried ids
+     * @throws Exception the exception
+     */
+    public int load() throws Exception {
+        int queried = 0;
+        for (Target<? extends Identifiable> target : targets.values()) {
+            queried += target.load();
+        }
+        return queried;
+    }
+
+    /**
+     * Gets a loaded object.
+     *
+     * @param <K> the key type
+     * @param clazz the class
+     * @param id the id
+     * @return the object, null if not loaded or not found
+     */
+    public <K extends Identifiable> K get(Class<K> clazz, ObjectId id) {
+        @SuppressWarnings("unchecked")
+        Target<K> target = (Target<K>) targets.get(clazz);
+        return target == null || ObjectId.isNull(id) ? null : target.loaded.get(id);
+    }
+
+    /**
+     * Gets the target of a class, registering it.
+     *
+     * @param <K> the key type
+     * @param clazz the clazz
+     * @return the target
+     */
+    @SuppressWarnings("unchecked")
+    private <K extends Identifiable> Target<K> targetFor(Class<K> clazz) {
+        Target<K> target = (Target<K>) targets.get(clazz);
+        if (target == null) {
+            target = new Target<>(clazz);
+            targets.put(clazz, target);
+        }
+        return target;
+    }
+}
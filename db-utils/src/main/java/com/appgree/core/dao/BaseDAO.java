@@ -0,0 +1,2590 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import java.lang.reflect.ParameterizedType;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import com.appgree.core.dao.BatchResult.Outcome;
+import com.appgree.core.dao.processor.ColumnBatch;
+import com.appgree.core.dao.processor.ColumnType;
+import com.appgree.core.dao.processor.DataProcessor;
+import com.appgree.core.dao.processor.DataSerializer;
+import com.appgree.core.dao.processor.LongListProcessor;
+import com.appgree.core.dao.processor.PipelinedProcessor;
+import com.appgree.core.dao.processor.Record;
+import com.appgree.core.dao.query.builder.DBQueryBuilder;
+import com.appgree.core.dao.query.builder.DeleteClause;
+import com.appgree.core.dao.query.builder.FromToWhereClause;
+import com.appgree.core.dao.query.builder.Projection;
+import com.appgree.core.dao.query.builder.QueryCache;
+import com.appgree.core.dao.query.builder.SQLClause;
+import com.appgree.core.dao.query.builder.UpdateClause;
+import com.appgree.core.dao.query.builder.WhereClause;
+import com.appgree.core.dao.query.builder.WhereOperand;
+import com.appgree.core.database.provider.ConnectionListener;
+import com.appgree.core.database.provider.DataBaseManager;
+import com.appgree.core.database.provider.SQLErrorClassifier;
+import com.appgree.core.database.provider.SQLErrorClassifier.ErrorType;
+import com.appgree.core.id.IdGenerator;
+import com.appgree.core.id.Identifiable;
+import com.appgree.core.id.LongList;
+import com.appgree.core.id.LongSet;
+import com.appgree.core.id.ObjectId;
+
+/**
+ * Represents a database DAO to be extended by child classes.
+ *
+ * @param <T> the generic type
+ */
+public abstract class BaseDAO<T extends Identifiable> implements DataSerializer<T>, DataProcessor<T> {
+
+    /** The Constant ALIAS_A. */
+    private static final String ALIAS_A = "A.";
+
+    /** The Constant ALIAS, of the table in the queries of the DAO. */
+    private static final String ALIAS = "A";
+
+    /** The Constant ON_DUPLICATE_KEYWORD. */
+    private static final String ON_DUPLICATE_KEYWORD = " ON DUPLICATE KEY UPDATE ";
+
+    /** The Constant SET_KEYWORD. */
+    private static final String SET_KEYWORD = " SET ";
+
+    /** The Constant UPDATE_KEYWORD. */
+    private static final String UPDATE_KEYWORD = "UPDATE ";
+
+    /** The Constant DROP_TEMPORARY_TABLE. */
+    private static final String DROP_TEMPORARY_TABLE = "DROP TEMPORARY TABLE IF EXISTS ";
+
+    /** The Constant DELETE_FROM_KEYWORD. */
+    private static final String DELETE_FROM_KEYWORD = "DELETE FROM ";
+
+    /** The Constant ID_FIELD. */
+    protected static final String ID_FIELD = "ID";
+
+    /** The Constant VERSION_FIELD. */
+    public static final String VERSION_FIELD = "VERSION";
+
+    /** The Constant EQUALS_EXPRESSION. */
+    private static final String EQUALS_EXPRESSION = "=?";
+
+    /** The Constant INCREMENT_EXPRESSION. */
+    private static final String INCREMENT_EXPRESSION = "=?+1";
+
+    /** The Constant AND_KEYWORD. */
+    private static final String AND_KEYWORD = " AND ";
+
+    /** The Constant IN_KEYWORD. */
+    private static final String IN_KEYWORD = " IN ";
+
+    /** The Constant FROM_KEYWORD. */
+    private static final String FROM_KEYWORD = " FROM ";
+
+    /** The Constant WHERE_KEYWORD. */
+    private static final String WHERE_KEYWORD = " WHERE ";
+
+    /** The Constant MAX_ACCUM_BATCH. */
+    protected static final int MAX_ACCUM_BATCH = 1000;
+
+    /** Number of ids above which findByIds loads the ids into a temporary table instead of using IN lists. */
+    protected static final int TEMPORARY_TABLE_THRESHOLD = 10 * WhereOperand.MAX_IN_LIST_SIZE;
+
+    /** The Constant DEFAULT_MAX_RETRIES. */
+    private static final int DEFAULT_MAX_RETRIES = 3;
+
+    /** The Constant DEFAULT_RETRY_BACKOFF_MILLIS. */
+    private static final long DEFAULT_RETRY_BACKOFF_MILLIS = 50;
+
+    /** Maximum number of times the backoff is doubled. */
+    private static final int MAX_BACKOFF_SHIFT = 6;
+
+    /** The logger. */
+    private static Logger logger = Logger.getLogger(BaseDAO.class);
+
+    /** The Constant TEMPORARY_TABLE_PREFIX. */
+    private static final String TEMPORARY_TABLE_PREFIX = "TMP_IDS_";
+
+    /** The counter of temporary tables, so calls nested on the same connection do not share one. */
+    private static final AtomicLong TEMPORARY_TABLE_COUNTER = new AtomicLong();
+
+    /** The processor of cached counts, shared so every DAO shares their cached rows. */
+    private static final DataProcessor<Integer> COUNT_PROCESSOR = new DataProcessor<Integer>() {
+
+        @Override
+        public Integer process(ResultSet resultSet) throws Exception {
+            return resultSet.getInt(1);
+        }
+    };
+
+    /** The table name. */
+    private String tableName;
+
+    /** The class of the objects. */
+    private final Class<T> modelClass;
+
+    /** The insert clause. */
+    private volatile String insertClause = null;
+
+    /** The update clause. */
+    private volatile String updateClause = null;
+
+    /** The fields. */
+    protected List<String> fields = new ArrayList<>();
+
+    /** The insert ignore clause. */
+    private volatile String insertIgnoreClause;
+
+    /** The id generator for objects added without id. */
+    private IdGenerator idGenerator;
+
+    /** The maximum number of replays of a failed chunk. */
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+
+    /** The base backoff before replaying a chunk. */
+    private long retryBackoffMillis = DEFAULT_RETRY_BACKOFF_MILLIS;
+
+    /** The batch sizer of processAll. */
+    private final BatchSizer batchSizer = new BatchSizer(MAX_ACCUM_BATCH);
+
+    /** The projections created so far, by column list. */
+    private final ConcurrentMap<String, Projection> projections = new ConcurrentHashMap<>();
+
+    /** The processor of the cached queries of findAllCached. */
+    private final DataProcessor<T> cachedRowProcessor = new CachedRowProcessor();
+
+    /** The registered instances. */
+    private static Map<Class<? extends Identifiable>, BaseDAO<? extends Identifiable>> registeredInstances = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new base dao.
+     *
+     * @param tableName the table name
+     */
+    public BaseDAO(String tableName) {
+        this.tableName = tableName;
+        this.modelClass = getClassFromGenericInstance(this);
+
+        registeredInstances.put(modelClass, this);
+    }
+
+    /**
+     * Gets the class from generic instance, walking up the hierarchy so DAOs extending a generated DAO are registered too.
+     *
+     * @param <K> the key type
+     * @param instance the instance
+     * @return the class from generic instance
+     */
+    @SuppressWarnings("unchecked")
+    private static <K extends Identifiable> Class<K> getClassFromGenericInstance(BaseDAO<K> instance) {
+        Class<?> clazz = instance.getClass();
+        while (clazz.getSuperclass() != BaseDAO.class) {
+            clazz = clazz.getSuperclass();
+        }
+        return (Class<K>) ((ParameterizedType) clazz.getGenericSuperclass()).getActualTypeArguments()[0];
+    }
+
+    /**
+     * Fields.
+     *
+     * @return the list
+     */
+    protected List<String> allFields() {
+        return fields;
+    }
+
+    /**
+     * Fields to update on duplicate key.
+     *
+     * @return the list
+     */
+    protected List<String> fieldsToUpdate() {
+        return fields;
+    }
+
+    /**
+     * Gets the instance for class.
+     *
+     * @param <K> the key type
+     * @param clazz the clazz
+     * @return the instance for class
+     */
+    @SuppressWarnings("unchecked")
+    public static final <K extends Identifiable> BaseDAO<K> getInstanceForClass(Class<K> clazz) {
+        return (BaseDAO<K>) registeredInstances.get(clazz);
+    }
+
+    /**
+     * Sets the generator used to assign ids to objects added without a valid id. Without a generator those objects are rejected.
+     *
+     * @param idGenerator the id generator
+     */
+    public void setIdGenerator(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Assigns a generated id to an object without a valid id, if there is a generator.
+     *
+     * @param object the object
+     */
+    private void assignId(T object) {
+        if (idGenerator != null && object != null && ObjectId.isNull(object.getId())) {
+            object.setId(idGenerator.nextId());
+        }
+    }
+
+    /**
+     * Assigns generated ids to the objects without a valid id, if there is a generator.
+     *
+     * @param objects the objects
+     */
+    private void assignIds(List<T> objects) {
+        if (idGenerator != null && objects != null) {
+            for (T object : objects) {
+                assignId(object);
+            }
+        }
+    }
+
+    /**
+     * Adds a new row to a table.
+     *
+     * @param object the object
+     * @throws Exception the exception
+     */
+    public void add(T object) throws Exception {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            conn = DataBaseManager.getInstance().getConnection();
+            // Obtains identifier
+            assignId(object);
+            if (ObjectId.isNull(object.getId())) {
+                throw new SQLException("The object must have an valid identifier to be added");
+            }
+            // Inserts user
+            stmt = conn.prepareStatement(insertClause(false));
+
+            serialize(object, stmt);
+
+            stmt.executeUpdate();
+            written(object);
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            if (stmt != null) {
+                stmt.close();
+            }
+        }
+    }
+
+    /**
+     * Deletes a recrod from a table.
+     *
+     * @param id the id
+     * @throws SQLException the SQL exception
+     */
+    public void delete(ObjectId id) throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            conn = DataBaseManager.getInstance().getConnection();
+            String query = deleteClause();
+            stmt = conn.prepareStatement(query);
+            stmt.setLong(1, id.toLong());
+            stmt.executeUpdate();
+            deleted(id);
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            if (stmt != null) {
+                stmt.close();
+            }
+        }
+    }
+
+    /**
+     * Delete clause.
+     *
+     * @return the string
+     */
+    protected String deleteClause() {
+        return DELETE_FROM_KEYWORD + this.tableName + WHERE_KEYWORD + ID_FIELD + EQUALS_EXPRESSION;
+    }
+
+    /**
+     * Updates the rows matching a filter in a single statement. Like in findAll, the table has the alias A. The version of versioned rows is
+     * incremented, so objects read before fail their next update with an OptimisticLockException.
+     *
+     * @param assignments the values to set, by field
+     * @param filter the filter, null to update every row
+     * @return the number of updated rows
+     * @throws SQLException the SQL exception
+     */
+    public int updateWhere(Map<String, Object> assignments, WhereClause filter) throws SQLException {
+        UpdateClause update = createUpdate(assignments);
+        if (filter != null) {
+            update.where(filter);
+        }
+
+        writtenWhere();
+        return update.executeUpdate();
+    }
+
+    /**
+     * Updates the rows matching a filter in chunks of at most chunkSize rows. With intermediate commits the connection is committed after
+     * every chunk so large updates do not hold long locks, otherwise every chunk joins the transaction of the caller. Chunks are ranges of ids
+     * read in id order, so rows are updated once even if the assignments keep matching the filter. The table has the alias A and the version of
+     * versioned rows is incremented, see {@link #updateWhere(Map, WhereClause)}.
+     *
+     * @param assignments the values to set, by field
+     * @param filter the filter, null to update every row
+     * @param chunkSize the maximum number of rows per chunk
+     * @param intermediateCommits if the connection is committed after every chunk
+     * @return the number of updated rows
+     * @throws Exception the exception
+     */
+    public int updateWhere(Map<String, Object> assignments, WhereClause filter, int chunkSize, boolean intermediateCommits) throws Exception {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        createUpdate(assignments);
+        writtenWhere();
+
+        int updated = 0;
+        long from = Long.MIN_VALUE;
+        while (true) {
+            LongList ids = findIds(filter, from, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            long first = ids.get(0);
+            long last = ids.get(ids.size() - 1);
+            UpdateClause update = createUpdate(assignments).where(idRange(first, last));
+            if (filter != null) {
+                update.where(filter);
+            }
+            updated += update.executeUpdate();
+            invalidateCache();
+            if (intermediateCommits) {
+                DataBaseManager.getInstance().commitConnection();
+            }
+
+            if (ids.size() < chunkSize || last == Long.MAX_VALUE) {
+                break;
+            }
+            from = last + 1;
+        }
+
+        return updated;
+    }
+
+    /**
+     * Creates the UPDATE statement of a set of assignments, incrementing the version if versioned.
+     *
+     * @param assignments the assignments
+     * @return the update clause
+     */
+    private UpdateClause createUpdate(Map<String, Object> assignments) {
+        if (assignments == null || assignments.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to update");
+        }
+        UpdateClause update = DBQueryBuilder.update(this.tableName + " " + ALIAS);
+        for (Map.Entry<String, Object> assignment : assignments.entrySet()) {
+            if (ID_FIELD.equals(assignment.getKey()) || !fields.contains(assignment.getKey())
+                            || (VERSION_FIELD.equals(assignment.getKey()) && isVersioned())) {
+                throw new IllegalArgumentException("Cannot update column " + assignment.getKey() + " in table " + tableName);
+            }
+            Object value = assignment.getValue();
+            update.set(assignment.getKey(), value instanceof ObjectId ? ((ObjectId) value).toLong() : value);
+        }
+        if (isVersioned()) {
+            update.increment(VERSION_FIELD);
+        }
+
+        return update;
+    }
+
+    /**
+     * Gets the ids of the first rows matching a filter from an id on, in id order.
+     *
+     * @param filter the filter, can be null
+     * @param from the first id
+     * @param limit the maximum number of ids
+     * @return the ids
+     * @throws Exception the exception
+     */
+    private LongList findIds(WhereClause filter, long from, int limit) throws Exception {
+        WhereClause query = DBQueryBuilder.select(ALIAS_A + ID_FIELD).from(this.tableName + " " + ALIAS)
+                        .where(DBQueryBuilder.whereClause(ALIAS_A + ID_FIELD).greaterOrEqualThan(from));
+        if (filter != null) {
+            query.and(filter);
+        }
+        return findIds(query.orderBy(ALIAS_A + ID_FIELD).limit(limit));
+    }
+
+    /**
+     * Creates the condition of the ids between two ids, both included.
+     *
+     * @param first the first id
+     * @param last the last id
+     * @return the where clause
+     */
+    private static WhereClause idRange(long first, long last) {
+        return DBQueryBuilder.whereClause(ALIAS_A + ID_FIELD).greaterOrEqualThan(first).and(ALIAS_A + ID_FIELD).lowerOrEqualThan(last);
+    }
+
+    /**
+     * Deletes the rows matching a filter in a single statement. Like in findAll, the table has the alias A.
+     *
+     * @param filter the filter, null to delete every row
+     * @return the number of deleted rows
+     * @throws SQLException the SQL exception
+     */
+    public int deleteWhere(WhereClause filter) throws SQLException {
+        DeleteClause delete = DBQueryBuilder.deleteFrom(this.tableName, ALIAS);
+        if (filter != null) {
+            delete.where(filter);
+        }
+
+        writtenWhere();
+        return delete.executeUpdate();
+    }
+
+    /**
+     * Deletes the rows matching a filter in chunks of at most chunkSize rows, ranges of ids read in id order like in updateWhere (a DELETE with
+     * the alias A cannot be limited). With intermediate commits the connection is committed after every chunk so large purges do not hold long
+     * locks or grow the undo log, otherwise every chunk joins the transaction of the caller.
+     *
+     * @param filter the filter, null to delete every row
+     * @param chunkSize the maximum number of rows per chunk
+     * @param intermediateCommits if the connection is committed after every chunk
+     * @return the number of deleted rows
+     * @throws Exception the exception
+     */
+    public int deleteWhere(WhereClause filter, int chunkSize, boolean intermediateCommits) throws Exception {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        writtenWhere();
+
+        int deleted = 0;
+        long from = Long.MIN_VALUE;
+        while (true) {
+            LongList ids = findIds(filter, from, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            long last = ids.get(ids.size() - 1);
+            DeleteClause delete = DBQueryBuilder.deleteFrom(this.tableName, ALIAS).where(idRange(ids.get(0), last));
+            if (filter != null) {
+                delete.where(filter);
+            }
+            deleted += delete.executeUpdate();
+            invalidateCache();
+            if (intermediateCommits) {
+                DataBaseManager.getInstance().commitConnection();
+            }
+
+            if (ids.size() < chunkSize || last == Long.MAX_VALUE) {
+                break;
+            }
+            from = last + 1;
+        }
+
+        return deleted;
+    }
+
+    /**
+     * Deletes the rows of a collection of ids. See {@link #deleteAll(Collection, int, boolean)}.
+     *
+     * @param ids the ids
+     * @param intermediateCommits the intermediate commits
+     * @return the number of deleted rows
+     * @throws SQLException the SQL exception
+     */
+    public int deleteAll(Collection<ObjectId> ids, boolean intermediateCommits) throws SQLException {
+        return deleteAll(ids, WhereOperand.MAX_IN_LIST_SIZE, intermediateCommits);
+    }
+
+    /**
+     * Deletes the rows of a collection of ids with IN list deletes of at most chunkSize ids. Null and duplicated ids are skipped and ids are
+     * deleted in ascending order, so concurrent bulk deletes lock rows in the same order. IN lists are padded to a few bucketed sizes (see
+     * WhereOperand.bucketedSize), so a single prepared statement per bucket is reused for every chunk.
+     *
+     * @param ids the ids
+     * @param chunkSize the maximum number of ids per statement, at most WhereOperand.MAX_IN_LIST_SIZE
+     * @param intermediateCommits if the connection is committed after every chunk
+     * @return the number of deleted rows
+     * @throws SQLException the SQL exception
+     */
+    public int deleteAll(Collection<ObjectId> ids, int chunkSize, boolean intermediateCommits) throws SQLException {
+        if (chunkSize <= 0 || chunkSize > WhereOperand.MAX_IN_LIST_SIZE) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + WhereOperand.MAX_IN_LIST_SIZE);
+        }
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+
+        LongList sortedIds = LongList.fromIds(ids);
+        sortedIds.sortAndDeduplicate();
+
+        Connection conn = null;
+        Map<Integer, PreparedStatement> statements = new HashMap<>();
+        int deleted = 0;
+        int executed = 0;
+        try {
+            for (int start = 0; start < sortedIds.size(); start += chunkSize) {
+                int end = Math.min(sortedIds.size(), start + chunkSize);
+                int bucket = WhereOperand.bucketedSize(end - start);
+
+                if (conn == null) {
+                    conn = DataBaseManager.getInstance().getConnection();
+                }
+                PreparedStatement stmt = statements.get(bucket);
+                if (stmt == null) {
+                    stmt = conn.prepareStatement(DELETE_FROM_KEYWORD + this.tableName + WHERE_KEYWORD + ID_FIELD + IN_KEYWORD
+                                    + DBQueryBuilder.generatePlaceholderList(bucket));
+                    statements.put(bucket, stmt);
+                }
+                for (int i = 0; i < bucket; i++) {
+                    // pad with the last id of the chunk
+                    stmt.setLong(i + 1, sortedIds.get(Math.min(start + i, end - 1)));
+                }
+                deleted += stmt.executeUpdate();
+                executed = end;
+
+                if (intermediateCommits) {
+                    closeStatements(statements);
+                    DataBaseManager.getInstance().commitConnection();
+                    conn = null;
+                }
+            }
+        } finally {
+            closeStatements(statements);
+            deleted(sortedIds, executed);
+        }
+
+        return deleted;
+    }
+
+    /**
+     * Closes and removes a set of cached statements.
+     *
+     * @param statements the statements
+     * @throws SQLException the SQL exception
+     */
+    private static void closeStatements(Map<Integer, PreparedStatement> statements) throws SQLException {
+        try {
+            for (PreparedStatement stmt : statements.values()) {
+                stmt.close();
+            }
+        } finally {
+            statements.clear();
+        }
+    }
+
+    /**
+     * Find all records in a table matching the clause.
+     *
+     * @param sqlClause the sql clause
+     * @return the list
+     * @throws Exception the exception
+     */
+    protected List<T> findAll(SQLClause sqlClause) throws Exception {
+        return findAllWithProcessor(sqlClause, this);
+    }
+
+    /**
+     * Find all records in a table matching the clause and use a processor to return the value.
+     *
+     * @param <K> the key type
+     * @param query the query
+     * @param processor the processor
+     * @return the list
+     * @throws Exception the exception
+     */
+    protected <K> List<K> findAllWithProcessor(SQLClause query, DataProcessor<K> processor) throws Exception {
+        ResultSet rs = null;
+        try {
+            rs = query.execute();
+            if (rs == null) {
+                return null;
+            }
+
+            ArrayList<K> ret = new ArrayList<>();
+            while (rs.next()) {
+
+                ret.add(processor.process(rs));
+            }
+            return ret;
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            if (query != null) {
+                query.close();
+            }
+        }
+    }
+
+    /**
+     * Find all records matching the clause through the QueryCache, if enabled. Cached objects are shared by every caller, so they must not be
+     * modified, and are not registered in the IdentityMap.
+     *
+     * @param sqlClause the sql clause
+     * @return the list, unmodifiable if cached
+     * @throws Exception the exception
+     */
+    protected List<T> findAllCached(SQLClause sqlClause) throws Exception {
+        return sqlClause.executeCached(cachedRowProcessor);
+    }
+
+    /**
+     * Count all records in a table matching the clause through the QueryCache, if enabled.
+     *
+     * @param query the query, can be null
+     * @return the int
+     * @throws Exception the exception
+     */
+    public int countAllCached(WhereClause query) throws Exception {
+        FromToWhereClause count = DBQueryBuilder.selectCount().from(tableName);
+        List<Integer> counts = (query == null ? count : count.where(query)).executeCached(COUNT_PROCESSOR);
+        return counts.isEmpty() ? 0 : counts.get(0);
+    }
+
+    /**
+     * Find all records matching the clause, deserializing the rows on the workers of a PipelinedProcessor while this thread keeps reading.
+     * Useful for large results of wide rows. deserialize must be thread safe. Objects are registered in the IdentityMap of this thread, if
+     * open, once every row was read.
+     *
+     * @param sqlClause the sql clause
+     * @param ordered if the objects keep the row order
+     * @return the list
+     * @throws Exception the exception
+     */
+    protected List<T> findAllPipelined(SQLClause sqlClause, boolean ordered) throws Exception {
+        return register(findAllWithProcessorPipelined(sqlClause, new DataProcessor<T>() {
+
+            @Override
+            public T process(ResultSet resultSet) throws Exception {
+                return deserialize(resultSet);
+            }
+        }, ordered));
+    }
+
+    /**
+     * Find all records matching the clause and map them with a processor on the workers of a PipelinedProcessor. The processor must be
+     * thread safe.
+     *
+     * @param <K> the key type
+     * @param query the query
+     * @param processor the processor
+     * @param ordered if the results keep the row order
+     * @return the list
+     * @throws Exception the exception
+     */
+    protected <K> List<K> findAllWithProcessorPipelined(SQLClause query, DataProcessor<K> processor, boolean ordered) throws Exception {
+        PipelinedProcessor<K> pipeline = new PipelinedProcessor<>(processor, ordered);
+        query.execute(pipeline);
+
+        return pipeline.getResults();
+    }
+
+    /**
+     * Adds or updates a row in a table using the object's id.
+     *
+     * @param object the object
+     * @throws IllegalArgumentException if the object is versioned, see {@link #addOrUpdate(Identifiable, List)}
+     * @throws Exception the exception
+     */
+    public void addOrUpdate(T object) throws Exception {
+        addOrUpdate(object, this.fieldsToUpdate());
+    }
+
+    /**
+     * Adds the object or updates the specified fields on duplicate key. Versioned objects are rejected, since an update on duplicate key would
+     * overwrite rows changed since the object was read: use add and update, which compares the versions.
+     *
+     * @param object the object
+     * @param updateFields the update fields
+     * @throws IllegalArgumentException if the object is versioned
+     * @throws Exception the exception
+     */
+    public void addOrUpdate(T object, List<String> updateFields) throws Exception {
+        rejectVersioned();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            conn = DataBaseManager.getInstance().getConnection();
+            // Identifier is mandatory
+            assignId(object);
+            if (ObjectId.isNull(object.getId())) {
+                throw new SQLException("The object must have a valid identifier to be added");
+            }
+
+            StatementProcessor<T> processor = new UpdateStatementBuilder(updateFields);
+            stmt = processor.create(object, conn);
+            processor.setParams(object, stmt);
+
+            stmt.executeUpdate();
+            written(object);
+
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            if (stmt != null) {
+                stmt.close();
+            }
+        }
+    }
+
+    /**
+     * Adds the object or updates the specified fields on duplicate key.
+     *
+     * @param object the object
+     * @param updateFields the update fields
+     * @throws Exception the exception
+     */
+    public void addOrUpdate(T object, String[] updateFields) throws Exception {
+        addOrUpdate(object, Arrays.asList(updateFields));
+    }
+
+    /**
+     * Count all records in a table matching the clause.
+     *
+     * @param query the query
+     * @return the int
+     * @throws SQLException the SQL exception
+     */
+    public int countAll(WhereClause query) throws SQLException {
+        ResultSet rs = null;
+        try {
+            SQLClause clause = DBQueryBuilder.selectCount().from(tableName).where(query);
+            rs = clause.execute();
+            if (rs == null || !rs.next()) {
+                return 0;
+            }
+
+            return rs.getInt(1);
+
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            if (query != null) {
+                query.close();
+            }
+        }
+    }
+
+    /**
+     * Find all records matching a filter with a parallel scan of partitions ID ranges. See scanParallel. The objects are in range order and
+     * are registered in the IdentityMap of this thread, if open, once every range was read.
+     *
+     * @param filter the filter, can be null
+     * @param partitions the number of ranges
+     * @return the list
+     * @throws Exception the exception
+     */
+    public List<T> findAllParallel(WhereClause filter, int partitions) throws Exception {
+        return register(scanParallel(filter, partitions, new RangeScan<List<T>>() {
+
+            @Override
+            public List<T> scan(WhereClause range) throws Exception {
+                return findAll(selectFromTable().where(range));
+            }
+
+            @Override
+            public List<T> combine(List<T> combined, List<T> partial) {
+                combined.addAll(partial);
+                return combined;
+            }
+        }));
+    }
+
+    /**
+     * Count all records matching a filter with a parallel scan of partitions ID ranges. See scanParallel.
+     *
+     * @param filter the filter, can be null
+     * @param partitions the number of ranges
+     * @return the count
+     * @throws Exception the exception
+     */
+    public long countAllParallel(WhereClause filter, int partitions) throws Exception {
+        return scanParallel(filter, partitions, new RangeScan<Long>() {
+
+            @Override
+            public Long scan(WhereClause range) throws Exception {
+                return (long) countAll(range);
+            }
+
+            @Override
+            public Long combine(Long combined, Long partial) {
+                return combined + partial;
+            }
+        });
+    }
+
+    /**
+     * Scans the rows matching a filter in parallel, cutting the table in partitions ranges of the same width between the MIN(ID) and
+     * MAX(ID) of those rows. Suits tables whose ids are spread evenly; otherwise pass split points to the other scanParallel.
+     *
+     * @param <A> the type of the result
+     * @param filter the filter, can be null
+     * @param partitions the number of ranges
+     * @param scan the scan of every range
+     * @return the combined result
+     * @throws Exception the exception
+     */
+    public <A> A scanParallel(WhereClause filter, int partitions, RangeScan<A> scan) throws Exception {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("The number of partitions must be positive");
+        }
+        final long[] bounds = new long[2];
+        final boolean[] empty = new boolean[1];
+        FromToWhereClause query = DBQueryBuilder.select(new String[] { "MIN(" + ID_FIELD + ")", "MAX(" + ID_FIELD + ")" }).from(tableName + " " + ALIAS);
+        (filter == null ? query : query.where(filter)).execute(new DataProcessor<Void>() {
+
+            @Override
+            public Void process(ResultSet resultSet) throws Exception {
+                bounds[0] = resultSet.getLong(1);
+                empty[0] = resultSet.wasNull();
+                bounds[1] = resultSet.getLong(2);
+                return null;
+            }
+        });
+
+        return scanParallel(filter, empty[0] ? new LongList() : splitPoints(bounds[0], bounds[1], partitions), scan);
+    }
+
+    /**
+     * Scans the rows matching a filter in parallel, one ID range per task on the executor of asynchronous queries (see
+     * DataBaseManager.getExecutor), so every range runs on its own connection. n split points give n + 1 ranges: below the first point,
+     * between consecutive points and from the last point on. Partial results are combined in range order, skipping null ones, so the result
+     * is null only if every range was. If a range fails, the other ones are cancelled. The connection permit of the calling thread is given
+     * back while waiting, see DataBaseManager.waitFor. Must not be called from a task of the same executor, which could wait for itself.
+     *
+     * @param <A> the type of the result
+     * @param filter the filter, can be null
+     * @param splitPoints the ids where ranges start, in ascending order
+     * @param scan the scan of every range
+     * @return the combined result
+     * @throws Exception the exception
+     */
+    public <A> A scanParallel(WhereClause filter, LongList splitPoints, final RangeScan<A> scan) throws Exception {
+        List<Future<A>> partials = new ArrayList<>(splitPoints.size() + 1);
+        try {
+            for (int i = 0; i <= splitPoints.size(); i++) {
+                Long from = i == 0 ? null : splitPoints.get(i - 1);
+                Long to = i == splitPoints.size() ? null : splitPoints.get(i);
+                final WhereClause range = rangeCondition(filter, from, to);
+                partials.add(DataBaseManager.getInstance().getExecutor().submit(new Callable<A>() {
+
+                    @Override
+                    public A call() throws Exception {
+                        return scan.scan(range);
+                    }
+                }));
+            }
+
+            A combined = null;
+            for (Future<A> partial : partials) {
+                A result = DataBaseManager.getInstance().waitFor(partial);
+                if (result != null) {
+                    combined = combined == null ? result : scan.combine(combined, result);
+                }
+            }
+            return combined;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } finally {
+            for (Future<A> partial : partials) {
+                partial.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Gets the points splitting [min, max] in ranges of the same width.
+     *
+     * @param min the min id
+     * @param max the max id
+     * @param partitions the number of ranges
+     * @return the split points
+     */
+    static LongList splitPoints(long min, long max, int partitions) {
+        LongList points = new LongList(partitions);
+        long width = max - min;
+        if (width < 0) {
+            // the range overflows a long
+            return points;
+        }
+        long step = width / partitions + 1;
+        for (long point = min + step; point <= max && point > min && points.size() < partitions - 1; point += step) {
+            points.add(point);
+        }
+        return points;
+    }
+
+    /**
+     * Creates the condition of an ID range.
+     *
+     * @param filter the filter, can be null
+     * @param from the first id, null for no lower bound
+     * @param to the id after the last one, null for no upper bound
+     * @return the where clause
+     */
+    private static WhereClause rangeCondition(WhereClause filter, Long from, Long to) {
+        WhereClause condition = new WhereClause(new SQLClause());
+        if (from != null) {
+            condition = condition.and(ID_FIELD).greaterOrEqualThan(from);
+        }
+        if (to != null) {
+            condition = condition.and(ID_FIELD).lowerThan(to);
+        }
+        if (filter != null) {
+            condition.and(filter);
+        }
+        return condition;
+    }
+
+    /**
+     * Find a row in a table by id.
+     *
+     * @param id the id
+     * @return the t
+     * @throws Exception the exception
+     */
+    public T findById(ObjectId id) throws Exception {
+        IdentityMap map = IdentityMap.current();
+        if (map != null && map.contains(modelClass, id)) {
+            return map.get(modelClass, id);
+        }
+        return findObject(DBQueryBuilder.selectFromString(selectClause()).where(ALIAS_A + ID_FIELD).equal(id.toLong()).limit(1));
+    }
+
+    /**
+     * Find the rows in a table matching a collection of ids. Null and duplicated ids are skipped. Ids are queried using IN lists of at most
+     * WhereOperand.MAX_IN_LIST_SIZE values, so large collections are split in several queries whose results are concatenated. Collections with
+     * more than TEMPORARY_TABLE_THRESHOLD ids are joined through a temporary table instead (see processByIds). Returned objects are not sorted.
+     * With an open IdentityMap, only the ids not in the map are queried.
+     *
+     * @param ids the ids
+     * @return the list
+     * @throws Exception the exception
+     */
+    public List<T> findByIds(Collection<ObjectId> ids) throws Exception {
+        List<T> ret = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return ret;
+        }
+
+        IdentityMap map = IdentityMap.current();
+        LongSet seen = new LongSet(ids.size());
+        LongList uniqueIds = new LongList(ids.size());
+        for (ObjectId id : ids) {
+            if (!ObjectId.isNull(id) && seen.add(id)) {
+                if (map != null && map.contains(modelClass, id)) {
+                    ret.add(map.get(modelClass, id));
+                } else {
+                    uniqueIds.add(id);
+                }
+            }
+        }
+        if (uniqueIds.isEmpty()) {
+            return ret;
+        }
+
+        if (uniqueIds.size() > TEMPORARY_TABLE_THRESHOLD) {
+            final List<T> rows = ret;
+            // not streamed, since deserialize may run queries on the same connection
+            processByIds(uniqueIds, null, false, new DataProcessor<T>() {
+
+                @Override
+                public T process(ResultSet resultSet) throws Exception {
+                    T object = BaseDAO.this.process(resultSet);
+                    rows.add(object);
+                    return object;
+                }
+            });
+            return ret;
+        }
+
+        for (int start = 0; start < uniqueIds.size(); start += WhereOperand.MAX_IN_LIST_SIZE) {
+            LongList chunk = uniqueIds.subList(start, Math.min(uniqueIds.size(), start + WhereOperand.MAX_IN_LIST_SIZE));
+            ret.addAll(findAll(selectFromTable().where(ALIAS_A + ID_FIELD).in(chunk)));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Find a row by id on the executor of asynchronous queries (see DataBaseManager.getExecutor). The IdentityMap of the calling thread is not
+     * used, since the query runs in another thread.
+     *
+     * @param id the id
+     * @return the future object
+     * @throws InterruptedException if interrupted while the executor is saturated
+     */
+    public Future<T> findByIdAsync(final ObjectId id) throws InterruptedException {
+        return DataBaseManager.getInstance().getExecutor().submit(new Callable<T>() {
+
+            @Override
+            public T call() throws Exception {
+                return findById(id);
+            }
+        });
+    }
+
+    /**
+     * Find the rows matching a collection of ids on the executor of asynchronous queries. See findByIds and findByIdAsync.
+     *
+     * @param ids the ids
+     * @return the future list
+     * @throws InterruptedException if interrupted while the executor is saturated
+     */
+    public Future<List<T>> findByIdsAsync(final Collection<ObjectId> ids) throws InterruptedException {
+        return DataBaseManager.getInstance().getExecutor().submit(new Callable<List<T>>() {
+
+            @Override
+            public List<T> call() throws Exception {
+                return findByIds(ids);
+            }
+        });
+    }
+
+    /**
+     * Find all records matching the clause on the executor of asynchronous queries. See findAll and findByIdAsync.
+     *
+     * @param sqlClause the sql clause
+     * @return the future list
+     * @throws InterruptedException if interrupted while the executor is saturated
+     */
+    protected Future<List<T>> findAllAsync(final SQLClause sqlClause) throws InterruptedException {
+        return DataBaseManager.getInstance().getExecutor().submit(new Callable<List<T>>() {
+
+            @Override
+            public List<T> call() throws Exception {
+                return findAll(sqlClause);
+            }
+        });
+    }
+
+    /**
+     * Find the ids returned in the first column of a query.
+     *
+     * @param query the query
+     * @return the long list
+     * @throws Exception the exception
+     */
+    protected LongList findIds(SQLClause query) throws Exception {
+        LongListProcessor processor = new LongListProcessor();
+        query.execute(processor);
+
+        return processor.getValues();
+    }
+
+    /**
+     * Gets the projection of a subset of the DAO's fields. Projections are cached, so the select clause of a column list is only built once.
+     *
+     * @param columns the columns, in select order
+     * @return the projection
+     * @throws IllegalArgumentException if a column is not one of the DAO's fields
+     */
+    public Projection projection(String... columns) {
+        String key = StringUtils.join(columns, ',');
+        Projection projection = projections.get(key);
+        if (projection == null) {
+            for (String column : columns) {
+                if (!fields.contains(column)) {
+                    throw new IllegalArgumentException("Unknown column " + column + " in table " + tableName);
+                }
+            }
+            projection = new Projection(tableName, columns);
+            Projection previous = projections.putIfAbsent(key, projection);
+            if (previous != null) {
+                projection = previous;
+            }
+        }
+
+        return projection;
+    }
+
+    /**
+     * Find the projected columns of the rows matching a filter.
+     *
+     * @param projection the projection
+     * @param filter the filter, can be null
+     * @return the records
+     * @throws Exception the exception
+     */
+    public List<Record> findProjected(Projection projection, WhereClause filter) throws Exception {
+        return findAllWithProcessor(projectedQuery(projection, filter), projection);
+    }
+
+    /**
+     * Find the projected columns of a row by id.
+     *
+     * @param projection the projection
+     * @param id the id
+     * @return the record or null if not found
+     * @throws Exception the exception
+     */
+    public Record findProjectedById(Projection projection, ObjectId id) throws Exception {
+        return findObjectWithProcessor(projection.select().where(ALIAS_A + ID_FIELD).equal(id.toLong()).limit(1), projection);
+    }
+
+    /**
+     * Find the projected columns of the rows matching a filter as primitive arrays. Every projected column must be numeric.
+     *
+     * @param projection the projection
+     * @param filter the filter, can be null
+     * @param types the types of the projected columns
+     * @return the column batch
+     * @throws Exception the exception
+     */
+    public ColumnBatch findProjectedColumns(Projection projection, WhereClause filter, ColumnType... types) throws Exception {
+        if (types.length != projection.getColumns().size()) {
+            throw new IllegalArgumentException("Expected " + projection.getColumns().size() + " column types");
+        }
+        return projectedQuery(projection, filter).executeColumns(types);
+    }
+
+    /**
+     * Creates the query of a projection with an optional filter.
+     *
+     * @param projection the projection
+     * @param filter the filter, can be null
+     * @return the SQL clause
+     */
+    private static SQLClause projectedQuery(Projection projection, WhereClause filter) {
+        FromToWhereClause query = projection.select();
+        return filter == null ? query : query.where(filter);
+    }
+
+    /**
+     * Processes the rows matching a collection of ids and an optional filter. The ids are bulk loaded into a temporary table of the current
+     * connection and joined against the table in a single streamed query, so very large id sets need neither one query per IN list nor a
+     * materialized result. Since the connection of the current thread is busy until the rows are streamed, the processor must not run queries
+     * on it: findByIds reads the whole result first instead. Every call uses its own temporary table, which is dropped once the rows are
+     * processed, or when the connection is released if that fails.
+     *
+     * @param <K> the key type
+     * @param ids the ids
+     * @param filter the filter, can be null
+     * @param processor the processor applied to every row
+     * @return the number of processed rows
+     * @throws Exception the exception
+     */
+    public <K> int processByIds(Collection<ObjectId> ids, WhereClause filter, DataProcessor<K> processor) throws Exception {
+        return processByIds(LongList.fromIds(ids), filter, processor);
+    }
+
+    /**
+     * Processes the rows matching a list of ids and an optional filter using a temporary table. See processByIds(Collection, WhereClause,
+     * DataProcessor).
+     *
+     * @param <K> the key type
+     * @param ids the ids, they will be sorted
+     * @param filter the filter, can be null
+     * @param processor the processor applied to every row
+     * @return the number of processed rows
+     * @throws Exception the exception
+     */
+    public <K> int processByIds(LongList ids, WhereClause filter, DataProcessor<K> processor) throws Exception {
+        return processByIds(ids, filter, true, processor);
+    }
+
+    /**
+     * Processes the rows matching a list of ids and an optional filter using a temporary table.
+     *
+     * @param <K> the key type
+     * @param ids the ids, they will be sorted
+     * @param filter the filter, can be null
+     * @param streaming if the rows are streamed, otherwise they are read before being processed
+     * @param processor the processor applied to every row
+     * @return the number of processed rows
+     * @throws Exception the exception
+     */
+    private <K> int processByIds(LongList ids, WhereClause filter, boolean streaming, DataProcessor<K> processor) throws Exception {
+        final String temporaryTable = TEMPORARY_TABLE_PREFIX + this.tableName.replaceAll("\\W", "_") + "_"
+                        + TEMPORARY_TABLE_COUNTER.incrementAndGet();
+        final Connection conn = DataBaseManager.getInstance().getConnection();
+        ConnectionListener dropOnRelease = new ConnectionListener() {
+
+            @Override
+            public void onRelease() throws SQLException {
+                // temporary tables belong to the session that created them, so they are dropped on that connection
+                if (!conn.isClosed()) {
+                    executeUpdate(conn, DROP_TEMPORARY_TABLE + temporaryTable);
+                }
+            }
+        };
+
+        executeUpdate(conn, DBQueryBuilder.createTable(temporaryTable).temporary().withField(ID_FIELD, Long.class).notNull().primaryKey().toString());
+        DataBaseManager.getInstance().addConnectionListener(dropOnRelease);
+        try {
+            loadTemporaryIds(conn, temporaryTable, ids);
+
+            FromToWhereClause join = selectFromTable().join(temporaryTable + " T USING (" + ID_FIELD + ")");
+            SQLClause query = filter != null ? join.where(filter) : join;
+
+            return (streaming ? query.streaming() : query).execute(conn, processor);
+        } finally {
+            executeUpdate(conn, DROP_TEMPORARY_TABLE + temporaryTable);
+            DataBaseManager.getInstance().removeConnectionListener(dropOnRelease);
+        }
+    }
+
+    /**
+     * Inserts the ids into a temporary table using multi-row inserts of MAX_ACCUM_BATCH rows. The last statement is padded repeating the last
+     * id, which INSERT IGNORE discards, so a single statement is prepared.
+     *
+     * @param conn the conn
+     * @param temporaryTable the temporary table
+     * @param ids the ids
+     * @throws SQLException the SQL exception
+     */
+    private void loadTemporaryIds(Connection conn, String temporaryTable, LongList ids) throws SQLException {
+        int size = ids.size();
+        if (size == 0) {
+            return;
+        }
+        // sorted ids are appended to the primary key instead of splitting its pages
+        ids.sort();
+
+        int rowsPerStatement = Math.min(size, MAX_ACCUM_BATCH);
+        StringBuilder query = new StringBuilder("INSERT IGNORE INTO ").append(temporaryTable).append(" (").append(ID_FIELD).append(") VALUES ");
+        for (int i = 0; i < rowsPerStatement; i++) {
+            if (i > 0) {
+                query.append(", ");
+            }
+            query.append("(?)");
+        }
+
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(query.toString());
+            for (int start = 0; start < size; start += rowsPerStatement) {
+                for (int i = 0; i < rowsPerStatement; i++) {
+                    stmt.setLong(i + 1, ids.get(Math.min(start + i, size - 1)));
+                }
+                stmt.executeUpdate();
+            }
+        } finally {
+            if (stmt != null) {
+                stmt.close();
+            }
+        }
+    }
+
+    /**
+     * Executes an update statement without parameters.
+     *
+     * @param conn the conn
+     * @param query the query
+     * @throws SQLException the SQL exception
+     */
+    private static void executeUpdate(Connection conn, String query) throws SQLException {
+        Statement stmt = null;
+        try {
+            stmt = conn.createStatement();
+            stmt.executeUpdate(query);
+        } finally {
+            if (stmt != null) {
+                stmt.close();
+            }
+        }
+    }
+
+    /**
+     * Find a row in a table by id and uses a processor to calculate/process the result.
+     *
+     * @param <K> the key type
+     * @param query the query
+     * @param processor the processor
+     * @return the k
+     * @throws Exception the exception
+     */
+    protected <K> K findObjectWithProcessor(SQLClause query, DataProcessor<K> processor) throws Exception {
+        ResultSet rs = null;
+        try {
+            rs = query.execute();
+            if (rs == null || !rs.next()) {
+                return null;
+            }
+
+            return processor.process(rs);
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            if (query != null) {
+                query.close();
+            }
+        }
+    }
+
+    /**
+     * Find a row in a table matching the clause.
+     *
+     * @param query the query
+     * @return the t
+     * @throws Exception the exception
+     */
+    public T findObject(SQLClause query) throws Exception {
+        return findObjectWithProcessor(query, this);
+    }
+
+    /**
+     * Process all records in a table matching a clause and returns the number of affected rows.
+     *
+     * @param clause the query
+     * @param processor the insert to cache
+     * @return the int
+     * @throws Exception the exception
+     */
+    protected int countAllProcessed(SQLClause clause, DataProcessor<Boolean> processor) throws Exception {
+        ResultSet rs = null;
+        try {
+            rs = clause.execute();
+            if (rs == null) {
+                return 0;
+            }
+
+            int counter = 0;
+            while (rs.next()) {
+                if (processor.process(rs)) {
+                    counter++;
+                }
+            }
+
+            return counter;
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            if (clause != null) {
+                clause.close();
+            }
+        }
+
+    }
+
+    /**
+     * Inserts a new row in a table.
+     *
+     * @param ignoreErrors the ignore errors
+     * @return the string
+     */
+    protected String insertClause(boolean ignoreErrors) {
+        // clauses are built without locking: threads racing on the first call build the same string
+        if (ignoreErrors) {
+            String clause = insertIgnoreClause;
+            if (clause == null) {
+                clause = createInsertClause(true);
+                insertIgnoreClause = clause;
+            }
+            return clause;
+        } else {
+            String clause = insertClause;
+            if (clause == null) {
+                clause = createInsertClause(false);
+                insertClause = clause;
+            }
+            return clause;
+        }
+    }
+
+    private String createInsertClause(boolean ignoreErrors) {
+        StringBuilder sb = new StringBuilder();
+        List<String> fields = allFields();
+        sb.append("INSERT ");
+        if (ignoreErrors)
+            sb.append("IGNORE ");
+        sb.append("INTO ");
+        sb.append(this.tableName).append(" (");
+        StringBuilder values = new StringBuilder("(");
+        int index = 0;
+        for (String field : fields) {
+            index++;
+            values.append("?");
+            if (index < fields.size()) {
+                values.append(", ");
+            }
+            if (!ID_FIELD.endsWith(field)) {
+                sb.append(field).append(", ");
+            }
+        }
+        values.append(")");
+
+        sb.append(ID_FIELD).append(") VALUES ").append(values);
+
+        return sb.toString();
+    }
+
+    /**
+     * Creates a select clause from the DAO's fields.
+     *
+     * @return the string
+     */
+    protected String selectClause() {
+        return DBQueryBuilder.generateCSVFromList(this.fields) + FROM_KEYWORD + this.tableName + " A";
+    }
+
+    /**
+     * Helper class to set objects to a prepared statement with null control
+     *
+     * @param stmt the stmt
+     * @param column the column
+     * @param value the value
+     * @throws SQLException the SQL exception
+     */
+    protected void setNullable(PreparedStatement stmt, int column, int value) throws SQLException {
+        if (value > 0) {
+            stmt.setInt(column, value);
+        } else {
+            stmt.setNull(column, Types.INTEGER);
+        }
+    }
+
+    /**
+     * Helper class to set objects to a prepared statement with null control
+     *
+     * @param stmt the stmt
+     * @param column the column
+     * @param value the value
+     * @throws SQLException the SQL exception
+     */
+    protected void setNullable(PreparedStatement stmt, int column, long value) throws SQLException {
+        if (value > 0) {
+            stmt.setLong(column, value);
+        } else {
+            stmt.setNull(column, Types.BIGINT);
+        }
+    }
+
+    /**
+     * Helper class to set objects to a prepared statement with null control
+     *
+     * @param stmt the stmt
+     * @param column the column
+     * @param value the value
+     * @throws SQLException the SQL exception
+     */
+    protected void setNullable(PreparedStatement stmt, int column, Boolean value) throws SQLException {
+        if (value != null) {
+            stmt.setBoolean(column, value);
+        } else {
+            stmt.setNull(column, Types.BOOLEAN);
+        }
+    }
+
+    /**
+     * Helper class to set objects to a prepared statement with null control
+     *
+     * @param stmt the stmt
+     * @param column the column
+     * @param id the id
+     * @throws SQLException the SQL exception
+     */
+    protected void setNullable(PreparedStatement stmt, int column, ObjectId id) throws SQLException {
+        if (ObjectId.isNull(id)) {
+            stmt.setNull(column, Types.BIGINT);
+        } else {
+            setNullable(stmt, column, id.toLong());
+        }
+    }
+
+    /**
+     * Update a row in a table by id. Versioned objects are only updated if the row still has their version, which is then incremented in both
+     * the row and the object.
+     *
+     * @param object the object
+     * @throws OptimisticLockException if the object is versioned and its row was updated or deleted since it was read
+     * @throws Exception the exception
+     */
+    public void update(T object) throws Exception {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        String query = null;
+        try {
+            conn = DataBaseManager.getInstance().getConnection();
+            query = updateClause();
+            stmt = conn.prepareStatement(query);
+
+            serialize(object, stmt);
+
+            if (isVersioned()) {
+                Versioned versioned = (Versioned) object;
+                stmt.setLong(allFields().size() + 1, versioned.getVersion());
+                if (stmt.executeUpdate() == 0) {
+                    throw new OptimisticLockException(tableName, object.getId(), versioned.getVersion());
+                }
+                versioned.setVersion(versioned.getVersion() + 1);
+            } else {
+                stmt.executeUpdate();
+            }
+            written(object);
+        } catch (OptimisticLockException e) {
+            throw e;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage() + " -> " + query);
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            if (stmt != null) {
+                stmt.close();
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.appgree.core.dao.processor.DataProcessor#process(java.sql.ResultSet)
+     */
+    @Override
+    public T process(ResultSet resultSet) throws Exception {
+        T object = deserialize(resultSet);
+        IdentityMap map = IdentityMap.current();
+        return map != null ? map.register(modelClass, object) : object;
+    }
+
+    /**
+     * Registers objects read by other threads in the IdentityMap of the current thread, if open, replacing them by the instances already in
+     * it.
+     *
+     * @param objects the objects
+     * @return the objects
+     */
+    private List<T> register(List<T> objects) {
+        IdentityMap map = IdentityMap.current();
+        if (map != null && objects != null) {
+            for (int i = 0; i < objects.size(); i++) {
+                objects.set(i, map.register(modelClass, objects.get(i)));
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * Drops the objects of the DAO from the IdentityMap of the current thread, if open, and the cached queries of its table, before a set
+     * based write.
+     */
+    private void writtenWhere() {
+        invalidateCache();
+        IdentityMap map = IdentityMap.current();
+        if (map != null) {
+            map.clear(modelClass);
+        }
+    }
+
+    /**
+     * Drops the cached queries of the DAO's table from the QueryCache, if enabled.
+     */
+    private void invalidateCache() {
+        QueryCache cache = QueryCache.getInstance();
+        if (cache != null) {
+            cache.invalidate(tableName);
+        }
+    }
+
+    /**
+     * Updates the IdentityMap of the current thread, if open, with a written object.
+     *
+     * @param object the object
+     */
+    private void written(T object) {
+        invalidateCache();
+        IdentityMap map = IdentityMap.current();
+        if (map != null) {
+            map.put(modelClass, object);
+        }
+    }
+
+    /**
+     * Removes a deleted object from the IdentityMap of the current thread, if open.
+     *
+     * @param id the id
+     */
+    private void deleted(ObjectId id) {
+        invalidateCache();
+        IdentityMap map = IdentityMap.current();
+        if (map != null) {
+            map.remove(modelClass, id);
+        }
+    }
+
+    /**
+     * Removes the first ids of a list of deleted ids from the IdentityMap of the current thread, if open, invalidating the cached queries once.
+     *
+     * @param ids the ids
+     * @param count the number of deleted ids
+     */
+    private void deleted(LongList ids, int count) {
+        if (count == 0) {
+            return;
+        }
+        invalidateCache();
+        IdentityMap map = IdentityMap.current();
+        if (map != null) {
+            for (int i = 0; i < count; i++) {
+                map.remove(modelClass, ObjectId.fromLong(ids.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Updates the IdentityMap of the current thread, if open, with the objects of a batch write. Objects whose row may differ from them
+     * (ignored inserts, conflicts and failures) are removed.
+     *
+     * @param objects the objects
+     * @param result the result
+     * @return the result
+     */
+    private BatchResult written(List<T> objects, BatchResult result) {
+        invalidateCache();
+        IdentityMap map = IdentityMap.current();
+        if (map != null) {
+            for (int i = 0; i < result.size(); i++) {
+                T object = objects.get(i);
+                Outcome outcome = result.getOutcome(i);
+                if (outcome == Outcome.INSERTED || outcome == Outcome.UPDATED || outcome == Outcome.SUCCEEDED) {
+                    map.put(modelClass, object);
+                } else if (object != null) {
+                    map.remove(modelClass, object.getId());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Create an update statement from a DAO's fields. For versioned objects the version is incremented and checked, and the version read by
+     * the object is bound again after the id.
+     *
+     * @return the string
+     */
+    protected String updateClause() {
+        String clause = updateClause;
+        if (clause == null) {
+            List<String> fields = allFields();
+            boolean versioned = isVersioned();
+            // ID_USER=?, TMST=?, ID_DEVICE=?, ID_DEVICE_TYPE=?, VERSION=? WHERE ID = ?"
+            clause = UPDATE_KEYWORD + this.tableName + SET_KEYWORD;
+            int index = 0;
+            for (String field : fields) {
+                index++;
+                if (ID_FIELD.equals(field)) {
+                    continue;
+                }
+                clause += field + (versioned && VERSION_FIELD.equals(field) ? INCREMENT_EXPRESSION : EQUALS_EXPRESSION);
+                if (index < fields.size()) {
+                    clause += ", ";
+                }
+            }
+
+            clause += WHERE_KEYWORD + ID_FIELD + EQUALS_EXPRESSION;
+            if (versioned) {
+                clause += AND_KEYWORD + VERSION_FIELD + EQUALS_EXPRESSION;
+            }
+            // built without locking, see insertClause
+            updateClause = clause;
+        }
+
+        return clause;
+    }
+
+    /**
+     * Checks if updates compare and increment versions, i.e. the objects are Versioned and the DAO has a VERSION field.
+     *
+     * @return true, if is versioned
+     */
+    protected boolean isVersioned() {
+        return Versioned.class.isAssignableFrom(modelClass) && allFields().contains(VERSION_FIELD);
+    }
+
+    /**
+     * Rejects inserts or updates on duplicate key of versioned objects, which cannot compare versions.
+     */
+    private void rejectVersioned() {
+        if (isVersioned()) {
+            throw new IllegalArgumentException("Versioned objects of table " + tableName + " must be added and updated separately");
+        }
+    }
+
+    /**
+     * Gets the class of the objects.
+     *
+     * @return the model class
+     */
+    protected final Class<T> getModelClass() {
+        return modelClass;
+    }
+
+    /**
+     * Gets the table name.
+     *
+     * @return the table name
+     */
+    protected final String getTableName() {
+        return this.tableName;
+    }
+
+    /**
+     * Select from table.
+     *
+     * @return the from to where clause
+     */
+    protected FromToWhereClause selectFromTable() {
+        return DBQueryBuilder.selectFromString(selectClause());
+    }
+
+    /**
+     * Add a list of objects as rows in a table. The write stops at the first object that cannot be written, see processAll.
+     *
+     * @param objects the objects
+     * @param intermediateCommits the intermediate commits
+     * @return the outcome of every object
+     * @throws Exception the exception
+     */
+    public BatchResult addAll(List<T> objects, boolean intermediateCommits) throws Exception {
+        return addAll(objects, intermediateCommits, true);
+    }
+
+    /**
+     * Add a list of objects as rows in a table.
+     *
+     * @param objects the objects
+     * @param intermediateCommits the intermediate commits
+     * @param failFast false to record the objects that cannot be written in the result and write the rest, see processAll
+     * @return the outcome of every object
+     * @throws Exception the exception
+     */
+    public BatchResult addAll(List<T> objects, boolean intermediateCommits, boolean failFast) throws Exception {
+        assignIds(objects);
+        return writeAll(objects, new InsertStatementBuilder(), intermediateCommits, failFast);
+    }
+
+    /**
+     * Add a list of objects on the executor of asynchronous queries (see DataBaseManager.getExecutor). The write runs in the transaction of a
+     * worker thread, committed when it ends.
+     *
+     * @param objects the objects
+     * @param intermediateCommits the intermediate commits
+     * @return the future outcome of every object
+     * @throws InterruptedException if interrupted while the executor is saturated
+     */
+    public Future<BatchResult> addAllAsync(final List<T> objects, final boolean intermediateCommits) throws InterruptedException {
+        return DataBaseManager.getInstance().getExecutor().submit(new Callable<BatchResult>() {
+
+            @Override
+            public BatchResult call() throws Exception {
+                return addAll(objects, intermediateCommits);
+            }
+        });
+    }
+
+    /**
+     * Add or update a list of objects as rows in a table
+     *
+     * @param objects the objects
+     * @param intermediateCommits if intermediate commits are allowed
+     * @return the outcome of every object
+     * @throws Exception the exception
+     */
+    public BatchResult addOrUpdateAll(List<T> objects, boolean intermediateCommits) throws Exception {
+        return addOrUpdateAll(objects, this.fieldsToUpdate(), intermediateCommits, true);
+    }
+
+    /**
+     * Update selected fields in a table from a list of objects. The write stops at the first object that cannot be written, see processAll.
+     *
+     * @param objects the objects
+     * @param updateFields the update fields
+     * @param intermediateCommits if intermediate commits are allowed
+     * @return the outcome of every object
+     * @throws Exception the exception
+     */
+    public BatchResult addOrUpdateAll(List<T> objects, List<String> updateFields, boolean intermediateCommits) throws Exception {
+        return addOrUpdateAll(objects, updateFields, intermediateCommits, true);
+    }
+
+    /**
+     * Update selected fields in a table from a list of objects. Versioned objects are rejected, see {@link #addOrUpdate(Identifiable, List)}.
+     *
+     * @param objects the objects
+     * @param updateFields the update fields
+     * @param intermediateCommits if intermediate commits are allowed
+     * @param failFast false to record the objects that cannot be written in the result and write the rest, see processAll
+     * @return the outcome of every object
+     * @throws IllegalArgumentException if the objects are versioned
+     * @throws Exception the exception
+     */
+    public BatchResult addOrUpdateAll(List<T> objects, List<String> updateFields, boolean intermediateCommits, boolean failFast)
+                    throws Exception {
+        rejectVersioned();
+        assignIds(objects);
+        return writeAll(objects, new UpdateStatementBuilder(updateFields), intermediateCommits, failFast);
+    }
+
+    /**
+     * Update the rows of a list of objects by id in batches. Versioned objects are compared and set like in update, but a row changed since its
+     * object was read does not stop the batch: its outcome is CONFLICT (see BatchResult.getIds) and the other objects are still written. The
+     * version of every updated object is incremented. The write stops at the first object that cannot be written, see processAll.
+     *
+     * @param objects the objects
+     * @param intermediateCommits if intermediate commits are allowed
+     * @return the outcome of every object
+     * @throws Exception the exception
+     */
+    public BatchResult updateAll(List<T> objects, boolean intermediateCommits) throws Exception {
+        return updateAll(objects, intermediateCommits, true);
+    }
+
+    /**
+     * Update the rows of a list of objects by id in batches. See {@link #updateAll(List, boolean)}.
+     *
+     * @param objects the objects
+     * @param intermediateCommits if intermediate commits are allowed
+     * @param failFast false to record the objects that cannot be written in the result and write the rest, see processAll
+     * @return the outcome of every object
+     * @throws Exception the exception
+     */
+    public BatchResult updateAll(List<T> objects, boolean intermediateCommits, boolean failFast) throws Exception {
+        BatchResult result = new BatchResult(objects == null ? 0 : objects.size());
+        try {
+            processAll(objects, new UpdateByIdStatementBuilder(), intermediateCommits, failFast, result);
+        } finally {
+            if (isVersioned()) {
+                for (int i = 0; i < result.size(); i++) {
+                    if (result.getOutcome(i) == Outcome.UPDATED) {
+                        Versioned versioned = (Versioned) objects.get(i);
+                        versioned.setVersion(versioned.getVersion() + 1);
+                    }
+                }
+            }
+            written(objects, result);
+        }
+        return result;
+    }
+
+    /**
+     * Writes a list of objects with processAll and updates the IdentityMap and the QueryCache with the objects written, also when the write
+     * fails after some chunks.
+     *
+     * @param objects the objects
+     * @param processor the processor
+     * @param intermediateCommits if intermediate commits are allowed
+     * @param failFast if the write stops at the first object that cannot be written
+     * @return the outcome of every object
+     * @throws Exception the exception
+     */
+    private BatchResult writeAll(List<T> objects, StatementProcessor<T> processor, boolean intermediateCommits, boolean failFast)
+                    throws Exception {
+        BatchResult result = new BatchResult(objects == null ? 0 : objects.size());
+        try {
+            processAll(objects, processor, intermediateCommits, failFast, result);
+        } finally {
+            written(objects, result);
+        }
+        return result;
+    }
+
+    /**
+     * Sets how chunks of batch writes are replayed after a deadlock, lock wait timeout or connection error. Chunks are only replayed when
+     * intermediate commits are allowed, since otherwise the rollback would also discard the chunks written before.
+     *
+     * @param maxRetries the maximum number of replays of a chunk
+     * @param retryBackoffMillis the base backoff, doubled on every replay and randomized
+     */
+    public void setRetryPolicy(int maxRetries, long retryBackoffMillis) {
+        if (maxRetries < 0 || retryBackoffMillis < 0) {
+            throw new IllegalArgumentException("Retries and backoff cannot be negative");
+        }
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    /**
+     * Gets the batch sizer used by processAll, with the current batch size and the throughput achieved.
+     *
+     * @return the batch sizer
+     */
+    public BatchSizer getBatchSizer() {
+        return batchSizer;
+    }
+
+    /**
+     * Apply a prepared statement to a list of objects. Objects are written in chunks executed as a JDBC batch, sized by the DAO's BatchSizer
+     * from the bytes bound for the first object of every chunk and the latency of previous batches. With intermediate commits every chunk is
+     * committed on its own and a chunk failing with a retryable error (see SQLErrorClassifier) is rolled back and replayed after a randomized
+     * backoff, so the chunks already committed are never written again.
+     * <p>
+     * The result tells the outcome of every object from the update counts of the batch, read by the processor if it is a
+     * BatchStatementProcessor. An error that will happen again, like a duplicated key, stops the write with a BatchException. The chunk is
+     * rolled back with intermediate commits, otherwise the caller must roll back its transaction, which keeps the previous chunks.
+     *
+     * @param <K> the key type
+     * @param objects the objects
+     * @param processor the processor
+     * @param intermediateCommits if intermediate commits are allowed
+     * @return the outcome of every object and chunk
+     * @throws BatchException if a chunk fails, with the outcome of the objects up to the failed chunk. A retryable error stops a write
+     *             without intermediate commits after rolling back its transaction
+     * @throws Exception the exception
+     */
+    public <K extends Identifiable> BatchResult processAll(List<K> objects, StatementProcessor<K> processor, boolean intermediateCommits)
+                    throws Exception {
+        return processAll(objects, processor, intermediateCommits, true);
+    }
+
+    /**
+     * Apply a prepared statement to a list of objects. See {@link #processAll(List, StatementProcessor, boolean)}.
+     * <p>
+     * When the write does not fail fast, errors that will happen again do not stop it: when the batch reports which objects failed, the others
+     * are kept and those the driver did not get to are written one by one, otherwise the objects of the chunk are marked as failed, and the
+     * next chunks are written anyway. The same happens to a chunk that exhausts its replays. The caller must check the failed objects of the
+     * result (see BatchResult.getFailedIndexes).
+     *
+     * @param <K> the key type
+     * @param objects the objects
+     * @param processor the processor
+     * @param intermediateCommits if intermediate commits are allowed
+     * @param failFast false to record the objects that cannot be written in the result and write the rest
+     * @return the outcome of every object and chunk
+     * @throws BatchException if a chunk fails and the write fails fast, or a retryable error stops a write without intermediate commits
+     * @throws Exception the exception
+     */
+    public <K extends Identifiable> BatchResult processAll(List<K> objects, StatementProcessor<K> processor, boolean intermediateCommits,
+                    boolean failFast) throws Exception {
+        BatchResult result = new BatchResult(objects == null ? 0 : objects.size());
+        processAll(objects, processor, intermediateCommits, failFast, result);
+        return result;
+    }
+
+    /**
+     * Apply a prepared statement to a list of objects, setting the outcomes in a result.
+     *
+     * @param <K> the key type
+     * @param objects the objects
+     * @param processor the processor
+     * @param intermediateCommits if intermediate commits are allowed
+     * @param failFast if the write stops at the first object that cannot be written
+     * @param result the result, sized for the objects
+     * @throws Exception the exception
+     */
+    private <K extends Identifiable> void processAll(List<K> objects, StatementProcessor<K> processor, boolean intermediateCommits,
+                    boolean failFast, BatchResult result) throws Exception {
+        if (objects == null) {
+            return;
+        }
+
+        // without intermediate commits every chunk must run in the same transaction
+        Connection conn = intermediateCommits ? null : DataBaseManager.getInstance().getConnection();
+        ChunkStatement<K> statement = new ChunkStatement<>(processor);
+        List<K> chunk = new ArrayList<>(Math.min(objects.size(), MAX_ACCUM_BATCH));
+        int[] indexes = new int[Math.min(objects.size(), MAX_ACCUM_BATCH)];
+        int chunkSize = 0;
+        int index = 0;
+        try {
+            for (K object : objects) {
+                index++;
+                // Skip null objects
+                if (object == null) {
+                    result.setOutcome(index - 1, Outcome.SKIPPED);
+                    continue;
+                }
+                // Identifier is mandatory
+                if (ObjectId.isNull(object.getId())) {
+                    throw new SQLException("The object must have a valid identifier to be added");
+                }
+
+                if (chunk.isEmpty()) {
+                    batchSizer.sampleRow(BatchSizer.estimateRowBytes(processor, object));
+                    chunkSize = batchSizer.getBatchSize();
+                    if (indexes.length < chunkSize) {
+                        indexes = new int[chunkSize];
+                    }
+                }
+                indexes[chunk.size()] = index - 1;
+                chunk.add(object);
+                if (chunk.size() == chunkSize) {
+                    executeChunk(conn, chunk, indexes, statement, failFast, result);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                executeChunk(conn, chunk, indexes, statement, failFast, result);
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Writes a chunk of a batch. Without a connection, the chunk is committed on its own and replayed on retryable errors. With the connection
+     * of the whole batch, a retryable error rolls back the transaction, previous chunks included, before the write gives up.
+     *
+     * @param <K> the key type
+     * @param conn the connection of the whole batch, null if intermediate commits are allowed
+     * @param chunk the chunk
+     * @param indexes the index of every object of the chunk in the written list
+     * @param statement the statement of the batch
+     * @param failFast if an error that will happen again stops the write
+     * @param result the result
+     * @throws Exception the exception
+     */
+    private <K extends Identifiable> void executeChunk(Connection conn, List<K> chunk, int[] indexes, ChunkStatement<K> statement,
+                    boolean failFast, BatchResult result) throws Exception {
+        boolean intermediateCommits = conn == null;
+        int start = indexes[0];
+        int end = indexes[chunk.size() - 1] + 1;
+        for (int attempt = 1;; attempt++) {
+            try {
+                long startTime = System.nanoTime();
+                SQLException error = writeChunk(intermediateCommits ? DataBaseManager.getInstance().getConnection() : conn, chunk, indexes,
+                                statement, failFast, result);
+                if (intermediateCommits) {
+                    DataBaseManager.getInstance().commitConnection();
+                }
+                if (error == null) {
+                    batchSizer.batchWritten(chunk.size(), System.nanoTime() - startTime);
+                }
+                result.addChunk(new BatchResult.Chunk(start, end, chunk.size(), attempt, error, countFailed(result, indexes, chunk.size())));
+                return;
+            } catch (SQLException e) {
+                ErrorType type = SQLErrorClassifier.classify(e);
+                if (intermediateCommits) {
+                    discardConnection(type);
+                }
+                if (type.isRetryable() && intermediateCommits && attempt <= maxRetries) {
+                    long backoff = retryBackoffMillis << Math.min(attempt - 1, MAX_BACKOFF_SHIFT);
+                    logger.warn("Replaying chunk [" + start + ", " + end + ") of " + tableName + " after " + type + " error: "
+                                    + e.getMessage());
+                    try {
+                        Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+                        continue;
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        failChunk(result, indexes, chunk.size(), start, end, attempt, e);
+                        throw new BatchException(e, result);
+                    }
+                }
+
+                failChunk(result, indexes, chunk.size(), start, end, attempt, e);
+                if (type.isRetryable() && !intermediateCommits) {
+                    // some errors, like lock wait timeouts, only roll back the failed statement, so the previous chunks are rolled back here
+                    discardConnection(type);
+                    throw new BatchException(e, result);
+                }
+                if (failFast) {
+                    throw new BatchException(e, result);
+                }
+                logger.warn("Skipping chunk [" + start + ", " + end + ") of " + tableName + " after " + type + " error: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Executes a chunk as a JDBC batch and sets the outcome of its objects. If the batch fails with an error that will happen again and the
+     * write does not fail fast, the objects the driver reports as written are kept, those reported as failed are marked as such and the rest
+     * are written one by one.
+     *
+     * @param <K> the key type
+     * @param conn the connection
+     * @param chunk the chunk
+     * @param indexes the index of every object of the chunk in the written list
+     * @param statement the statement of the batch
+     * @param failFast if an error that will happen again is thrown
+     * @param result the result
+     * @return the error of the batch, null if it succeeded
+     * @throws Exception the exception
+     */
+    private <K extends Identifiable> SQLException writeChunk(Connection conn, List<K> chunk, int[] indexes, ChunkStatement<K> statement,
+                    boolean failFast, BatchResult result) throws Exception {
+        StatementProcessor<K> processor = statement.processor;
+        int[] counts;
+        try {
+            counts = executeBatch(statement.get(conn, chunk.get(0)), chunk, processor);
+        } catch (BatchUpdateException e) {
+            if (failFast || SQLErrorClassifier.classify(e).isRetryable()) {
+                throw e;
+            }
+            counts = e.getUpdateCounts() != null ? e.getUpdateCounts() : new int[0];
+            boolean reported = counts.length < chunk.size() || chunk.size() == 1;
+            for (int i = 0; i < counts.length && !reported; i++) {
+                reported = counts[i] != Statement.EXECUTE_FAILED;
+            }
+            // with rewritten batches the driver reports every object as failed, so all of them are written again
+            int written = reported ? Math.min(counts.length, chunk.size()) : 0;
+            for (int i = 0; i < written; i++) {
+                if (counts[i] == Statement.EXECUTE_FAILED) {
+                    result.setFailed(indexes[i], e);
+                } else {
+                    result.setOutcome(indexes[i], outcome(processor, counts[i]));
+                }
+            }
+            if (written < chunk.size()) {
+                writeOneByOne(conn, chunk, indexes, written, processor, result);
+            }
+            return e;
+        }
+
+        for (int i = 0; i < chunk.size(); i++) {
+            result.setOutcome(indexes[i], i < counts.length ? outcome(processor, counts[i]) : Outcome.SUCCEEDED);
+        }
+        return null;
+    }
+
+    /**
+     * Writes the objects of a chunk one by one, from the first the batch did not write.
+     *
+     * @param <K> the key type
+     * @param conn the connection
+     * @param chunk the chunk
+     * @param indexes the index of every object of the chunk in the written list
+     * @param from the first object to write
+     * @param processor the processor
+     * @param result the result
+     * @throws Exception the exception
+     */
+    private <K extends Identifiable> void writeOneByOne(Connection conn, List<K> chunk, int[] indexes, int from, StatementProcessor<K> processor,
+                    BatchResult result) throws Exception {
+        PreparedStatement stmt = null;
+        try {
+            stmt = processor.create(chunk.get(from), conn);
+            for (int i = from; i < chunk.size(); i++) {
+                try {
+                    processor.setParams(chunk.get(i), stmt);
+                    result.setOutcome(indexes[i], outcome(processor, stmt.executeUpdate()));
+                } catch (SQLException e) {
+                    if (SQLErrorClassifier.classify(e).isRetryable()) {
+                        // the transaction was rolled back, so is the chunk
+                        throw e;
+                    }
+                    result.setFailed(indexes[i], e);
+                }
+            }
+        } finally {
+            if (stmt != null) {
+                stmt.close();
+            }
+        }
+    }
+
+    /**
+     * Marks every object of a chunk as failed.
+     *
+     * @param result the result
+     * @param indexes the index of every object of the chunk in the written list
+     * @param size the size of the chunk
+     * @param start the index of the first object of the chunk
+     * @param end the index after the last object of the chunk
+     * @param attempts the attempts
+     * @param error the error
+     */
+    private static void failChunk(BatchResult result, int[] indexes, int size, int start, int end, int attempts, SQLException error) {
+        for (int i = 0; i < size; i++) {
+            result.setFailed(indexes[i], error);
+        }
+        result.addChunk(new BatchResult.Chunk(start, end, size, attempts, error, size));
+    }
+
+    /**
+     * Counts the failed objects of a chunk.
+     *
+     * @param result the result
+     * @param indexes the index of every object of the chunk in the written list
+     * @param size the size of the chunk
+     * @return the failed
+     */
+    private static int countFailed(BatchResult result, int[] indexes, int size) {
+        int failed = 0;
+        for (int i = 0; i < size; i++) {
+            if (result.getOutcome(indexes[i]) == Outcome.FAILED) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Maps an update count to an outcome, through the processor if it knows the meaning of its counts.
+     *
+     * @param <K> the key type
+     * @param processor the processor
+     * @param updateCount the update count
+     * @return the outcome
+     */
+    private static <K extends Identifiable> Outcome outcome(StatementProcessor<K> processor, int updateCount) {
+        if (updateCount == Statement.SUCCESS_NO_INFO || updateCount == Statement.EXECUTE_FAILED
+                        || !(processor instanceof BatchStatementProcessor)) {
+            return BatchResult.fromUpdateCount(updateCount);
+        }
+        return ((BatchStatementProcessor<K>) processor).outcome(updateCount);
+    }
+
+    /**
+     * Executes a chunk as a JDBC batch.
+     *
+     * @param <K> the key type
+     * @param stmt the statement
+     * @param chunk the chunk
+     * @param processor the processor
+     * @return the update counts
+     * @throws Exception the exception
+     */
+    private static <K extends Identifiable> int[] executeBatch(PreparedStatement stmt, List<K> chunk, StatementProcessor<K> processor)
+                    throws Exception {
+        // a failed batch may leave its objects in the statement
+        stmt.clearBatch();
+        for (K object : chunk) {
+            processor.setParams(object, stmt);
+            stmt.addBatch();
+        }
+        return stmt.executeBatch();
+    }
+
+    /**
+     * Rolls back the current connection after a failed chunk, releasing it if it is broken so the next chunk gets a new one.
+     *
+     * @param type the type of the error
+     */
+    private static void discardConnection(ErrorType type) {
+        try {
+            if (type == ErrorType.CONNECTION) {
+                DataBaseManager.getInstance().releaseConnection();
+            } else {
+                DataBaseManager.getInstance().rollBackConnection();
+            }
+        } catch (SQLException e) {
+            logger.warn("Error discarding the connection of a failed chunk: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deserializes the rows of the cached queries of a DAO. Processors of DAOs of the same class map rows the same way, so they are equal and
+     * share cached rows, while DAOs of other classes reading the same query do not.
+     */
+    private class CachedRowProcessor implements DataProcessor<T> {
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.dao.processor.DataProcessor#process(java.sql.ResultSet)
+         */
+        @Override
+        public T process(ResultSet resultSet) throws Exception {
+            return deserialize(resultSet);
+        }
+
+        /**
+         * Gets the class of the DAO.
+         *
+         * @return the class
+         */
+        private Class<?> getDAOClass() {
+            return BaseDAO.this.getClass();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return getDAOClass().hashCode();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof BaseDAO.CachedRowProcessor && ((BaseDAO<?>.CachedRowProcessor) obj).getDAOClass() == getDAOClass();
+        }
+    }
+
+    /**
+     * The statement of the chunks of a batch write. It is prepared once and reused by every chunk written on the same connection, and
+     * prepared again when a broken connection is replaced.
+     *
+     * @param <K> the key type
+     */
+    private static class ChunkStatement<K extends Identifiable> {
+
+        /** The processor. */
+        private final StatementProcessor<K> processor;
+
+        /** The connection of the statement. */
+        private Connection conn;
+
+        /** The statement. */
+        private PreparedStatement stmt;
+
+        /**
+         * Instantiates a new chunk statement.
+         *
+         * @param processor the processor
+         */
+        ChunkStatement(StatementProcessor<K> processor) {
+            this.processor = processor;
+        }
+
+        /**
+         * Gets the statement of a connection, preparing it if needed.
+         *
+         * @param conn the connection
+         * @param object the first object of the chunk
+         * @return the prepared statement
+         * @throws Exception the exception
+         */
+        PreparedStatement get(Connection conn, K object) throws Exception {
+            if (stmt != null && (this.conn != conn || stmt.isClosed())) {
+                close();
+            }
+            if (stmt == null) {
+                stmt = processor.create(object, conn);
+                this.conn = conn;
+            }
+            return stmt;
+        }
+
+        /**
+         * Closes the statement.
+         */
+        void close() {
+            if (stmt != null) {
+                try {
+                    stmt.close();
+                } catch (SQLException e) {
+                    logger.warn("Error closing the statement of a batch: " + e.getMessage());
+                } finally {
+                    stmt = null;
+                    conn = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * The Class InsertStatementBuilder.
+     */
+    public class InsertStatementBuilder implements BatchStatementProcessor<T> {
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.dao.StatementProcessor#create(com.appgree.core.id.Identifiable, java.sql.Connection)
+         */
+        /**
+         * Creates the.
+         *
+         * @param object the object
+         * @param conn the conn
+         * @return the prepared statement
+         * @throws SQLException the SQL exception
+         */
+        @Override
+        public PreparedStatement create(T object, Connection conn) throws SQLException {
+            String insertClause = insertClause(true);
+            return conn.prepareStatement(insertClause);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.dao.StatementProcessor#setParams(com.appgree.core.id.Identifiable, java.sql.PreparedStatement)
+         */
+        /**
+         * Sets the params.
+         *
+         * @param object the object
+         * @param stmt the stmt
+         * @throws Exception the exception
+         */
+        @Override
+        public void setParams(T object, PreparedStatement stmt) throws Exception  {
+            serialize(object, stmt);
+        }
+
+        /**
+         * Maps the update count of an INSERT IGNORE: 1 if inserted, 0 if the row already existed.
+         *
+         * @param updateCount the update count
+         * @return the outcome
+         */
+        @Override
+        public Outcome outcome(int updateCount) {
+            return updateCount == 0 ? Outcome.UNCHANGED : Outcome.INSERTED;
+        }
+    }
+
+    /**
+     * Updates rows by id with the update clause, comparing and setting versions of versioned objects.
+     */
+    public class UpdateByIdStatementBuilder implements BatchStatementProcessor<T> {
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.dao.StatementProcessor#create(com.appgree.core.id.Identifiable, java.sql.Connection)
+         */
+        @Override
+        public PreparedStatement create(T object, Connection conn) throws SQLException {
+            return conn.prepareStatement(updateClause());
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.dao.StatementProcessor#setParams(com.appgree.core.id.Identifiable, java.sql.PreparedStatement)
+         */
+        @Override
+        public void setParams(T object, PreparedStatement stmt) throws Exception {
+            serialize(object, stmt);
+            if (isVersioned()) {
+                stmt.setLong(allFields().size() + 1, ((Versioned) object).getVersion());
+            }
+        }
+
+        /**
+         * Maps the update count of an update by id: 0 means the row does not exist or, if versioned, is at another version.
+         *
+         * @param updateCount the update count
+         * @return the outcome
+         */
+        @Override
+        public Outcome outcome(int updateCount) {
+            if (updateCount == 0) {
+                return isVersioned() ? Outcome.CONFLICT : Outcome.UNCHANGED;
+            }
+            return Outcome.UPDATED;
+        }
+    }
+
+    /**
+     * The Class UpdateStatementBuilder.
+     */
+    public class UpdateStatementBuilder implements BatchStatementProcessor<T> {
+
+        /** The fields. */
+        private List<String> fields;
+
+        /**
+         * Instantiates a new update statement builder.
+         *
+         * @param updateFields the update fields
+         */
+        public UpdateStatementBuilder(List<String> updateFields) {
+            this.fields = updateFields;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.dao.StatementProcessor#create(com.appgree.core.id.Identifiable, java.sql.Connection)
+         */
+        /**
+         * Creates the.
+         *
+         * @param object the object
+         * @param conn the conn
+         * @return the prepared statement
+         * @throws SQLException the SQL exception
+         */
+        @Override
+        public PreparedStatement create(T object, Connection conn) throws SQLException {
+            StringBuilder query = new StringBuilder(insertClause(false));
+            query.append(ON_DUPLICATE_KEYWORD);
+            int i;
+            for (i = 0; i < fields.size() - 1; i++) {
+                query.append(fields.get(i));
+                query.append("=VALUES(");
+                query.append(fields.get(i));
+                query.append("), ");
+            }
+            query.append(fields.get(i));
+            query.append("=VALUES(");
+            query.append(fields.get(i));
+            query.append(")");
+
+            // Inserts
+            return conn.prepareStatement(query.toString());
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.dao.StatementProcessor#setParams(com.appgree.core.id.Identifiable, java.sql.PreparedStatement)
+         */
+        /**
+         * Sets the params.
+         *
+         * @param object the object
+         * @param stmt the stmt
+         * @throws Exception the exception
+         */
+        @Override
+        public void setParams(T object, PreparedStatement stmt) throws Exception {
+            serialize(object, stmt);
+        }
+
+        /**
+         * Maps the update count of an ON DUPLICATE KEY UPDATE: 1 if inserted, 2 if updated and 0 if the row had the same values. Connector/J
+         * reports found rows by default (useAffectedRows=false), so an unchanged row counts as 1 and is reported as inserted.
+         *
+         * @param updateCount the update count
+         * @return the outcome
+         */
+        @Override
+        public Outcome outcome(int updateCount) {
+            if (updateCount == 0) {
+                return Outcome.UNCHANGED;
+            }
+            return updateCount == 1 ? Outcome.INSERTED : Outcome.UPDATED;
+        }
+    }
+
+}
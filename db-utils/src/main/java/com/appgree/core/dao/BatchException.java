@@ -0,0 +1,40 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when a batch write cannot go on, i.e. a chunk of a write that fails fast could not be written, a retryable error rolled back a
+ * write without intermediate commits or the thread was interrupted while waiting to replay a chunk. The result tells the outcome of every
+ * object up to the failed chunk, so the caller can resume from there instead of writing the whole list again.
+ */
+public class BatchException extends SQLException {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /** The result. */
+    private final BatchResult result;
+
+    /**
+     * Instantiates a new batch exception.
+     *
+     * @param cause the error of the failed chunk
+     * @param result the result
+     */
+    public BatchException(SQLException cause, BatchResult result) {
+        super(cause.getMessage(), cause.getSQLState(), cause.getErrorCode(), cause);
+        this.result = result;
+    }
+
+    /**
+     * Gets the result up to the failed chunk, which is the last one.
+     *
+     * @return the result
+     */
+    public BatchResult getResult() {
+        return result;
+    }
+}
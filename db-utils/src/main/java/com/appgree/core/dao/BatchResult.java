@@ -0,0 +1,360 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.appgree.core.id.Identifiable;
+import com.appgree.core.id.ObjectId;
+
+/**
+ * The outcome of a batch write (see BaseDAO.processAll). Objects are written in chunks, each one executed as a JDBC batch and, with
+ * intermediate commits, committed on its own. The result records the outcome of every object, by its index in the written list, and of every
+ * chunk. Outcomes are kept in a byte per object and errors only for the failed ones.
+ */
+public class BatchResult {
+
+    /**
+     * The outcome of an object.
+     */
+    public enum Outcome {
+
+        /** Not written yet, the batch stopped before reaching it. */
+        PENDING,
+
+        /** Skipped because it was null. */
+        SKIPPED,
+
+        /** Inserted as a new row. */
+        INSERTED,
+
+        /** Written over an existing row. */
+        UPDATED,
+
+        /** Not written: the row existed (INSERT IGNORE) or already had the same values. */
+        UNCHANGED,
+
+        /** Written, but the driver did not report how (Statement.SUCCESS_NO_INFO, e.g. with rewritten batches). */
+        SUCCEEDED,
+
+        /** Not written because the row of a versioned object was changed since it was read (see Versioned). */
+        CONFLICT,
+
+        /** Not written because of an error. */
+        FAILED;
+
+        /** The values, cached to map ordinals back. */
+        private static final Outcome[] VALUES = values();
+
+        /**
+         * Checks if the object was written or found already written.
+         *
+         * @return true, if successful
+         */
+        public boolean isSuccessful() {
+            return this == INSERTED || this == UPDATED || this == UNCHANGED || this == SUCCEEDED;
+        }
+    }
+
+    /**
+     * The outcome of a chunk.
+     */
+    public static class Chunk {
+
+        /** The index in the written list of the first object of the chunk. */
+        private final int start;
+
+        /** The index in the written list after the last object of the chunk. */
+        private final int end;
+
+        /** The number of objects in the chunk. */
+        private final int size;
+
+        /** The number of executions, more than 1 if the chunk was replayed. */
+        private final int attempts;
+
+        /** The error of the last attempt, null if the batch succeeded. */
+        private final SQLException error;
+
+        /** The number of failed objects. */
+        private final int failed;
+
+        /**
+         * Instantiates a new chunk.
+         *
+         * @param start the start
+         * @param end the end
+         * @param size the size
+         * @param attempts the attempts
+         * @param error the error
+         * @param failed the failed
+         */
+        Chunk(int start, int end, int size, int attempts, SQLException error, int failed) {
+            this.start = start;
+            this.end = end;
+            this.size = size;
+            this.attempts = attempts;
+            this.error = error;
+            this.failed = failed;
+        }
+
+        /**
+         * Gets the index in the written list of the first object of the chunk.
+         *
+         * @return the start
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * Gets the index in the written list after the last object of the chunk. Null objects are skipped, so it can be greater than start +
+         * size.
+         *
+         * @return the end
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        /**
+         * Gets the number of objects in the chunk.
+         *
+         * @return the size
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Gets the number of executions.
+         *
+         * @return the attempts
+         */
+        public int getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * Gets the error of the last attempt. A chunk with an error can still have written some objects, see getFailed.
+         *
+         * @return the error, null if the batch succeeded
+         */
+        public SQLException getError() {
+            return error;
+        }
+
+        /**
+         * Gets the number of objects of the chunk that failed.
+         *
+         * @return the failed
+         */
+        public int getFailed() {
+            return failed;
+        }
+
+        /**
+         * Checks if every object of the chunk was written.
+         *
+         * @return true, if successful
+         */
+        public boolean isSuccessful() {
+            return failed == 0;
+        }
+    }
+
+    /** The outcome ordinals, by object index. */
+    private final byte[] outcomes;
+
+    /** The errors of the failed objects, by object index. */
+    private final Map<Integer, SQLException> errors = new TreeMap<>();
+
+    /** The chunks. */
+    private final List<Chunk> chunks = new ArrayList<>();
+
+    /**
+     * Instantiates a new batch result.
+     *
+     * @param size the number of objects
+     */
+    public BatchResult(int size) {
+        this.outcomes = new byte[size];
+    }
+
+    /**
+     * Maps an update count with the usual meaning: 0 is unchanged and any other count is an update.
+     *
+     * @param updateCount the update count
+     * @return the outcome
+     */
+    public static Outcome fromUpdateCount(int updateCount) {
+        if (updateCount == Statement.SUCCESS_NO_INFO) {
+            return Outcome.SUCCEEDED;
+        } else if (updateCount == Statement.EXECUTE_FAILED) {
+            return Outcome.FAILED;
+        }
+        return updateCount == 0 ? Outcome.UNCHANGED : Outcome.UPDATED;
+    }
+
+    /**
+     * Sets the outcome of an object.
+     *
+     * @param index the index
+     * @param outcome the outcome
+     */
+    void setOutcome(int index, Outcome outcome) {
+        outcomes[index] = (byte) outcome.ordinal();
+        errors.remove(index);
+    }
+
+    /**
+     * Marks an object as failed.
+     *
+     * @param index the index
+     * @param error the error
+     */
+    void setFailed(int index, SQLException error) {
+        outcomes[index] = (byte) Outcome.FAILED.ordinal();
+        errors.put(index, error);
+    }
+
+    /**
+     * Adds the outcome of a chunk.
+     *
+     * @param chunk the chunk
+     */
+    void addChunk(Chunk chunk) {
+        chunks.add(chunk);
+    }
+
+    /**
+     * Gets the number of objects.
+     *
+     * @return the int
+     */
+    public int size() {
+        return outcomes.length;
+    }
+
+    /**
+     * Gets the outcome of an object.
+     *
+     * @param index the index in the written list
+     * @return the outcome
+     */
+    public Outcome getOutcome(int index) {
+        return Outcome.VALUES[outcomes[index]];
+    }
+
+    /**
+     * Gets the error of a failed object.
+     *
+     * @param index the index in the written list
+     * @return the error, null if the object did not fail
+     */
+    public SQLException getError(int index) {
+        return errors.get(index);
+    }
+
+    /**
+     * Gets the indexes of the failed objects, in ascending order.
+     *
+     * @return the failed indexes
+     */
+    public List<Integer> getFailedIndexes() {
+        return new ArrayList<>(errors.keySet());
+    }
+
+    /**
+     * Counts the objects with an outcome.
+     *
+     * @param outcome the outcome
+     * @return the count
+     */
+    public int count(Outcome outcome) {
+        int count = 0;
+        for (byte value : outcomes) {
+            if (value == outcome.ordinal()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the ids of the objects with an outcome, e.g. those whose update lost the race against another one (CONFLICT).
+     *
+     * @param objects the written objects
+     * @param outcome the outcome
+     * @return the ids
+     */
+    public List<ObjectId> getIds(List<? extends Identifiable> objects, Outcome outcome) {
+        List<ObjectId> ids = new ArrayList<>();
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == outcome.ordinal()) {
+                ids.add(objects.get(i).getId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Gets the chunks, in execution order.
+     *
+     * @return the chunks
+     */
+    public List<Chunk> getChunks() {
+        return Collections.unmodifiableList(chunks);
+    }
+
+    /**
+     * Gets the chunks with objects that could not be written.
+     *
+     * @return the failed chunks
+     */
+    public List<Chunk> getFailedChunks() {
+        List<Chunk> failed = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            if (!chunk.isSuccessful()) {
+                failed.add(chunk);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Gets the number of objects written or found already written.
+     *
+     * @return the int
+     */
+    public int getWritten() {
+        int written = 0;
+        for (byte value : outcomes) {
+            if (Outcome.VALUES[value].isSuccessful()) {
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Checks if every object was written, skipping nulls.
+     *
+     * @return true, if successful
+     */
+    public boolean isSuccessful() {
+        for (byte value : outcomes) {
+            if (value != Outcome.SKIPPED.ordinal() && !Outcome.VALUES[value].isSuccessful()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.concurrent.TimeUnit;
+
+import com.appgree.core.id.Identifiable;
+
+/**
+ * Chooses the number of rows per JDBC batch of a DAO at runtime. The size is capped so a batch stays under a target number of bytes,
+ * estimated from the parameters bound for a sample row of every chunk, and adjusted from the observed batch latency: it grows by a tenth
+ * after every full batch faster than the target latency and halves after a slower one. Methods are synchronized since a DAO is shared by
+ * every thread.
+ */
+public class BatchSizer {
+
+    /** The Constant DEFAULT_TARGET_BATCH_BYTES, well under the default max_allowed_packet. */
+    public static final int DEFAULT_TARGET_BATCH_BYTES = 1024 * 1024;
+
+    /** The Constant DEFAULT_TARGET_LATENCY_MILLIS. */
+    public static final long DEFAULT_TARGET_LATENCY_MILLIS = 500;
+
+    /** The Constant DEFAULT_MAX_BATCH_SIZE. */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 10000;
+
+    /** Weight of a new sample in the moving averages. */
+    private static final double SMOOTHING = 0.2;
+
+    /** Estimated bytes of a row besides its parameters. */
+    private static final int ROW_OVERHEAD_BYTES = 16;
+
+    /** Estimated bytes of a numeric or temporal parameter. */
+    private static final int FIXED_PARAMETER_BYTES = 8;
+
+    /** The batch size. */
+    private int batchSize;
+
+    /** The target batch bytes. */
+    private int targetBatchBytes = DEFAULT_TARGET_BATCH_BYTES;
+
+    /** The target latency in nanoseconds. */
+    private long targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TARGET_LATENCY_MILLIS);
+
+    /** The max batch size. */
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    /** The average row bytes, 0 until the first sample. */
+    private double averageRowBytes = 0;
+
+    /** The average throughput in rows per second, 0 until the first batch. */
+    private double throughput = 0;
+
+    /**
+     * Instantiates a new batch sizer.
+     *
+     * @param initialBatchSize the initial batch size
+     */
+    public BatchSizer(int initialBatchSize) {
+        this.batchSize = Math.max(1, initialBatchSize);
+    }
+
+    /**
+     * Gets the number of rows of the next batch, capped by the byte target.
+     *
+     * @return the batch size
+     */
+    public synchronized int getBatchSize() {
+        int size = batchSize;
+        if (averageRowBytes > 0) {
+            size = (int) Math.min(size, targetBatchBytes / averageRowBytes);
+        }
+        return Math.max(1, Math.min(size, maxBatchSize));
+    }
+
+    /**
+     * Gets the throughput of the last batches.
+     *
+     * @return the rows per second
+     */
+    public synchronized double getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Gets the average estimated size of a row.
+     *
+     * @return the bytes
+     */
+    public synchronized double getAverageRowBytes() {
+        return averageRowBytes;
+    }
+
+    /**
+     * Sets the target bytes per batch.
+     *
+     * @param targetBatchBytes the bytes
+     */
+    public synchronized void setTargetBatchBytes(int targetBatchBytes) {
+        this.targetBatchBytes = Math.max(1, targetBatchBytes);
+    }
+
+    /**
+     * Sets the target latency of a batch.
+     *
+     * @param targetLatencyMillis the milliseconds
+     */
+    public synchronized void setTargetLatencyMillis(long targetLatencyMillis) {
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, targetLatencyMillis));
+    }
+
+    /**
+     * Sets the maximum rows per batch.
+     *
+     * @param maxBatchSize the max batch size
+     */
+    public synchronized void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    /**
+     * Adds the estimated size of a sample row.
+     *
+     * @param rowBytes the row bytes
+     */
+    public synchronized void sampleRow(long rowBytes) {
+        averageRowBytes = averageRowBytes == 0 ? rowBytes : averageRowBytes + SMOOTHING * (rowBytes - averageRowBytes);
+    }
+
+    /**
+     * Records a written batch and adapts the size.
+     *
+     * @param rows the rows of the batch
+     * @param elapsedNanos the time to execute (and commit) the batch
+     */
+    public synchronized void batchWritten(int rows, long elapsedNanos) {
+        double rowsPerSecond = rows * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsedNanos);
+        throughput = throughput == 0 ? rowsPerSecond : throughput + SMOOTHING * (rowsPerSecond - throughput);
+
+        if (elapsedNanos > targetLatencyNanos) {
+            batchSize = Math.max(1, Math.min(batchSize, rows) / 2);
+        } else if (rows >= getBatchSize()) {
+            // only full batches can tell that a larger size is still fast enough
+            int size = getBatchSize();
+            batchSize = Math.min(maxBatchSize, size + Math.max(1, size / 10));
+        }
+    }
+
+    /**
+     * Estimates the bytes a row sends to the server by binding it to a statement that only adds up the size of every parameter.
+     *
+     * @param <K> the key type
+     * @param processor the processor
+     * @param object the object
+     * @return the estimated bytes
+     * @throws Exception the exception
+     */
+    public static <K extends Identifiable> long estimateRowBytes(StatementProcessor<K> processor, K object) throws Exception {
+        final long[] bytes = { ROW_OVERHEAD_BYTES };
+        PreparedStatement sizer = (PreparedStatement) Proxy.newProxyInstance(BatchSizer.class.getClassLoader(),
+                        new Class<?>[] { PreparedStatement.class }, new InvocationHandler() {
+
+                            @Override
+                            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                                if (method.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                                    bytes[0] += method.getName().equals("setNull") ? 1 : parameterBytes(args[1]);
+                                }
+                                Class<?> type = method.getReturnType();
+                                if (type == boolean.class) {
+                                    return Boolean.FALSE;
+                                } else if (type == int.class) {
+                                    return 0;
+                                } else if (type == long.class) {
+                                    return 0L;
+                                }
+                                return null;
+                            }
+                        });
+        processor.setParams(object, sizer);
+
+        return bytes[0];
+    }
+
+    /**
+     * Estimates the bytes of a parameter value.
+     *
+     * @param value the value
+     * @return the bytes
+     */
+    private static long parameterBytes(Object value) {
+        if (value == null) {
+            return 1;
+        } else if (value instanceof CharSequence) {
+            return ((CharSequence) value).length() + 2;
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length + 2;
+        } else if (value instanceof BigDecimal) {
+            return value.toString().length();
+        }
+        return FIXED_PARAMETER_BYTES;
+    }
+}
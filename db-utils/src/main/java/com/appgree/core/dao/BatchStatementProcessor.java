@@ -0,0 +1,24 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import com.appgree.core.dao.BatchResult.Outcome;
+import com.appgree.core.id.Identifiable;
+
+/**
+ * A statement processor that knows how to read the update counts of its statement, since their meaning depends on the statement (e.g. INSERT
+ * IGNORE or ON DUPLICATE KEY UPDATE). Processors that do not implement it get the outcomes of BatchResult.fromUpdateCount.
+ *
+ * @param <K> the key type
+ */
+public interface BatchStatementProcessor<K extends Identifiable> extends StatementProcessor<K> {
+
+    /**
+     * Maps the update count of an object to its outcome.
+     *
+     * @param updateCount the update count, or Statement.SUCCESS_NO_INFO
+     * @return the outcome
+     */
+    public Outcome outcome(int updateCount);
+}
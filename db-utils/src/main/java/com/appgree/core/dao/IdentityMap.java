@@ -0,0 +1,217 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.appgree.core.database.provider.DataBaseManager;
+import com.appgree.core.database.provider.TransactionListener;
+import com.appgree.core.id.Identifiable;
+import com.appgree.core.id.LongObjectMap;
+import com.appgree.core.id.ObjectId;
+
+/**
+ * Keeps one instance per object read or written by the current thread while the map is open, so BaseDAO.findById and findByIds return it
+ * without a query and findAll returns it instead of a new copy. The map is bound to the connection of the thread: it is emptied when the
+ * transaction is rolled back and closed when the connection is released. Objects are kept by class and id in a LongObjectMap per class.
+ */
+public final class IdentityMap implements TransactionListener {
+
+    /** The map of the current thread. */
+    private static final ThreadLocal<IdentityMap> current = new ThreadLocal<>();
+
+    /** The objects by class and id. */
+    private final Map<Class<?>, LongObjectMap<Identifiable>> objects = new HashMap<>();
+
+    /**
+     * Instantiates a new identity map.
+     */
+    private IdentityMap() {}
+
+    /**
+     * Opens the identity map of the current thread, if not already open.
+     *
+     * @return the identity map
+     */
+    public static IdentityMap open() {
+        IdentityMap map = current.get();
+        if (map == null) {
+            map = new IdentityMap();
+            current.set(map);
+            DataBaseManager.getInstance().addConnectionListener(map);
+        }
+        return map;
+    }
+
+    /**
+     * Gets the identity map of the current thread.
+     *
+     * @return the identity map, null if not open
+     */
+    public static IdentityMap current() {
+        return current.get();
+    }
+
+    /**
+     * Closes the identity map of the current thread, discarding its objects.
+     */
+    public void close() {
+        objects.clear();
+        if (current.get() == this) {
+            current.remove();
+            DataBaseManager.getInstance().removeConnectionListener(this);
+        }
+    }
+
+    /**
+     * Gets an object.
+     *
+     * @param <K> the key type
+     * @param clazz the class
+     * @param id the id
+     * @return the object, null if not in the map
+     */
+    public <K extends Identifiable> K get(Class<K> clazz, ObjectId id) {
+        LongObjectMap<Identifiable> instances = objects.get(clazz);
+        return instances == null || ObjectId.isNull(id) ? null : clazz.cast(instances.get(id));
+    }
+
+    /**
+     * Checks if an object is in the map.
+     *
+     * @param clazz the class
+     * @param id the id
+     * @return true, if successful
+     */
+    public boolean contains(Class<? extends Identifiable> clazz, ObjectId id) {
+        LongObjectMap<Identifiable> instances = objects.get(clazz);
+        return instances != null && !ObjectId.isNull(id) && instances.containsKey(id);
+    }
+
+    /**
+     * Adds an object read from the database. If the map already has an instance of the object, it is kept and returned.
+     *
+     * @param <K> the key type
+     * @param clazz the class
+     * @param object the object
+     * @return the instance of the object in the map
+     */
+    public <K extends Identifiable> K register(Class<K> clazz, K object) {
+        if (object == null || ObjectId.isNull(object.getId())) {
+            return object;
+        }
+        K existing = get(clazz, object.getId());
+        if (existing != null) {
+            return existing;
+        }
+        instances(clazz).put(object.getId(), object);
+        return object;
+    }
+
+    /**
+     * Adds or replaces an object written to the database.
+     *
+     * @param <K> the key type
+     * @param clazz the class
+     * @param object the object
+     */
+    public <K extends Identifiable> void put(Class<K> clazz, K object) {
+        if (object != null && !ObjectId.isNull(object.getId())) {
+            instances(clazz).put(object.getId(), object);
+        }
+    }
+
+    /**
+     * Removes an object.
+     *
+     * @param clazz the class
+     * @param id the id
+     */
+    public void remove(Class<? extends Identifiable> clazz, ObjectId id) {
+        LongObjectMap<Identifiable> instances = objects.get(clazz);
+        if (instances != null && !ObjectId.isNull(id)) {
+            instances.remove(id);
+        }
+    }
+
+    /**
+     * Removes every object of a class, e.g. after a set based update.
+     *
+     * @param clazz the class
+     */
+    public void clear(Class<? extends Identifiable> clazz) {
+        objects.remove(clazz);
+    }
+
+    /**
+     * Removes every object.
+     */
+    public void clear() {
+        objects.clear();
+    }
+
+    /**
+     * Gets the number of objects.
+     *
+     * @return the int
+     */
+    public int size() {
+        int size = 0;
+        for (LongObjectMap<Identifiable> instances : objects.values()) {
+            size += instances.size();
+        }
+        return size;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.appgree.core.database.provider.TransactionListener#onRollback()
+     */
+    @Override
+    public void onRollback() {
+        // objects written in the transaction no longer match their rows
+        clear();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.appgree.core.database.provider.TransactionListener#onCommit()
+     */
+    @Override
+    public void onCommit() {
+        // committed objects still match their rows
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.appgree.core.database.provider.ConnectionListener#onRelease()
+     */
+    @Override
+    public void onRelease() {
+        // the manager already discarded its listeners
+        objects.clear();
+        if (current.get() == this) {
+            current.remove();
+        }
+    }
+
+    /**
+     * Gets the instances of a class, creating the map.
+     *
+     * @param clazz the clazz
+     * @return the instances
+     */
+    private LongObjectMap<Identifiable> instances(Class<?> clazz) {
+        LongObjectMap<Identifiable> instances = objects.get(clazz);
+        if (instances == null) {
+            instances = new LongObjectMap<>();
+            objects.put(clazz, instances);
+        }
+        return instances;
+    }
+}
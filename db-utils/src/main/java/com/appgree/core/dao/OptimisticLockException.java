@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import java.sql.SQLException;
+
+import com.appgree.core.id.ObjectId;
+
+/**
+ * Thrown when a versioned object cannot be updated because its row was updated or deleted since the object was read. The caller must read the
+ * object again and decide whether to apply its changes.
+ */
+public class OptimisticLockException extends SQLException {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /** The id. */
+    private final ObjectId id;
+
+    /** The version. */
+    private final long version;
+
+    /**
+     * Instantiates a new optimistic lock exception.
+     *
+     * @param table the table
+     * @param id the id
+     * @param version the version
+     */
+    public OptimisticLockException(String table, ObjectId id, long version) {
+        super("Row " + id + " of " + table + " is no longer at version " + version);
+        this.id = id;
+        this.version = version;
+    }
+
+    /**
+     * Gets the id of the object.
+     *
+     * @return the id
+     */
+    public ObjectId getId() {
+        return id;
+    }
+
+    /**
+     * Gets the version the update expected.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import com.appgree.core.dao.query.builder.WhereClause;
+
+/**
+ * A scan run over every ID range of a parallel scan (see BaseDAO.scanParallel), whose partial results are combined in range order.
+ *
+ * @param <A> the type of the partial and combined results
+ */
+public interface RangeScan<A> {
+
+    /**
+     * Scans the rows of a range. Called from a worker of the executor of asynchronous queries, with its own connection.
+     *
+     * @param range the condition selecting the rows of the range, including the filter of the scan
+     * @return the partial result, null if there is nothing to combine
+     * @throws Exception the exception
+     */
+    public A scan(WhereClause range) throws Exception;
+
+    /**
+     * Combines the result of the previous ranges with the partial result of the next one. Never called with null results.
+     *
+     * @param combined the result of the previous ranges
+     * @param partial the partial result of the next range
+     * @return the combined result
+     */
+    public A combine(A combined, A partial);
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.appgree.core.dao.BatchResult.Outcome;
+import com.appgree.core.database.provider.DataBaseManager;
+import com.appgree.core.id.Identifiable;
+import com.appgree.core.id.ObjectId;
+
+/**
+ * Collects the writes of a request over several DAOs and flushes them together. Writes of the same object are merged, so only its last
+ * state is written, and on flush the writes of every DAO (resolved through BaseDAO.getInstanceForClass) run as one batch per operation:
+ * inserts, inserts or updates, updates and deletes. Classes are flushed in dependency order, the order given to the constructor followed by
+ * the order in which the other classes were first used, and deletes in the reverse order, so parents are written before and deleted after
+ * their children. An object deleted after being added is still deleted, since inserts ignore existing rows, and writes of versioned objects
+ * are only merged into updates that compare their versions. Everything runs in the transaction of the connection bound to the current
+ * thread, which is committed at the end or rolled back on the first error. A unit of work is not thread safe.
+ */
+public class UnitOfWork {
+
+    /**
+     * The pending operations.
+     */
+    private enum Operation {
+
+        /** Insert, ignoring existing rows (BaseDAO.addAll). */
+        INSERT,
+
+        /** Insert or update (BaseDAO.addOrUpdateAll). */
+        ADD_OR_UPDATE,
+
+        /** Update by id (BaseDAO.updateAll). */
+        UPDATE,
+
+        /** Delete by id (BaseDAO.deleteAll). */
+        DELETE;
+
+        /**
+         * Merges a new operation on an object with its pending one. Versioned objects are never merged into an insert or update, which would
+         * not compare their versions.
+         *
+         * @param pending the pending operation, null if none
+         * @param next the new operation
+         * @param versioned if the object is versioned
+         * @return the merged operation
+         */
+        private static Operation merge(Operation pending, Operation next, boolean versioned) {
+            if (versioned && next == ADD_OR_UPDATE) {
+                throw new IllegalArgumentException("Versioned objects must be added and updated separately");
+            }
+            if (pending == null || next == DELETE) {
+                // the row of an object with id may exist even if it was added in the unit of work, since inserts ignore existing rows
+                return next;
+            }
+            if (pending == DELETE) {
+                if (next == UPDATE || versioned) {
+                    throw new IllegalStateException("Cannot write again an object deleted in the same unit of work");
+                }
+                return ADD_OR_UPDATE;
+            }
+            if (pending == next || (pending == INSERT && next == UPDATE)) {
+                return pending;
+            }
+            if (versioned) {
+                // updated and inserted: the insert of an existing row is ignored, the update still compares the version
+                return UPDATE;
+            }
+            return ADD_OR_UPDATE;
+        }
+    }
+
+    /**
+     * The pending writes of a class.
+     *
+     * @param <K> the key type
+     */
+    private static class Pending<K extends Identifiable> {
+
+        /** The dao. */
+        private final BaseDAO<K> dao;
+
+        /** The operations by id. */
+        private final Map<ObjectId, Operation> operations = new LinkedHashMap<>();
+
+        /** The last state of the objects by id, absent for objects deleted by id. */
+        private final Map<ObjectId, K> objects = new LinkedHashMap<>();
+
+        /** The objects inserted without id, which are never merged. */
+        private final List<K> newObjects = new ArrayList<>();
+
+        /**
+         * Instantiates a new pending.
+         *
+         * @param dao the dao
+         */
+        private Pending(BaseDAO<K> dao) {
+            this.dao = dao;
+        }
+
+        /**
+         * Registers an operation.
+         *
+         * @param operation the operation
+         * @param id the id
+         * @param object the object, null to delete by id
+         */
+        private void register(Operation operation, ObjectId id, K object) {
+            Operation merged = Operation.merge(operations.get(id), operation, dao.isVersioned());
+            operations.put(id, merged);
+            if (object != null) {
+                objects.put(id, object);
+            }
+        }
+
+        /**
+         * Discards an object inserted without id.
+         *
+         * @param object the object
+         * @return true, if the object was pending
+         */
+        private boolean discardNew(K object) {
+            for (Iterator<K> it = newObjects.iterator(); it.hasNext();) {
+                if (it.next() == object) {
+                    it.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Gets the objects with an operation.
+         *
+         * @param operation the operation
+         * @return the objects
+         */
+        private List<K> objects(Operation operation) {
+            List<K> result = new ArrayList<>();
+            if (operation == Operation.INSERT) {
+                result.addAll(newObjects);
+            }
+            for (Map.Entry<ObjectId, Operation> entry : operations.entrySet()) {
+                if (entry.getValue() == operation) {
+                    result.add(objects.get(entry.getKey()));
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Gets the ids to delete.
+         *
+         * @return the ids
+         */
+        private List<ObjectId> deletedIds() {
+            List<ObjectId> ids = new ArrayList<>();
+            for (Map.Entry<ObjectId, Operation> entry : operations.entrySet()) {
+                if (entry.getValue() == Operation.DELETE) {
+                    ids.add(entry.getKey());
+                }
+            }
+            return ids;
+        }
+
+        /**
+         * Writes the inserts and updates.
+         *
+         * @throws Exception the exception
+         */
+        private void flushWrites() throws Exception {
+            List<K> inserted = objects(Operation.INSERT);
+            if (!inserted.isEmpty()) {
+                check(inserted, dao.addAll(inserted, false));
+            }
+            List<K> addedOrUpdated = objects(Operation.ADD_OR_UPDATE);
+            if (!addedOrUpdated.isEmpty()) {
+                check(addedOrUpdated, dao.addOrUpdateAll(addedOrUpdated, false));
+            }
+            List<K> updated = objects(Operation.UPDATE);
+            if (!updated.isEmpty()) {
+                check(updated, dao.updateAll(updated, false));
+            }
+        }
+
+        /**
+         * Writes the deletes.
+         *
+         * @throws SQLException the SQL exception
+         */
+        private void flushDeletes() throws SQLException {
+            List<ObjectId> ids = deletedIds();
+            if (!ids.isEmpty()) {
+                dao.deleteAll(ids, false);
+            }
+        }
+
+        /**
+         * Fails the flush if an object could not be written.
+         *
+         * @param written the written objects
+         * @param result the result
+         * @throws SQLException the SQL exception
+         */
+        private void check(List<K> written, BatchResult result) throws SQLException {
+            List<ObjectId> conflicts = result.getIds(written, Outcome.CONFLICT);
+            if (!conflicts.isEmpty()) {
+                K object = objects.get(conflicts.get(0));
+                throw new OptimisticLockException(dao.getTableName(), object.getId(), ((Versioned) object).getVersion());
+            }
+            List<Integer> failed = result.getFailedIndexes();
+            if (!failed.isEmpty()) {
+                throw new BatchException(result.getError(failed.get(0)), result);
+            }
+        }
+    }
+
+    /** The pending writes by class, in flush order. */
+    private final Map<Class<? extends Identifiable>, Pending<? extends Identifiable>> pending = new LinkedHashMap<>();
+
+    /**
+     * Instantiates a new unit of work.
+     *
+     * @param order the classes that must be written first, parents before children
+     */
+    @SafeVarargs
+    public UnitOfWork(Class<? extends Identifiable>... order) {
+        for (Class<? extends Identifiable> clazz : order) {
+            pendingFor(clazz);
+        }
+    }
+
+    /**
+     * Registers an object to insert.
+     *
+     * @param <K> the key type
+     * @param object the object
+     */
+    public <K extends Identifiable> void add(K object) {
+        Pending<K> writes = pendingFor(classOf(object));
+        if (ObjectId.isNull(object.getId())) {
+            writes.newObjects.add(object);
+        } else {
+            writes.register(Operation.INSERT, object.getId(), object);
+        }
+    }
+
+    /**
+     * Registers an object to insert or update. Versioned objects are rejected, see BaseDAO.addOrUpdate.
+     *
+     * @param <K> the key type
+     * @param object the object
+     */
+    public <K extends Identifiable> void addOrUpdate(K object) {
+        pendingFor(classOf(object)).register(Operation.ADD_OR_UPDATE, requireId(object.getId()), object);
+    }
+
+    /**
+     * Registers an object to update.
+     *
+     * @param <K> the key type
+     * @param object the object
+     */
+    public <K extends Identifiable> void update(K object) {
+        pendingFor(classOf(object)).register(Operation.UPDATE, requireId(object.getId()), object);
+    }
+
+    /**
+     * Registers an object to delete. An object added without id is just discarded, since it never reached the database.
+     *
+     * @param <K> the key type
+     * @param object the object
+     */
+    public <K extends Identifiable> void delete(K object) {
+        if (ObjectId.isNull(object.getId()) && pendingFor(classOf(object)).discardNew(object)) {
+            return;
+        }
+        delete(classOf(object), object.getId());
+    }
+
+    /**
+     * Registers an object to delete by id.
+     *
+     * @param <K> the key type
+     * @param clazz the class of the object
+     * @param id the id
+     */
+    public <K extends Identifiable> void delete(Class<K> clazz, ObjectId id) {
+        pendingFor(clazz).register(Operation.DELETE, requireId(id), null);
+    }
+
+    /**
+     * Gets the number of pending writes.
+     *
+     * @return the int
+     */
+    public int size() {
+        int size = 0;
+        for (Pending<? extends Identifiable> writes : pending.values()) {
+            size += writes.operations.size() + writes.newObjects.size();
+        }
+        return size;
+    }
+
+    /**
+     * Checks if there is nothing to write.
+     *
+     * @return true, if is empty
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Discards the pending writes.
+     */
+    public void clear() {
+        for (Pending<? extends Identifiable> writes : pending.values()) {
+            writes.operations.clear();
+            writes.objects.clear();
+            writes.newObjects.clear();
+        }
+    }
+
+    /**
+     * Writes the pending writes and commits them. The pending writes are discarded whether the flush succeeds or not, since versions of
+     * objects updated before a failure are not restored.
+     *
+     * @throws OptimisticLockException if a versioned object was changed since it was read, after rolling back
+     * @throws BatchException if an object could not be written, after rolling back
+     * @throws Exception the exception
+     */
+    public void flush() throws Exception {
+        if (isEmpty()) {
+            return;
+        }
+
+        List<Pending<? extends Identifiable>> ordered = new ArrayList<>(pending.values());
+        boolean committed = false;
+        try {
+            for (Pending<? extends Identifiable> writes : ordered) {
+                writes.flushWrites();
+            }
+            Collections.reverse(ordered);
+            for (Pending<? extends Identifiable> writes : ordered) {
+                writes.flushDeletes();
+            }
+            DataBaseManager.getInstance().commitConnection();
+            committed = true;
+        } finally {
+            if (!committed) {
+                DataBaseManager.getInstance().rollBackConnection();
+            }
+            clear();
+        }
+    }
+
+    /**
+     * Gets the pending writes of a class, registering it.
+     *
+     * @param <K> the key type
+     * @param clazz the clazz
+     * @return the pending
+     */
+    @SuppressWarnings("unchecked")
+    private <K extends Identifiable> Pending<K> pendingFor(Class<K> clazz) {
+        Pending<K> writes = (Pending<K>) pending.get(clazz);
+        if (writes == null) {
+            BaseDAO<K> dao = BaseDAO.getInstanceForClass(clazz);
+            if (dao == null) {
+                throw new IllegalArgumentException("No DAO registered for " + clazz.getName());
+            }
+            writes = new Pending<>(dao);
+            pending.put(clazz, writes);
+        }
+        return writes;
+    }
+
+    /**
+     * Gets the class of an object.
+     *
+     * @param <K> the key type
+     * @param object the object
+     * @return the class
+     */
+    @SuppressWarnings("unchecked")
+    private static <K extends Identifiable> Class<K> classOf(K object) {
+        return (Class<K>) object.getClass();
+    }
+
+    /**
+     * Checks an id is not null.
+     *
+     * @param id the id
+     * @return the id
+     */
+    private static ObjectId requireId(ObjectId id) {
+        if (ObjectId.isNull(id)) {
+            throw new IllegalArgumentException("The object must have a valid identifier");
+        }
+        return id;
+    }
+}
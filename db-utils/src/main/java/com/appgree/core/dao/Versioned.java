@@ -0,0 +1,28 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import com.appgree.core.id.Identifiable;
+
+/**
+ * The Interface Versioned represents a business object with a version number, stored in a VERSION column. When the DAO of a versioned class
+ * has a VERSION field, updates only change the row if it still has the version read by the object and increment it, so concurrent updates of
+ * the same object fail instead of overwriting each other. Inserts store the version as is.
+ */
+public interface Versioned extends Identifiable {
+
+    /**
+     * Gets the version.
+     *
+     * @return the version
+     */
+    public long getVersion();
+
+    /**
+     * Sets the version.
+     *
+     * @param version the new version
+     */
+    public void setVersion(long version);
+}
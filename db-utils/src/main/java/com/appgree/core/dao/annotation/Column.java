@@ -0,0 +1,27 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maps a field of a {@link Table} class to a column. Columns keep the declaration order of the fields, superclass fields first, after the
+ * ID column. The field is read and written through its getter and setter or directly when it is not private.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface Column {
+
+    /**
+     * The column name. Defaults to the field name in upper case with words separated by underscores, e.g. idUser is ID_USER.
+     *
+     * @return the string
+     */
+    String value() default "";
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an Identifiable class whose DAO is generated at compile time by the db-utils-processor module. The generated class is named
+ * &lt;Class&gt;GeneratedDAO, lives in the same package and maps the ID column plus every field annotated with {@link Column}.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Table {
+
+    /**
+     * The table name.
+     *
+     * @return the string
+     */
+    String value();
+}
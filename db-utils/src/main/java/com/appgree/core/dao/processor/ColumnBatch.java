@@ -0,0 +1,303 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.processor;
+
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Reads the columns of a result set into growable primitive arrays, one per column, instead of creating an object per row. Null values are
+ * stored as 0 and flagged in a per column bitset. Columns are numbered from 1 as in a ResultSet, rows from 0.
+ */
+public class ColumnBatch implements DataProcessor<Void> {
+
+    /** The Constant DEFAULT_CAPACITY. */
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /** The types. */
+    private final ColumnType[] types;
+
+    /** The long columns, null for columns of other types. */
+    private final long[][] longColumns;
+
+    /** The int columns, null for columns of other types. */
+    private final int[][] intColumns;
+
+    /** The double columns, null for columns of other types. */
+    private final double[][] doubleColumns;
+
+    /** The null flags, created for a column on its first null value. */
+    private final BitSet[] nulls;
+
+    /** The number of rows. */
+    private int size = 0;
+
+    /** The capacity. */
+    private int capacity;
+
+    /**
+     * Instantiates a new column batch.
+     *
+     * @param types the types of the columns, in select order
+     */
+    public ColumnBatch(ColumnType... types) {
+        this(DEFAULT_CAPACITY, types);
+    }
+
+    /**
+     * Instantiates a new column batch.
+     *
+     * @param initialCapacity the initial capacity in rows
+     * @param types the types of the columns, in select order
+     */
+    public ColumnBatch(int initialCapacity, ColumnType... types) {
+        if (types == null || types.length == 0) {
+            throw new IllegalArgumentException("At least one column is required");
+        }
+        this.types = types.clone();
+        this.capacity = Math.max(1, initialCapacity);
+        this.longColumns = new long[types.length][];
+        this.intColumns = new int[types.length][];
+        this.doubleColumns = new double[types.length][];
+        this.nulls = new BitSet[types.length];
+        for (int i = 0; i < types.length; i++) {
+            switch (types[i]) {
+                case LONG:
+                    longColumns[i] = new long[capacity];
+                    break;
+                case INT:
+                    intColumns[i] = new int[capacity];
+                    break;
+                case DOUBLE:
+                    doubleColumns[i] = new double[capacity];
+                    break;
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.appgree.core.dao.processor.DataProcessor#process(java.sql.ResultSet)
+     */
+    @Override
+    public Void process(ResultSet resultSet) throws Exception {
+        if (size == capacity) {
+            grow();
+        }
+        for (int i = 0; i < types.length; i++) {
+            boolean isNull;
+            switch (types[i]) {
+                case LONG:
+                    long longValue = resultSet.getLong(i + 1);
+                    longColumns[i][size] = longValue;
+                    isNull = longValue == 0 && resultSet.wasNull();
+                    break;
+                case INT:
+                    int intValue = resultSet.getInt(i + 1);
+                    intColumns[i][size] = intValue;
+                    isNull = intValue == 0 && resultSet.wasNull();
+                    break;
+                default:
+                    double doubleValue = resultSet.getDouble(i + 1);
+                    doubleColumns[i][size] = doubleValue;
+                    isNull = doubleValue == 0 && resultSet.wasNull();
+                    break;
+            }
+            if (isNull) {
+                if (nulls[i] == null) {
+                    nulls[i] = new BitSet();
+                }
+                nulls[i].set(size);
+            }
+        }
+        size++;
+
+        return null;
+    }
+
+    /**
+     * Doubles the capacity of every column.
+     */
+    private void grow() {
+        capacity = capacity * 2;
+        for (int i = 0; i < types.length; i++) {
+            if (longColumns[i] != null) {
+                longColumns[i] = Arrays.copyOf(longColumns[i], capacity);
+            } else if (intColumns[i] != null) {
+                intColumns[i] = Arrays.copyOf(intColumns[i], capacity);
+            } else {
+                doubleColumns[i] = Arrays.copyOf(doubleColumns[i], capacity);
+            }
+        }
+    }
+
+    /**
+     * Shrinks the columns to the number of rows.
+     *
+     * @return this instance
+     */
+    public ColumnBatch trimToSize() {
+        if (size > 0 && size < capacity) {
+            capacity = size;
+            for (int i = 0; i < types.length; i++) {
+                if (longColumns[i] != null) {
+                    longColumns[i] = Arrays.copyOf(longColumns[i], capacity);
+                } else if (intColumns[i] != null) {
+                    intColumns[i] = Arrays.copyOf(intColumns[i], capacity);
+                } else {
+                    doubleColumns[i] = Arrays.copyOf(doubleColumns[i], capacity);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Removes all rows keeping the allocated columns.
+     */
+    public void clear() {
+        size = 0;
+        for (BitSet columnNulls : nulls) {
+            if (columnNulls != null) {
+                columnNulls.clear();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return the int
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of columns.
+     *
+     * @return the int
+     */
+    public int getColumnCount() {
+        return types.length;
+    }
+
+    /**
+     * Gets the type of a column.
+     *
+     * @param column the column, from 1
+     * @return the type
+     */
+    public ColumnType getType(int column) {
+        return types[column - 1];
+    }
+
+    /**
+     * Checks if a value is null.
+     *
+     * @param row the row, from 0
+     * @param column the column, from 1
+     * @return true, if is null
+     */
+    public boolean isNull(int row, int column) {
+        checkRow(row);
+        BitSet columnNulls = nulls[column - 1];
+        return columnNulls != null && columnNulls.get(row);
+    }
+
+    /**
+     * Gets a value of a LONG column.
+     *
+     * @param row the row, from 0
+     * @param column the column, from 1
+     * @return the value, 0 if null
+     */
+    public long getLong(int row, int column) {
+        checkRow(row);
+        return getLongColumn(column)[row];
+    }
+
+    /**
+     * Gets a value of an INT column.
+     *
+     * @param row the row, from 0
+     * @param column the column, from 1
+     * @return the value, 0 if null
+     */
+    public int getInt(int row, int column) {
+        checkRow(row);
+        return getIntColumn(column)[row];
+    }
+
+    /**
+     * Gets a value of a DOUBLE column.
+     *
+     * @param row the row, from 0
+     * @param column the column, from 1
+     * @return the value, 0 if null
+     */
+    public double getDouble(int row, int column) {
+        checkRow(row);
+        return getDoubleColumn(column)[row];
+    }
+
+    /**
+     * Gets the backing array of a LONG column. Only the first size() positions are valid.
+     *
+     * @param column the column, from 1
+     * @return the long column
+     */
+    public long[] getLongColumn(int column) {
+        return checkColumn(longColumns[column - 1], column, ColumnType.LONG);
+    }
+
+    /**
+     * Gets the backing array of an INT column. Only the first size() positions are valid.
+     *
+     * @param column the column, from 1
+     * @return the int column
+     */
+    public int[] getIntColumn(int column) {
+        return checkColumn(intColumns[column - 1], column, ColumnType.INT);
+    }
+
+    /**
+     * Gets the backing array of a DOUBLE column. Only the first size() positions are valid.
+     *
+     * @param column the column, from 1
+     * @return the double column
+     */
+    public double[] getDoubleColumn(int column) {
+        return checkColumn(doubleColumns[column - 1], column, ColumnType.DOUBLE);
+    }
+
+    /**
+     * Checks that a column has the requested type.
+     *
+     * @param <A> the array type
+     * @param values the values
+     * @param column the column
+     * @param type the type
+     * @return the values
+     */
+    private <A> A checkColumn(A values, int column, ColumnType type) {
+        if (values == null) {
+            throw new IllegalArgumentException("Column " + column + " is " + types[column - 1] + ", not " + type);
+        }
+        return values;
+    }
+
+    /**
+     * Checks that a row exists.
+     *
+     * @param row the row
+     */
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of " + size);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.processor;
+
+/**
+ * The primitive types a column can be read into by a ColumnBatch.
+ */
+public enum ColumnType {
+
+    /** BIGINT columns read into a long[]. */
+    LONG,
+
+    /** INT columns read into an int[]. */
+    INT,
+
+    /** DOUBLE or DECIMAL columns read into a double[]. */
+    DOUBLE
+}
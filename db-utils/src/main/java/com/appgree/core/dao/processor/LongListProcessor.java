@@ -0,0 +1,36 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.processor;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.appgree.core.id.LongList;
+
+/**
+ * Collects the first long column of every row into a LongList, without creating an ObjectId per row.
+ */
+public class LongListProcessor implements DataProcessor<Void> {
+
+    /** The values. */
+    private final LongList values = new LongList();
+
+    /* (non-Javadoc)
+     * @see com.appgree.core.dao.processor.DataProcessor#process(java.sql.ResultSet)
+     */
+    @Override
+    public Void process(ResultSet resultSet) throws SQLException {
+        values.add(resultSet.getLong(1));
+        return null;
+    }
+
+    /**
+     * Gets the collected values.
+     *
+     * @return the values
+     */
+    public LongList getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.processor;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Splits reading and mapping the rows of a query: the thread reading the result set only copies the column values of every row (see
+ * RowBuffer) and batches of copied rows are mapped by another DataProcessor on a pool of workers, so mapping wide rows uses several cores
+ * while the reader keeps fetching. Results are returned in row order or, unordered, in the order their batches were mapped. At most
+ * maxInFlight batches are copied but not mapped yet, so the reader waits when the workers fall behind. The mapping processor is called from
+ * several threads at once and must be thread safe; thread bound state of the reader, like its IdentityMap, is not visible to it.
+ *
+ * <pre>
+ * PipelinedProcessor&lt;Item&gt; pipeline = new PipelinedProcessor&lt;&gt;(itemProcessor, true);
+ * query.execute(pipeline);
+ * List&lt;Item&gt; items = pipeline.getResults();
+ * </pre>
+ *
+ * @param <T> the generic type
+ */
+public class PipelinedProcessor<T> implements DataProcessor<Void> {
+
+    /** The Constant DEFAULT_BATCH_SIZE. */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /** The default number of workers. */
+    private static final int DEFAULT_WORKERS = Runtime.getRuntime().availableProcessors();
+
+    /** The default executor, created on first use. */
+    private static volatile ExecutorService defaultExecutor;
+
+    /** The lock creating the default executor. */
+    private static final Lock defaultExecutorLock = new ReentrantLock();
+
+    /** The processor mapping the rows. */
+    private final DataProcessor<T> processor;
+
+    /** The workers. */
+    private final Executor executor;
+
+    /** The number of rows per batch. */
+    private final int batchSize;
+
+    /** If the results keep the row order. */
+    private final boolean ordered;
+
+    /** The permits of the batches in flight. */
+    private final Semaphore inFlight;
+
+    /** The batches, in row order. */
+    private final List<FutureTask<List<T>>> batches = new ArrayList<>();
+
+    /** The results of the mapped batches, in completion order, when unordered. */
+    private final List<T> completed = new ArrayList<>();
+
+    /** The columns, read from the first row. */
+    private RowBuffer.Columns columns;
+
+    /** The batch being filled. */
+    private List<Object[]> batch;
+
+    /** The first error of a worker. */
+    private volatile Exception failure;
+
+    /**
+     * Instantiates a new pipelined processor on the default workers, one per processor.
+     *
+     * @param processor the processor mapping the rows
+     * @param ordered if the results keep the row order
+     */
+    public PipelinedProcessor(DataProcessor<T> processor, boolean ordered) {
+        this(processor, getDefaultExecutor(), DEFAULT_BATCH_SIZE, 2 * DEFAULT_WORKERS, ordered);
+    }
+
+    /**
+     * Instantiates a new pipelined processor.
+     *
+     * @param processor the processor mapping the rows
+     * @param executor the workers
+     * @param batchSize the number of rows per batch
+     * @param maxInFlight the maximum number of batches copied but not mapped yet
+     * @param ordered if the results keep the row order
+     */
+    public PipelinedProcessor(DataProcessor<T> processor, Executor executor, int batchSize, int maxInFlight, boolean ordered) {
+        if (processor == null || executor == null) {
+            throw new IllegalArgumentException("A processor and an executor are required");
+        }
+        if (batchSize <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Batch size and batches in flight must be positive");
+        }
+        this.processor = processor;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.ordered = ordered;
+    }
+
+    /**
+     * Gets the default workers, a pool of daemon threads with one per processor.
+     *
+     * @return the default executor
+     */
+    public static ExecutorService getDefaultExecutor() {
+        ExecutorService executor = defaultExecutor;
+        if (executor == null) {
+            defaultExecutorLock.lock();
+            try {
+                executor = defaultExecutor;
+                if (executor == null) {
+                    final AtomicInteger threads = new AtomicInteger();
+                    executor = new ThreadPoolExecutor(DEFAULT_WORKERS, DEFAULT_WORKERS, 0, TimeUnit.MILLISECONDS,
+                                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                                        @Override
+                                        public Thread newThread(Runnable r) {
+                                            Thread thread = new Thread(r, "db-mapper-" + threads.incrementAndGet());
+                                            thread.setDaemon(true);
+                                            return thread;
+                                        }
+                                    });
+                    defaultExecutor = executor;
+                }
+            } finally {
+                defaultExecutorLock.unlock();
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Copies the current row and hands a full batch to the workers.
+     *
+     * @param resultSet the result set
+     * @return null
+     * @throws Exception the error of a worker, or InterruptedException while waiting for the workers
+     */
+    @Override
+    public Void process(ResultSet resultSet) throws Exception {
+        checkFailure();
+        if (columns == null) {
+            columns = new RowBuffer.Columns(resultSet.getMetaData());
+        }
+        if (batch == null) {
+            batch = new ArrayList<>(batchSize);
+        }
+        batch.add(columns.copy(resultSet));
+        if (batch.size() == batchSize) {
+            submit();
+        }
+        return null;
+    }
+
+    /**
+     * Waits for the workers and gets the mapped rows. Must be called once every row was read.
+     *
+     * @return the results, in row order if ordered
+     * @throws Exception the first error of a worker
+     */
+    public List<T> getResults() throws Exception {
+        if (batch != null && !batch.isEmpty()) {
+            submit();
+        }
+
+        List<T> results = new ArrayList<>();
+        for (FutureTask<List<T>> task : batches) {
+            try {
+                List<T> mapped = task.get();
+                if (ordered) {
+                    results.addAll(mapped);
+                }
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        batches.clear();
+        if (!ordered) {
+            synchronized (completed) {
+                results.addAll(completed);
+                completed.clear();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Hands the current batch to the workers, waiting while too many batches are in flight.
+     *
+     * @throws Exception the exception
+     */
+    private void submit() throws Exception {
+        final List<Object[]> rows = batch;
+        final RowBuffer.Columns batchColumns = columns;
+        batch = null;
+
+        inFlight.acquire();
+        FutureTask<List<T>> task = new FutureTask<>(new Callable<List<T>>() {
+
+            @Override
+            public List<T> call() throws Exception {
+                try {
+                    RowBuffer buffer = new RowBuffer(batchColumns);
+                    List<T> mapped = new ArrayList<>(rows.size());
+                    for (Object[] row : rows) {
+                        mapped.add(processor.process(buffer.setRow(row)));
+                    }
+                    if (!ordered) {
+                        synchronized (completed) {
+                            completed.addAll(mapped);
+                        }
+                    }
+                    return mapped;
+                } catch (Exception e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                    throw e;
+                } finally {
+                    inFlight.release();
+                }
+            }
+        });
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+        batches.add(task);
+    }
+
+    /**
+     * Fails the reader as soon as a worker failed, so the rest of the rows are not read.
+     *
+     * @throws Exception the error of the worker
+     */
+    private void checkFailure() throws Exception {
+        Exception error = failure;
+        if (error != null) {
+            throw error;
+        }
+    }
+}
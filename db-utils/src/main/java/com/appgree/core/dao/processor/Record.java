@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.processor;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import com.appgree.core.id.ObjectId;
+
+/**
+ * A lightweight row holding only the columns of a projection. Values are kept in a compact array and the column names are resolved through
+ * an index shared by every record of the same projection. Columns are numbered from 1 as in a ResultSet.
+ */
+public class Record {
+
+    /** The shared column index, from column name to position. */
+    private final Map<String, Integer> columns;
+
+    /** The values. */
+    private final Object[] values;
+
+    /**
+     * Instantiates a new record.
+     *
+     * @param columns the shared column index
+     * @param values the values, in column order
+     */
+    public Record(Map<String, Integer> columns, Object[] values) {
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * Gets the number of columns.
+     *
+     * @return the int
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Gets a value.
+     *
+     * @param column the column, from 1
+     * @return the value, null for NULL
+     */
+    public Object get(int column) {
+        return values[column - 1];
+    }
+
+    /**
+     * Gets a value by column name.
+     *
+     * @param column the column name
+     * @return the value, null for NULL
+     * @throws IllegalArgumentException if the column is not in the projection
+     */
+    public Object get(String column) {
+        return values[indexOf(column)];
+    }
+
+    /**
+     * Gets a numeric value as a long.
+     *
+     * @param column the column name
+     * @return the value, 0 for NULL
+     */
+    public long getLong(String column) {
+        Object value = get(column);
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    /**
+     * Gets a numeric value as an int.
+     *
+     * @param column the column name
+     * @return the value, 0 for NULL
+     */
+    public int getInt(String column) {
+        Object value = get(column);
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+
+    /**
+     * Gets a value as a String.
+     *
+     * @param column the column name
+     * @return the value, null for NULL
+     */
+    public String getString(String column) {
+        Object value = get(column);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Gets an id column.
+     *
+     * @param column the column name
+     * @return the id, ObjectId.NULL for NULL
+     */
+    public ObjectId getId(String column) {
+        return ObjectId.fromLong(getLong(column));
+    }
+
+    /**
+     * Gets the position of a column in the values.
+     *
+     * @param column the column
+     * @return the position, from 0
+     */
+    private int indexOf(String column) {
+        Integer index = columns.get(column);
+        if (index == null) {
+            throw new IllegalArgumentException("Column " + column + " is not in the projection");
+        }
+        return index;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+}
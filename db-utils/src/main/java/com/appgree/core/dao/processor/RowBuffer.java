@@ -0,0 +1,288 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.processor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A ResultSet over rows copied out of another result set, so a DataProcessor can map them on a thread other than the one reading from the
+ * network. Column values are copied with getObject into an Object[] per row, and the getters of the view convert them back the way the
+ * driver would for the usual types (numbers, strings, booleans, bytes, dates). Only the current row can be read: next, updates and cursor
+ * movements are not supported. A view is not thread safe, so every worker uses its own over rows sharing the same Columns.
+ */
+public class RowBuffer implements InvocationHandler {
+
+    /**
+     * The columns of a result set, shared by every row read from it.
+     */
+    public static class Columns {
+
+        /** The column labels, from column 1. */
+        private final String[] labels;
+
+        /** The column positions by upper case label. */
+        private final Map<String, Integer> positions = new HashMap<>();
+
+        /**
+         * Instantiates new columns.
+         *
+         * @param metaData the meta data
+         * @throws SQLException the SQL exception
+         */
+        public Columns(ResultSetMetaData metaData) throws SQLException {
+            this.labels = new String[metaData.getColumnCount()];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = metaData.getColumnLabel(i + 1);
+                String key = labels[i].toUpperCase(Locale.ROOT);
+                if (!positions.containsKey(key)) {
+                    // like the drivers, the first column with a label wins
+                    positions.put(key, i + 1);
+                }
+            }
+        }
+
+        /**
+         * Gets the number of columns.
+         *
+         * @return the int
+         */
+        public int size() {
+            return labels.length;
+        }
+
+        /**
+         * Gets the position of a column.
+         *
+         * @param label the label
+         * @return the position, from 1
+         * @throws SQLException if there is no column with the label
+         */
+        public int findColumn(String label) throws SQLException {
+            Integer position = positions.get(label.toUpperCase(Locale.ROOT));
+            if (position == null) {
+                throw new SQLException("Column '" + label + "' not found");
+            }
+            return position;
+        }
+
+        /**
+         * Copies the values of the current row of a result set.
+         *
+         * @param resultSet the result set
+         * @return the values, in column order
+         * @throws SQLException the SQL exception
+         */
+        public Object[] copy(ResultSet resultSet) throws SQLException {
+            Object[] values = new Object[labels.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = resultSet.getObject(i + 1);
+            }
+            return values;
+        }
+    }
+
+    /** The columns. */
+    private final Columns columns;
+
+    /** The result set view. */
+    private final ResultSet resultSet;
+
+    /** The current row. */
+    private Object[] row;
+
+    /** If the last value read was NULL. */
+    private boolean wasNull;
+
+    /**
+     * Instantiates a new row buffer.
+     *
+     * @param columns the columns
+     */
+    public RowBuffer(Columns columns) {
+        this.columns = columns;
+        this.resultSet = (ResultSet) Proxy.newProxyInstance(RowBuffer.class.getClassLoader(), new Class<?>[] { ResultSet.class }, this);
+    }
+
+    /**
+     * Sets the row read through the view.
+     *
+     * @param row the row
+     * @return the result set view
+     */
+    public ResultSet setRow(Object[] row) {
+        this.row = row;
+        this.wasNull = false;
+        return resultSet;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+     */
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeObjectMethod(proxy, method, args);
+        }
+        switch (name) {
+            case "wasNull":
+                return wasNull;
+            case "findColumn":
+                return columns.findColumn((String) args[0]);
+            case "close":
+                return null;
+            case "isClosed":
+                return false;
+            case "next":
+                throw new SQLException("A buffered row cannot move, DO NOT USE resultSet.next() in a DataProcessor");
+        }
+        if (name.startsWith("get") && args != null && args.length >= 1 && (args[0] instanceof Integer || args[0] instanceof String)) {
+            int column = args[0] instanceof String ? columns.findColumn((String) args[0]) : (Integer) args[0];
+            if (column < 1 || column > row.length) {
+                throw new SQLException("Column index " + column + " out of range");
+            }
+            Object value = row[column - 1];
+            wasNull = value == null;
+            Class<?> type = args.length == 2 && args[1] instanceof Class ? (Class<?>) args[1] : method.getReturnType();
+            return convert(value, type, name);
+        }
+        throw new SQLFeatureNotSupportedException(name + " is not supported on a buffered row");
+    }
+
+    /**
+     * Converts a copied value to the type of a getter.
+     *
+     * @param value the value
+     * @param type the type
+     * @param getter the getter
+     * @return the converted value
+     * @throws SQLException if the value cannot be converted
+     */
+    private static Object convert(Object value, Class<?> type, String getter) throws SQLException {
+        if (type == Object.class) {
+            return value;
+        }
+        if (type.isPrimitive()) {
+            return toPrimitive(value, type, getter);
+        }
+        if (value == null || type.isInstance(value)) {
+            return value;
+        }
+        if (type == String.class) {
+            return value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : value.toString();
+        } else if (type == byte[].class) {
+            return value.toString().getBytes(StandardCharsets.UTF_8);
+        } else if (type == BigDecimal.class) {
+            return new BigDecimal(value.toString());
+        } else if (value instanceof java.util.Date) {
+            long time = ((java.util.Date) value).getTime();
+            if (type == java.sql.Timestamp.class) {
+                return new java.sql.Timestamp(time);
+            } else if (type == java.sql.Date.class) {
+                return new java.sql.Date(time);
+            } else if (type == java.sql.Time.class) {
+                return new java.sql.Time(time);
+            }
+        } else if (type == Long.class || type == Integer.class || type == Short.class || type == Byte.class || type == Double.class
+                        || type == Float.class || type == Boolean.class) {
+            return toPrimitive(value, type == Long.class ? long.class : type == Integer.class ? int.class : type == Short.class ? short.class
+                            : type == Byte.class ? byte.class : type == Double.class ? double.class : type == Float.class ? float.class
+                                            : boolean.class, getter);
+        }
+        throw new SQLException("Cannot convert " + value.getClass().getName() + " to " + type.getName() + " in " + getter);
+    }
+
+    /**
+     * Converts a copied value to a primitive type, NULL being 0 or false as in the drivers.
+     *
+     * @param value the value
+     * @param type the primitive type
+     * @param getter the getter
+     * @return the converted value
+     * @throws SQLException if the value cannot be converted
+     */
+    private static Object toPrimitive(Object value, Class<?> type, String getter) throws SQLException {
+        if (type == boolean.class) {
+            if (value == null) {
+                return false;
+            } else if (value instanceof Boolean) {
+                return value;
+            } else if (value instanceof Number) {
+                return ((Number) value).doubleValue() != 0;
+            }
+            String string = value.toString().trim();
+            return string.equalsIgnoreCase("true") || (!string.isEmpty() && !string.equals("0") && !string.equalsIgnoreCase("false"));
+        }
+
+        Number number;
+        if (value == null) {
+            number = 0;
+        } else if (value instanceof Number) {
+            number = (Number) value;
+        } else if (value instanceof Boolean) {
+            number = (Boolean) value ? 1 : 0;
+        } else {
+            try {
+                number = new BigDecimal(value.toString().trim());
+            } catch (NumberFormatException e) {
+                throw new SQLException("Cannot convert '" + value + "' to " + type.getName() + " in " + getter, e);
+            }
+        }
+        if (type == long.class) {
+            return number.longValue();
+        } else if (type == int.class) {
+            return number.intValue();
+        } else if (type == double.class) {
+            return number.doubleValue();
+        } else if (type == float.class) {
+            return number.floatValue();
+        } else if (type == short.class) {
+            return number.shortValue();
+        } else if (type == byte.class) {
+            return number.byteValue();
+        }
+        throw new SQLFeatureNotSupportedException(getter + " is not supported on a buffered row");
+    }
+
+    /**
+     * Invokes the methods declared by Object on the view.
+     *
+     * @param proxy the proxy
+     * @param method the method
+     * @param args the args
+     * @return the object
+     * @throws Throwable the throwable
+     */
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "RowBuffer" + Arrays.toString(row);
+            default:
+                try {
+                    return method.invoke(this, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.query.builder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import com.appgree.core.id.ObjectId;
+
+/**
+ * Opaque, URL safe encoding of the sort key values of the last row of a page. It is handed to clients and decoded on the next request to
+ * continue the pagination with {@link WhereClause#after(String[], String)}.
+ */
+public final class ContinuationToken {
+
+    /** The Constant VERSION. */
+    private static final int VERSION = 1;
+
+    /** The Constant TYPE_NULL. */
+    private static final int TYPE_NULL = 0;
+
+    /** The Constant TYPE_LONG. */
+    private static final int TYPE_LONG = 1;
+
+    /** The Constant TYPE_DOUBLE. */
+    private static final int TYPE_DOUBLE = 2;
+
+    /** The Constant TYPE_STRING. */
+    private static final int TYPE_STRING = 3;
+
+    /** The Constant TYPE_BOOLEAN. */
+    private static final int TYPE_BOOLEAN = 4;
+
+    /** The Constant TYPE_TIMESTAMP. */
+    private static final int TYPE_TIMESTAMP = 5;
+
+    /** The Constant TYPE_DECIMAL. */
+    private static final int TYPE_DECIMAL = 6;
+
+    /** The URL safe base 64 alphabet. */
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    /** The reverse alphabet. */
+    private static final int[] REVERSE_ALPHABET = new int[128];
+
+    static {
+        for (int i = 0; i < REVERSE_ALPHABET.length; i++) {
+            REVERSE_ALPHABET[i] = -1;
+        }
+        for (int i = 0; i < ALPHABET.length; i++) {
+            REVERSE_ALPHABET[ALPHABET[i]] = i;
+        }
+    }
+
+    /**
+     * Instantiates a new continuation token.
+     */
+    private ContinuationToken() {}
+
+    /**
+     * Encodes the sort key values of a row. Supported values are null, integer and decimal numbers, strings, booleans, dates and ObjectIds.
+     *
+     * @param values the values
+     * @return the token
+     */
+    public static String encode(Object... values) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeByte(values.length);
+            for (Object value : values) {
+                writeValue(out, value);
+            }
+            out.flush();
+
+            return toBase64(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode continuation token", e);
+        }
+    }
+
+    /**
+     * Decodes the sort key values of a token. Integer numbers and ObjectIds are returned as Long, decimal numbers as Double or BigDecimal and
+     * dates as Timestamp.
+     *
+     * @param token the token
+     * @return the values
+     */
+    public static Object[] decode(String token) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(fromBase64(token)));
+            if (in.readUnsignedByte() != VERSION) {
+                throw new IllegalArgumentException("Unsupported continuation token: " + token);
+            }
+            Object[] values = new Object[in.readUnsignedByte()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readValue(in);
+            }
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("Malformed continuation token: " + token);
+            }
+
+            return values;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed continuation token: " + token, e);
+        }
+    }
+
+    /**
+     * Writes a tagged value.
+     *
+     * @param out the out
+     * @param value the value
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof ObjectId) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong(((ObjectId) value).toLong());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(TYPE_DECIMAL);
+            out.writeUTF(value.toString());
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Date) {
+            out.writeByte(TYPE_TIMESTAMP);
+            out.writeLong(((Date) value).getTime());
+            out.writeInt(value instanceof Timestamp ? ((Timestamp) value).getNanos() : 0);
+        } else {
+            throw new IllegalArgumentException("Unsupported continuation token value: " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * Reads a tagged value.
+     *
+     * @param in the in
+     * @return the object
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static Object readValue(DataInputStream in) throws IOException {
+        int type = in.readUnsignedByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_DECIMAL:
+                return new BigDecimal(in.readUTF());
+            case TYPE_STRING:
+                return in.readUTF();
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_TIMESTAMP:
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            default:
+                throw new IOException("Unknown value type: " + type);
+        }
+    }
+
+    /**
+     * Encodes bytes in URL safe base 64 without padding.
+     *
+     * @param bytes the bytes
+     * @return the string
+     */
+    private static String toBase64(byte[] bytes) {
+        StringBuilder sb = new StringBuilder((bytes.length * 4 + 2) / 3);
+        for (int i = 0; i < bytes.length; i += 3) {
+            int remaining = Math.min(3, bytes.length - i);
+            int block = (bytes[i] & 0xff) << 16;
+            if (remaining > 1) {
+                block |= (bytes[i + 1] & 0xff) << 8;
+            }
+            if (remaining > 2) {
+                block |= bytes[i + 2] & 0xff;
+            }
+            for (int j = 0; j <= remaining; j++) {
+                sb.append(ALPHABET[(block >>> (18 - 6 * j)) & 0x3f]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Decodes URL safe base 64 without padding.
+     *
+     * @param string the string
+     * @return the byte[]
+     */
+    private static byte[] fromBase64(String string) {
+        if (string == null || string.length() % 4 == 1) {
+            throw new IllegalArgumentException("Malformed continuation token: " + string);
+        }
+        byte[] bytes = new byte[string.length() * 3 / 4];
+        int index = 0;
+        int block = 0;
+        int bits = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            int value = c < REVERSE_ALPHABET.length ? REVERSE_ALPHABET[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("Malformed continuation token: " + string);
+            }
+            block = (block << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                bytes[index++] = (byte) (block >>> bits);
+            }
+        }
+        return bytes;
+    }
+}
@@ -137,12 +137,9 @@ public class CreateTableClause extends SQLClause{
                 fieldString.append(" AUTO_INCREMENT");
             }
             if (isPrimaryKey) {
-                fieldString.append("PRIMARY KEY (");
+                fieldString.append(", PRIMARY KEY (");
                 fieldString.append(name);
                 fieldString.append(")");
-                if (fieldString.length() > 0) {
-                    fieldString.append(", ");
-                }
             }
             if (isUnique) {
                 if (fieldString.length() > 0) {
@@ -171,6 +168,9 @@ public class CreateTableClause extends SQLClause{
     /** The check if exists. */
     private boolean checkIfExists;
 
+    /** The temporary. */
+    private boolean temporary;
+
     /**
      * Instantiates a new creates the clause.
      *
@@ -192,6 +192,17 @@ public class CreateTableClause extends SQLClause{
         return this;
     }
     
+    /**
+     * Creates a TEMPORARY table, only visible to the current connection and dropped when it is closed.
+     *
+     * @return the creates the clause
+     */
+    public CreateTableClause temporary() {
+        this.temporary = true;
+
+        return this;
+    }
+
     /**
      * Gets the table name.
      *
@@ -297,7 +308,11 @@ public class CreateTableClause extends SQLClause{
      */
     @Override
     public String toString() {
-        StringBuilder queryString = new StringBuilder("CREATE TABLE ");
+        StringBuilder queryString = new StringBuilder("CREATE ");
+        if (temporary) {
+            queryString.append("TEMPORARY ");
+        }
+        queryString.append("TABLE ");
         if (checkIfExists) {
             queryString.append("IF NOT EXISTS ");
         }
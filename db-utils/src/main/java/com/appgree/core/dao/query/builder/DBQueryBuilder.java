@@ -24,6 +24,10 @@ public class DBQueryBuilder {
 
     /** The Constant ALL_FIELDS. */
     private static final String ALL_FIELDS = "*";
+
+    /** Fetch size that makes the MySQL driver stream rows one by one instead of reading the whole result set in memory. */
+    public static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
     /** The logger. */
     private static Logger logger = Logger.getLogger(DBQueryBuilder.class);
 
@@ -97,13 +101,31 @@ public class DBQueryBuilder {
      * @throws Exception the exception
      */
     public static <T> int executeWithProcessor(String query, List<Object> arguments, DataProcessor<T> processor) throws Exception {
+        return executeWithProcessor(DataBaseManager.getInstance().getConnection(), query, arguments, 0, processor);
+    }
+
+    /**
+     * Executes a prepared statement with arguments on a given connection.
+     *
+     * @param <T> the generic type
+     * @param conn the connection
+     * @param query string
+     * @param arguments list
+     * @param fetchSize the fetch size hint, 0 to use the driver's default or STREAMING_FETCH_SIZE to stream rows
+     * @param processor object to process every row
+     * @return count of processed rows
+     * @throws Exception the exception
+     */
+    public static <T> int executeWithProcessor(Connection conn, String query, List<Object> arguments, int fetchSize, DataProcessor<T> processor)
+                    throws Exception {
         PreparedStatement stmt = null;
         ResultSet rs = null;
         int processed = 0;
         try {
-            Connection conn = null;
-            conn = DataBaseManager.getInstance().getConnection();
             stmt = conn.prepareStatement(query);
+            if (fetchSize != 0) {
+                stmt.setFetchSize(fetchSize);
+            }
             int index = 1;
             for (Object param : arguments) {
                 stmt.setObject(index++, param);
@@ -141,11 +163,27 @@ public class DBQueryBuilder {
      * @throws SQLException the SQL exception
      */
     public static PreparedStatement execute(String query, List<Object> arguments) throws SQLException {
+        return execute(query, arguments, 0);
+    }
+
+    /**
+     * Executes a prepared statement with arguments and a fetch size hint.
+     *
+     * @param query string
+     * @param arguments list
+     * @param fetchSize the fetch size hint, 0 to use the driver's default or STREAMING_FETCH_SIZE to stream rows
+     * @return PreparedStatement object
+     * @throws SQLException the SQL exception
+     */
+    public static PreparedStatement execute(String query, List<Object> arguments, int fetchSize) throws SQLException {
         Connection conn = null;
         PreparedStatement stmt = null;
         try {
             conn = DataBaseManager.getInstance().getConnection();
             stmt = conn.prepareStatement(query);
+            if (fetchSize != 0) {
+                stmt.setFetchSize(fetchSize);
+            }
             int index = 1;
             if (arguments != null) {
                 for (Object param : arguments) {
@@ -165,6 +203,37 @@ public class DBQueryBuilder {
     }
 
 
+    /**
+     * Executes an UPDATE or DELETE prepared statement with arguments on a given connection.
+     *
+     * @param conn the connection
+     * @param query string
+     * @param arguments list
+     * @return the number of affected rows
+     * @throws SQLException the SQL exception
+     */
+    public static int executeUpdate(Connection conn, String query, List<Object> arguments) throws SQLException {
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(query);
+            int index = 1;
+            if (arguments != null) {
+                for (Object param : arguments) {
+                    stmt.setObject(index++, param);
+                }
+            }
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Exception caught while executing update: " + query + "\n" + e);
+
+            throw e;
+        } finally {
+            if (stmt != null) {
+                stmt.close();
+            }
+        }
+    }
+
     /**
      * Execute.
      *
@@ -189,6 +258,25 @@ public class DBQueryBuilder {
         return StringUtils.join(fields, ", ");
     }
 
+    /**
+     * Generates a parenthesized list of placeholders, i.e. (?, ?, ?).
+     *
+     * @param count the number of placeholders
+     * @return the string
+     */
+    public static String generatePlaceholderList(int count) {
+        StringBuilder sb = new StringBuilder(count * 3 + 1);
+        sb.append("(");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append("?");
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+
     /**
      * Creates a new table.
      *
@@ -199,6 +287,37 @@ public class DBQueryBuilder {
         return new CreateTableClause(string);
     }
 
+    /**
+     * Creates an UPDATE statement.
+     *
+     * @param table the table
+     * @return the update clause
+     */
+    public static UpdateClause update(String table) {
+        return new UpdateClause(table);
+    }
+
+    /**
+     * Creates a DELETE statement.
+     *
+     * @param table the table
+     * @return the delete clause
+     */
+    public static DeleteClause deleteFrom(String table) {
+        return new DeleteClause(table);
+    }
+
+    /**
+     * Creates a DELETE statement of a table with an alias, so conditions can qualify its fields. Such statements cannot be ordered or limited.
+     *
+     * @param table the table
+     * @param alias the alias
+     * @return the delete clause
+     */
+    public static DeleteClause deleteFrom(String table, String alias) {
+        return new DeleteClause(table, alias);
+    }
+
     /**
      * Drop table.
      *
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.query.builder;
+
+/**
+ * Inner class for DELETE statements.
+ */
+public class DeleteClause extends SQLClause {
+
+    /** The table. */
+    private String table;
+
+    /** The alias, null if none. */
+    private String alias;
+
+    /** The order by field. */
+    private String orderBy = null;
+
+    /**
+     * Instantiates a new delete clause.
+     *
+     * @param table the table
+     */
+    public DeleteClause(String table) {
+        this.table = table;
+    }
+
+    /**
+     * Instantiates a delete clause of a table with an alias, using the multiple-table syntax DELETE alias FROM table alias, which does not
+     * allow ORDER BY or LIMIT.
+     *
+     * @param table the table
+     * @param alias the alias
+     */
+    public DeleteClause(String table, String alias) {
+        this.table = table;
+        this.alias = alias;
+    }
+
+    /**
+     * Adds a condition. Several conditions are joined with AND.
+     *
+     * @param condition as a WhereClause object
+     * @return this instance
+     */
+    public DeleteClause where(WhereClause condition) {
+        addCondition(condition);
+
+        return this;
+    }
+
+    /**
+     * Deletes the rows in the order of a field, so deletes with LIMIT are deterministic.
+     *
+     * @param field the field
+     * @return this instance
+     */
+    public DeleteClause orderBy(String field) {
+        if (!this.limitClause.isEmpty()) {
+            throw new IllegalArgumentException("Misplaced ORDER BY");
+        }
+        if (this.alias != null) {
+            throw new IllegalArgumentException("Cannot order a DELETE with an alias");
+        }
+        this.orderBy = field;
+
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see com.appgree.core.dao.query.builder.SQLClause#toString()
+     */
+    @Override
+    public String toString() {
+        if (this.alias != null && !this.limitClause.isEmpty()) {
+            return "Malformed SQL statement: DELETE from " + this.table + " with an alias and LIMIT";
+        }
+        StringBuilder queryString = new StringBuilder("DELETE ");
+        if (this.alias != null) {
+            queryString.append(this.alias).append(' ');
+        }
+        queryString.append("FROM ").append(this.table);
+        if (this.alias != null) {
+            queryString.append(' ').append(this.alias);
+        }
+        if (!this.whereClause.isEmpty()) {
+            queryString.append(WHERE).append(this.whereClause);
+        }
+        if (this.orderBy != null) {
+            queryString.append(" ORDER BY ").append(this.orderBy);
+        }
+        if (!this.limitClause.isEmpty()) {
+            queryString.append(LIMIT).append(this.limitClause);
+        }
+
+        return queryString.toString();
+    }
+
+}
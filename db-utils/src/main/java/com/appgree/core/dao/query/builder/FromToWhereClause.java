@@ -83,6 +83,30 @@ public class FromToWhereClause extends SQLClause {
         return new WhereClause(this);
     }
 
+    /**
+     * Restricts the query to the rows after a previous page (seek pagination). See WhereClause.after.
+     *
+     * @param sortKeys the fields of the ORDER BY, the last one must be unique
+     * @param lastValues the values of the sort keys in the last row of the previous page, null for the first page
+     * @param descending if the sort keys are in descending order
+     * @return WhereClause instance
+     */
+    public WhereClause after(String[] sortKeys, Object[] lastValues, boolean descending) {
+        return new WhereClause(this).after(sortKeys, lastValues, descending);
+    }
+
+    /**
+     * Restricts the query to the rows after the page encoded in a continuation token. See WhereClause.after.
+     *
+     * @param sortKeys the fields of the ORDER BY, the last one must be unique
+     * @param continuationToken the continuation token, null or empty for the first page
+     * @param descending if the sort keys are in descending order
+     * @return WhereClause instance
+     */
+    public WhereClause after(String[] sortKeys, String continuationToken, boolean descending) {
+        return new WhereClause(this).after(sortKeys, continuationToken, descending);
+    }
+
     /**
      * Adds a WHERE condition.
      *
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.query.builder;
+
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.appgree.core.dao.processor.DataProcessor;
+import com.appgree.core.dao.processor.Record;
+
+/**
+ * A subset of the columns of a table. The select clause and the column index are computed once, so a projection can be kept and reused to
+ * read only the columns a caller needs, either as {@link Record}s or, through {@link SQLClause#executeColumns}, as a columnar batch.
+ */
+public class Projection implements DataProcessor<Record> {
+
+    /** The table alias, as used by BaseDAO select clauses. */
+    public static final String TABLE_ALIAS = " A";
+
+    /** The columns. */
+    private final List<String> columns;
+
+    /** The select clause. */
+    private final String selectClause;
+
+    /** The column index shared by the records. */
+    private final Map<String, Integer> index;
+
+    /**
+     * Instantiates a new projection.
+     *
+     * @param table the table
+     * @param columns the columns, in select order
+     */
+    public Projection(String table, String... columns) {
+        if (columns == null || columns.length == 0) {
+            throw new IllegalArgumentException("A projection needs at least one column");
+        }
+        this.columns = Collections.unmodifiableList(Arrays.asList(columns.clone()));
+        this.selectClause = DBQueryBuilder.generateCSVFromList(this.columns) + SQLClause.FROM + table + TABLE_ALIAS;
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            if (index.put(columns[i], i) != null) {
+                throw new IllegalArgumentException("Duplicated column " + columns[i]);
+            }
+        }
+        this.index = Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Gets the columns.
+     *
+     * @return the columns
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Creates a query reading the projected columns, to add joins and conditions to.
+     *
+     * @return the from to where clause
+     */
+    public FromToWhereClause select() {
+        return DBQueryBuilder.selectFromString(selectClause);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.appgree.core.dao.processor.DataProcessor#process(java.sql.ResultSet)
+     */
+    @Override
+    public Record process(ResultSet resultSet) throws Exception {
+        Object[] values = new Object[index.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = resultSet.getObject(i + 1);
+        }
+        return new Record(index, values);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return selectClause;
+    }
+}
@@ -0,0 +1,520 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.query.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.appgree.core.dao.processor.DataProcessor;
+import com.appgree.core.database.provider.DataBaseManager;
+import com.appgree.core.database.provider.TransactionListener;
+
+/**
+ * Caches the processed rows of queries (see SQLClause.executeCached), keyed by their SQL, with whitespace collapsed, their arguments and the
+ * processor mapping their rows, so processors mapping the same query differently do not share rows.
+ * Entries expire after a TTL and the least recently used ones are evicted beyond maxEntries. Every entry is tagged with the tables of its
+ * FROM and JOIN clauses and invalidate(table), called by every BaseDAO write, drops the entries of the table. A query that was running when
+ * one of its tables was invalidated is not cached. Tables written in a transaction are invalidated again when it is committed or rolled
+ * back, so rows read by other connections before the commit, or by the writing one before a rollback, are not kept either. Cached rows are
+ * shared by every caller and must not be modified.
+ */
+public class QueryCache {
+
+    /** The cache in use, null if disabled. */
+    private static volatile QueryCache instance;
+
+    /** The start of the table list of a FROM or JOIN. */
+    private static final Pattern TABLES_START = Pattern.compile("\\b(?:FROM|JOIN)\\s+", Pattern.CASE_INSENSITIVE);
+
+    /** A table reference with an optional alias, and the comma before the next one. */
+    private static final Pattern TABLE_REFERENCE = Pattern.compile("\\G([\\w$.`]+)(?:\\s+(?:AS\\s+)?(?!(?:WHERE|JOIN|ON|USING|LEFT|RIGHT|INNER|"
+                    + "OUTER|CROSS|NATURAL|STRAIGHT_JOIN|GROUP|ORDER|LIMIT|HAVING|UNION|FOR|LOCK)\\b)\\w+)?(\\s*,\\s*)?", Pattern.CASE_INSENSITIVE);
+
+    /** The whitespace collapsed in the keys. */
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * The key of an entry.
+     */
+    private static class Key {
+
+        /** The normalized sql. */
+        private final String sql;
+
+        /** The arguments. */
+        private final List<Object> arguments;
+
+        /** The processor. */
+        private final DataProcessor<?> processor;
+
+        /** The hash. */
+        private final int hash;
+
+        /**
+         * Instantiates a new key.
+         *
+         * @param sql the normalized sql
+         * @param arguments the arguments
+         * @param processor the processor
+         */
+        private Key(String sql, List<Object> arguments, DataProcessor<?> processor) {
+            this.sql = sql;
+            this.arguments = arguments == null ? Collections.<Object> emptyList() : new ArrayList<Object>(arguments);
+            this.processor = processor;
+            this.hash = 31 * (31 * sql.hashCode() + this.arguments.hashCode()) + processor.hashCode();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && sql.equals(other.sql) && arguments.equals(other.arguments) && processor.equals(other.processor);
+        }
+    }
+
+    /**
+     * A cached result.
+     */
+    private static class CachedResult {
+
+        /** The rows. */
+        private final List<?> rows;
+
+        /** The tables. */
+        private final Set<String> tables;
+
+        /** The expiration time, in milliseconds. */
+        private final long expiresAt;
+
+        /**
+         * Instantiates a new cached result.
+         *
+         * @param rows the rows
+         * @param tables the tables
+         * @param expiresAt the expires at
+         */
+        private CachedResult(List<?> rows, Set<String> tables, long expiresAt) {
+            this.rows = rows;
+            this.tables = tables;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * The tables written in the transaction of a thread, invalidated again when it ends.
+     */
+    private class WrittenTables implements TransactionListener {
+
+        /** The tables. */
+        private final Set<String> tables = new HashSet<>();
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.database.provider.TransactionListener#onCommit()
+         */
+        @Override
+        public void onCommit() {
+            flush();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.database.provider.TransactionListener#onRollback()
+         */
+        @Override
+        public void onRollback() {
+            flush();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.database.provider.ConnectionListener#onRelease()
+         */
+        @Override
+        public void onRelease() {
+            // the manager already discarded its listeners
+            flush();
+            if (writtenTables.get() == this) {
+                writtenTables.remove();
+            }
+        }
+
+        /**
+         * Invalidates the written tables.
+         */
+        private void flush() {
+            for (String table : tables) {
+                invalidateNow(table);
+            }
+            tables.clear();
+        }
+    }
+
+    /** The maximum number of entries. */
+    private final int maxEntries;
+
+    /** The time to live of the entries, in milliseconds. */
+    private final long ttlMillis;
+
+    /** The lock guarding the entries, the table index and the generations. */
+    private final Lock lock = new ReentrantLock();
+
+    /** The entries, in access order. */
+    private final LinkedHashMap<Key, CachedResult> entries;
+
+    /** The keys of the entries by table. */
+    private final Map<String, Set<Key>> keysByTable = new HashMap<>();
+
+    /** The number of invalidations by table, to detect queries running while their tables were written. */
+    private final Map<String, Long> generations = new HashMap<>();
+
+    /** The tables written in the transaction of the current thread. */
+    private final ThreadLocal<WrittenTables> writtenTables = new ThreadLocal<>();
+
+    /** The hits. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** The misses. */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Instantiates a new query cache.
+     *
+     * @param maxEntries the maximum number of entries
+     * @param ttlMillis the time to live of the entries, in milliseconds
+     */
+    public QueryCache(final int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Max entries and TTL must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<Key, CachedResult>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+                if (size() > QueryCache.this.maxEntries) {
+                    unindex(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Enables the cache of SQLClause.executeCached and of BaseDAO writes.
+     *
+     * @param maxEntries the maximum number of entries
+     * @param ttlMillis the time to live of the entries, in milliseconds
+     * @return the cache
+     */
+    public static QueryCache init(int maxEntries, long ttlMillis) {
+        QueryCache cache = new QueryCache(maxEntries, ttlMillis);
+        instance = cache;
+        return cache;
+    }
+
+    /**
+     * Gets the cache in use.
+     *
+     * @return the cache, null if disabled
+     */
+    public static QueryCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Disables the cache, discarding its entries.
+     */
+    public static void uninit() {
+        QueryCache cache = instance;
+        instance = null;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Gets the cached rows of a query or loads and caches them. Rows are only shared with callers passing an equal processor: the same
+     * instance, unless the processor class defines equals for processors mapping rows the same way. Queries on tables written in the
+     * transaction of the current thread bypass the cache until it is committed or rolled back.
+     *
+     * @param <T> the generic type
+     * @param sql the sql
+     * @param arguments the arguments
+     * @param processor the processor mapping the rows
+     * @param loader runs the query
+     * @return the rows
+     * @throws Exception the exception of the loader
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(String sql, List<Object> arguments, DataProcessor<T> processor, Callable<List<T>> loader) throws Exception {
+        if (processor == null) {
+            throw new IllegalArgumentException("A processor is required");
+        }
+        Key key = new Key(normalize(sql), arguments, processor);
+        WrittenTables written = writtenTables.get();
+        if (written != null && !Collections.disjoint(written.tables, getTables(key.sql))) {
+            // the transaction of this thread wrote the tables, its uncommitted rows are neither read from nor stored in the cache
+            misses.incrementAndGet();
+            return loader.call();
+        }
+        Set<String> tables;
+        Map<String, Long> snapshot = new HashMap<>();
+        lock.lock();
+        try {
+            CachedResult entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > System.currentTimeMillis()) {
+                    hits.incrementAndGet();
+                    return (List<T>) entry.rows;
+                }
+                entries.remove(key);
+                unindex(key, entry);
+            }
+            tables = entry != null ? entry.tables : getTables(key.sql);
+            for (String table : tables) {
+                snapshot.put(table, generations.get(table));
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        misses.incrementAndGet();
+        List<T> rows = loader.call();
+        if (rows == null || tables.isEmpty()) {
+            return rows;
+        }
+
+        List<T> cached = Collections.unmodifiableList(new ArrayList<>(rows));
+        lock.lock();
+        try {
+            for (String table : tables) {
+                Long generation = generations.get(table);
+                if (generation == null ? snapshot.get(table) != null : !generation.equals(snapshot.get(table))) {
+                    // a table was written while the query ran
+                    return cached;
+                }
+            }
+            CachedResult previous = entries.put(key, new CachedResult(cached, tables, System.currentTimeMillis() + ttlMillis));
+            if (previous != null) {
+                unindex(key, previous);
+            }
+            for (String table : tables) {
+                Set<Key> keys = keysByTable.get(table);
+                if (keys == null) {
+                    keys = new HashSet<>();
+                    keysByTable.put(table, keys);
+                }
+                keys.add(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return cached;
+    }
+
+    /**
+     * Drops the entries of a table. If the current thread is in a transaction, they are dropped again when it is committed or rolled back.
+     *
+     * @param table the table
+     */
+    public void invalidate(String table) {
+        String name = normalizeTable(table);
+        invalidateNow(name);
+
+        WrittenTables written = writtenTables.get();
+        if (written == null) {
+            written = new WrittenTables();
+            writtenTables.set(written);
+            DataBaseManager.getInstance().addConnectionListener(written);
+        }
+        written.tables.add(name);
+    }
+
+    /**
+     * Drops every entry.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            for (Map.Entry<Key, CachedResult> entry : entries.entrySet()) {
+                for (String table : entry.getValue().tables) {
+                    increment(table);
+                }
+            }
+            entries.clear();
+            keysByTable.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of entries, including expired ones not evicted yet.
+     *
+     * @return the int
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of queries served from the cache.
+     *
+     * @return the hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of queries run because they were not cached.
+     *
+     * @return the misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the tables of the FROM and JOIN clauses of a query, in upper case and without schema.
+     *
+     * @param sql the sql
+     * @return the tables
+     */
+    static Set<String> getTables(String sql) {
+        Set<String> tables = new LinkedHashSet<>();
+        Matcher start = TABLES_START.matcher(sql);
+        while (start.find()) {
+            Matcher reference = TABLE_REFERENCE.matcher(sql);
+            reference.region(start.end(), sql.length());
+            while (reference.find()) {
+                tables.add(normalizeTable(reference.group(1)));
+                if (reference.group(2) == null) {
+                    break;
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Drops the entries of a table now.
+     *
+     * @param table the normalized table
+     */
+    private void invalidateNow(String table) {
+        lock.lock();
+        try {
+            increment(table);
+            Set<Key> keys = keysByTable.remove(table);
+            if (keys != null) {
+                for (Key key : keys) {
+                    CachedResult entry = entries.remove(key);
+                    if (entry != null) {
+                        unindex(key, entry);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Increments the generation of a table. Must be called holding the lock.
+     *
+     * @param table the table
+     */
+    private void increment(String table) {
+        Long generation = generations.get(table);
+        generations.put(table, generation == null ? 1L : generation + 1);
+    }
+
+    /**
+     * Removes a key from the index of its tables. Must be called holding the lock.
+     *
+     * @param key the key
+     * @param entry the entry
+     */
+    private void unindex(Key key, CachedResult entry) {
+        for (String table : entry.tables) {
+            Set<Key> keys = keysByTable.get(table);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByTable.remove(table);
+                }
+            }
+        }
+    }
+
+    /**
+     * Normalizes a query, collapsing its whitespace.
+     *
+     * @param sql the sql
+     * @return the string
+     */
+    private static String normalize(String sql) {
+        return WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+    }
+
+    /**
+     * Normalizes a table name, in upper case and without schema.
+     *
+     * @param table the table
+     * @return the string
+     */
+    private static String normalizeTable(String table) {
+        String name = table.replace("`", "");
+        int dot = name.lastIndexOf('.');
+        return (dot >= 0 ? name.substring(dot + 1) : name).toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.query.builder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import com.appgree.core.dao.processor.ColumnBatch;
+import com.appgree.core.dao.processor.ColumnType;
+import com.appgree.core.dao.processor.DataProcessor;
+import com.appgree.core.dao.query.stream.RowPublisher;
+import com.appgree.core.database.provider.DataBaseManager;
+
+/**
+ * Base class for executable clauses.
+ */
+public class SQLClause {
+
+    /** The arguments. */
+    protected List<Object> arguments;
+    
+    /** The last stmt. */
+    private PreparedStatement lastStmt = null;
+    
+    /** The from clause. */
+    protected String fromClause;
+    
+    /** The where clause. */
+    protected String whereClause;
+    
+    /** The limit clause. */
+    protected String limitClause;
+
+    /** The fetch size hint. */
+    protected int fetchSize = 0;
+
+    /** The Constant WHERE. */
+    public static final String WHERE = " WHERE ";
+    
+    /** The Constant SELECT. */
+    protected static final String SELECT = "SELECT ";
+    
+    /** The Constant FROM. */
+    protected static final String FROM = " FROM ";
+    
+    /** The Constant TRUE. */
+    protected static final String TRUE = "TRUE";
+    
+    /** The Constant LIMIT. */
+    protected static final String LIMIT = " LIMIT ";
+
+    /**
+     * Instantiates a new SQL clause.
+     *
+     * @param fromClause the from clause
+     * @param whereClause the where clause
+     * @param limitClause the limit clause
+     * @param arguments the arguments
+     */
+    public SQLClause(String fromClause, String whereClause, String limitClause, List<Object> arguments) {
+        if (whereClause != null && (whereClause.contains(" SELECT ") || whereClause.contains(" FROM ") || whereClause.contains(" WHERE "))) {
+            throw new IllegalArgumentException("Where condition cannot have SELECT, FROM or WHERE keywords");
+        }
+        this.fromClause = fromClause;
+        this.whereClause = whereClause;
+        this.limitClause = limitClause;
+        this.arguments = arguments;
+    }
+
+    /**
+     * Instantiates a new SQL clause.
+     *
+     * @param innerQuery the inner query
+     */
+    public SQLClause(SQLClause innerQuery) {
+        this(innerQuery.fromClause, innerQuery.whereClause, innerQuery.limitClause, innerQuery.arguments);
+        this.fetchSize = innerQuery.fetchSize;
+    }
+
+    /**
+     * Instantiates a new SQL clause.
+     */
+    public SQLClause() {
+        this("", "", "", new LinkedList<Object>());
+    }
+
+    /**
+     * Instantiates a new SQL clause.
+     *
+     * @param string the string
+     */
+    public SQLClause(String string) {
+        this(string, "", "", new LinkedList<Object>());
+    }
+
+    /**
+     * Adds a LIMIT clause.
+     *
+     * @param limit the limit
+     * @return a SQLClause instance
+     */
+    public SQLClause limit(Integer limit) {
+        if (limit != null && limit <= 0) {
+            return this;
+        }
+
+        this.arguments.add(limit);
+        this.limitClause = "?";
+
+        return this;
+    }
+
+    /**
+     * Adds a LIMIT clause paginated.
+     *
+     * @param start the start
+     * @param limit the limit
+     * @return a SQLClause instance
+     */
+    public SQLClause limit(Integer start, Integer limit) {
+        if (limit != null && limit <= 0 && start != null && start < 0) {
+            return this;
+        }
+
+        this.arguments.add(start);
+        this.arguments.add(limit);
+        this.limitClause = "?, ?";
+
+        return this;
+    }
+
+    /**
+     * Sets the fetch size hint used when the query is executed.
+     *
+     * @param fetchSize the fetch size
+     * @return a SQLClause instance
+     */
+    public SQLClause fetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+
+        return this;
+    }
+
+    /**
+     * Makes the driver stream the rows instead of reading the whole result set in memory. No other statement can be executed on the connection
+     * until the result set is closed.
+     *
+     * @return a SQLClause instance
+     */
+    public SQLClause streaming() {
+        return fetchSize(DBQueryBuilder.STREAMING_FETCH_SIZE);
+    }
+
+    /**
+     * Executes query without parameters.
+     *
+     * @return A ResultSet
+     * @throws SQLException the SQL exception
+     */
+    public ResultSet execute() throws SQLException {
+        return execute((List<Object>) null);
+    }
+
+    /**
+     * Adds the clause parameters to the prepared statement and executes query.
+     *
+     * @param parameters List of objects for the preparedStatement
+     * @return A ResultSet
+     * @throws SQLException the SQL exception
+     */
+    public ResultSet execute(List<Object> parameters) throws SQLException {
+        if (lastStmt != null) {
+            lastStmt.close();
+        }
+        List<Object> actualArgs = getActualPreparedStatementParams(parameters);
+        lastStmt = DBQueryBuilder.execute(this.toString(), actualArgs, this.fetchSize);
+
+        if (lastStmt == null) {
+            return null;
+        }
+
+        return lastStmt.getResultSet();
+    }
+
+    /**
+     * Adds the clause parameters to the prepared statement, executes query and processes the rows.
+     *
+     * @param <T> the generic type
+     * @param processor to apply to every row
+     * @return The count of processed rows
+     * @throws Exception the exception
+     */
+    public <T> int execute(DataProcessor<T> processor) throws Exception {
+        return execute(DataBaseManager.getInstance().getConnection(), processor);
+    }
+
+    /**
+     * Adds the clause parameters to the prepared statement, executes query on a given connection and processes the rows.
+     *
+     * @param <T> the generic type
+     * @param conn the connection
+     * @param processor to apply to every row
+     * @return The count of processed rows
+     * @throws Exception the exception
+     */
+    public <T> int execute(Connection conn, DataProcessor<T> processor) throws Exception {
+        return DBQueryBuilder.executeWithProcessor(conn, this.toString(), this.arguments, this.fetchSize, processor);
+    }
+
+    /**
+     * Executes query and returns its processed rows, served from the QueryCache if enabled (see QueryCache.init) and the same query with the
+     * same arguments was cached for an equal processor (see QueryCache.get). The rows can be shared with other callers and must not be
+     * modified.
+     *
+     * @param <T> the generic type
+     * @param processor to apply to every row
+     * @return the processed rows
+     * @throws Exception the exception
+     */
+    public <T> List<T> executeCached(final DataProcessor<T> processor) throws Exception {
+        Callable<List<T>> loader = new Callable<List<T>>() {
+
+            @Override
+            public List<T> call() throws Exception {
+                final List<T> rows = new ArrayList<>();
+                execute(new DataProcessor<T>() {
+
+                    @Override
+                    public T process(ResultSet resultSet) throws Exception {
+                        T row = processor.process(resultSet);
+                        rows.add(row);
+                        return row;
+                    }
+                });
+                return rows;
+            }
+        };
+
+        QueryCache cache = QueryCache.getInstance();
+        return cache == null ? loader.call() : cache.get(this.toString(), this.arguments, processor, loader);
+    }
+
+    /**
+     * Executes query and processes the rows on the executor of asynchronous queries (see DataBaseManager.getExecutor), with the connection of
+     * its worker thread. The processor is called from that thread. Cancelling the future cancels the statement.
+     *
+     * @param <T> the generic type
+     * @param processor to apply to every row
+     * @return the future count of processed rows
+     * @throws InterruptedException if interrupted while the executor is saturated
+     */
+    public <T> Future<Integer> executeAsync(final DataProcessor<T> processor) throws InterruptedException {
+        return DataBaseManager.getInstance().getExecutor().submit(new Callable<Integer>() {
+
+            @Override
+            public Integer call() throws Exception {
+                return execute(processor);
+            }
+        });
+    }
+
+    /**
+     * Publishes the rows of the query to subscribers as they request them (see RowPublisher). Every subscription runs the query on the
+     * executor of asynchronous queries and streams its rows unless a fetch size was set.
+     *
+     * @param <T> the generic type
+     * @param processor to apply to every row
+     * @return the publisher
+     */
+    public <T> RowPublisher<T> publish(DataProcessor<T> processor) {
+        return publish(processor, 0);
+    }
+
+    /**
+     * Publishes the rows of the query to subscribers as they request them, reading up to prefetch rows ahead of the demand.
+     *
+     * @param <T> the generic type
+     * @param processor to apply to every row
+     * @param prefetch the number of rows read ahead of the demand
+     * @return the publisher
+     */
+    public <T> RowPublisher<T> publish(DataProcessor<T> processor, int prefetch) {
+        return new RowPublisher<>(this.toString(), new ArrayList<Object>(this.arguments), this.fetchSize, processor, prefetch);
+    }
+
+    /**
+     * Executes an UPDATE or DELETE statement on the current connection.
+     *
+     * @return the number of affected rows
+     * @throws SQLException the SQL exception
+     */
+    public int executeUpdate() throws SQLException {
+        return executeUpdate(DataBaseManager.getInstance().getConnection());
+    }
+
+    /**
+     * Executes an UPDATE or DELETE statement on a given connection.
+     *
+     * @param conn the connection
+     * @return the number of affected rows
+     * @throws SQLException the SQL exception
+     */
+    public int executeUpdate(Connection conn) throws SQLException {
+        return DBQueryBuilder.executeUpdate(conn, this.toString(), this.arguments);
+    }
+
+    /**
+     * Executes query and reads the selected columns into primitive arrays, avoiding an object per row.
+     *
+     * @param types the types of the selected columns, in select order
+     * @return the column batch
+     * @throws Exception the exception
+     */
+    public ColumnBatch executeColumns(ColumnType... types) throws Exception {
+        ColumnBatch batch = new ColumnBatch(types);
+        execute(batch);
+
+        return batch;
+    }
+
+    /**
+     * ANDs the condition of a WHERE clause to this clause, copying its arguments. Conditions are parenthesized when combined, so they cannot
+     * carry ORDER BY or LIMIT.
+     *
+     * @param condition the condition
+     */
+    protected void addCondition(SQLClause condition) {
+        if (!condition.fromClause.isEmpty()) {
+            throw new IllegalArgumentException("Where condition is ill formed!");
+        }
+        if (condition.limitClause != null && !condition.limitClause.isEmpty()) {
+            throw new IllegalArgumentException("Where condition cannot have a LIMIT");
+        }
+        if (this.limitClause != null && !this.limitClause.isEmpty()) {
+            throw new IllegalArgumentException("Misplaced WHERE");
+        }
+        if (condition.whereClause == null || condition.whereClause.isEmpty()) {
+            return;
+        }
+        if (this.whereClause == null || this.whereClause.isEmpty()) {
+            this.whereClause = condition.whereClause;
+        } else {
+            this.whereClause = "(" + this.whereClause + ") AND (" + condition.whereClause + ")";
+        }
+        this.arguments.addAll(condition.arguments);
+    }
+
+    /**
+     * Gets the actual prepared statement params.
+     *
+     * @param parameters the parameters
+     * @return the actual prepared statement params
+     * @throws SQLException the SQL exception
+     */
+    private List<Object> getActualPreparedStatementParams(List<Object> parameters) throws SQLException {
+        if (parameters == null) {
+            return this.arguments;
+        }
+
+        List<Object> actualArgs = new ArrayList<Object>(this.arguments);
+        int index = 0;
+        int provided = 0;
+        for (Object param = this.arguments.get(index); index < this.arguments.size() && provided < parameters.size(); index++) {
+            if (param == null) {
+                actualArgs.set(index, parameters.get(provided++));
+            }
+        }
+
+        if (index < this.arguments.size() || provided < parameters.size()) {
+            throw new SQLException("Wrong number of arguments in call to preparedStatement");
+        }
+        return actualArgs;
+    }
+
+    /**
+     * Closes the last executed statement.
+     *
+     * @throws SQLException the SQL exception
+     */
+    public void close() throws SQLException {
+        if (lastStmt != null) {
+            lastStmt.close();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        if (fromClause == null || fromClause.isEmpty() || fromClause.contains(SELECT) || !fromClause.contains(FROM)) {
+            return "Malformed SQL statement: " + SELECT + fromClause + WHERE + whereClause;
+        }
+
+        String output = SELECT + fromClause;
+
+        if (whereClause != null && !whereClause.isEmpty()) {
+            output += WHERE + whereClause;
+        }
+
+        if (limitClause != null && !limitClause.isEmpty()) {
+            output += LIMIT + limitClause;
+        }
+
+        return output;
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.query.builder;
+
+/**
+ * Inner class for UPDATE statements. Assignments must be added before the conditions, since arguments are bound in order.
+ */
+public class UpdateClause extends SQLClause {
+
+    /** The table. */
+    private String table;
+
+    /** The set clause. */
+    private StringBuilder setClause = new StringBuilder();
+
+    /**
+     * Instantiates a new update clause.
+     *
+     * @param table the table
+     */
+    public UpdateClause(String table) {
+        this.table = table;
+    }
+
+    /**
+     * Adds an assignment of a value to a field.
+     *
+     * @param field the field
+     * @param value the value, null to set NULL
+     * @return this instance
+     */
+    public UpdateClause set(String field, Object value) {
+        if (!this.whereClause.isEmpty() || !this.limitClause.isEmpty()) {
+            throw new IllegalArgumentException("Misplaced SET");
+        }
+        if (this.setClause.length() > 0) {
+            this.setClause.append(FromClause.COMMA);
+        }
+        this.setClause.append(field).append(" = ?");
+        this.arguments.add(value);
+
+        return this;
+    }
+
+    /**
+     * Adds an assignment incrementing a numeric field by one.
+     *
+     * @param field the field
+     * @return this instance
+     */
+    public UpdateClause increment(String field) {
+        if (!this.whereClause.isEmpty() || !this.limitClause.isEmpty()) {
+            throw new IllegalArgumentException("Misplaced SET");
+        }
+        if (this.setClause.length() > 0) {
+            this.setClause.append(FromClause.COMMA);
+        }
+        this.setClause.append(field).append(" = ").append(field).append(" + 1");
+
+        return this;
+    }
+
+    /**
+     * Adds a condition. Several conditions are joined with AND.
+     *
+     * @param condition as a WhereClause object
+     * @return this instance
+     */
+    public UpdateClause where(WhereClause condition) {
+        addCondition(condition);
+
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see com.appgree.core.dao.query.builder.SQLClause#toString()
+     */
+    @Override
+    public String toString() {
+        if (this.setClause.length() == 0) {
+            return "Malformed SQL statement: UPDATE " + this.table + " without SET";
+        }
+        StringBuilder queryString = new StringBuilder("UPDATE ");
+        queryString.append(this.table).append(" SET ").append(this.setClause);
+        if (!this.whereClause.isEmpty()) {
+            queryString.append(WHERE).append(this.whereClause);
+        }
+        if (!this.limitClause.isEmpty()) {
+            queryString.append(LIMIT).append(this.limitClause);
+        }
+
+        return queryString.toString();
+    }
+
+}
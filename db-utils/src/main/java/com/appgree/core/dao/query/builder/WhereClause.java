@@ -0,0 +1,263 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.query.builder;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Inner class that represents a predicate for a conditional clause or query.
+ */
+public class WhereClause extends SQLClause {
+
+    /** The Constant ORDER_BY. */
+    private static final String ORDER_BY = " ORDER BY ";
+
+    /** The Constant OR. */
+    private static final String OR = " OR ";
+
+    /** The Constant AND. */
+    private static final String AND = " AND ";
+
+    /** The Constant DESC. */
+    private static final String DESC = " DESC";
+
+    /**
+     * Constructor with query.
+     *
+     * @param innerQuery the inner query
+     */
+    public WhereClause(SQLClause innerQuery) {
+        super(innerQuery);
+    }
+
+    /**
+     * Creates a WhereOperand for field using AND.
+     *
+     * @param field to be added to WHERE
+     * @return WhereOperand instance
+     */
+    public WhereOperand and(String field) {
+        if (this.whereClause.contains(LIMIT) || this.whereClause.contains(ORDER_BY)) {
+            throw new IllegalArgumentException("Misplaced AND");
+        }
+
+        if (!this.whereClause.isEmpty()) {
+            this.whereClause += AND;
+        }
+
+        return new WhereOperand(this, field);
+    }
+
+    /**
+     * ANDs another condition, parenthesizing both sides so conditions with OR keep their meaning.
+     *
+     * @param condition a WhereClause without ORDER BY or LIMIT
+     * @return this instance
+     */
+    public WhereClause and(WhereClause condition) {
+        if (this.whereClause.contains(ORDER_BY) || condition.whereClause.contains(ORDER_BY)) {
+            throw new IllegalArgumentException("Misplaced AND");
+        }
+        addCondition(condition);
+
+        return this;
+    }
+
+    /**
+     * Creates a WhereOperand for field using AND.
+     *
+     * @param condition that must be fulfilled to be added to WHERE
+     * @return WhereOperand instance
+     */
+    public WhereClause andTrue(String condition) {
+        if (this.whereClause.contains(LIMIT) || this.whereClause.contains(ORDER_BY)) {
+            throw new IllegalArgumentException("Misplaced AND");
+        }
+
+        if (!this.whereClause.isEmpty()) {
+            this.whereClause += AND;
+        }
+        this.whereClause += "(" + condition + ")";
+
+        return this;
+    }
+
+    /**
+     * Creates a WhereOperand for field using OR.
+     *
+     * @param field to be added to WHERE
+     * @return WhereOperand instance
+     */
+    public WhereOperand or(String field) {
+        if (this.whereClause.contains(LIMIT) || this.whereClause.contains(ORDER_BY)) {
+            throw new IllegalArgumentException("Misplaced AND");
+        }
+
+        if (!this.whereClause.isEmpty()) {
+            this.whereClause += OR;
+        }
+
+        return new WhereOperand(this, field);
+    }
+
+    /**
+     * Adds and ORDER BY clause.
+     *
+     * @param field to order by
+     * @return this instance
+     */
+    public WhereClause orderBy(String field) {
+        if (this.whereClause.contains(LIMIT)) {
+            throw new IllegalArgumentException("Misplaced ORDER BY");
+        }
+
+        if (this.whereClause.isEmpty()) {
+            this.whereClause = TRUE;
+        }
+
+        this.whereClause += ORDER_BY + field;
+
+        return this;
+    }
+
+    /**
+     * Adds an ORDER BY clause on several fields with the same direction.
+     *
+     * @param fields to order by
+     * @param descending if the order is descending
+     * @return this instance
+     */
+    public WhereClause orderBy(String[] fields, boolean descending) {
+        StringBuilder order = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                order.append(", ");
+            }
+            order.append(fields[i]);
+            if (descending) {
+                order.append(DESC);
+            }
+        }
+
+        return orderBy(order.toString());
+    }
+
+    /**
+     * Restricts the query to the rows after a previous page in ascending order of the sort keys (seek pagination).
+     *
+     * @param sortKeys the fields of the ORDER BY, the last one must be unique
+     * @param lastValues the values of the sort keys in the last row of the previous page, null for the first page
+     * @return this instance
+     */
+    public WhereClause after(String[] sortKeys, Object[] lastValues) {
+        return after(sortKeys, lastValues, false);
+    }
+
+    /**
+     * Restricts the query to the rows after the page encoded in a continuation token in ascending order of the sort keys.
+     *
+     * @param sortKeys the fields of the ORDER BY, the last one must be unique
+     * @param continuationToken the continuation token (see ContinuationToken), null or empty for the first page
+     * @return this instance
+     */
+    public WhereClause after(String[] sortKeys, String continuationToken) {
+        return after(sortKeys, continuationToken, false);
+    }
+
+    /**
+     * Restricts the query to the rows after the page encoded in a continuation token.
+     *
+     * @param sortKeys the fields of the ORDER BY, the last one must be unique
+     * @param continuationToken the continuation token (see ContinuationToken), null or empty for the first page
+     * @param descending if the sort keys are in descending order
+     * @return this instance
+     */
+    public WhereClause after(String[] sortKeys, String continuationToken, boolean descending) {
+        if (continuationToken == null || continuationToken.isEmpty()) {
+            return this;
+        }
+
+        return after(sortKeys, ContinuationToken.decode(continuationToken), descending);
+    }
+
+    /**
+     * Restricts the query to the rows after a previous page (seek pagination). Unlike LIMIT offsets, the cost of a page does not depend on its
+     * depth as long as there is an index on the sort keys. For several keys a row value comparison is used, preceded by a range on the first key
+     * so that the index range can be used, i.e. A &gt;= ? AND (A, B) &gt; (?, ?), or A &lt;= ? AND (A, B) &lt; (?, ?) for descending keys.
+     * The previous conditions are kept in parentheses, so they can be joined with OR.
+     *
+     * @param sortKeys the fields of the ORDER BY, the last one must be unique
+     * @param lastValues the values of the sort keys in the last row of the previous page, null for the first page. They cannot be null, since
+     *            no row compares greater or lower than NULL
+     * @param descending if the sort keys are in descending order
+     * @return this instance
+     */
+    public WhereClause after(String[] sortKeys, Object[] lastValues, boolean descending) {
+        if (lastValues == null) {
+            return this;
+        }
+        if (sortKeys == null || sortKeys.length == 0 || sortKeys.length != lastValues.length) {
+            throw new IllegalArgumentException("Sort keys and last values do not match");
+        }
+        for (Object value : lastValues) {
+            if (value == null) {
+                throw new IllegalArgumentException("Cannot page after a NULL sort key");
+            }
+        }
+        if (this.whereClause.contains(LIMIT) || this.whereClause.contains(ORDER_BY)) {
+            throw new IllegalArgumentException("Misplaced AFTER");
+        }
+
+        String operator = descending ? " < " : " > ";
+        StringBuilder predicate = new StringBuilder("(");
+        if (sortKeys.length == 1) {
+            predicate.append(sortKeys[0]).append(operator).append("?");
+            this.arguments.add(lastValues[0]);
+        } else {
+            predicate.append(sortKeys[0]).append(descending ? " <= ?" : " >= ?");
+            this.arguments.add(lastValues[0]);
+            predicate.append(AND).append("(").append(StringUtils.join(sortKeys, ", ")).append(")").append(operator);
+            predicate.append(DBQueryBuilder.generatePlaceholderList(sortKeys.length));
+            for (Object value : lastValues) {
+                this.arguments.add(value);
+            }
+        }
+        predicate.append(")");
+
+        if (this.whereClause.isEmpty()) {
+            this.whereClause = predicate.toString();
+        } else {
+            this.whereClause = "(" + this.whereClause + ")" + AND + predicate;
+        }
+
+        return this;
+    }
+
+    /**
+     * Sets the order to ASC.
+     *
+     * @return SQLClause instance
+     */
+    public SQLClause asc() {
+        if (!this.whereClause.contains(ORDER_BY) || this.whereClause.contains(LIMIT)) {
+            throw new IllegalArgumentException("Misplaced ASC");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the order to DESC.
+     *
+     * @return SQLClause instance
+     */
+    public SQLClause desc() {
+        if (!this.whereClause.contains(ORDER_BY) || this.whereClause.contains(LIMIT)) {
+            throw new IllegalArgumentException("Misplaced DESC");
+        }
+
+        this.whereClause += " DESC ";
+
+        return this;
+    }
+}
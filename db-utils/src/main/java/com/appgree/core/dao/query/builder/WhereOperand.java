@@ -0,0 +1,352 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.query.builder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import com.appgree.core.id.LongList;
+import com.appgree.core.id.ObjectId;
+
+/**
+ * Inner class that represents an incomplete SQL clause with the left operand of a WHERE condition.
+ */
+public class WhereOperand {
+
+    /** The Constant IS_NOT_NULL. */
+    private static final String IS_NOT_NULL = " IS NOT NULL";
+
+    /** The Constant NOT_EQUAL. */
+    private static final String NOT_EQUAL = " != ";
+
+    /** The Constant ARGUMENT. */
+    private static final String ARGUMENT = "?";
+
+    /** The Constant LOWER_OR_EQUAL_THAN. */
+    private static final String LOWER_OR_EQUAL_THAN = " <= ";
+
+    /** The Constant LOWER_THAN. */
+    private static final String LOWER_THAN = " < ";
+
+    /** The Constant GREATER_OR_EQUAL_THAN. */
+    private static final String GREATER_OR_EQUAL_THAN = " >= ";
+
+    /** The Constant GREATER_THAN. */
+    private static final String GREATER_THAN = " > ";
+
+    /** The Constant EQUAL. */
+    private static final String EQUAL = " = ";
+
+    /** The Constant LIKE. */
+    private static final String LIKE = " LIKE ";
+
+    /** The Constant IN. */
+    private static final String IN = " IN ";
+
+    /** The Constant NOT_IN. */
+    private static final String NOT_IN = " NOT IN ";
+
+    /** The Constant FALSE. */
+    private static final String FALSE = "FALSE";
+
+    /** The Constant TRUE. */
+    private static final String TRUE = "TRUE";
+
+    /**
+     * Allowed sizes for IN lists. Lists are padded up to the next bucket so that only a few distinct statements are generated.
+     */
+    private static final int[] IN_LIST_BUCKETS = {1, 2, 3, 4, 6, 8, 12, 16, 24, 32, 48, 64, 96, 128, 192, 256, 384, 512, 768, 1024};
+
+    /** The maximum number of placeholders in a single IN list. */
+    public static final int MAX_IN_LIST_SIZE = IN_LIST_BUCKETS[IN_LIST_BUCKETS.length - 1];
+
+    /** The inner query. */
+    private SQLClause innerQuery;
+
+    /** The field. */
+    private String field;
+
+    /**
+     * Constructor with previous SQLClause and field.
+     *
+     * @param innerQuery the inner query
+     * @param field to use in operand
+     */
+    public WhereOperand(SQLClause innerQuery, String field) {
+        this.innerQuery = innerQuery;
+        this.field = field;
+        if (field != null) {
+            this.innerQuery.whereClause += field;
+        }
+    }
+
+    /**
+     * Adds an EQUAL condition for a parameterized statement.
+     *
+     * @return SQLClause instance
+     */
+    public SQLClause equal() {
+        return equal(null);
+    }
+
+    /**
+     * Creates the condition predicate.
+     *
+     * @param value the value
+     * @param operator the operator
+     * @return the where clause
+     */
+    private WhereClause createConditionPredicate(Object value, String operator) {
+        this.innerQuery.arguments.add(value);
+        this.innerQuery.whereClause += operator + ARGUMENT;
+
+        return new WhereClause(this.innerQuery);
+    }
+
+    /**
+     * Adds an EQUAL condition for an actual statement.
+     *
+     * @param value the value
+     * @return SQLClause instance
+     */
+    public WhereClause equal(Object value) {
+        return createConditionPredicate(value, EQUAL);
+    }
+
+    /**
+     * Adds a GREATER THAN condition for a parameterized statement.
+     *
+     * @return SQLClause instance
+     */
+    public WhereClause greaterThan() {
+        return greaterThan(null);
+    }
+
+    /**
+     * Adds a GREATER THAN condition for an actual statement.
+     *
+     * @param value the value
+     * @return SQLClause instance
+     */
+    public WhereClause greaterThan(Object value) {
+        return createConditionPredicate(value, GREATER_THAN);
+    }
+
+    /**
+     * Adds a GREATER OR EQUAL THAN condition for a parameterized statement.
+     *
+     * @return SQLClause instance
+     */
+    public WhereClause greaterOrEqualThan() {
+        return greaterOrEqualThan(null);
+    }
+
+    /**
+     * Adds a GREATER OR EQUAL THAN condition for a actual statement.
+     *
+     * @param value the value
+     * @return SQLClause instance
+     */
+    public WhereClause greaterOrEqualThan(Object value) {
+        return createConditionPredicate(value, GREATER_OR_EQUAL_THAN);
+    }
+
+    /**
+     * Adds a LOWER THAN condition for a parameterized statement.
+     *
+     * @return SQLClause instance
+     */
+    public WhereClause lowerThan() {
+        return lowerThan(null);
+    }
+
+    /**
+     * Adds a LOWER THAN condition for an actual statement.
+     *
+     * @param value the value
+     * @return SQLClause instance
+     */
+    public WhereClause lowerThan(Object value) {
+        return createConditionPredicate(value, LOWER_THAN);
+    }
+
+    /**
+     * Adds a LOWER OR EQUAL THAN condition for a parameterized statement.
+     *
+     * @return SQLClause instance
+     */
+    public WhereClause lowerOrEqualThan() {
+        return lowerOrEqualThan(null);
+    }
+
+    /**
+     * Adds a LOWER OR EQUAL THAN condition for an actual statement.
+     *
+     * @param value the value
+     * @return SQLClause instance
+     */
+    public WhereClause lowerOrEqualThan(Object value) {
+        return createConditionPredicate(value, LOWER_OR_EQUAL_THAN);
+    }
+
+    /**
+     * Adds a NOT EQUAL condition for a parameterized statement.
+     *
+     * @return SQLClause instance
+     */
+    public WhereClause notEqual() {
+        return notEqual(null);
+    }
+
+    /**
+     * Adds a NOT EQUAL condition for an actual statement.
+     *
+     * @param value the value
+     * @return SQLClause instance
+     */
+    public WhereClause notEqual(Object value) {
+        return createConditionPredicate(value, NOT_EQUAL);
+    }
+
+    /**
+     * Like.
+     *
+     * @return the where clause
+     */
+    public WhereClause like() {
+        return createConditionPredicate(null, LIKE);
+    }
+
+    /**
+     * Like.
+     *
+     * @param value the value
+     * @return the where clause
+     */
+    public WhereClause like(String value) {
+        return createConditionPredicate(value, LIKE);
+    }
+
+    /**
+     * Not null.
+     *
+     * @return the where clause
+     */
+    public WhereClause notNull() {
+        this.innerQuery.whereClause += IS_NOT_NULL;
+
+        return new WhereClause(innerQuery);
+    }
+
+    /**
+     * Adds an IN condition with one placeholder per value. ObjectId values are bound as longs. The list is padded repeating its last value up to
+     * a bucketed size. Lists longer than {@link #MAX_IN_LIST_SIZE} throw an IllegalArgumentException: callers must split them in chunks of at
+     * most MAX_IN_LIST_SIZE values, run a query per chunk and join the results, as BaseDAO.findByIds and deleteAll do.
+     *
+     * @param values the values
+     * @return the where clause
+     */
+    public WhereClause in(Collection<?> values) {
+        return values == null ? in((LongList) null) : createListPredicate(values.size(), values.iterator(), false);
+    }
+
+    /**
+     * Adds an IN condition with one placeholder per id. See {@link #in(Collection)}.
+     *
+     * @param ids the ids
+     * @return the where clause
+     */
+    public WhereClause in(LongList ids) {
+        return ids == null ? createListPredicate(0, null, false) : createListPredicate(ids.size(), ids.boxedIterator(), false);
+    }
+
+    /**
+     * Adds a NOT IN condition with one placeholder per value. ObjectId values are bound as longs. The list is padded repeating its last value up
+     * to a bucketed size. Lists longer than {@link #MAX_IN_LIST_SIZE} throw an IllegalArgumentException: callers must split them in chunks of
+     * at most MAX_IN_LIST_SIZE values and join a NOT IN condition per chunk with AND. Null values are rejected, since NOT IN with a NULL in
+     * the list matches no row.
+     *
+     * @param values the values
+     * @return the where clause
+     */
+    public WhereClause notIn(Collection<?> values) {
+        return values == null ? notIn((LongList) null) : createListPredicate(values.size(), values.iterator(), true);
+    }
+
+    /**
+     * Adds a NOT IN condition with one placeholder per id. See {@link #notIn(Collection)}.
+     *
+     * @param ids the ids
+     * @return the where clause
+     */
+    public WhereClause notIn(LongList ids) {
+        return ids == null ? createListPredicate(0, null, true) : createListPredicate(ids.size(), ids.boxedIterator(), true);
+    }
+
+    /**
+     * Creates a list predicate (IN or NOT IN) replacing the field already written in the where clause.
+     *
+     * @param count the number of values
+     * @param values the values
+     * @param negated true for NOT IN, which matches every row with an empty list and rejects null values
+     * @return the where clause
+     */
+    private WhereClause createListPredicate(int count, Iterator<?> values, boolean negated) {
+        String operator = negated ? NOT_IN : IN;
+        if (this.field == null || !this.innerQuery.whereClause.endsWith(this.field)) {
+            throw new IllegalArgumentException("Misplaced" + operator + "condition");
+        }
+        if (count > MAX_IN_LIST_SIZE) {
+            throw new IllegalArgumentException("Too many values in" + operator + "list: " + count + ", the maximum is " + MAX_IN_LIST_SIZE);
+        }
+
+        StringBuilder predicate = new StringBuilder();
+        if (count == 0) {
+            predicate.append(negated ? TRUE : FALSE);
+        } else {
+            int bucket = bucketedSize(count);
+            List<Object> arguments = new ArrayList<>(bucket);
+            Object value = null;
+            for (int i = 0; i < count; i++) {
+                value = values.next();
+                if (value == null && negated) {
+                    throw new IllegalArgumentException("NULL values are not allowed in a NOT IN list");
+                }
+                if (value instanceof ObjectId) {
+                    value = ((ObjectId) value).toLong();
+                }
+                arguments.add(value);
+            }
+            // pads the list with the last value
+            for (int i = count; i < bucket; i++) {
+                arguments.add(value);
+            }
+            this.innerQuery.arguments.addAll(arguments);
+            predicate.append(this.field).append(operator).append(DBQueryBuilder.generatePlaceholderList(bucket));
+        }
+
+        String whereClause = this.innerQuery.whereClause;
+        this.innerQuery.whereClause = whereClause.substring(0, whereClause.length() - this.field.length()) + predicate;
+
+        return new WhereClause(this.innerQuery);
+    }
+
+    /**
+     * Gets the bucketed size for an IN list, i.e. the number of placeholders that will be generated for it.
+     *
+     * @param size the number of values (up to MAX_IN_LIST_SIZE)
+     * @return the bucketed size
+     */
+    public static int bucketedSize(int size) {
+        for (int bucket : IN_LIST_BUCKETS) {
+            if (bucket >= size) {
+                return bucket;
+            }
+        }
+        throw new IllegalArgumentException("IN list too long: " + size);
+    }
+
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.query.stream;
+
+/**
+ * A source of items pushed to subscribers as they request them, with the same contract as the reactive streams Publisher.
+ *
+ * @param <T> the item type
+ */
+public interface Publisher<T> {
+
+    /**
+     * Adds a subscriber. Its onSubscribe is called first and no item is sent until it requests some.
+     *
+     * @param subscriber the subscriber
+     */
+    public void subscribe(Subscriber<? super T> subscriber);
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.query.stream;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+
+import com.appgree.core.dao.processor.DataProcessor;
+import com.appgree.core.dao.query.builder.DBQueryBuilder;
+import com.appgree.core.database.provider.DataBaseManager;
+
+/**
+ * Publishes the rows of a query, mapped by a DataProcessor, to subscribers at the rate they request them. Every subscription runs the query
+ * on the executor of asynchronous queries (see DataBaseManager.getExecutor), with the connection of its worker thread, and reads a streaming
+ * result set only while there is demand, so the driver stops fetching from the network when the subscriber falls behind. With a prefetch
+ * window, up to that many rows are read ahead of the demand, overlapping the fetch with the work of the subscriber. The statement is closed
+ * when the rows are exhausted, on error and on cancel. Rows mapped to null are skipped. Subscribers are called from the worker thread.
+ *
+ * @param <T> the item type
+ */
+public class RowPublisher<T> implements Publisher<T> {
+
+    /** The logger. */
+    private static Logger logger = Logger.getLogger(RowPublisher.class);
+
+    /**
+     * A subscription, read by a worker thread.
+     */
+    private class RowSubscription implements Subscription, Callable<Integer> {
+
+        /** The subscriber. */
+        private final Subscriber<? super T> subscriber;
+
+        /** The lock guarding the demand, the buffer and the state. */
+        private final Lock lock = new ReentrantLock();
+
+        /** Signaled when there is demand or the subscription is cancelled. */
+        private final Condition changed = lock.newCondition();
+
+        /** The rows read ahead of the demand. */
+        private final ArrayDeque<T> buffer = new ArrayDeque<>();
+
+        /** The pending demand. */
+        private long demand = 0;
+
+        /** If cancelled. */
+        private boolean cancelled = false;
+
+        /** The error of an invalid request, sent by the worker. */
+        private Throwable requestError;
+
+        /**
+         * Instantiates a new row subscription.
+         *
+         * @param subscriber the subscriber
+         */
+        private RowSubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.dao.query.stream.Subscription#request(long)
+         */
+        @Override
+        public void request(long n) {
+            lock.lock();
+            try {
+                if (cancelled) {
+                    return;
+                }
+                if (n <= 0) {
+                    requestError = new IllegalArgumentException("Requested " + n + " items, the request must be positive");
+                    cancelled = true;
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+                changed.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.dao.query.stream.Subscription#cancel()
+         */
+        @Override
+        public void cancel() {
+            lock.lock();
+            try {
+                cancelled = true;
+                buffer.clear();
+                changed.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Reads the rows as they are requested.
+         *
+         * @return the number of rows sent
+         */
+        @Override
+        public Integer call() {
+            int sent = 0;
+            boolean exhausted = false;
+            Exception error = null;
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
+            try {
+                lock.lock();
+                try {
+                    if (cancelled) {
+                        // cancelled while queued
+                        terminate(null, false);
+                        return 0;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                Connection conn = DataBaseManager.getInstance().getConnection();
+                stmt = conn.prepareStatement(query);
+                stmt.setFetchSize(fetchSize);
+                int index = 1;
+                for (Object param : arguments) {
+                    stmt.setObject(index++, param);
+                }
+                exhausted = !stmt.execute();
+                rs = exhausted ? null : stmt.getResultSet();
+
+                while (true) {
+                    T item = null;
+                    lock.lock();
+                    try {
+                        while (!cancelled && !canSend() && !canRead(exhausted) && !(exhausted && buffer.isEmpty())) {
+                            changed.await();
+                        }
+                        if (cancelled || (exhausted && buffer.isEmpty())) {
+                            break;
+                        }
+                        if (canSend()) {
+                            item = buffer.poll();
+                            if (demand != Long.MAX_VALUE) {
+                                demand--;
+                            }
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+
+                    if (item != null) {
+                        try {
+                            subscriber.onNext(item);
+                        } catch (RuntimeException e) {
+                            logger.error("Subscriber failed, cancelling the rows of query: " + query + "\n" + e);
+                            cancel();
+                        }
+                        sent++;
+                    } else if (rs.next()) {
+                        T row = processor.process(rs);
+                        if (row != null) {
+                            lock.lock();
+                            try {
+                                buffer.add(row);
+                            } finally {
+                                lock.unlock();
+                            }
+                        }
+                    } else {
+                        exhausted = true;
+                    }
+                }
+            } catch (Exception e) {
+                error = e;
+            } finally {
+                close(stmt, rs, exhausted);
+            }
+
+            terminate(error, exhausted);
+            return sent;
+        }
+
+        /**
+         * Ends the subscription, signaling its outcome to the subscriber unless it was cancelled.
+         *
+         * @param error the error reading the rows, null if none
+         * @param exhausted if every row was read
+         */
+        private void terminate(Exception error, boolean exhausted) {
+            Throwable failure;
+            boolean completed;
+            lock.lock();
+            try {
+                // an error after a cancel is the cancel itself and is not signaled
+                failure = requestError != null ? requestError : (cancelled ? null : error);
+                completed = failure == null && !cancelled && exhausted;
+                cancelled = true;
+                buffer.clear();
+            } finally {
+                lock.unlock();
+            }
+            if (failure != null) {
+                if (failure == error) {
+                    logger.error("Exception caught while publishing the rows of query: " + query + "\n" + error);
+                }
+                subscriber.onError(failure);
+            } else if (completed) {
+                subscriber.onComplete();
+            }
+        }
+
+        /**
+         * Checks if a buffered row can be sent. Must be called holding the lock.
+         *
+         * @return true, if successful
+         */
+        private boolean canSend() {
+            return demand > 0 && !buffer.isEmpty();
+        }
+
+        /**
+         * Checks if another row can be read, when the buffered rows do not cover the demand plus the prefetch window. Must be called holding
+         * the lock.
+         *
+         * @param exhausted if every row was read
+         * @return true, if successful
+         */
+        private boolean canRead(boolean exhausted) {
+            return !exhausted && demand > buffer.size() - prefetch;
+        }
+    }
+
+    /** The query. */
+    private final String query;
+
+    /** The arguments. */
+    private final List<Object> arguments;
+
+    /** The fetch size. */
+    private final int fetchSize;
+
+    /** The processor. */
+    private final DataProcessor<T> processor;
+
+    /** The number of rows read ahead of the demand. */
+    private final int prefetch;
+
+    /**
+     * Instantiates a new row publisher.
+     *
+     * @param query the query
+     * @param arguments the arguments
+     * @param fetchSize the fetch size hint, 0 to stream the rows (DBQueryBuilder.STREAMING_FETCH_SIZE)
+     * @param processor the processor mapping every row
+     * @param prefetch the number of rows read ahead of the demand, 0 to read only requested rows
+     */
+    public RowPublisher(String query, List<Object> arguments, int fetchSize, DataProcessor<T> processor, int prefetch) {
+        if (processor == null) {
+            throw new IllegalArgumentException("A processor is required");
+        }
+        if (prefetch < 0) {
+            throw new IllegalArgumentException("Prefetch cannot be negative");
+        }
+        this.query = query;
+        this.arguments = arguments;
+        this.fetchSize = fetchSize == 0 ? DBQueryBuilder.STREAMING_FETCH_SIZE : fetchSize;
+        this.processor = processor;
+        this.prefetch = prefetch;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.appgree.core.dao.query.stream.Publisher#subscribe(com.appgree.core.dao.query.stream.Subscriber)
+     */
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber cannot be null");
+        }
+        RowSubscription subscription = new RowSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        try {
+            DataBaseManager.getInstance().getExecutor().submit(subscription);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            subscription.cancel();
+            subscriber.onError(e);
+        }
+    }
+
+    /**
+     * Closes the statement of a subscription. A streaming result set that was not exhausted is cancelled first, so closing it does not read
+     * the remaining rows.
+     *
+     * @param stmt the statement
+     * @param rs the result set
+     * @param exhausted if every row was read
+     */
+    private static void close(PreparedStatement stmt, ResultSet rs, boolean exhausted) {
+        try {
+            if (stmt != null && !exhausted) {
+                stmt.cancel();
+            }
+            if (rs != null) {
+                rs.close();
+            }
+        } catch (SQLException e) {
+            logger.warn("Error closing the result set of a row publisher: " + e.getMessage());
+        } finally {
+            try {
+                if (stmt != null) {
+                    stmt.close();
+                }
+            } catch (SQLException e) {
+                logger.warn("Error closing the statement of a row publisher: " + e.getMessage());
+            }
+        }
+    }
+}
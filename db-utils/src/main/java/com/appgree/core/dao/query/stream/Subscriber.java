@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.query.stream;
+
+/**
+ * A receiver of items from a Publisher, with the same contract as the reactive streams Subscriber. Calls are never concurrent and end with
+ * at most one of onComplete or onError.
+ *
+ * @param <T> the item type
+ */
+public interface Subscriber<T> {
+
+    /**
+     * Called once, before any other call, with the subscription used to request items.
+     *
+     * @param subscription the subscription
+     */
+    public void onSubscribe(Subscription subscription);
+
+    /**
+     * Called for every item, never more times than requested.
+     *
+     * @param item the item
+     */
+    public void onNext(T item);
+
+    /**
+     * Called when the publisher fails. No other call follows.
+     *
+     * @param throwable the error
+     */
+    public void onError(Throwable throwable);
+
+    /**
+     * Called when every item was sent. No other call follows.
+     */
+    public void onComplete();
+}
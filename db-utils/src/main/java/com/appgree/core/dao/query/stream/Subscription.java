@@ -0,0 +1,23 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.query.stream;
+
+/**
+ * The link between a Publisher and a Subscriber, with the same contract as the reactive streams Subscription. Both methods can be called
+ * from any thread, including from Subscriber.onNext.
+ */
+public interface Subscription {
+
+    /**
+     * Requests more items. Demand adds up to Long.MAX_VALUE, which means unbounded.
+     *
+     * @param n the number of items, which must be positive
+     */
+    public void request(long n);
+
+    /**
+     * Stops sending items. Items already in flight may still arrive.
+     */
+    public void cancel();
+}
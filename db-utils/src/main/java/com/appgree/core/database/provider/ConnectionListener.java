@@ -0,0 +1,21 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.database.provider;
+
+import java.sql.SQLException;
+
+
+/**
+ * The Interface ConnectionListener is notified of the life cycle of the connection bound to the current thread. Listeners are registered in
+ * the DataBaseManager for the calling thread only.
+ */
+public interface ConnectionListener {
+
+    /**
+     * Called before the connection of the current thread is released. The connection can still be used.
+     *
+     * @throws SQLException the SQL exception
+     */
+    public void onRelease() throws SQLException;
+}
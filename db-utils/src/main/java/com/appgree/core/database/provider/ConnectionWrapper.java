@@ -18,6 +18,8 @@ import java.sql.SQLXML;
 import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Struct;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Executor;
@@ -28,6 +30,9 @@ import java.util.concurrent.Executor;
  */
 public class ConnectionWrapper implements Connection {
 
+    /** The statements created by the current thread, tracked so another thread can cancel them. Null if not tracked. */
+    private static final ThreadLocal<List<Statement>> trackedStatements = new ThreadLocal<>();
+
     /** The connection. */
     private Connection connection;
     
@@ -55,9 +60,36 @@ public class ConnectionWrapper implements Connection {
      */
     private <T extends Statement> T setTimeout(T statement) throws SQLException {
         statement.setQueryTimeout(this.queryTimeout);
+        List<Statement> tracked = trackedStatements.get();
+        if (tracked != null) {
+            synchronized (tracked) {
+                // drops the statements closed since the last one was created, so a long task only keeps its open statements
+                Iterator<Statement> it = tracked.iterator();
+                while (it.hasNext()) {
+                    if (it.next().isClosed()) {
+                        it.remove();
+                    }
+                }
+                tracked.add(statement);
+            }
+        }
         return statement;
     }
 
+    /**
+     * Adds the statements created by the current thread from now on to a list, until called again with null. Closed statements are removed
+     * from the list when the next statement is created.
+     *
+     * @param statements a synchronized list, null to stop tracking
+     */
+    public static void trackStatements(List<Statement> statements) {
+        if (statements == null) {
+            trackedStatements.remove();
+        } else {
+            trackedStatements.set(statements);
+        }
+    }
+
     // ------------------------- implements wrapper
 
     /* (non-Javadoc)
@@ -0,0 +1,412 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.database.provider;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+
+
+/**
+ * The Class DataBaseManager.
+ */
+public class DataBaseManager implements DataBaseProvider {
+
+    /** The logger. */
+    private static Logger logger = Logger.getLogger(DataBaseManager.class);
+
+    /** The Constant DEFAULT_MAX_N_BLOCKED_THREADS. */
+    private static final int DEFAULT_MAX_N_BLOCKED_THREADS = 100;
+
+    /** The Constant DEFAULT_EXECUTOR_POOL_SIZE. */
+    private static final int DEFAULT_EXECUTOR_POOL_SIZE = 10;
+
+    /**
+     * Specialized exception to control number of concurrent blocked threads.
+     */
+    public class MaxNumberBlockedThreadsException extends SQLException {
+
+        /**
+         * Instantiates a new max number blocked threads exception.
+         *
+         * @param reason the reason
+         */
+        public MaxNumberBlockedThreadsException(String reason) {
+            super(reason);
+        }
+
+        /** The Constant serialVersionUID. */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** The provider. */
+    private DataBaseProvider provider;
+
+    /** The max n blocked threads. */
+    private int maxNBlockedThreads = DEFAULT_MAX_N_BLOCKED_THREADS;
+
+    /** The n blocked threads. */
+    private AtomicInteger nBlockedThreads = new AtomicInteger();
+
+    /** The query timeout. */
+    private int queryTimeout = 10;
+
+    /** The executor of asynchronous queries, created on first use. */
+    private volatile QueryExecutor executor;
+
+    /** The lock creating the executor. */
+    private final Lock executorLock = new ReentrantLock();
+
+    /** The connection permits, null if connections are not limited. */
+    private volatile Semaphore connectionPermits;
+
+    /** The max connections. */
+    private volatile int maxConnections;
+
+    /** The maximum wait for a connection permit. */
+    private volatile long connectionWaitMillis;
+
+    /** The permits held by the current thread, released with its connection. */
+    private final ThreadLocal<Semaphore> heldPermits = new ThreadLocal<>();
+
+    /** The connection listeners registered by the current thread. */
+    private ThreadLocal<List<ConnectionListener>> connectionListeners = new ThreadLocal<>();
+
+    // Singleton pattern
+    /** The Constant instance. */
+    private static final DataBaseManager instance = new DataBaseManager();
+
+    // Private constructor prevents instantiation from other classes
+    /**
+     * Instantiates a new data base manager.
+     */
+    private DataBaseManager() {}
+
+    // Returns the instance
+    /**
+     * Gets the single instance of DataBaseManager.
+     *
+     * @return single instance of DataBaseManager
+     */
+    public static DataBaseManager getInstance() {
+        return instance;
+    }
+
+    /**
+     * Initializes manager AND provider instance, no need to call init() again on the instance.
+     *
+     * @param provider the provider
+     * @param maxNBlockedThreads the max n blocked threads
+     * @param queryTimeout the query timeout
+     * @throws Exception the exception
+     */
+    public void init(DataBaseProvider provider, int maxNBlockedThreads, int queryTimeout) throws Exception {
+        this.provider = provider;
+        this.maxNBlockedThreads = maxNBlockedThreads;
+        this.queryTimeout = queryTimeout;
+    }
+
+    /* INTERFACE METHODS */
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.appgree.core.database.provider.DataBaseProvider#getConnection()
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        Semaphore permits = this.connectionPermits;
+        if (permits != null) {
+            return getAdmittedConnection(permits);
+        }
+
+        int nBlockedThreads = this.nBlockedThreads.get();
+
+        if (nBlockedThreads >= maxNBlockedThreads) {
+            throw new MaxNumberBlockedThreadsException("Max number of concurrent blocked threads waiting for database reached. Current = "
+                            + nBlockedThreads + " max = " + maxNBlockedThreads);
+        }
+
+        // increases counter
+        this.nBlockedThreads.incrementAndGet();
+
+        try {
+            return new ConnectionWrapper(this.provider.getConnection(), this.queryTimeout);
+        } finally {
+            this.nBlockedThreads.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the connection of the current thread holding a connection permit. The permit is acquired by the first call of a thread and kept
+     * until the connection is released, so threads wait (parked, not spinning) only while every connection is in use.
+     *
+     * @param permits the permits
+     * @return the connection
+     * @throws SQLException the SQL exception
+     */
+    private Connection getAdmittedConnection(Semaphore permits) throws SQLException {
+        boolean acquired = false;
+        if (this.heldPermits.get() == null) {
+            try {
+                if (!permits.tryAcquire(this.connectionWaitMillis, TimeUnit.MILLISECONDS)) {
+                    throw new MaxNumberBlockedThreadsException("Timed out waiting " + this.connectionWaitMillis + " ms for one of "
+                                    + this.maxConnections + " connections");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for a connection", e);
+            }
+            this.heldPermits.set(permits);
+            acquired = true;
+        }
+
+        boolean succeeded = false;
+        try {
+            Connection connection = new ConnectionWrapper(this.provider.getConnection(), this.queryTimeout);
+            succeeded = true;
+            return connection;
+        } finally {
+            if (acquired && !succeeded) {
+                this.heldPermits.remove();
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Limits the number of threads holding a connection. Threads getting a connection while the limit is reached wait up to maxWaitMillis for
+     * another thread to release its connection and fail with MaxNumberBlockedThreadsException after that. This replaces the limit on blocked
+     * threads, so any number of threads can wait, and suits large numbers of cheap threads. Connections must be released (see
+     * releaseConnection) to give their permit back. A thread holding a connection must wait for tasks of the executor with waitFor, not
+     * Future.get: otherwise threads holding every permit can wait forever for tasks that need one. Permits therefore bound the threads running
+     * queries, not the open connections, which are also kept by threads in waitFor.
+     *
+     * @param maxConnections the maximum number of connections, 0 to use the limit on blocked threads instead
+     * @param maxWaitMillis the maximum wait for a connection
+     */
+    public void setMaxConnections(int maxConnections, long maxWaitMillis) {
+        if (maxConnections < 0 || maxWaitMillis < 0) {
+            throw new IllegalArgumentException("Connections and wait cannot be negative");
+        }
+        this.maxConnections = maxConnections;
+        this.connectionWaitMillis = maxWaitMillis;
+        // threads holding a permit of a previous limit give it back to that semaphore
+        this.connectionPermits = maxConnections > 0 ? new Semaphore(maxConnections, true) : null;
+    }
+
+    /**
+     * Waits for the result of a task of the executor (see getExecutor). The connection permit of the current thread, if any, is given back
+     * while waiting so the task can be admitted, and taken again before returning, waiting as long as needed. The connection of the thread
+     * stays open.
+     *
+     * @param <V> the value type
+     * @param future the future of the task
+     * @return the value
+     * @throws InterruptedException if interrupted while waiting for the task
+     * @throws ExecutionException if the task failed
+     */
+    public <V> V waitFor(Future<V> future) throws InterruptedException, ExecutionException {
+        Semaphore permits = this.heldPermits.get();
+        if (permits == null) {
+            return future.get();
+        }
+        permits.release();
+        try {
+            return future.get();
+        } finally {
+            permits.acquireUninterruptibly();
+        }
+    }
+
+    /**
+     * Gets the number of connections that can be taken without waiting.
+     *
+     * @return the available connections, -1 if connections are not limited
+     */
+    public int getAvailableConnections() {
+        Semaphore permits = this.connectionPermits;
+        return permits != null ? permits.availablePermits() : -1;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.appgree.core.database.provider.DataBaseProvider#uninit()
+     */
+    @Override
+    public void uninit() throws Exception {
+        if (this.executor != null) {
+            this.executor.shutdown();
+            this.executor = null;
+        }
+        if (this.provider != null) {
+            this.provider.uninit();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.appgree.core.database.provider.DataBaseProvider#rollBackConnection()
+     */
+    @Override
+    public void rollBackConnection() throws SQLException {
+        this.provider.rollBackConnection();
+        notifyTransactionListeners(false);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.appgree.core.database.provider.DataBaseProvider#commitConnection()
+     */
+    @Override
+    public void commitConnection() throws SQLException {
+        this.provider.commitConnection();
+        notifyTransactionListeners(true);
+    }
+
+    /**
+     * Notifies the transaction listeners of the current thread that its transaction ended.
+     *
+     * @param committed if the transaction was committed, false if rolled back
+     */
+    private void notifyTransactionListeners(boolean committed) {
+        List<ConnectionListener> listeners = this.connectionListeners.get();
+        if (listeners != null) {
+            for (ConnectionListener listener : new ArrayList<>(listeners)) {
+                if (listener instanceof TransactionListener) {
+                    try {
+                        if (committed) {
+                            ((TransactionListener) listener).onCommit();
+                        } else {
+                            ((TransactionListener) listener).onRollback();
+                        }
+                    } catch (SQLException e) {
+                        logger.error("Error notifying connection " + (committed ? "commit" : "rollback"), e);
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.appgree.core.database.provider.DataBaseProvider#releaseConnection()
+     */
+    @Override
+    public void releaseConnection() throws SQLException {
+        List<ConnectionListener> listeners = this.connectionListeners.get();
+        if (listeners != null) {
+            this.connectionListeners.remove();
+            for (ConnectionListener listener : listeners) {
+                try {
+                    listener.onRelease();
+                } catch (SQLException e) {
+                    logger.error("Error notifying connection release", e);
+                }
+            }
+        }
+        try {
+            this.provider.releaseConnection();
+        } finally {
+            Semaphore permits = this.heldPermits.get();
+            if (permits != null) {
+                this.heldPermits.remove();
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Creates the executor of asynchronous queries, replacing the current one. Its pool should be as large as the connection pool, so every
+     * worker thread can get a connection.
+     *
+     * @param poolSize the number of threads
+     * @param maxPending the maximum number of tasks waiting for a thread before callers are blocked
+     */
+    public void initExecutor(int poolSize, int maxPending) {
+        QueryExecutor previous;
+        executorLock.lock();
+        try {
+            previous = this.executor;
+            this.executor = new QueryExecutor(poolSize, maxPending);
+        } finally {
+            executorLock.unlock();
+        }
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Gets the executor of asynchronous queries, creating one with DEFAULT_EXECUTOR_POOL_SIZE threads if initExecutor was not called.
+     *
+     * @return the executor
+     */
+    public QueryExecutor getExecutor() {
+        QueryExecutor current = this.executor;
+        if (current == null) {
+            executorLock.lock();
+            try {
+                if (this.executor == null) {
+                    this.executor = new QueryExecutor(DEFAULT_EXECUTOR_POOL_SIZE, this.maxNBlockedThreads);
+                }
+                current = this.executor;
+            } finally {
+                executorLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Registers a listener for the connection bound to the current thread. The listener is discarded once the connection is released.
+     *
+     * @param listener the listener
+     */
+    public void addConnectionListener(ConnectionListener listener) {
+        List<ConnectionListener> listeners = this.connectionListeners.get();
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+            this.connectionListeners.set(listeners);
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener for the connection bound to the current thread.
+     *
+     * @param listener the listener
+     */
+    public void removeConnectionListener(ConnectionListener listener) {
+        List<ConnectionListener> listeners = this.connectionListeners.get();
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.appgree.core.database.provider.DataBaseProvider#setConnection(java.sql.Connection)
+     */
+    @Override
+    public void setConnection(Connection conn) throws SQLException {
+        this.provider.setConnection(conn);
+    }
+
+}
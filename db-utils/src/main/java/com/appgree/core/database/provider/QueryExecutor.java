@@ -0,0 +1,259 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.database.provider;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+
+/**
+ * Runs database work on a fixed pool of threads, which should be sized to the connection pool, so callers can run independent queries in
+ * parallel. Every task runs with the connection bound to its worker thread, committed if the task succeeds, rolled back otherwise, and
+ * released at the end. At most poolSize + maxPending tasks are accepted at once: submit blocks and trySubmit fails when the executor is
+ * saturated. Cancelling a running task with Future.cancel cancels the statements it created (Statement.cancel).
+ */
+public class QueryExecutor {
+
+    /** The logger. */
+    private static Logger logger = Logger.getLogger(QueryExecutor.class);
+
+    /**
+     * A task that releases its permit when done and can cancel its statements.
+     *
+     * @param <V> the value type
+     */
+    private class QueryTask<V> extends FutureTask<V> {
+
+        /** The statements created by the task. */
+        private final List<Statement> statements = Collections.synchronizedList(new ArrayList<Statement>());
+
+        /** If the permit was released. */
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Instantiates a new query task.
+         *
+         * @param callable the callable
+         */
+        private QueryTask(Callable<V> callable) {
+            super(callable);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.util.concurrent.FutureTask#run()
+         */
+        @Override
+        public void run() {
+            if (isDone()) {
+                // cancelled while queued
+                return;
+            }
+            running.add(this);
+            ConnectionWrapper.trackStatements(statements);
+            try {
+                super.run();
+            } finally {
+                ConnectionWrapper.trackStatements(null);
+                try {
+                    DataBaseManager.getInstance().releaseConnection();
+                } catch (SQLException e) {
+                    logger.warn("Error releasing the connection of a query task: " + e.getMessage());
+                } finally {
+                    running.remove(this);
+                    release();
+                }
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.util.concurrent.FutureTask#cancel(boolean)
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                cancelStatements(statements);
+            }
+            return cancelled;
+        }
+
+        /**
+         * Releases the permit of the task once.
+         */
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.util.concurrent.FutureTask#done()
+         */
+        @Override
+        protected void done() {
+            // a task that started releases its permit once its worker is done with the connection
+            if (!running.contains(this)) {
+                release();
+            }
+        }
+    }
+
+    /** The executor. */
+    private final ThreadPoolExecutor executor;
+
+    /** The permits of accepted tasks. */
+    private final Semaphore permits;
+
+    /** The tasks being run. */
+    private final List<QueryTask<?>> running = Collections.synchronizedList(new ArrayList<QueryTask<?>>());
+
+    /**
+     * Instantiates a new query executor.
+     *
+     * @param poolSize the number of threads, usually the size of the connection pool
+     * @param maxPending the maximum number of tasks waiting for a thread
+     */
+    public QueryExecutor(int poolSize, int maxPending) {
+        if (poolSize <= 0 || maxPending < 0) {
+            throw new IllegalArgumentException("Pool size must be positive and pending tasks cannot be negative");
+        }
+        final AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                        new ThreadFactory() {
+
+                            @Override
+                            public Thread newThread(Runnable r) {
+                                Thread thread = new Thread(r, "db-query-" + threads.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+        this.permits = new Semaphore(poolSize + maxPending);
+    }
+
+    /**
+     * Submits a task, waiting while the executor is saturated.
+     *
+     * @param <V> the value type
+     * @param task the task
+     * @return the future
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public <V> Future<V> submit(Callable<V> task) throws InterruptedException {
+        permits.acquire();
+        return execute(task);
+    }
+
+    /**
+     * Submits a task, waiting at most a timeout while the executor is saturated.
+     *
+     * @param <V> the value type
+     * @param task the task
+     * @param timeout the timeout
+     * @param unit the unit
+     * @return the future
+     * @throws InterruptedException if interrupted while waiting
+     * @throws RejectedExecutionException if the executor is still saturated after the timeout
+     */
+    public <V> Future<V> trySubmit(Callable<V> task, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!permits.tryAcquire(timeout, unit)) {
+            throw new RejectedExecutionException("Query executor saturated");
+        }
+        return execute(task);
+    }
+
+    /**
+     * Gets the number of tasks that can be accepted without waiting.
+     *
+     * @return the int
+     */
+    public int getAvailable() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Stops accepting tasks. Queued tasks are still run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Runs a task holding a permit.
+     *
+     * @param <V> the value type
+     * @param task the task
+     * @return the future
+     */
+    private <V> Future<V> execute(final Callable<V> task) {
+        QueryTask<V> future = new QueryTask<>(new Callable<V>() {
+
+            @Override
+            public V call() throws Exception {
+                boolean succeeded = false;
+                try {
+                    V value = task.call();
+                    DataBaseManager.getInstance().commitConnection();
+                    succeeded = true;
+                    return value;
+                } finally {
+                    if (!succeeded) {
+                        DataBaseManager.getInstance().rollBackConnection();
+                    }
+                }
+            }
+        });
+
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Cancels the open statements of a task.
+     *
+     * @param statements the statements
+     */
+    private static void cancelStatements(List<Statement> statements) {
+        List<Statement> open;
+        synchronized (statements) {
+            open = new ArrayList<>(statements);
+        }
+        for (Statement statement : open) {
+            try {
+                if (!statement.isClosed()) {
+                    statement.cancel();
+                }
+            } catch (SQLException e) {
+                logger.warn("Error cancelling a statement: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.database.provider;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTransientException;
+
+/**
+ * Classifies SQL errors to decide whether the failed work can be retried. It looks at the whole chain of exceptions (next exceptions and
+ * causes), since drivers often wrap the error reported by the server.
+ */
+public final class SQLErrorClassifier {
+
+    /** MySQL error code of deadlocks. */
+    private static final int ER_LOCK_DEADLOCK = 1213;
+
+    /** MySQL error code of lock wait timeouts. */
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+
+    /** SQLState of serialization failures, reported for deadlocks. */
+    private static final String SERIALIZATION_FAILURE = "40001";
+
+    /** SQLState class of transaction rollbacks. */
+    private static final String TRANSACTION_ROLLBACK_CLASS = "40";
+
+    /** SQLState class of connection exceptions. */
+    private static final String CONNECTION_EXCEPTION_CLASS = "08";
+
+    /** The maximum number of chained exceptions inspected. */
+    private static final int MAX_DEPTH = 10;
+
+    /**
+     * The error types.
+     */
+    public enum ErrorType {
+
+        /** The transaction was chosen as deadlock victim and rolled back. */
+        DEADLOCK(true),
+
+        /** A lock could not be acquired in time. */
+        LOCK_TIMEOUT(true),
+
+        /** The connection was lost or reset. The connection must be replaced before retrying. */
+        CONNECTION(true),
+
+        /** Another transient error reported by the driver. */
+        TRANSIENT(true),
+
+        /** An error that will happen again if the same work is retried. */
+        PERMANENT(false);
+
+        /** If the failed work can be retried. */
+        private final boolean retryable;
+
+        /**
+         * Instantiates a new error type.
+         *
+         * @param retryable the retryable
+         */
+        private ErrorType(boolean retryable) {
+            this.retryable = retryable;
+        }
+
+        /**
+         * Checks if the failed work can be retried.
+         *
+         * @return true, if is retryable
+         */
+        public boolean isRetryable() {
+            return retryable;
+        }
+    }
+
+    /**
+     * Instantiates a new SQL error classifier.
+     */
+    private SQLErrorClassifier() {}
+
+    /**
+     * Classifies an error.
+     *
+     * @param e the exception
+     * @return the error type
+     */
+    public static ErrorType classify(SQLException e) {
+        ErrorType type = ErrorType.PERMANENT;
+        Throwable current = e;
+        for (int depth = 0; current != null && depth < MAX_DEPTH; depth++) {
+            if (current instanceof SQLException) {
+                ErrorType currentType = classifyOne((SQLException) current);
+                if (currentType.ordinal() < type.ordinal()) {
+                    type = currentType;
+                }
+                SQLException next = ((SQLException) current).getNextException();
+                current = next != null ? next : current.getCause();
+            } else {
+                current = current.getCause();
+            }
+        }
+
+        return type;
+    }
+
+    /**
+     * Classifies a single exception of the chain.
+     *
+     * @param e the exception
+     * @return the error type
+     */
+    private static ErrorType classifyOne(SQLException e) {
+        String sqlState = e.getSQLState();
+        if (e.getErrorCode() == ER_LOCK_DEADLOCK || SERIALIZATION_FAILURE.equals(sqlState)) {
+            return ErrorType.DEADLOCK;
+        }
+        if (e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT) {
+            return ErrorType.LOCK_TIMEOUT;
+        }
+        if (e instanceof SQLTransientConnectionException || e instanceof SQLRecoverableException
+                        || (sqlState != null && sqlState.startsWith(CONNECTION_EXCEPTION_CLASS))) {
+            return ErrorType.CONNECTION;
+        }
+        if (e instanceof SQLTransactionRollbackException || (sqlState != null && sqlState.startsWith(TRANSACTION_ROLLBACK_CLASS))) {
+            return ErrorType.DEADLOCK;
+        }
+        if (e instanceof SQLTransientException) {
+            return ErrorType.TRANSIENT;
+        }
+        return ErrorType.PERMANENT;
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.database.provider;
+
+import java.sql.SQLException;
+
+
+/**
+ * A connection listener that is also notified when the transaction of the connection bound to the current thread is committed or rolled
+ * back. Unlike on release, the listener stays registered after a commit or a rollback.
+ */
+public interface TransactionListener extends ConnectionListener {
+
+    /**
+     * Called after the transaction of the connection of the current thread is rolled back.
+     *
+     * @throws SQLException the SQL exception
+     */
+    public void onRollback() throws SQLException;
+
+    /**
+     * Called after the transaction of the connection of the current thread is committed.
+     *
+     * @throws SQLException the SQL exception
+     */
+    public void onCommit() throws SQLException;
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.id;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
+
+import com.appgree.core.dao.query.builder.DBQueryBuilder;
+
+
+/**
+ * Generator of sequential ids that reserves blocks of ids from a sequence table, so the database is accessed once per block instead of once
+ * per id. Ids of the current block are handed out with an atomic increment. Blocks are reserved with a single UPDATE using LAST_INSERT_ID and
+ * committed at once on a dedicated connection, opened for the reservation and closed right after, so reserving a block never commits nor
+ * rolls back the transaction of the thread asking for an id (the connection of DataBaseManager).
+ */
+public class HiLoIdGenerator implements IdGenerator {
+
+    /** The default sequence table. */
+    public static final String DEFAULT_TABLE = "ID_SEQUENCE";
+
+    /** The Constant NAME_FIELD. */
+    private static final String NAME_FIELD = "NAME";
+
+    /** The Constant NEXT_VALUE_FIELD. */
+    private static final String NEXT_VALUE_FIELD = "NEXT_VALUE";
+
+    /**
+     * A block of reserved ids.
+     */
+    private static class Block {
+
+        /** The next id. */
+        private final AtomicLong next;
+
+        /** The end of the block, exclusive. */
+        private final long end;
+
+        /**
+         * Instantiates a new block.
+         *
+         * @param start the start
+         * @param end the end
+         */
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    /** The data source of the dedicated connections, null to use the connection string. */
+    private final DataSource dataSource;
+
+    /** The connection string of the dedicated connections. */
+    private final String connectionString;
+
+    /** The table. */
+    private final String table;
+
+    /** The sequence name. */
+    private final String sequenceName;
+
+    /** The block size. */
+    private final int blockSize;
+
+    /** The current block. */
+    private volatile Block block = new Block(0, 0);
+
+    /** The lock held while reserving a new block. */
+    private final ReentrantLock reserveLock = new ReentrantLock();
+
+    /**
+     * Instantiates a new hi lo id generator opening its connections with the DriverManager and using the default table.
+     *
+     * @param connectionString the connection string of the dedicated connections
+     * @param sequenceName the sequence name
+     * @param blockSize the number of ids reserved at once
+     */
+    public HiLoIdGenerator(String connectionString, String sequenceName, int blockSize) {
+        this(null, connectionString, DEFAULT_TABLE, sequenceName, blockSize);
+    }
+
+    /**
+     * Instantiates a new hi lo id generator.
+     *
+     * @param dataSource the data source of the dedicated connections, usually a pool
+     * @param table the sequence table
+     * @param sequenceName the sequence name
+     * @param blockSize the number of ids reserved at once
+     */
+    public HiLoIdGenerator(DataSource dataSource, String table, String sequenceName, int blockSize) {
+        this(dataSource, null, table, sequenceName, blockSize);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("A data source is required");
+        }
+    }
+
+    /**
+     * Instantiates a new hi lo id generator.
+     *
+     * @param dataSource the data source
+     * @param connectionString the connection string
+     * @param table the table
+     * @param sequenceName the sequence name
+     * @param blockSize the block size
+     */
+    private HiLoIdGenerator(DataSource dataSource, String connectionString, String table, String sequenceName, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.dataSource = dataSource;
+        this.connectionString = connectionString;
+        this.table = table;
+        this.sequenceName = sequenceName;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Creates the sequence table if it does not exist.
+     *
+     * @throws SQLException the SQL exception
+     */
+    public void createTable() throws SQLException {
+        Connection conn = openConnection();
+        Statement stmt = null;
+        try {
+            stmt = conn.createStatement();
+            stmt.executeUpdate(DBQueryBuilder.createTable(table).ifNotExists().withField(NAME_FIELD, String.class, 64).notNull().primaryKey()
+                            .withField(NEXT_VALUE_FIELD, Long.class).notNull().toString());
+        } finally {
+            try {
+                if (stmt != null) {
+                    stmt.close();
+                }
+            } finally {
+                conn.close();
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.appgree.core.id.IdGenerator#nextLong()
+     */
+    @Override
+    public long nextLong() {
+        while (true) {
+            Block current = this.block;
+            long value = current.next.getAndIncrement();
+            if (value < current.end) {
+                return value;
+            }
+
+            reserveLock.lock();
+            try {
+                // another thread may have reserved a block meanwhile
+                if (this.block == current) {
+                    this.block = reserveBlock();
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Cannot reserve ids for sequence " + sequenceName, e);
+            } finally {
+                reserveLock.unlock();
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.appgree.core.id.IdGenerator#nextId()
+     */
+    @Override
+    public ObjectId nextId() {
+        return ObjectId.fromLong(nextLong());
+    }
+
+    /**
+     * Opens a dedicated connection.
+     *
+     * @return the connection
+     * @throws SQLException the SQL exception
+     */
+    private Connection openConnection() throws SQLException {
+        return dataSource != null ? dataSource.getConnection() : DriverManager.getConnection(connectionString);
+    }
+
+    /**
+     * Reserves a new block of ids on a dedicated connection, creating the sequence if needed.
+     *
+     * @return the block
+     * @throws SQLException the SQL exception
+     */
+    private Block reserveBlock() throws SQLException {
+        Connection conn = openConnection();
+        try {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                return reserveBlock(conn);
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } finally {
+            conn.close();
+        }
+    }
+
+    /**
+     * Reserves a new block of ids, creating the sequence if needed.
+     *
+     * @param conn the dedicated connection
+     * @return the block
+     * @throws SQLException the SQL exception
+     */
+    private Block reserveBlock(Connection conn) throws SQLException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement("UPDATE " + table + " SET " + NEXT_VALUE_FIELD + " = LAST_INSERT_ID(" + NEXT_VALUE_FIELD + " + ?) WHERE "
+                            + NAME_FIELD + " = ?");
+            stmt.setLong(1, blockSize);
+            stmt.setString(2, sequenceName);
+            if (stmt.executeUpdate() == 0) {
+                stmt.close();
+                stmt = conn.prepareStatement("INSERT IGNORE INTO " + table + " (" + NAME_FIELD + ", " + NEXT_VALUE_FIELD + ") VALUES (?, 1)");
+                stmt.setString(1, sequenceName);
+                stmt.executeUpdate();
+                conn.commit();
+
+                return reserveBlock(conn);
+            }
+            stmt.close();
+
+            stmt = conn.prepareStatement("SELECT LAST_INSERT_ID()");
+            rs = stmt.executeQuery();
+            if (!rs.next()) {
+                throw new SQLException("Cannot read the reserved block of sequence " + sequenceName);
+            }
+            long end = rs.getLong(1);
+            conn.commit();
+
+            return new Block(end - blockSize, end);
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            if (stmt != null) {
+                stmt.close();
+            }
+        }
+    }
+}
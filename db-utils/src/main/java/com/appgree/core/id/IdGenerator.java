@@ -0,0 +1,25 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.id;
+
+
+/**
+ * The Interface IdGenerator creates unique ids for new business objects. Implementations must be thread safe.
+ */
+public interface IdGenerator {
+
+    /**
+     * Generates a new id.
+     *
+     * @return the long value of the id, always greater than 0
+     */
+    public long nextLong();
+
+    /**
+     * Generates a new id.
+     *
+     * @return the object id
+     */
+    public ObjectId nextId();
+}
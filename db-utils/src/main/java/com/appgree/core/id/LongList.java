@@ -0,0 +1,263 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.id;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Growable list of primitive longs, used to hold ids without an ObjectId and a boxed Long per element. Ids are accepted and returned as
+ * ObjectId at the API boundary but stored as raw longs.
+ */
+public class LongList {
+
+    /** The Constant DEFAULT_CAPACITY. */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** The values. */
+    private long[] values;
+
+    /** The size. */
+    private int size;
+
+    /**
+     * Instantiates a new long list.
+     */
+    public LongList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Instantiates a new long list.
+     *
+     * @param initialCapacity the initial capacity
+     */
+    public LongList(int initialCapacity) {
+        this.values = new long[Math.max(1, initialCapacity)];
+    }
+
+    /**
+     * Instantiates a new long list with the values of an array.
+     *
+     * @param values the values
+     * @param from the first index, inclusive
+     * @param to the last index, exclusive
+     */
+    public LongList(long[] values, int from, int to) {
+        this.values = Arrays.copyOfRange(values, from, Math.max(to, from + 1));
+        this.size = to - from;
+    }
+
+    /**
+     * Creates a list with the non null ids of a collection.
+     *
+     * @param ids the ids
+     * @return the long list
+     */
+    public static LongList fromIds(Collection<ObjectId> ids) {
+        LongList list = new LongList(ids.size());
+        for (ObjectId id : ids) {
+            if (!ObjectId.isNull(id)) {
+                list.add(id.toLong());
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value the value
+     */
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Adds an id.
+     *
+     * @param id the id
+     */
+    public void add(ObjectId id) {
+        add(id.toLong());
+    }
+
+    /**
+     * Adds all the values of another list.
+     *
+     * @param other the other
+     */
+    public void addAll(LongList other) {
+        if (size + other.size > values.length) {
+            values = Arrays.copyOf(values, Math.max(size + other.size, values.length * 2));
+        }
+        System.arraycopy(other.values, 0, values, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Gets a value.
+     *
+     * @param index the index
+     * @return the long
+     */
+    public long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + size);
+        }
+        return values[index];
+    }
+
+    /**
+     * Gets a value as an id.
+     *
+     * @param index the index
+     * @return the object id
+     */
+    public ObjectId getId(int index) {
+        return ObjectId.fromLong(get(index));
+    }
+
+    /**
+     * Sets a value.
+     *
+     * @param index the index
+     * @param value the value
+     */
+    public void set(int index, long value) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + size);
+        }
+        values[index] = value;
+    }
+
+    /**
+     * Gets the size.
+     *
+     * @return the int
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if is empty.
+     *
+     * @return true, if is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Sorts the values in ascending order.
+     */
+    public void sort() {
+        Arrays.sort(values, 0, size);
+    }
+
+    /**
+     * Sorts the values in ascending order and removes the duplicates.
+     */
+    public void sortAndDeduplicate() {
+        sort();
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || values[i] != values[unique - 1]) {
+                values[unique++] = values[i];
+            }
+        }
+        size = unique;
+    }
+
+    /**
+     * Copies a range of the list.
+     *
+     * @param from the first index, inclusive
+     * @param to the last index, exclusive
+     * @return the long list
+     */
+    public LongList subList(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range " + from + "-" + to + " out of " + size);
+        }
+        return new LongList(values, from, to);
+    }
+
+    /**
+     * Copies the values into an array.
+     *
+     * @return the long[]
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Creates a list of ids.
+     *
+     * @return the list
+     */
+    public List<ObjectId> toIds() {
+        List<ObjectId> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(ObjectId.fromLong(values[i]));
+        }
+        return ids;
+    }
+
+    /**
+     * Iterates the values boxed, for APIs that need objects such as statement arguments.
+     *
+     * @return the iterator
+     */
+    public Iterator<Long> boxedIterator() {
+        return new Iterator<Long>() {
+
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public Long next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return values[index++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.id;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Open addressing (linear probing) hash map from primitive longs to objects. Ids are accepted as ObjectId at the API boundary but stored as
+ * raw longs, so there is no entry object nor boxed key per mapping. This class is not thread safe.
+ *
+ * @param <V> the value type
+ */
+public class LongObjectMap<V> {
+
+    /** The default capacity. */
+    static final int DEFAULT_CAPACITY = 16;
+
+    /** The load factor. */
+    static final float LOAD_FACTOR = 0.75f;
+
+    /** The key marking empty slots. It is stored apart when used as an actual key. */
+    static final long FREE_KEY = 0L;
+
+    /** The keys. */
+    private long[] keys;
+
+    /** The values. */
+    private Object[] values;
+
+    /** If the map contains the FREE_KEY. */
+    private boolean hasFreeKey;
+
+    /** The value of the FREE_KEY. */
+    private Object freeValue;
+
+    /** The size. */
+    private int size;
+
+    /** The mask. */
+    private int mask;
+
+    /** The resize threshold. */
+    private int threshold;
+
+    /**
+     * Instantiates a new long object map.
+     */
+    public LongObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Instantiates a new long object map.
+     *
+     * @param expectedSize the expected size
+     */
+    public LongObjectMap(int expectedSize) {
+        allocate(tableSize(expectedSize));
+    }
+
+    /**
+     * Gets the power of two table size able to hold a number of elements.
+     *
+     * @param expectedSize the expected size
+     * @return the int
+     */
+    static int tableSize(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Spreads the bits of a key (murmur3 finalizer), as ids are often sequential or share their low bits.
+     *
+     * @param key the key
+     * @return the int
+     */
+    static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Allocates the table.
+     *
+     * @param capacity the capacity, a power of two
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Finds the slot of a key.
+     *
+     * @param key the key, not FREE_KEY
+     * @return the index or -1 if not found
+     */
+    private int indexOf(long key) {
+        int index = hash(key) & mask;
+        while (keys[index] != FREE_KEY) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key the key
+     * @return the value or null if not found
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == FREE_KEY) {
+            return (V) freeValue;
+        }
+        int index = indexOf(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    /**
+     * Gets the value of an id.
+     *
+     * @param id the id
+     * @return the value or null if not found
+     */
+    public V get(ObjectId id) {
+        return get(id.toLong());
+    }
+
+    /**
+     * Checks if the map contains a key.
+     *
+     * @param key the key
+     * @return true, if successful
+     */
+    public boolean containsKey(long key) {
+        return key == FREE_KEY ? hasFreeKey : indexOf(key) >= 0;
+    }
+
+    /**
+     * Checks if the map contains an id.
+     *
+     * @param id the id
+     * @return true, if successful
+     */
+    public boolean containsKey(ObjectId id) {
+        return containsKey(id.toLong());
+    }
+
+    /**
+     * Maps a key to a value.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the previous value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == FREE_KEY) {
+            V previous = (V) freeValue;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeValue = value;
+            return previous;
+        }
+        int index = hash(key) & mask;
+        while (keys[index] != FREE_KEY) {
+            if (keys[index] == key) {
+                V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size > threshold) {
+            rehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Maps an id to a value.
+     *
+     * @param id the id
+     * @param value the value
+     * @return the previous value or null
+     */
+    public V put(ObjectId id, V value) {
+        return put(id.toLong(), value);
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key the key
+     * @return the removed value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == FREE_KEY) {
+            V previous = (V) freeValue;
+            if (hasFreeKey) {
+                hasFreeKey = false;
+                freeValue = null;
+                size--;
+            }
+            return previous;
+        }
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        V previous = (V) values[index];
+        shiftKeys(index);
+        size--;
+        return previous;
+    }
+
+    /**
+     * Removes an id.
+     *
+     * @param id the id
+     * @return the removed value or null
+     */
+    public V remove(ObjectId id) {
+        return remove(id.toLong());
+    }
+
+    /**
+     * Fills the slot of a removed key moving back the entries of its probe sequence.
+     *
+     * @param index the index
+     */
+    private void shiftKeys(int index) {
+        int last;
+        while (true) {
+            last = index;
+            index = (index + 1) & mask;
+            long key;
+            while (true) {
+                key = keys[index];
+                if (key == FREE_KEY) {
+                    keys[last] = FREE_KEY;
+                    values[last] = null;
+                    return;
+                }
+                int slot = hash(key) & mask;
+                if (last <= index ? (last >= slot || slot > index) : (last >= slot && slot > index)) {
+                    break;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[last] = key;
+            values[last] = values[index];
+        }
+    }
+
+    /**
+     * Rehashes the table into a new capacity.
+     *
+     * @param capacity the capacity
+     */
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != FREE_KEY) {
+                int index = hash(key) & mask;
+                while (keys[index] != FREE_KEY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Gets the size.
+     *
+     * @return the int
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if is empty.
+     *
+     * @return true, if is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all mappings.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        Arrays.fill(values, null);
+        hasFreeKey = false;
+        freeValue = null;
+        size = 0;
+    }
+
+    /**
+     * Copies the keys into a list, in no particular order.
+     *
+     * @return the long list
+     */
+    public LongList keys() {
+        LongList list = new LongList(size);
+        if (hasFreeKey) {
+            list.add(FREE_KEY);
+        }
+        for (long key : keys) {
+            if (key != FREE_KEY) {
+                list.add(key);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Copies the values into a list, in no particular order.
+     *
+     * @return the list
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> list = new ArrayList<>(size);
+        if (hasFreeKey) {
+            list.add((V) freeValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                list.add((V) values[i]);
+            }
+        }
+        return list;
+    }
+}
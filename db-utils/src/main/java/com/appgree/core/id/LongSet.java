@@ -0,0 +1,252 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.id;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash set of primitive longs. Ids are accepted as ObjectId at the API boundary but stored as raw longs, so there is no entry
+ * object nor boxed key per element.
+ */
+public class LongSet {
+
+    /** The keys, FREE_KEY marks empty slots. */
+    private long[] keys;
+
+    /** If the set contains the FREE_KEY. */
+    private boolean hasFreeKey;
+
+    /** The size. */
+    private int size;
+
+    /** The mask. */
+    private int mask;
+
+    /** The resize threshold. */
+    private int threshold;
+
+    /**
+     * Instantiates a new long set.
+     */
+    public LongSet() {
+        this(LongObjectMap.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Instantiates a new long set.
+     *
+     * @param expectedSize the expected size
+     */
+    public LongSet(int expectedSize) {
+        allocate(LongObjectMap.tableSize(expectedSize));
+    }
+
+    /**
+     * Allocates the table.
+     *
+     * @param capacity the capacity, a power of two
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LongObjectMap.LOAD_FACTOR);
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param key the key
+     * @return true, if the set did not contain the value
+     */
+    public boolean add(long key) {
+        if (key == LongObjectMap.FREE_KEY) {
+            if (hasFreeKey) {
+                return false;
+            }
+            hasFreeKey = true;
+            size++;
+            return true;
+        }
+        int index = LongObjectMap.hash(key) & mask;
+        while (keys[index] != LongObjectMap.FREE_KEY) {
+            if (keys[index] == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        if (++size > threshold) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Adds an id.
+     *
+     * @param id the id
+     * @return true, if the set did not contain the id
+     */
+    public boolean add(ObjectId id) {
+        return add(id.toLong());
+    }
+
+    /**
+     * Checks if the set contains a value.
+     *
+     * @param key the key
+     * @return true, if successful
+     */
+    public boolean contains(long key) {
+        if (key == LongObjectMap.FREE_KEY) {
+            return hasFreeKey;
+        }
+        int index = LongObjectMap.hash(key) & mask;
+        while (keys[index] != LongObjectMap.FREE_KEY) {
+            if (keys[index] == key) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the set contains an id.
+     *
+     * @param id the id
+     * @return true, if successful
+     */
+    public boolean contains(ObjectId id) {
+        return contains(id.toLong());
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @param key the key
+     * @return true, if the set contained the value
+     */
+    public boolean remove(long key) {
+        if (key == LongObjectMap.FREE_KEY) {
+            if (!hasFreeKey) {
+                return false;
+            }
+            hasFreeKey = false;
+            size--;
+            return true;
+        }
+        int index = LongObjectMap.hash(key) & mask;
+        while (keys[index] != LongObjectMap.FREE_KEY) {
+            if (keys[index] == key) {
+                shiftKeys(index);
+                size--;
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes an id.
+     *
+     * @param id the id
+     * @return true, if the set contained the id
+     */
+    public boolean remove(ObjectId id) {
+        return remove(id.toLong());
+    }
+
+    /**
+     * Fills the slot of a removed key moving back the keys of its probe sequence.
+     *
+     * @param index the index
+     */
+    private void shiftKeys(int index) {
+        int last;
+        while (true) {
+            last = index;
+            index = (index + 1) & mask;
+            long key;
+            while (true) {
+                key = keys[index];
+                if (key == LongObjectMap.FREE_KEY) {
+                    keys[last] = LongObjectMap.FREE_KEY;
+                    return;
+                }
+                int slot = LongObjectMap.hash(key) & mask;
+                if (last <= index ? (last >= slot || slot > index) : (last >= slot && slot > index)) {
+                    break;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[last] = key;
+        }
+    }
+
+    /**
+     * Rehashes the table into a new capacity.
+     *
+     * @param capacity the capacity
+     */
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        allocate(capacity);
+        for (long key : oldKeys) {
+            if (key != LongObjectMap.FREE_KEY) {
+                int index = LongObjectMap.hash(key) & mask;
+                while (keys[index] != LongObjectMap.FREE_KEY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+            }
+        }
+    }
+
+    /**
+     * Gets the size.
+     *
+     * @return the int
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if is empty.
+     *
+     * @return true, if is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        Arrays.fill(keys, LongObjectMap.FREE_KEY);
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    /**
+     * Copies the values into a list, in no particular order.
+     *
+     * @return the long list
+     */
+    public LongList toList() {
+        LongList list = new LongList(size);
+        if (hasFreeKey) {
+            list.add(LongObjectMap.FREE_KEY);
+        }
+        for (long key : keys) {
+            if (key != LongObjectMap.FREE_KEY) {
+                list.add(key);
+            }
+        }
+        return list;
+    }
+}
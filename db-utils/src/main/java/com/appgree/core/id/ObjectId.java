@@ -0,0 +1,560 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.id;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The Class ObjectId.
+ *
+ * @author Eduardo
+ *
+ *         This class represents a persistence independent id for business objects. This id might be used for protocol serialization and persistence
+ *         on cache and database. ObjectId is immutable.
+ */
+public final class ObjectId implements Comparable<ObjectId> {
+
+    /**
+     * Empty id. This id is not valid for storage.
+     */
+    public static final ObjectId NULL = new ObjectId(0L);
+
+    /**
+     * String serialization of a NULL id.
+     */
+    public static final String VOID = "0";
+
+    /**
+     * Number of small ids (from 0) with a preallocated canonical instance.
+     */
+    private static final int SMALL_CACHE_SIZE = 1024;
+
+    /**
+     * Canonical instances for small ids.
+     */
+    private static final ObjectId[] SMALL_CACHE = new ObjectId[SMALL_CACHE_SIZE];
+
+    /**
+     * Size of the direct mapped cache of recently created ids, a power of two.
+     */
+    private static final int HOT_CACHE_SIZE = 4096;
+
+    /**
+     * Direct mapped cache of recently created ids. Races only cause extra instances, as ObjectId is immutable.
+     */
+    private static final ObjectId[] HOT_CACHE = new ObjectId[HOT_CACHE_SIZE];
+
+    /**
+     * Size in bytes of the sortable binary key of an id.
+     */
+    public static final int KEY_SIZE = 8;
+
+    /**
+     * Digits of the base 62 representation, in ASCII order.
+     */
+    private static final char[] BASE62_DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    /**
+     * Maximum length of the base 62 representation of a 64 bit value.
+     */
+    private static final int MAX_BASE62_LENGTH = 11;
+
+    /**
+     * Largest unsigned value that can be multiplied by 62 without overflowing 64 bits.
+     */
+    private static final long BASE62_LIMIT = 297528130221121800L;
+
+    /**
+     * Largest digit that can be added to BASE62_LIMIT * 62 without overflowing 64 bits.
+     */
+    private static final int BASE62_LIMIT_DIGIT = 15;
+
+    static {
+        SMALL_CACHE[0] = NULL;
+        for (int i = 1; i < SMALL_CACHE_SIZE; i++) {
+            SMALL_CACHE[i] = new ObjectId(i);
+        }
+    }
+
+    /**
+     * Long value of the id. This value must be initialized at all times.
+     */
+    private final long longId;
+
+    /**
+     * String representation of the id. Generated using lazy initialization. Once created, it will never change.
+     */
+    private String stringId = null;
+
+    /**
+     * (private) Parameterized constructor.
+     *
+     * @param id long value for the id.
+     */
+    private ObjectId(long id) {
+        this.longId = id;
+        this.stringId = null;
+    }
+
+    /**
+     * To long.
+     *
+     * @return the long value of the id
+     */
+    public long toLong() {
+        return longId;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        if (isNull()) {
+            return VOID;
+        }
+
+        if (this.stringId == null) {
+            this.stringId = String.valueOf(this.longId);
+        }
+
+        return this.stringId;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return (int) (this.longId ^ (this.longId >>> 32));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        // ObjectId is final so instanceof is equivalent to comparing classes
+        if (!(obj instanceof ObjectId)) {
+            return false;
+        }
+
+        ObjectId objId = (ObjectId) obj;
+
+        return this.longId == objId.longId;
+    }
+
+    /**
+     * Factory method. Small and recently created ids return a canonical instance instead of allocating a new one.
+     *
+     * @param id long value for the id
+     * @return an ObjectId
+     */
+    public static ObjectId fromLong(long id) {
+        if (id >= 0 && id < SMALL_CACHE_SIZE) {
+            return SMALL_CACHE[(int) id];
+        }
+
+        int index = (int) (id ^ (id >>> 32)) & (HOT_CACHE_SIZE - 1);
+        ObjectId cached = HOT_CACHE[index];
+        if (cached == null || cached.longId != id) {
+            cached = new ObjectId(id);
+            HOT_CACHE[index] = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Factory method. Ids written in their canonical decimal form return a canonical instance, ids written otherwise (such as "007" or "+7")
+     * keep the original string as their string representation.
+     *
+     * @param id String representation for the id
+     * @return an ObjectId
+     */
+    public static ObjectId fromString(String id) {
+        if (id == null) {
+            return NULL;
+        }
+
+        ObjectId parsed = fromChars(id, 0, id.length());
+        if (parsed.isNull() || isCanonical(id)) {
+            return parsed;
+        }
+        ObjectId original = new ObjectId(parsed.longId);
+        original.stringId = id;
+        return original;
+    }
+
+    /**
+     * Checks if a valid decimal id is written as String.valueOf would write it, without a plus sign or leading zeros.
+     *
+     * @param id the id
+     * @return true, if is canonical
+     */
+    private static boolean isCanonical(String id) {
+        int first = id.charAt(0) == '-' ? 1 : 0;
+        return id.charAt(0) != '+' && id.charAt(first) != '0';
+    }
+
+    /**
+     * Factory method parsing a range of characters without creating intermediate Strings.
+     *
+     * @param chars the chars
+     * @param start the first index, inclusive
+     * @param end the last index, exclusive
+     * @return an ObjectId
+     * @throws NumberFormatException if the range is not a valid id
+     */
+    public static ObjectId fromChars(CharSequence chars, int start, int end) {
+        if (start == end || isNullLiteral(chars, start, end)) {
+            return NULL;
+        }
+
+        boolean negative = chars.charAt(start) == '-';
+        int index = chars.charAt(start) == '-' || chars.charAt(start) == '+' ? start + 1 : start;
+        if (index == end) {
+            throw new NumberFormatException("Invalid id: " + chars.subSequence(start, end));
+        }
+        // accumulates negatively to reach Long.MIN_VALUE
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long result = 0;
+        for (; index < end; index++) {
+            int digit = chars.charAt(index) - '0';
+            if (digit < 0 || digit > 9 || result < limit / 10 || result * 10 < limit + digit) {
+                throw new NumberFormatException("Invalid id: " + chars.subSequence(start, end));
+            }
+            result = result * 10 - digit;
+        }
+
+        return fromLong(negative ? result : -result);
+    }
+
+    /**
+     * Factory method parsing a range of ASCII bytes, such as a protocol buffer, without creating intermediate Strings.
+     *
+     * @param bytes the bytes
+     * @param offset the offset
+     * @param length the length
+     * @return an ObjectId
+     * @throws NumberFormatException if the range is not a valid id
+     */
+    public static ObjectId fromBytes(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        if (length == 0 || (length == 1 && bytes[offset] == '0')
+                        || (length == 3 && bytes[offset] == 'n' && bytes[offset + 1] == 'i' && bytes[offset + 2] == 'l')
+                        || (length == 4 && bytes[offset] == 'n' && bytes[offset + 1] == 'u' && bytes[offset + 2] == 'l' && bytes[offset + 3] == 'l')) {
+            return NULL;
+        }
+
+        boolean negative = bytes[offset] == '-';
+        int index = bytes[offset] == '-' || bytes[offset] == '+' ? offset + 1 : offset;
+        if (index == end) {
+            throw new NumberFormatException("Invalid id: " + new String(bytes, offset, length, StandardCharsets.US_ASCII));
+        }
+        // accumulates negatively to reach Long.MIN_VALUE
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long result = 0;
+        for (; index < end; index++) {
+            int digit = bytes[index] - '0';
+            if (digit < 0 || digit > 9 || result < limit / 10 || result * 10 < limit + digit) {
+                throw new NumberFormatException("Invalid id: " + new String(bytes, offset, length, StandardCharsets.US_ASCII));
+            }
+            result = result * 10 - digit;
+        }
+
+        return fromLong(negative ? result : -result);
+    }
+
+    /**
+     * Checks if a range of characters is one of the literals used for NULL ids: 0, null or nil.
+     *
+     * @param chars the chars
+     * @param start the start
+     * @param end the end
+     * @return true, if is null literal
+     */
+    private static boolean isNullLiteral(CharSequence chars, int start, int end) {
+        switch (end - start) {
+            case 1:
+                return chars.charAt(start) == '0';
+            case 3:
+                return chars.charAt(start) == 'n' && chars.charAt(start + 1) == 'i' && chars.charAt(start + 2) == 'l';
+            case 4:
+                return chars.charAt(start) == 'n' && chars.charAt(start + 1) == 'u' && chars.charAt(start + 2) == 'l'
+                                && chars.charAt(start + 3) == 'l';
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Writes the id as an unsigned variable length integer (7 bits per byte, least significant group first). Small positive ids take 1 to 3
+     * bytes, negative ids always take 10 bytes.
+     *
+     * @param buffer the buffer
+     */
+    public void writeVarLong(ByteBuffer buffer) {
+        writeVarLong(buffer, this.longId);
+    }
+
+    /**
+     * Writes the id zig-zag encoded as a variable length integer, so ids of small magnitude take few bytes even if negative.
+     *
+     * @param buffer the buffer
+     */
+    public void writeZigZag(ByteBuffer buffer) {
+        writeVarLong(buffer, (this.longId << 1) ^ (this.longId >> 63));
+    }
+
+    /**
+     * Writes the id as an 8 byte big endian key whose unsigned lexicographic order is the order of the ids, regardless of the buffer's byte
+     * order.
+     *
+     * @param buffer the buffer
+     */
+    public void writeKey(ByteBuffer buffer) {
+        long key = this.longId ^ Long.MIN_VALUE;
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer.put((byte) (key >>> shift));
+        }
+    }
+
+    /**
+     * Creates the 8 byte sortable key of the id. See {@link #writeKey(ByteBuffer)}.
+     *
+     * @return the byte[]
+     */
+    public byte[] toKey() {
+        byte[] key = new byte[KEY_SIZE];
+        writeKey(ByteBuffer.wrap(key));
+        return key;
+    }
+
+    /**
+     * Gets the number of bytes writeVarLong uses for the id.
+     *
+     * @return the int
+     */
+    public int getVarLongSize() {
+        int bits = 64 - Long.numberOfLeadingZeros(this.longId | 1);
+        return (bits + 6) / 7;
+    }
+
+    /**
+     * Appends the base 62 representation of the id, reading the id as an unsigned value. It takes at most 11 characters.
+     *
+     * @param sb the string builder
+     * @return the string builder
+     */
+    public StringBuilder appendBase62(StringBuilder sb) {
+        char[] digits = new char[MAX_BASE62_LENGTH];
+        int position = MAX_BASE62_LENGTH;
+        long value = this.longId;
+        if (value < 0) {
+            // unsigned division by 62 through a positive dividend
+            long quotient = (value >>> 1) / 31;
+            digits[--position] = BASE62_DIGITS[(int) (value - quotient * 62)];
+            value = quotient;
+        }
+        do {
+            digits[--position] = BASE62_DIGITS[(int) (value % 62)];
+            value /= 62;
+        } while (value != 0);
+
+        return sb.append(digits, position, MAX_BASE62_LENGTH - position);
+    }
+
+    /**
+     * Creates the base 62 representation of the id. See {@link #appendBase62(StringBuilder)}.
+     *
+     * @return the string
+     */
+    public String toBase62() {
+        return appendBase62(new StringBuilder(MAX_BASE62_LENGTH)).toString();
+    }
+
+    /**
+     * Writes a long as an unsigned variable length integer.
+     *
+     * @param buffer the buffer
+     * @param value the value
+     */
+    private static void writeVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads a long written as an unsigned variable length integer.
+     *
+     * @param buffer the buffer
+     * @return the long
+     */
+    private static long readVarLongValue(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable length id");
+    }
+
+    /**
+     * Reads an id written with {@link #writeVarLong(ByteBuffer)}.
+     *
+     * @param buffer the buffer
+     * @return an ObjectId
+     * @throws BufferUnderflowException if the buffer ends before the id
+     */
+    public static ObjectId readVarLong(ByteBuffer buffer) {
+        return fromLong(readVarLongValue(buffer));
+    }
+
+    /**
+     * Reads an id written with {@link #writeZigZag(ByteBuffer)}.
+     *
+     * @param buffer the buffer
+     * @return an ObjectId
+     * @throws BufferUnderflowException if the buffer ends before the id
+     */
+    public static ObjectId readZigZag(ByteBuffer buffer) {
+        long value = readVarLongValue(buffer);
+        return fromLong((value >>> 1) ^ -(value & 1));
+    }
+
+    /**
+     * Reads an id written with {@link #writeKey(ByteBuffer)}.
+     *
+     * @param buffer the buffer
+     * @return an ObjectId
+     * @throws BufferUnderflowException if the buffer ends before the id
+     */
+    public static ObjectId readKey(ByteBuffer buffer) {
+        long key = 0;
+        for (int i = 0; i < KEY_SIZE; i++) {
+            key = (key << 8) | (buffer.get() & 0xFF);
+        }
+        return fromLong(key ^ Long.MIN_VALUE);
+    }
+
+    /**
+     * Factory method parsing a base 62 representation. See {@link #appendBase62(StringBuilder)}.
+     *
+     * @param chars the chars
+     * @return an ObjectId
+     * @throws NumberFormatException if the characters are not a valid id
+     */
+    public static ObjectId fromBase62(CharSequence chars) {
+        return fromBase62(chars, 0, chars.length());
+    }
+
+    /**
+     * Factory method parsing a range of characters with a base 62 representation without creating intermediate Strings.
+     *
+     * @param chars the chars
+     * @param start the first index, inclusive
+     * @param end the last index, exclusive
+     * @return an ObjectId
+     * @throws NumberFormatException if the range is not a valid id
+     */
+    public static ObjectId fromBase62(CharSequence chars, int start, int end) {
+        if (start == end) {
+            throw new NumberFormatException("Empty base 62 id");
+        }
+        long value = 0;
+        for (int index = start; index < end; index++) {
+            int digit = base62Digit(chars.charAt(index));
+            // value is handled as unsigned, it is negative once over Long.MAX_VALUE
+            if (digit < 0 || value < 0 || value > BASE62_LIMIT || (value == BASE62_LIMIT && digit > BASE62_LIMIT_DIGIT)) {
+                throw new NumberFormatException("Invalid base 62 id: " + chars.subSequence(start, end));
+            }
+            value = value * 62 + digit;
+        }
+
+        return fromLong(value);
+    }
+
+    /**
+     * Gets the value of a base 62 digit.
+     *
+     * @param c the c
+     * @return the value or -1 if c is not a digit
+     */
+    private static int base62Digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 36;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if is null.
+     *
+     * @return true if id is NULL
+     */
+    public boolean isNull() {
+        return this.longId == 0L;
+    }
+
+    /**
+     * Next id.
+     *
+     * @return an ObjectId with the next available value
+     */
+    public ObjectId nextId() {
+        if (this.isNull()) {
+            throw new NullPointerException("Trying to get the next id from NULL");
+        }
+
+        if (this.longId == Long.MAX_VALUE) {
+            throw new ArithmeticException("Cannot increase the maximum number for an Id");
+        }
+
+        return ObjectId.fromLong(this.longId + 1);
+    }
+
+    /**
+     * Checks if is null.
+     *
+     * @param id the id
+     * @return true, if is null
+     */
+    public static boolean isNull(ObjectId id) {
+        return id == null || id.isNull();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Comparable#compareTo(java.lang.Object)
+     */
+    @Override
+    public int compareTo(ObjectId o) {
+        return Long.compare(this.longId, o.toLong());
+    }
+
+}
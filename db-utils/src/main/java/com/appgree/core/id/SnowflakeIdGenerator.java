@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Lock free generator of time ordered ids without database access. Every id is composed of a 41 bit timestamp in milliseconds since an
+ * epoch, a 10 bit node identifier and a 12 bit sequence, so each node can generate 4096 ids per millisecond. When the sequence of a millisecond
+ * is exhausted, or the clock goes backwards, the generator keeps counting on the last timestamp instead of waiting, so ids are always unique
+ * and increasing for a node.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    /** The default epoch, 2014-01-01T00:00:00Z. */
+    public static final long DEFAULT_EPOCH = 1388534400000L;
+
+    /** The Constant NODE_BITS. */
+    private static final int NODE_BITS = 10;
+
+    /** The Constant SEQUENCE_BITS. */
+    private static final int SEQUENCE_BITS = 12;
+
+    /** The maximum node identifier. */
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+
+    /** The Constant SEQUENCE_MASK. */
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /** The epoch. */
+    private final long epoch;
+
+    /** The node bits of the ids. */
+    private final long node;
+
+    /** The last generated timestamp and sequence, packed as timestamp &lt;&lt; SEQUENCE_BITS | sequence. */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * Instantiates a new snowflake id generator with the default epoch.
+     *
+     * @param node the node identifier, unique among the processes generating ids
+     */
+    public SnowflakeIdGenerator(int node) {
+        this(node, DEFAULT_EPOCH);
+    }
+
+    /**
+     * Instantiates a new snowflake id generator.
+     *
+     * @param node the node identifier, unique among the processes generating ids
+     * @param epoch the epoch in milliseconds, must be in the past
+     */
+    public SnowflakeIdGenerator(int node, long epoch) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node must be between 0 and " + MAX_NODE + ": " + node);
+        }
+        if (epoch > System.currentTimeMillis()) {
+            throw new IllegalArgumentException("Epoch cannot be in the future: " + epoch);
+        }
+        this.node = ((long) node) << SEQUENCE_BITS;
+        this.epoch = epoch;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.appgree.core.id.IdGenerator#nextLong()
+     */
+    @Override
+    public long nextLong() {
+        while (true) {
+            long current = state.get();
+            long now = System.currentTimeMillis() - epoch;
+            // a new millisecond restarts the sequence, otherwise an exhausted sequence carries into the timestamp
+            long next = now > (current >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : current + 1;
+            if (state.compareAndSet(current, next)) {
+                return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)) | node | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.appgree.core.id.IdGenerator#nextId()
+     */
+    @Override
+    public ObjectId nextId() {
+        return ObjectId.fromLong(nextLong());
+    }
+
+    /**
+     * Gets the creation time of an id generated with this generator.
+     *
+     * @param id the id
+     * @return the time in milliseconds
+     */
+    public long getTimestamp(ObjectId id) {
+        return (id.toLong() >>> (NODE_BITS + SEQUENCE_BITS)) + epoch;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.appgree.core.id.Identifiable;
+import com.appgree.core.id.ObjectId;
+
+/**
+ * The Class TestAssociationLoader.
+ */
+public class TestAssociationLoader {
+
+    /**
+     * The Class Author.
+     */
+    public static class Author implements Identifiable {
+
+        /** The id. */
+        private ObjectId id;
+
+        /**
+         * Instantiates a new author.
+         *
+         * @param id the id
+         */
+        public Author(ObjectId id) {
+            this.id = id;
+        }
+
+        /* (non-Javadoc)
+         * @see com.appgree.core.id.Identifiable#getId()
+         */
+        @Override
+        public ObjectId getId() {
+            return id;
+        }
+
+        /* (non-Javadoc)
+         * @see com.appgree.core.id.Identifiable#setId(com.appgree.core.id.ObjectId)
+         */
+        @Override
+        public void setId(ObjectId id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * A DAO returning authors for ids up to 100 without database.
+     */
+    public static class AuthorDAO extends BaseDAO<Author> {
+
+        /** The queries. */
+        private final List<Collection<ObjectId>> queries = new ArrayList<>();
+
+        /**
+         * Instantiates a new author dao.
+         */
+        public AuthorDAO() {
+            super("AUTHOR");
+            this.fields.add("ID");
+        }
+
+        /* (non-Javadoc)
+         * @see com.appgree.core.dao.BaseDAO#findByIds(java.util.Collection)
+         */
+        @Override
+        public List<Author> findByIds(Collection<ObjectId> ids) {
+            queries.add(ids);
+            List<Author> authors = new ArrayList<>();
+            for (ObjectId id : ids) {
+                if (id.toLong() <= 100) {
+                    authors.add(new Author(id));
+                }
+            }
+            return authors;
+        }
+
+        /* (non-Javadoc)
+         * @see com.appgree.core.dao.processor.DataSerializer#deserialize(java.sql.ResultSet)
+         */
+        @Override
+        public Author deserialize(ResultSet resultSet) throws Exception {
+            return new Author(ObjectId.fromLong(resultSet.getLong(1)));
+        }
+
+        /* (non-Javadoc)
+         * @see com.appgree.core.dao.processor.DataSerializer#serialize(java.lang.Object, java.sql.PreparedStatement)
+         */
+        @Override
+        public void serialize(Author object, PreparedStatement stmt) throws Exception {
+            stmt.setLong(1, object.getId().toLong());
+        }
+    }
+
+    /**
+     * A book with a writer and an editor.
+     */
+    private static class Book {
+
+        /** The writer id. */
+        private final ObjectId writerId;
+
+        /** The editor id. */
+        private final ObjectId editorId;
+
+        /** The writer. */
+        private Author writer;
+
+        /** The editor. */
+        private Author editor;
+
+        /**
+         * Instantiates a new book.
+         *
+         * @param writerId the writer id
+         * @param editorId the editor id
+         */
+        private Book(long writerId, long editorId) {
+            this.writerId = ObjectId.fromLong(writerId);
+            this.editorId = editorId > 0 ? ObjectId.fromLong(editorId) : null;
+        }
+    }
+
+    /**
+     * Test every association to the same class is loaded with one query.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testLoad() throws Exception {
+        AuthorDAO dao = new AuthorDAO();
+        List<Book> books = Arrays.asList(new Book(1, 2), new Book(1, 0), new Book(3, 200));
+
+        AssociationLoader loader = new AssociationLoader();
+        loader.add(books, Author.class, new AssociationLoader.Association<Book, Author>() {
+
+            @Override
+            public ObjectId getForeignId(Book source) {
+                return source.writerId;
+            }
+
+            @Override
+            public void link(Book source, Author target) {
+                source.writer = target;
+            }
+        }).add(books, Author.class, new AssociationLoader.Association<Book, Author>() {
+
+            @Override
+            public ObjectId getForeignId(Book source) {
+                return source.editorId;
+            }
+
+            @Override
+            public void link(Book source, Author target) {
+                source.editor = target;
+            }
+        });
+        Assert.assertEquals(4, loader.load());
+
+        Assert.assertEquals(1, dao.queries.size());
+        Assert.assertSame(books.get(0).writer, books.get(1).writer);
+        Assert.assertEquals(ObjectId.fromLong(2), books.get(0).editor.getId());
+        Assert.assertNull(books.get(1).editor);
+        Assert.assertNull(books.get(2).editor);
+        Assert.assertSame(books.get(2).writer, loader.get(Author.class, ObjectId.fromLong(3)));
+
+        // loaded ids are not queried again
+        Assert.assertEquals(0, loader.load());
+        Assert.assertEquals(1, dao.queries.size());
+    }
+}
@@ -7,6 +7,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import org.junit.AfterClass;
@@ -14,8 +16,10 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.appgree.core.dao.processor.DataProcessor;
 import com.appgree.core.dao.query.builder.DBQueryBuilder;
 import com.appgree.core.dao.query.builder.SQLClause;
+import com.appgree.core.dao.query.builder.WhereClause;
 import com.appgree.core.database.provider.DataBaseManager;
 import com.appgree.core.id.Identifiable;
 import com.appgree.core.id.ObjectId;
@@ -168,4 +172,105 @@ public class TestBaseDAO extends BaseTestDAO {
         Item sameItem = sameDAO.findById(newItem.getId());
         Assert.assertEquals(foundItem, sameItem);
     }
+
+    /**
+     * Test find by ids.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testFindByIds() throws Exception {
+        BaseDAO<Item> itemDao = new ItemDAO();
+        List<ObjectId> ids = new ArrayList<>();
+        for (long i = 1000; i < 1010; i++) {
+            Item item = new Item(ObjectId.fromLong(i));
+            itemDao.add(item);
+            ids.add(item.getId());
+        }
+
+        Assert.assertEquals(10, itemDao.findByIds(ids).size());
+        Assert.assertEquals(3, itemDao.findByIds(ids.subList(0, 3)).size());
+
+        final List<Item> joined = new ArrayList<>();
+        itemDao.processByIds(ids, null, new DataProcessor<Item>() {
+
+            @Override
+            public Item process(ResultSet resultSet) throws Exception {
+                Item item = new Item(ObjectId.fromLong(resultSet.getLong(1)));
+                joined.add(item);
+                return item;
+            }
+        });
+        Assert.assertEquals(10, joined.size());
+    }
+
+    /**
+     * Test bulk deletes.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testDeleteAll() throws Exception {
+        BaseDAO<Item> itemDao = new ItemDAO();
+        List<ObjectId> ids = new ArrayList<>();
+        for (long i = 2010; i >= 2000; i--) {
+            Item item = new Item(ObjectId.fromLong(i));
+            itemDao.add(item);
+            ids.add(item.getId());
+        }
+        ids.add(ObjectId.fromLong(2005));
+        ids.add(ObjectId.fromLong(3000));
+
+        Assert.assertEquals(11, itemDao.deleteAll(ids, 4, false));
+        Assert.assertTrue(itemDao.findByIds(ids).isEmpty());
+    }
+
+    /**
+     * Test per object outcomes of batch writes.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testAddAllOutcomes() throws Exception {
+        BaseDAO<Item> itemDao = new ItemDAO();
+        List<Item> items = new ArrayList<>();
+        for (long i = 4000; i < 4010; i++) {
+            items.add(new Item(ObjectId.fromLong(i)));
+        }
+        items.add(3, null);
+
+        BatchResult result = itemDao.addAll(items, true);
+        Assert.assertTrue(result.isSuccessful());
+        Assert.assertEquals(11, result.size());
+        Assert.assertEquals(10, result.getWritten());
+        Assert.assertEquals(BatchResult.Outcome.SKIPPED, result.getOutcome(3));
+        Assert.assertEquals(10, result.count(BatchResult.Outcome.INSERTED));
+        Assert.assertTrue(result.getFailedIndexes().isEmpty());
+    }
+
+    /**
+     * Test parallel scans split the table in ID ranges and merge the partial results.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testParallelScan() throws Exception {
+        Assert.assertEquals(3, BaseDAO.splitPoints(0, 99, 4).size());
+        Assert.assertEquals(25, BaseDAO.splitPoints(0, 99, 4).get(0));
+        Assert.assertEquals(0, BaseDAO.splitPoints(7, 7, 4).size());
+
+        BaseDAO<Item> itemDao = new ItemDAO();
+        List<Item> items = new ArrayList<>();
+        for (long i = 5000; i < 5100; i++) {
+            items.add(new Item(ObjectId.fromLong(i)));
+        }
+        itemDao.addAll(items, true);
+        DataBaseManager.getInstance().commitConnection();
+
+        WhereClause filter = DBQueryBuilder.whereClause("ID").greaterOrEqualThan(5000);
+        Assert.assertEquals(100, itemDao.countAllParallel(filter, 4));
+
+        List<Item> found = itemDao.findAllParallel(DBQueryBuilder.whereClause("ID").greaterOrEqualThan(5000), 4);
+        Assert.assertEquals(items, found);
+    }
 }
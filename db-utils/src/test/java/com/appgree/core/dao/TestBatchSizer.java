@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.appgree.core.id.Identifiable;
+import com.appgree.core.id.ObjectId;
+
+/**
+ * The Class TestBatchSizer.
+ */
+public class TestBatchSizer {
+
+    /**
+     * Test the size follows the byte target and the latency.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testAdapt() throws Exception {
+        BatchSizer sizer = new BatchSizer(1000);
+        sizer.setTargetBatchBytes(100000);
+        sizer.setTargetLatencyMillis(100);
+
+        StatementProcessor<Identifiable> processor = new StatementProcessor<Identifiable>() {
+
+            @Override
+            public PreparedStatement create(Identifiable object, Connection conn) {
+                return null;
+            }
+
+            @Override
+            public void setParams(Identifiable object, PreparedStatement stmt) throws Exception {
+                stmt.setString(1, new String(new char[482]));
+                stmt.setLong(2, object.getId().toLong());
+                stmt.setNull(3, 0);
+            }
+        };
+        Identifiable object = new Identifiable() {
+
+            @Override
+            public ObjectId getId() {
+                return ObjectId.fromLong(1);
+            }
+
+            @Override
+            public void setId(ObjectId id) {}
+        };
+
+        // 16 overhead + 484 string + 8 long + 1 null
+        Assert.assertEquals(509, BatchSizer.estimateRowBytes(processor, object));
+        sizer.sampleRow(500);
+        Assert.assertEquals(200, sizer.getBatchSize());
+
+        sizer.batchWritten(200, TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertEquals(4000, sizer.getThroughput(), 0.001);
+        Assert.assertEquals(200, sizer.getBatchSize());
+
+        sizer.setTargetBatchBytes(Integer.MAX_VALUE);
+        sizer.batchWritten(200, TimeUnit.MILLISECONDS.toNanos(400));
+        Assert.assertEquals(100, sizer.getBatchSize());
+        sizer.batchWritten(100, TimeUnit.MILLISECONDS.toNanos(10));
+        Assert.assertEquals(110, sizer.getBatchSize());
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.appgree.core.dao.BatchResult.Outcome;
+import com.appgree.core.dao.TestUnitOfWork.Note;
+import com.appgree.core.dao.TestUnitOfWork.NoteDAO;
+import com.appgree.core.database.provider.DataBaseManager;
+import com.appgree.core.database.provider.JdbcFakes;
+import com.appgree.core.id.ObjectId;
+
+/**
+ * The Class TestBatchWrites.
+ */
+public class TestBatchWrites {
+
+    /** The answers of the next batches, update counts or the exception thrown. Batches without answer write every object. */
+    private static final Deque<Object> batches = new ArrayDeque<>();
+
+    /** The exceptions of the objects rejected when written one by one, by id. */
+    private static final Map<Long, SQLException> rejected = new HashMap<>();
+
+    /** The ids of the objects written one by one. */
+    private static final List<Long> oneByOne = new ArrayList<>();
+
+    /**
+     * A provider whose statements answer batches from the scripted answers.
+     */
+    private static class ScriptedProvider extends JdbcFakes.FakeProvider {
+
+        /* (non-Javadoc)
+         * @see com.appgree.core.database.provider.JdbcFakes.FakeProvider#connect()
+         */
+        @Override
+        protected Connection connect() {
+            return JdbcFakes.proxy(Connection.class, new JdbcFakes.Handler() {
+
+                @Override
+                protected Object answer(String method, Object[] args) {
+                    return method.equals("prepareStatement") ? statement() : JdbcFakes.DEFAULT;
+                }
+            });
+        }
+
+        /**
+         * Creates a statement.
+         *
+         * @return the prepared statement
+         */
+        private static PreparedStatement statement() {
+            return JdbcFakes.proxy(PreparedStatement.class, new JdbcFakes.Handler() {
+
+                private final List<Long> batch = new ArrayList<>();
+
+                private long id;
+
+                @Override
+                protected Object answer(String method, Object[] args) throws Throwable {
+                    switch (method) {
+                        case "setLong":
+                            id = (Long) args[1];
+                            return JdbcFakes.DEFAULT;
+                        case "addBatch":
+                            batch.add(id);
+                            return JdbcFakes.DEFAULT;
+                        case "clearBatch":
+                            batch.clear();
+                            return JdbcFakes.DEFAULT;
+                        case "executeBatch":
+                            Object answer = batches.poll();
+                            if (answer instanceof SQLException) {
+                                throw (SQLException) answer;
+                            }
+                            if (answer != null) {
+                                return answer;
+                            }
+                            int[] counts = new int[batch.size()];
+                            Arrays.fill(counts, 1);
+                            return counts;
+                        case "executeUpdate":
+                            oneByOne.add(id);
+                            if (rejected.containsKey(id)) {
+                                throw rejected.get(id);
+                            }
+                            return 1;
+                        default:
+                            return JdbcFakes.DEFAULT;
+                    }
+                }
+            });
+        }
+    }
+
+    /** The provider. */
+    private ScriptedProvider provider;
+
+    /** The dao. */
+    private NoteDAO dao;
+
+    /**
+     * Initializes the manager with the scripted statements.
+     *
+     * @throws Exception the exception
+     */
+    @Before
+    public void init() throws Exception {
+        provider = new ScriptedProvider();
+        DataBaseManager.getInstance().init(provider, 100, 10);
+        dao = new NoteDAO();
+        batches.clear();
+        rejected.clear();
+        oneByOne.clear();
+    }
+
+    /**
+     * Test the objects a failed batch reports are kept and those the driver did not get to are written one by one.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testReportedBatch() throws Exception {
+        batches.add(duplicate(1, Statement.EXECUTE_FAILED));
+
+        BatchResult result = dao.addAll(notes(4), true, false);
+
+        assertOutcomes(result, Outcome.INSERTED, Outcome.FAILED, Outcome.INSERTED, Outcome.INSERTED);
+        Assert.assertEquals(Arrays.asList(3L, 4L), oneByOne);
+        Assert.assertEquals(Arrays.asList(1), result.getFailedIndexes());
+        Assert.assertEquals(1, result.getChunks().size());
+        Assert.assertEquals(1, result.getChunks().get(0).getFailed());
+        Assert.assertNotNull(result.getChunks().get(0).getError());
+        Assert.assertEquals(1, provider.commits.get());
+    }
+
+    /**
+     * Test a rewritten batch reporting every object as failed is written again one by one.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testRewrittenBatch() throws Exception {
+        SQLException duplicate = new SQLException("Duplicate entry '2'", "23000", 1062);
+        batches.add(duplicate(Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED));
+        rejected.put(2L, duplicate);
+
+        BatchResult result = dao.addAll(notes(4), true, false);
+
+        assertOutcomes(result, Outcome.INSERTED, Outcome.FAILED, Outcome.INSERTED, Outcome.INSERTED);
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 4L), oneByOne);
+        Assert.assertSame(duplicate, result.getError(1));
+        Assert.assertEquals(1, result.getChunks().get(0).getFailed());
+    }
+
+    /**
+     * Test a failed batch stops a write failing fast without writing objects one by one.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testFailFast() throws Exception {
+        batches.add(duplicate(1, Statement.EXECUTE_FAILED));
+
+        try {
+            dao.addAll(notes(4), false, true);
+            Assert.fail("The duplicated key must stop the write");
+        } catch (BatchException e) {
+            assertOutcomes(e.getResult(), Outcome.FAILED, Outcome.FAILED, Outcome.FAILED, Outcome.FAILED);
+            Assert.assertEquals(1, e.getResult().getFailedChunks().size());
+        }
+        Assert.assertTrue(oneByOne.isEmpty());
+        Assert.assertEquals(0, provider.rollbacks.get());
+    }
+
+    /**
+     * Test a chunk failing without reporting its objects is rolled back and skipped, and the next chunks are written.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testSkipChunk() throws Exception {
+        dao.getBatchSizer().setMaxBatchSize(2);
+        batches.add(new SQLException("Table 'NOTE' doesn't exist", "42S02", 1146));
+
+        BatchResult result = dao.addAll(notes(4), true, false);
+
+        assertOutcomes(result, Outcome.FAILED, Outcome.FAILED, Outcome.INSERTED, Outcome.INSERTED);
+        Assert.assertEquals(2, result.getChunks().size());
+        Assert.assertEquals(2, result.getChunks().get(0).getFailed());
+        Assert.assertTrue(result.getChunks().get(1).isSuccessful());
+        Assert.assertTrue(oneByOne.isEmpty());
+        Assert.assertEquals(1, provider.rollbacks.get());
+        Assert.assertEquals(1, provider.commits.get());
+    }
+
+    /**
+     * Test a chunk failing with a deadlock is rolled back and replayed, and committed once written.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testReplayDeadlock() throws Exception {
+        dao.setRetryPolicy(3, 1);
+        batches.add(new BatchUpdateException("Deadlock found", "40001", 1213, new int[] { 1 }));
+
+        BatchResult result = dao.addAll(notes(4), true, false);
+
+        assertOutcomes(result, Outcome.INSERTED, Outcome.INSERTED, Outcome.INSERTED, Outcome.INSERTED);
+        Assert.assertEquals(1, result.getChunks().size());
+        Assert.assertEquals(2, result.getChunks().get(0).getAttempts());
+        Assert.assertTrue(result.getChunks().get(0).isSuccessful());
+        Assert.assertTrue(oneByOne.isEmpty());
+        Assert.assertEquals(1, provider.rollbacks.get());
+        Assert.assertEquals(1, provider.commits.get());
+    }
+
+    /**
+     * Test a deadlock without intermediate commits rolls back the transaction, previous chunks included, and stops the write.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testDeadlockWithoutIntermediateCommits() throws Exception {
+        dao.setRetryPolicy(3, 1);
+        dao.getBatchSizer().setMaxBatchSize(2);
+        batches.add(new int[] { 1, 1 });
+        batches.add(deadlock());
+
+        try {
+            dao.addAll(notes(4), false, false);
+            Assert.fail("The deadlock must stop the write");
+        } catch (BatchException e) {
+            assertOutcomes(e.getResult(), Outcome.INSERTED, Outcome.INSERTED, Outcome.FAILED, Outcome.FAILED);
+            Assert.assertEquals(1, e.getResult().getChunks().get(1).getAttempts());
+        }
+        Assert.assertTrue(batches.isEmpty());
+        Assert.assertEquals(1, provider.rollbacks.get());
+        Assert.assertEquals(0, provider.commits.get());
+    }
+
+    /**
+     * Test a chunk failing on every replay fails once its replays are exhausted.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testRetriesExhausted() throws Exception {
+        dao.setRetryPolicy(2, 1);
+        batches.add(deadlock());
+        batches.add(deadlock());
+        batches.add(deadlock());
+        batches.add(deadlock());
+
+        try {
+            dao.addAll(notes(4), true, true);
+            Assert.fail("The deadlocks must stop the write");
+        } catch (BatchException e) {
+            assertOutcomes(e.getResult(), Outcome.FAILED, Outcome.FAILED, Outcome.FAILED, Outcome.FAILED);
+            Assert.assertEquals(3, e.getResult().getChunks().get(0).getAttempts());
+        }
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(3, provider.rollbacks.get());
+        Assert.assertEquals(0, provider.commits.get());
+    }
+
+    /**
+     * Builds notes with the ids 1 to n.
+     *
+     * @param n the number of notes
+     * @return the notes
+     */
+    private static List<Note> notes(int n) {
+        List<Note> notes = new ArrayList<>();
+        for (int i = 1; i <= n; i++) {
+            notes.add(new Note(ObjectId.fromLong(i)));
+        }
+        return notes;
+    }
+
+    /**
+     * Builds the exception of a batch failing with a duplicated key.
+     *
+     * @param counts the update counts reported by the driver
+     * @return the batch update exception
+     */
+    private static BatchUpdateException duplicate(int... counts) {
+        return new BatchUpdateException("Duplicate entry", "23000", 1062, counts);
+    }
+
+    /**
+     * Builds the exception of a statement chosen as the victim of a deadlock.
+     *
+     * @return the SQL exception
+     */
+    private static SQLException deadlock() {
+        return new SQLException("Deadlock found when trying to get lock", "40001", 1213);
+    }
+
+    /**
+     * Asserts the outcome of every object.
+     *
+     * @param result the result
+     * @param outcomes the outcomes
+     */
+    private static void assertOutcomes(BatchResult result, Outcome... outcomes) {
+        Assert.assertEquals(outcomes.length, result.size());
+        for (int i = 0; i < outcomes.length; i++) {
+            Assert.assertEquals("Outcome of object " + i, outcomes[i], result.getOutcome(i));
+        }
+    }
+}
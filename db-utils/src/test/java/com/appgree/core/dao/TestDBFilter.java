@@ -9,6 +9,7 @@ import static org.junit.Assert.fail;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -17,10 +18,17 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.appgree.core.dao.processor.ColumnBatch;
+import com.appgree.core.dao.processor.ColumnType;
 import com.appgree.core.dao.processor.DataProcessor;
+import com.appgree.core.dao.processor.Record;
+import com.appgree.core.dao.query.builder.ContinuationToken;
 import com.appgree.core.dao.query.builder.DBQueryBuilder;
+import com.appgree.core.dao.query.builder.Projection;
 import com.appgree.core.dao.query.builder.SQLClause;
+import com.appgree.core.dao.query.builder.WhereOperand;
 import com.appgree.core.database.provider.DataBaseManager;
+import com.appgree.core.id.ObjectId;
 
 /**
  * The Class TestDBFilter.
@@ -113,6 +121,179 @@ public class TestDBFilter extends BaseTestDAO {
                         .orderBy("ID").limit(2).toString());
     }
 
+    /**
+     * Test in lists.
+     */
+    @Test
+    public void testIn() {
+        assertEquals("SELECT ID FROM " + TABLE_NAME + " WHERE ID IN (?, ?, ?) AND NAME = ?",
+                        DBQueryBuilder.select("ID").from(TABLE_NAME).where("ID").in(Arrays.asList(1, 2, 3)).and("NAME").equal("ME").toString());
+        assertEquals("SELECT ID FROM " + TABLE_NAME + " WHERE NAME = ? AND ID NOT IN (?, ?, ?, ?, ?, ?)",
+                        DBQueryBuilder.select("ID").from(TABLE_NAME).where("NAME").equal("ME").and("ID").notIn(Arrays.asList(1, 2, 3, 4, 5)).toString());
+        assertEquals("SELECT ID FROM " + TABLE_NAME + " WHERE FALSE", DBQueryBuilder.select("ID").from(TABLE_NAME).where("ID").in(new ArrayList<Long>())
+                        .toString());
+
+        List<Long> values = new ArrayList<>();
+        for (long i = 0; i < WhereOperand.MAX_IN_LIST_SIZE + 1; i++) {
+            values.add(i);
+        }
+        try {
+            DBQueryBuilder.select("ID").from(TABLE_NAME).where("ID").in(values);
+            Assert.fail("IN lists longer than one bucket must be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            DBQueryBuilder.select("ID").from(TABLE_NAME).where("ID").notIn(Arrays.asList(1L, null));
+            Assert.fail("NULL values in NOT IN lists must be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Test in lists execution.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test
+    public void testInExecution() throws SQLException {
+        SQLClause query = null;
+        ResultSet res = null;
+        try {
+            query = DBQueryBuilder.select("ID").from(TABLE_NAME).where("ID").in(Arrays.asList(2L, 4L, 5L, 42L)).orderBy("ID");
+            res = assertExecuteQuery(query);
+            Assert.assertEquals(res.getLong(1), 2);
+            Assert.assertTrue(res.next());
+            Assert.assertEquals(res.getLong(1), 4);
+            Assert.assertTrue(res.next());
+            Assert.assertEquals(res.getLong(1), 5);
+            Assert.assertFalse(res.next());
+        } finally {
+            if (res != null) {
+                res.close();
+            }
+            if (query != null) {
+                query.close();
+            }
+        }
+    }
+
+    /**
+     * Test seek pagination.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test
+    public void testAfter() throws SQLException {
+        String[] keys = {"FIRST_NAME", "ID"};
+        assertEquals("SELECT ID FROM " + TABLE_NAME + " WHERE (ID > ?) ORDER BY ID LIMIT ?",
+                        DBQueryBuilder.select("ID").from(TABLE_NAME).after(new String[] {"ID"}, new Object[] {1L}, false).orderBy("ID").limit(2)
+                                        .toString());
+        assertEquals("SELECT ID FROM " + TABLE_NAME
+                        + " WHERE (ID > ?) AND (FIRST_NAME <= ? AND (FIRST_NAME, ID) < (?, ?)) ORDER BY FIRST_NAME DESC, ID DESC",
+                        DBQueryBuilder.select("ID").from(TABLE_NAME).where("ID").greaterThan(0).after(keys, new Object[] {"Juan", 2L}, true)
+                                        .orderBy(keys, true).toString());
+        assertEquals("SELECT ID FROM " + TABLE_NAME + " WHERE (ID = ? OR ID = ?) AND (ID > ?)", DBQueryBuilder.select("ID").from(TABLE_NAME)
+                        .where("ID").equal(1).or("ID").equal(2).after(new String[] {"ID"}, new Object[] {1L}, false).toString());
+        try {
+            DBQueryBuilder.select("ID").from(TABLE_NAME).after(keys, new Object[] {null, 2L}, false);
+            fail("Cannot page after a NULL sort key");
+        } catch (IllegalArgumentException e) {
+        }
+
+        String token = ContinuationToken.encode("Juan", 2L);
+        Assert.assertArrayEquals(new Object[] {"Juan", 2L}, ContinuationToken.decode(token));
+
+        SQLClause query = null;
+        ResultSet res = null;
+        try {
+            query = DBQueryBuilder.select("ID").from(TABLE_NAME).after(keys, token, false).orderBy(keys, false).limit(1);
+            res = assertExecuteQuery(query);
+            Assert.assertEquals(res.getLong(1), 5);
+        } finally {
+            if (res != null) {
+                res.close();
+            }
+            if (query != null) {
+                query.close();
+            }
+        }
+    }
+
+    /**
+     * Test columnar reads.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testExecuteColumns() throws Exception {
+        SQLClause query = DBQueryBuilder.select(new String[] {"ID", "NULL"}).from(TABLE_NAME).where("ID").lowerOrEqualThan(5).orderBy("ID");
+        ColumnBatch batch = query.executeColumns(ColumnType.LONG, ColumnType.INT);
+        assertEquals(5, batch.size());
+        assertEquals(5L, batch.getLong(4, 1));
+        Assert.assertFalse(batch.isNull(4, 1));
+        Assert.assertTrue(batch.isNull(4, 2));
+    }
+
+    /**
+     * Test projections read only the requested columns.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testProjection() throws Exception {
+        final Projection projection = new Projection(TABLE_NAME, "ID", "FIRST_NAME");
+        assertEquals("SELECT ID, FIRST_NAME FROM " + TABLE_NAME + " A WHERE ID = ?", projection.select().where("ID").equal(2).toString());
+
+        final List<Record> records = new ArrayList<>();
+        projection.select().where("ID").lowerOrEqualThan(2).orderBy("ID").execute(new DataProcessor<Record>() {
+
+            @Override
+            public Record process(ResultSet resultSet) throws Exception {
+                Record record = projection.process(resultSet);
+                records.add(record);
+                return record;
+            }
+        });
+        assertEquals(2, records.size());
+        assertEquals(ObjectId.fromLong(2), records.get(1).getId("ID"));
+        assertEquals("Juan", records.get(1).getString("FIRST_NAME"));
+    }
+
+    /**
+     * Test UPDATE and DELETE statements.
+     *
+     * @throws SQLException the SQL exception
+     */
+    @Test
+    public void testUpdateAndDelete() throws SQLException {
+        assertEquals("UPDATE " + TABLE_NAME + " SET FIRST_NAME = ? WHERE (ID = ? OR ID = ?) AND (FIRST_NAME = ?)",
+                        DBQueryBuilder.update(TABLE_NAME).set("FIRST_NAME", "Pepe").where(DBQueryBuilder.whereClause("ID").equal(1).or("ID").equal(2))
+                                        .where(DBQueryBuilder.whereClause("FIRST_NAME").equal("Jose")).toString());
+        assertEquals("DELETE FROM " + TABLE_NAME + " WHERE ID > ? ORDER BY ID LIMIT ?",
+                        DBQueryBuilder.deleteFrom(TABLE_NAME).where(DBQueryBuilder.whereClause("ID").greaterThan(5)).orderBy("ID").limit(2)
+                                        .toString());
+        assertEquals("DELETE A FROM " + TABLE_NAME + " A WHERE A.ID > ?",
+                        DBQueryBuilder.deleteFrom(TABLE_NAME, "A").where(DBQueryBuilder.whereClause("A.ID").greaterThan(5)).toString());
+        try {
+            DBQueryBuilder.deleteFrom(TABLE_NAME, "A").orderBy("ID");
+            fail("Cannot order a DELETE with an alias");
+        } catch (IllegalArgumentException e) {
+        }
+        assertEquals("SELECT ID FROM " + TABLE_NAME + " WHERE (ID > ?) AND (ID = ? OR ID = ?)", DBQueryBuilder.select("ID").from(TABLE_NAME)
+                        .where(DBQueryBuilder.whereClause("ID").greaterThan(0)).and(DBQueryBuilder.whereClause("ID").equal(1).or("ID").equal(2))
+                        .toString());
+        try {
+            DBQueryBuilder.update(TABLE_NAME).where(DBQueryBuilder.whereClause("ID").equal(1)).set("FIRST_NAME", "Pepe");
+            fail("Cannot use SET after WHERE");
+        } catch (IllegalArgumentException e) {
+        }
+
+        assertEquals(1, DBQueryBuilder.update(TABLE_NAME).set("FIRST_NAME", "Jose").where(DBQueryBuilder.whereClause("ID").equal(1))
+                        .executeUpdate());
+    }
+
     /**
      * Test illegal where combinations.
      */
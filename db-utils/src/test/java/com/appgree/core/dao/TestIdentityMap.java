@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.appgree.core.dao.TestUnitOfWork.Note;
+import com.appgree.core.id.ObjectId;
+
+/**
+ * The Class TestIdentityMap.
+ */
+public class TestIdentityMap {
+
+    /**
+     * Test objects keep a single instance per id while the map is open.
+     */
+    @Test
+    public void testScope() {
+        Assert.assertNull(IdentityMap.current());
+        IdentityMap map = IdentityMap.open();
+        try {
+            Assert.assertSame(map, IdentityMap.open());
+            Assert.assertSame(map, IdentityMap.current());
+
+            Note read = new Note(ObjectId.fromLong(1));
+            Assert.assertSame(read, map.register(Note.class, read));
+            // a second read of the same row returns the first instance
+            Assert.assertSame(read, map.register(Note.class, new Note(ObjectId.fromLong(1))));
+            Assert.assertSame(read, map.get(Note.class, ObjectId.fromLong(1)));
+
+            // writes replace it
+            Note written = new Note(ObjectId.fromLong(1));
+            map.put(Note.class, written);
+            Assert.assertSame(written, map.get(Note.class, ObjectId.fromLong(1)));
+
+            map.put(Note.class, new Note(ObjectId.fromLong(2)));
+            Assert.assertEquals(2, map.size());
+            map.remove(Note.class, ObjectId.fromLong(2));
+            Assert.assertFalse(map.contains(Note.class, ObjectId.fromLong(2)));
+
+            map.onRollback();
+            Assert.assertEquals(0, map.size());
+            Assert.assertSame(map, IdentityMap.current());
+        } finally {
+            map.close();
+        }
+        Assert.assertNull(IdentityMap.current());
+    }
+}
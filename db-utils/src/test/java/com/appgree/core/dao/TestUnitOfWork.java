@@ -0,0 +1,237 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.appgree.core.id.Identifiable;
+import com.appgree.core.id.ObjectId;
+
+/**
+ * The Class TestUnitOfWork.
+ */
+public class TestUnitOfWork {
+
+    /**
+     * The Class Note.
+     */
+    public static class Note implements Identifiable {
+
+        /** The id. */
+        private ObjectId id;
+
+        /**
+         * Instantiates a new note.
+         *
+         * @param id the id
+         */
+        public Note(ObjectId id) {
+            this.id = id;
+        }
+
+        /* (non-Javadoc)
+         * @see com.appgree.core.id.Identifiable#getId()
+         */
+        @Override
+        public ObjectId getId() {
+            return id;
+        }
+
+        /* (non-Javadoc)
+         * @see com.appgree.core.id.Identifiable#setId(com.appgree.core.id.ObjectId)
+         */
+        @Override
+        public void setId(ObjectId id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * The Class NoteDAO.
+     */
+    public static class NoteDAO extends BaseDAO<Note> {
+
+        /**
+         * Instantiates a new note dao.
+         */
+        public NoteDAO() {
+            super("NOTE");
+            this.fields.add("ID");
+        }
+
+        /* (non-Javadoc)
+         * @see com.appgree.core.dao.processor.DataSerializer#deserialize(java.sql.ResultSet)
+         */
+        @Override
+        public Note deserialize(ResultSet resultSet) throws Exception {
+            return new Note(ObjectId.fromLong(resultSet.getLong(1)));
+        }
+
+        /* (non-Javadoc)
+         * @see com.appgree.core.dao.processor.DataSerializer#serialize(java.lang.Object, java.sql.PreparedStatement)
+         */
+        @Override
+        public void serialize(Note object, PreparedStatement stmt) throws Exception {
+            stmt.setLong(1, object.getId().toLong());
+        }
+    }
+
+    /**
+     * The Class VersionedNote.
+     */
+    public static class VersionedNote extends Note implements Versioned {
+
+        /** The version. */
+        private long version;
+
+        /**
+         * Instantiates a new versioned note.
+         *
+         * @param id the id
+         */
+        public VersionedNote(ObjectId id) {
+            super(id);
+        }
+
+        /* (non-Javadoc)
+         * @see com.appgree.core.dao.Versioned#getVersion()
+         */
+        @Override
+        public long getVersion() {
+            return version;
+        }
+
+        /* (non-Javadoc)
+         * @see com.appgree.core.dao.Versioned#setVersion(long)
+         */
+        @Override
+        public void setVersion(long version) {
+            this.version = version;
+        }
+    }
+
+    /**
+     * The Class VersionedNoteDAO.
+     */
+    public static class VersionedNoteDAO extends BaseDAO<VersionedNote> {
+
+        /**
+         * Instantiates a new versioned note dao.
+         */
+        public VersionedNoteDAO() {
+            super("VERSIONED_NOTE");
+            this.fields.add("ID");
+            this.fields.add("VERSION");
+        }
+
+        /* (non-Javadoc)
+         * @see com.appgree.core.dao.processor.DataSerializer#deserialize(java.sql.ResultSet)
+         */
+        @Override
+        public VersionedNote deserialize(ResultSet resultSet) throws Exception {
+            VersionedNote note = new VersionedNote(ObjectId.fromLong(resultSet.getLong(1)));
+            note.setVersion(resultSet.getLong(2));
+            return note;
+        }
+
+        /* (non-Javadoc)
+         * @see com.appgree.core.dao.processor.DataSerializer#serialize(java.lang.Object, java.sql.PreparedStatement)
+         */
+        @Override
+        public void serialize(VersionedNote object, PreparedStatement stmt) throws Exception {
+            stmt.setLong(1, object.getVersion());
+            stmt.setLong(2, object.getId().toLong());
+        }
+    }
+
+    /**
+     * Test writes of the same object are merged.
+     */
+    @Test
+    public void testMerge() {
+        new NoteDAO();
+        UnitOfWork unitOfWork = new UnitOfWork(Note.class);
+        Note first = new Note(ObjectId.fromLong(1));
+        Note second = new Note(ObjectId.fromLong(2));
+
+        unitOfWork.add(first);
+        unitOfWork.update(first);
+        unitOfWork.addOrUpdate(second);
+        unitOfWork.update(second);
+        Note added = new Note(null);
+        unitOfWork.add(added);
+        Assert.assertEquals(3, unitOfWork.size());
+
+        // added without id and deleted: nothing to write
+        unitOfWork.delete(added);
+        Assert.assertEquals(2, unitOfWork.size());
+
+        // added with id and deleted: its row may already exist
+        unitOfWork.delete(first);
+        Assert.assertEquals(2, unitOfWork.size());
+
+        unitOfWork.delete(Note.class, second.getId());
+        try {
+            unitOfWork.update(second);
+            Assert.fail("Updated a deleted object");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        unitOfWork.addOrUpdate(second);
+        Assert.assertEquals(2, unitOfWork.size());
+
+        unitOfWork.clear();
+        Assert.assertTrue(unitOfWork.isEmpty());
+    }
+
+    /**
+     * Test writes of versioned objects are only merged into updates comparing their versions.
+     */
+    @Test
+    public void testMergeVersioned() {
+        new VersionedNoteDAO();
+        UnitOfWork unitOfWork = new UnitOfWork(VersionedNote.class);
+        VersionedNote note = new VersionedNote(ObjectId.fromLong(1));
+
+        try {
+            unitOfWork.addOrUpdate(note);
+            Assert.fail("Added or updated a versioned object");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Assert.assertTrue(unitOfWork.isEmpty());
+
+        unitOfWork.update(note);
+        unitOfWork.add(note);
+        unitOfWork.delete(note);
+        try {
+            unitOfWork.add(note);
+            Assert.fail("Added a deleted versioned object");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Assert.assertEquals(1, unitOfWork.size());
+    }
+
+    /**
+     * Test classes without DAO are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownClass() {
+        new UnitOfWork().add(new Identifiable() {
+
+            @Override
+            public ObjectId getId() {
+                return ObjectId.fromLong(1);
+            }
+
+            @Override
+            public void setId(ObjectId id) {}
+        });
+    }
+}
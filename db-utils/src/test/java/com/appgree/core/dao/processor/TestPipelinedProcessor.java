@@ -0,0 +1,213 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.processor;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.appgree.core.database.provider.JdbcFakes;
+
+/**
+ * The Class TestPipelinedProcessor.
+ */
+public class TestPipelinedProcessor {
+
+    /** The number of rows. */
+    private static final int ROWS = 1000;
+
+    /** The workers. */
+    private static ExecutorService workers;
+
+    /**
+     * A mapped row.
+     */
+    private static class Row {
+
+        /** The id. */
+        private final long id;
+
+        /** The name. */
+        private final String name;
+
+        /**
+         * Instantiates a new row.
+         *
+         * @param id the id
+         * @param name the name
+         */
+        private Row(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    /** Maps the columns ID (Long), NAME (String) and CREATED (Timestamp). */
+    private static final DataProcessor<Row> ROW_PROCESSOR = new DataProcessor<Row>() {
+
+        @Override
+        public Row process(ResultSet resultSet) throws Exception {
+            Assert.assertNotNull(resultSet.getTimestamp(3));
+            return new Row(resultSet.getLong(1), resultSet.getString("name"));
+        }
+    };
+
+    /**
+     * Creates the workers.
+     */
+    @BeforeClass
+    public static void init() {
+        workers = Executors.newFixedThreadPool(4);
+    }
+
+    /**
+     * Stops the workers.
+     */
+    @AfterClass
+    public static void shutdown() {
+        workers.shutdown();
+    }
+
+    /**
+     * Reads the rows of a fake result set through a processor, as SQLClause.execute does.
+     *
+     * @param processor the processor
+     * @throws Exception the exception
+     */
+    private static void read(DataProcessor<?> processor) throws Exception {
+        final ResultSetMetaData metaData = JdbcFakes.proxy(ResultSetMetaData.class, new JdbcFakes.Handler() {
+
+            @Override
+            protected Object answer(String method, Object[] args) {
+                if (method.equals("getColumnCount")) {
+                    return 3;
+                }
+                return new String[] { "ID", "NAME", "CREATED" }[(Integer) args[0] - 1];
+            }
+        });
+        ResultSet resultSet = JdbcFakes.proxy(ResultSet.class, new JdbcFakes.Handler() {
+
+            private int row = 0;
+
+            @Override
+            protected Object answer(String method, Object[] args) throws SQLException {
+                switch (method) {
+                    case "next":
+                        return ++row <= ROWS;
+                    case "getMetaData":
+                        return metaData;
+                    case "getObject":
+                        int column = (Integer) args[0];
+                        return column == 1 ? (Object) Long.valueOf(row) : column == 2 ? "row" + row : new Timestamp(row);
+                    default:
+                        throw new SQLException(method + " not expected on the reader");
+                }
+            }
+        });
+        while (resultSet.next()) {
+            processor.process(resultSet);
+        }
+    }
+
+    /**
+     * Test ordered results keep the row order.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testOrdered() throws Exception {
+        PipelinedProcessor<Row> pipeline = new PipelinedProcessor<>(ROW_PROCESSOR, workers, 64, 2, true);
+        read(pipeline);
+
+        List<Row> rows = pipeline.getResults();
+        Assert.assertEquals(ROWS, rows.size());
+        for (int i = 0; i < ROWS; i++) {
+            Assert.assertEquals(i + 1, rows.get(i).id);
+            Assert.assertEquals("row" + (i + 1), rows.get(i).name);
+        }
+    }
+
+    /**
+     * Test unordered results have every row.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testUnordered() throws Exception {
+        PipelinedProcessor<Row> pipeline = new PipelinedProcessor<>(ROW_PROCESSOR, workers, 100, 4, false);
+        read(pipeline);
+
+        List<Long> ids = new ArrayList<>();
+        for (Row row : pipeline.getResults()) {
+            ids.add(row.id);
+        }
+        Assert.assertEquals(ROWS, ids.size());
+        Collections.sort(ids);
+        for (int i = 0; i < ROWS; i++) {
+            Assert.assertEquals(Long.valueOf(i + 1), ids.get(i));
+        }
+    }
+
+    /**
+     * Test an error mapping a row fails the pipeline.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testFailure() throws Exception {
+        PipelinedProcessor<Row> pipeline = new PipelinedProcessor<>(new DataProcessor<Row>() {
+
+            @Override
+            public Row process(ResultSet resultSet) throws Exception {
+                return new Row(resultSet.getLong("MISSING"), null);
+            }
+        }, workers, 10, 2, true);
+        try {
+            read(pipeline);
+            pipeline.getResults();
+            Assert.fail("Mapped a missing column");
+        } catch (SQLException e) {
+            Assert.assertTrue(e.getMessage().contains("MISSING"));
+        }
+    }
+
+    /**
+     * Test the conversions of buffered values.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testRowBufferConversions() throws Exception {
+        ResultSetMetaData metaData = JdbcFakes.proxy(ResultSetMetaData.class, new JdbcFakes.Handler() {
+
+            @Override
+            protected Object answer(String method, Object[] args) {
+                return method.equals("getColumnCount") ? (Object) 3 : "C" + args[0];
+            }
+        });
+        ResultSet resultSet = new RowBuffer(new RowBuffer.Columns(metaData)).setRow(new Object[] { 7, "12", null });
+
+        Assert.assertEquals(7L, resultSet.getLong(1));
+        Assert.assertEquals("7", resultSet.getString("c1"));
+        Assert.assertEquals(12, resultSet.getInt("C2"));
+        Assert.assertTrue(resultSet.getBoolean(1));
+        Assert.assertFalse(resultSet.wasNull());
+        Assert.assertEquals(0, resultSet.getLong(3));
+        Assert.assertTrue(resultSet.wasNull());
+        Assert.assertNull(resultSet.getString(3));
+        Assert.assertEquals(Long.valueOf(7), resultSet.getObject(1, Long.class));
+        Assert.assertEquals(2, resultSet.findColumn("C2"));
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.query.builder;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.appgree.core.dao.processor.DataProcessor;
+
+/**
+ * The Class TestQueryCache.
+ */
+public class TestQueryCache {
+
+    /**
+     * A loader counting its calls.
+     */
+    private static class CountingLoader implements Callable<List<Integer>> {
+
+        /** The calls. */
+        private final AtomicInteger calls = new AtomicInteger();
+
+        /* (non-Javadoc)
+         * @see java.util.concurrent.Callable#call()
+         */
+        @Override
+        public List<Integer> call() {
+            return new ArrayList<>(Collections.singletonList(calls.incrementAndGet()));
+        }
+    }
+
+    /** A processor reading the first column. */
+    private static final DataProcessor<Integer> ID = new DataProcessor<Integer>() {
+
+        @Override
+        public Integer process(ResultSet resultSet) throws Exception {
+            return resultSet.getInt(1);
+        }
+    };
+
+    /**
+     * Test the tables of FROM and JOIN clauses are found.
+     */
+    @Test
+    public void testTables() {
+        Assert.assertEquals(Arrays.asList("ITEM", "TMP", "OTHER"), new ArrayList<>(QueryCache.getTables(
+                        "SELECT A.ID FROM Item A JOIN tmp T USING (ID) WHERE A.ID IN (SELECT ID FROM `db`.Other)")));
+        Assert.assertEquals(Arrays.asList("A", "B"), new ArrayList<>(QueryCache.getTables("SELECT COUNT(*) FROM a, b AS c WHERE a.x = c.x")));
+        Assert.assertEquals(Arrays.asList("ITEM"), new ArrayList<>(QueryCache.getTables("SELECT ID FROM Item WHERE ID > ?")));
+    }
+
+    /**
+     * Test queries are keyed by normalized SQL and arguments and dropped when their tables are written.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testHitsAndInvalidation() throws Exception {
+        QueryCache cache = new QueryCache(10, 60000);
+        CountingLoader loader = new CountingLoader();
+        List<Object> arguments = new ArrayList<Object>(Arrays.asList(1L));
+
+        Assert.assertEquals(Arrays.asList(1), cache.get("SELECT ID FROM Item WHERE ID > ?", arguments, ID, loader));
+        Assert.assertEquals(Arrays.asList(1), cache.get("SELECT ID\n  FROM Item   WHERE ID > ?", arguments, ID, loader));
+        Assert.assertEquals(Arrays.asList(2), cache.get("SELECT ID FROM Item WHERE ID > ?", Arrays.<Object> asList(2L), ID, loader));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(2, cache.getMisses());
+        Assert.assertEquals(2, cache.size());
+
+        cache.invalidate("Other");
+        Assert.assertEquals(2, cache.size());
+        cache.invalidate("item");
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(Arrays.asList(3), cache.get("SELECT ID FROM Item WHERE ID > ?", arguments, ID, loader));
+    }
+
+    /**
+     * Test processors mapping the same query do not share their rows.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testProcessors() throws Exception {
+        QueryCache cache = new QueryCache(10, 60000);
+        DataProcessor<String> names = new DataProcessor<String>() {
+
+            @Override
+            public String process(ResultSet resultSet) throws Exception {
+                return resultSet.getString(1);
+            }
+        };
+        Callable<List<String>> nameLoader = new Callable<List<String>>() {
+
+            @Override
+            public List<String> call() {
+                return Collections.singletonList("1");
+            }
+        };
+        CountingLoader loader = new CountingLoader();
+
+        Assert.assertEquals(Arrays.asList(1), cache.get("SELECT ID FROM Item", null, ID, loader));
+        Assert.assertEquals(Arrays.asList("1"), cache.get("SELECT ID FROM Item", null, names, nameLoader));
+        Assert.assertEquals(Arrays.asList(1), cache.get("SELECT ID FROM Item", null, ID, loader));
+        Assert.assertEquals(Arrays.asList("1"), cache.get("SELECT ID FROM Item", null, names, nameLoader));
+        Assert.assertEquals(1, loader.calls.get());
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(2, cache.getHits());
+    }
+
+    /**
+     * Test a query running while its table is written is not cached.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testWriteDuringLoad() throws Exception {
+        final QueryCache cache = new QueryCache(10, 60000);
+        Callable<List<Integer>> loader = new Callable<List<Integer>>() {
+
+            @Override
+            public List<Integer> call() {
+                cache.invalidate("ITEM");
+                return Collections.singletonList(1);
+            }
+        };
+
+        Assert.assertEquals(Arrays.asList(1), cache.get("SELECT ID FROM Item", null, ID, loader));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    /**
+     * Test rows read by a transaction after writing their table are not cached for other threads.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testReadAfterWrite() throws Exception {
+        final QueryCache cache = new QueryCache(10, 60000);
+        final CountingLoader loader = new CountingLoader();
+
+        cache.invalidate("ITEM");
+        Assert.assertEquals(Arrays.asList(1), cache.get("SELECT ID FROM Item", null, ID, loader));
+        Assert.assertEquals(Arrays.asList(2), cache.get("SELECT ID FROM Item", null, ID, loader));
+        Assert.assertEquals(0, cache.size());
+
+        final List<Integer> read = new ArrayList<>();
+        Thread reader = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    read.addAll(cache.get("SELECT ID FROM Item", null, ID, loader));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        reader.start();
+        reader.join();
+        Assert.assertEquals(Arrays.asList(3), read);
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(1, cache.size());
+
+        // other tables are still cached
+        cache.get("SELECT ID FROM Other", null, ID, loader);
+        cache.get("SELECT ID FROM Other", null, ID, loader);
+        Assert.assertEquals(1, cache.getHits());
+    }
+
+    /**
+     * Test the least recently used entries are evicted and expired ones reloaded.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testBounds() throws Exception {
+        QueryCache cache = new QueryCache(2, 50);
+        CountingLoader loader = new CountingLoader();
+
+        cache.get("SELECT ID FROM A", null, ID, loader);
+        cache.get("SELECT ID FROM B", null, ID, loader);
+        cache.get("SELECT ID FROM A", null, ID, loader);
+        cache.get("SELECT ID FROM C", null, ID, loader);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(3, loader.calls.get());
+
+        // B was the least recently used
+        cache.get("SELECT ID FROM A", null, ID, loader);
+        Assert.assertEquals(3, loader.calls.get());
+        cache.get("SELECT ID FROM B", null, ID, loader);
+        Assert.assertEquals(4, loader.calls.get());
+
+        Thread.sleep(100);
+        Assert.assertEquals(Arrays.asList(5), cache.get("SELECT ID FROM B", null, ID, loader));
+    }
+}
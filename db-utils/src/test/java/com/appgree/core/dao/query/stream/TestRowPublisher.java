@@ -0,0 +1,282 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.dao.query.stream;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.appgree.core.dao.processor.DataProcessor;
+import com.appgree.core.database.provider.DataBaseManager;
+import com.appgree.core.database.provider.JdbcFakes;
+
+/**
+ * The Class TestRowPublisher.
+ */
+public class TestRowPublisher {
+
+    /** The number of rows of the fake query. */
+    private static final int ROWS = 10;
+
+    /** The rows read from the fake result set. */
+    private static final AtomicInteger fetched = new AtomicInteger();
+
+    /** If the fake statement was cancelled. */
+    private static final AtomicBoolean cancelled = new AtomicBoolean();
+
+    /** If the fake statement was closed. */
+    private static final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * A provider whose statements return the rows 1 to ROWS.
+     */
+    private static class RowsProvider extends JdbcFakes.FakeProvider {
+
+        /* (non-Javadoc)
+         * @see com.appgree.core.database.provider.JdbcFakes.FakeProvider#connect()
+         */
+        @Override
+        protected Connection connect() {
+            final ResultSet resultSet = JdbcFakes.proxy(ResultSet.class, new JdbcFakes.Handler() {
+
+                private int row = 0;
+
+                @Override
+                protected Object answer(String method, Object[] args) {
+                    switch (method) {
+                        case "next":
+                            if (row == ROWS) {
+                                return false;
+                            }
+                            row++;
+                            fetched.incrementAndGet();
+                            return true;
+                        case "getLong":
+                            return (long) row;
+                        default:
+                            return JdbcFakes.DEFAULT;
+                    }
+                }
+            });
+            final PreparedStatement statement = JdbcFakes.proxy(PreparedStatement.class, new JdbcFakes.Handler() {
+
+                @Override
+                protected Object answer(String method, Object[] args) {
+                    switch (method) {
+                        case "execute":
+                            return true;
+                        case "getResultSet":
+                            return resultSet;
+                        case "cancel":
+                            cancelled.set(true);
+                            return null;
+                        case "close":
+                            closed.set(true);
+                            return null;
+                        default:
+                            return JdbcFakes.DEFAULT;
+                    }
+                }
+            });
+            return JdbcFakes.proxy(Connection.class, new JdbcFakes.Handler() {
+
+                @Override
+                protected Object answer(String method, Object[] args) {
+                    return method.equals("prepareStatement") ? statement : JdbcFakes.DEFAULT;
+                }
+            });
+        }
+    }
+
+    /**
+     * A subscriber recording what it receives.
+     */
+    private static class RecordingSubscriber implements Subscriber<Long> {
+
+        /** The subscription. */
+        private volatile Subscription subscription;
+
+        /** The received items. */
+        private final LinkedBlockingQueue<Long> items = new LinkedBlockingQueue<>();
+
+        /** Counted down on complete or error. */
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        /** If completed. */
+        private volatile boolean completed;
+
+        /** The error. */
+        private volatile Throwable error;
+
+        /** The first request. */
+        private final long initialRequest;
+
+        /**
+         * Instantiates a new recording subscriber.
+         *
+         * @param initialRequest the initial request
+         */
+        private RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(Long item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+
+        /**
+         * Takes the next items.
+         *
+         * @param count the count
+         * @return the items
+         * @throws InterruptedException the interrupted exception
+         */
+        private List<Long> take(int count) throws InterruptedException {
+            List<Long> taken = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Long item = items.poll(10, TimeUnit.SECONDS);
+                Assert.assertNotNull("Timed out waiting for an item", item);
+                taken.add(item);
+            }
+            return taken;
+        }
+    }
+
+    /** The processor reading the first column. */
+    private static final DataProcessor<Long> FIRST_COLUMN = new DataProcessor<Long>() {
+
+        @Override
+        public Long process(ResultSet resultSet) throws Exception {
+            return resultSet.getLong(1);
+        }
+    };
+
+    /**
+     * Initializes the manager with the fake rows.
+     *
+     * @throws Exception the exception
+     */
+    @Before
+    public void init() throws Exception {
+        DataBaseManager.getInstance().init(new RowsProvider(), 100, 10);
+        fetched.set(0);
+        cancelled.set(false);
+        closed.set(false);
+    }
+
+    /**
+     * Test rows are read only as they are requested.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testDemand() throws Exception {
+        RowPublisher<Long> publisher = new RowPublisher<>("SELECT ID FROM T", new ArrayList<Object>(), 0, FIRST_COLUMN, 0);
+        RecordingSubscriber subscriber = new RecordingSubscriber(3);
+        publisher.subscribe(subscriber);
+
+        Assert.assertEquals(list(1, 2, 3), subscriber.take(3));
+        Thread.sleep(50);
+        Assert.assertEquals(3, fetched.get());
+        Assert.assertTrue(subscriber.items.isEmpty());
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        Assert.assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(list(4, 5, 6, 7, 8, 9, 10), subscriber.take(ROWS - 3));
+        Assert.assertTrue(subscriber.completed);
+        Assert.assertTrue(closed.get());
+        Assert.assertFalse(cancelled.get());
+    }
+
+    /**
+     * Test the prefetch window reads ahead of the demand and a cancel closes the statement.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testPrefetchAndCancel() throws Exception {
+        RowPublisher<Long> publisher = new RowPublisher<>("SELECT ID FROM T", new ArrayList<Object>(), 0, FIRST_COLUMN, 4);
+        RecordingSubscriber subscriber = new RecordingSubscriber(2);
+        publisher.subscribe(subscriber);
+
+        Assert.assertEquals(list(1, 2), subscriber.take(2));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (fetched.get() < 6 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+        Assert.assertEquals(6, fetched.get());
+
+        subscriber.subscription.cancel();
+        deadline = System.currentTimeMillis() + 10000;
+        while (!closed.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assert.assertTrue(closed.get());
+        Assert.assertTrue(cancelled.get());
+        Assert.assertFalse(subscriber.completed);
+        Assert.assertNull(subscriber.error);
+        Assert.assertTrue(subscriber.items.isEmpty());
+    }
+
+    /**
+     * Test a non positive request fails the subscription.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testInvalidRequest() throws Exception {
+        RowPublisher<Long> publisher = new RowPublisher<>("SELECT ID FROM T", new ArrayList<Object>(), 0, FIRST_COLUMN, 0);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+
+        Assert.assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(subscriber.error instanceof IllegalArgumentException);
+        Assert.assertFalse(subscriber.completed);
+    }
+
+    /**
+     * Builds a list of longs.
+     *
+     * @param values the values
+     * @return the list
+     */
+    private static List<Long> list(long... values) {
+        List<Long> list = new ArrayList<>();
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
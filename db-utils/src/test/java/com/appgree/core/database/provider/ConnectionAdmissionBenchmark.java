@@ -0,0 +1,90 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.database.provider;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how throughput scales with the number of concurrent callers when connections are limited with
+ * DataBaseManager.setMaxConnections. Every operation gets a connection, simulates a query by sleeping and releases it. Throughput should grow
+ * until the callers saturate the connections and then stay flat, with the extra callers parked on the admission semaphore. Run it with
+ * java -cp target/classes:target/test-classes:... com.appgree.core.database.provider.ConnectionAdmissionBenchmark
+ */
+public class ConnectionAdmissionBenchmark {
+
+    /** The number of connections. */
+    private static final int MAX_CONNECTIONS = 20;
+
+    /** The simulated query time. */
+    private static final long QUERY_MILLIS = 2;
+
+    /** The duration of every run. */
+    private static final long RUN_MILLIS = 2000;
+
+    /** The numbers of concurrent callers. */
+    private static final int[] CALLERS = { 1, 10, 100, 1000 };
+
+    /**
+     * The main method.
+     *
+     * @param args the arguments
+     * @throws Exception the exception
+     */
+    public static void main(String[] args) throws Exception {
+        DataBaseManager manager = DataBaseManager.getInstance();
+        manager.init(new JdbcFakes.FakeProvider(), Integer.MAX_VALUE, 10);
+        manager.setMaxConnections(MAX_CONNECTIONS, 60000);
+
+        System.out.println("callers\tops/sec");
+        for (int callers : CALLERS) {
+            System.out.println(callers + "\t" + run(manager, callers));
+        }
+        manager.setMaxConnections(0, 0);
+    }
+
+    /**
+     * Runs the callers for a while.
+     *
+     * @param manager the manager
+     * @param callers the number of callers
+     * @return the operations per second
+     * @throws InterruptedException the interrupted exception
+     */
+    private static long run(final DataBaseManager manager, int callers) throws InterruptedException {
+        final AtomicLong operations = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final long end = System.currentTimeMillis() + RUN_MILLIS;
+        Thread[] threads = new Thread[callers];
+        for (int i = 0; i < callers; i++) {
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        while (System.currentTimeMillis() < end) {
+                            manager.getConnection();
+                            try {
+                                Thread.sleep(QUERY_MILLIS);
+                            } finally {
+                                manager.releaseConnection();
+                            }
+                            operations.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        long begin = System.currentTimeMillis();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return operations.get() * 1000 / Math.max(1, System.currentTimeMillis() - begin);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.database.provider;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fakes of JDBC interfaces for tests without a database, built as dynamic proxies.
+ */
+public final class JdbcFakes {
+
+    /** Returned by a Handler to answer with the default value of the method. */
+    public static final Object DEFAULT = new Object();
+
+    /**
+     * A handler answering calls by method name. Proxies are equal only to themselves, so they can be kept in collections.
+     */
+    public abstract static class Handler implements InvocationHandler {
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        @Override
+        public final Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return method.getDeclaringClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                default:
+                    Object value = answer(method.getName(), args);
+                    return value == DEFAULT ? defaultValue(method) : value;
+            }
+        }
+
+        /**
+         * Answers a call.
+         *
+         * @param method the name of the method
+         * @param args the arguments, null if none
+         * @return the value, DEFAULT for the default value of the method
+         * @throws Throwable the exception thrown by the fake
+         */
+        protected abstract Object answer(String method, Object[] args) throws Throwable;
+    }
+
+    /**
+     * A provider with a connection per call and transactions that only count. The connections do nothing unless connect is overridden.
+     */
+    public static class FakeProvider implements DataBaseProvider {
+
+        /** The commits. */
+        public final AtomicInteger commits = new AtomicInteger();
+
+        /** The rollbacks. */
+        public final AtomicInteger rollbacks = new AtomicInteger();
+
+        /** The releases. */
+        public final AtomicInteger releases = new AtomicInteger();
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.database.provider.DataBaseProvider#getConnection()
+         */
+        @Override
+        public Connection getConnection() throws SQLException {
+            return connect();
+        }
+
+        /**
+         * Creates the connection returned by getConnection.
+         *
+         * @return the connection
+         * @throws SQLException the SQL exception
+         */
+        protected Connection connect() throws SQLException {
+            return proxy(Connection.class, new Handler() {
+
+                @Override
+                protected Object answer(String method, Object[] args) {
+                    return DEFAULT;
+                }
+            });
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.database.provider.DataBaseProvider#rollBackConnection()
+         */
+        @Override
+        public void rollBackConnection() {
+            rollbacks.incrementAndGet();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.database.provider.DataBaseProvider#commitConnection()
+         */
+        @Override
+        public void commitConnection() {
+            commits.incrementAndGet();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.database.provider.DataBaseProvider#releaseConnection()
+         */
+        @Override
+        public void releaseConnection() {
+            releases.incrementAndGet();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.database.provider.DataBaseProvider#uninit()
+         */
+        @Override
+        public void uninit() {}
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.database.provider.DataBaseProvider#setConnection(java.sql.Connection)
+         */
+        @Override
+        public void setConnection(Connection conn) {}
+    }
+
+    /**
+     * Instantiates a new jdbc fakes.
+     */
+    private JdbcFakes() {}
+
+    /**
+     * Creates a proxy of an interface.
+     *
+     * @param <I> the interface type
+     * @param iface the interface
+     * @param handler the handler
+     * @return the proxy
+     */
+    public static <I> I proxy(Class<I> iface, InvocationHandler handler) {
+        return iface.cast(Proxy.newProxyInstance(JdbcFakes.class.getClassLoader(), new Class<?>[] { iface }, handler));
+    }
+
+    /**
+     * Gets the default value of the return type of a method: false, zero or null.
+     *
+     * @param method the method
+     * @return the object
+     */
+    public static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
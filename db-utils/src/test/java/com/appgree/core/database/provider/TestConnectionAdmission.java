@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.database.provider;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.appgree.core.database.provider.DataBaseManager.MaxNumberBlockedThreadsException;
+
+/**
+ * The Class TestConnectionAdmission.
+ */
+public class TestConnectionAdmission {
+
+    /**
+     * Limits the manager to one connection.
+     *
+     * @throws Exception the exception
+     */
+    @Before
+    public void init() throws Exception {
+        DataBaseManager.getInstance().init(new JdbcFakes.FakeProvider(), 1, 10);
+        DataBaseManager.getInstance().setMaxConnections(1, 50);
+    }
+
+    /**
+     * Removes the limit.
+     */
+    @After
+    public void reset() {
+        DataBaseManager.getInstance().setMaxConnections(0, 0);
+    }
+
+    /**
+     * Test threads wait for a connection permit instead of being counted as blocked.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testAdmission() throws Exception {
+        final DataBaseManager manager = DataBaseManager.getInstance();
+        final CountDownLatch holding = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    manager.getConnection();
+                    // the same thread gets its connection again without another permit
+                    manager.getConnection();
+                    holding.countDown();
+                    release.await();
+                    manager.releaseConnection();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        holder.start();
+        Assert.assertTrue(holding.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, manager.getAvailableConnections());
+
+        try {
+            manager.getConnection();
+            Assert.fail("Got a connection over the limit");
+        } catch (MaxNumberBlockedThreadsException e) {
+            // expected
+        }
+
+        release.countDown();
+        holder.join();
+        Assert.assertEquals(1, manager.getAvailableConnections());
+        Assert.assertNotNull(manager.getConnection());
+        manager.releaseConnection();
+        Assert.assertEquals(1, manager.getAvailableConnections());
+    }
+
+    /**
+     * Test a thread holding the only permit gives it to the executor tasks it waits for.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testWaitForTask() throws Exception {
+        DataBaseManager manager = DataBaseManager.getInstance();
+        Callable<Boolean> task = new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() throws Exception {
+                return DataBaseManager.getInstance().getConnection() != null;
+            }
+        };
+
+        manager.getConnection();
+        try {
+            manager.getExecutor().submit(task).get();
+            Assert.fail("The task got a connection over the limit");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof MaxNumberBlockedThreadsException);
+        }
+
+        Assert.assertTrue(manager.waitFor(manager.getExecutor().submit(task)));
+        Assert.assertEquals(0, manager.getAvailableConnections());
+        manager.releaseConnection();
+        Assert.assertEquals(1, manager.getAvailableConnections());
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.database.provider;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * The Class TestQueryExecutor.
+ */
+public class TestQueryExecutor {
+
+    /**
+     * Initializes the manager with a provider whose transactions are no-ops.
+     *
+     * @throws Exception the exception
+     */
+    @BeforeClass
+    public static void init() throws Exception {
+        DataBaseManager.getInstance().init(new BasicDataBaseProvider(), 100, 10);
+    }
+
+    /**
+     * Test a saturated executor rejects or blocks new tasks and cancelled tasks free their place.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testBackpressure() throws Exception {
+        QueryExecutor executor = new QueryExecutor(1, 1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        Future<Integer> first = executor.submit(new Callable<Integer>() {
+
+            @Override
+            public Integer call() throws Exception {
+                blocker.await();
+                return 1;
+            }
+        });
+        Future<Integer> queued = executor.submit(new Callable<Integer>() {
+
+            @Override
+            public Integer call() {
+                return 2;
+            }
+        });
+        Assert.assertEquals(0, executor.getAvailable());
+        try {
+            executor.trySubmit(new Callable<Integer>() {
+
+                @Override
+                public Integer call() {
+                    return 3;
+                }
+            }, 10, TimeUnit.MILLISECONDS);
+            Assert.fail("Accepted a task while saturated");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+
+        Assert.assertTrue(queued.cancel(false));
+        Assert.assertEquals(1, executor.getAvailable());
+
+        blocker.countDown();
+        Assert.assertEquals(Integer.valueOf(1), first.get());
+        executor.shutdown();
+    }
+
+    /**
+     * Test cancelling a running task cancels its statements.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testCancel() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        final Statement statement = JdbcFakes.proxy(Statement.class, new JdbcFakes.Handler() {
+
+            @Override
+            protected Object answer(String method, Object[] args) {
+                if (method.equals("cancel")) {
+                    cancelled.countDown();
+                }
+                return JdbcFakes.DEFAULT;
+            }
+        });
+        final Connection connection = JdbcFakes.proxy(Connection.class, new JdbcFakes.Handler() {
+
+            @Override
+            protected Object answer(String method, Object[] args) {
+                return method.equals("createStatement") ? statement : JdbcFakes.DEFAULT;
+            }
+        });
+
+        QueryExecutor executor = new QueryExecutor(1, 0);
+        Future<Boolean> future = executor.submit(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() throws Exception {
+                new ConnectionWrapper(connection, 10).createStatement();
+                started.countDown();
+                // stands for a long query, which Statement.cancel would interrupt
+                return cancelled.await(10, TimeUnit.SECONDS);
+            }
+        });
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(future.cancel(false));
+        Assert.assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    /**
+     * Test closed statements are no longer tracked once the next statement is created.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testTrackOpenStatements() throws Exception {
+        final Connection connection = JdbcFakes.proxy(Connection.class, new JdbcFakes.Handler() {
+
+            @Override
+            protected Object answer(String method, Object[] args) {
+                if (!method.equals("createStatement")) {
+                    return JdbcFakes.DEFAULT;
+                }
+                return JdbcFakes.proxy(Statement.class, new JdbcFakes.Handler() {
+
+                    /** If closed. */
+                    private boolean closed;
+
+                    @Override
+                    protected Object answer(String method, Object[] args) {
+                        switch (method) {
+                            case "close":
+                                closed = true;
+                                return null;
+                            case "isClosed":
+                                return closed;
+                            default:
+                                return JdbcFakes.DEFAULT;
+                        }
+                    }
+                });
+            }
+        });
+
+        List<Statement> tracked = Collections.synchronizedList(new ArrayList<Statement>());
+        ConnectionWrapper.trackStatements(tracked);
+        try {
+            ConnectionWrapper wrapper = new ConnectionWrapper(connection, 10);
+            Statement open = wrapper.createStatement();
+            for (int i = 0; i < 100; i++) {
+                wrapper.createStatement().close();
+            }
+            Statement last = wrapper.createStatement();
+            Assert.assertEquals(Arrays.asList(open, last), tracked);
+        } finally {
+            ConnectionWrapper.trackStatements(null);
+        }
+    }
+}
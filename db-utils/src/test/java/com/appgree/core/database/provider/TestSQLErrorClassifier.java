@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.database.provider;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.appgree.core.database.provider.SQLErrorClassifier.ErrorType;
+
+/**
+ * The Class TestSQLErrorClassifier.
+ */
+public class TestSQLErrorClassifier {
+
+    /**
+     * Test classification of MySQL errors.
+     */
+    @Test
+    public void testClassify() {
+        Assert.assertEquals(ErrorType.DEADLOCK, SQLErrorClassifier.classify(new SQLException("Deadlock found", "40001", 1213)));
+        Assert.assertEquals(ErrorType.LOCK_TIMEOUT, SQLErrorClassifier.classify(new SQLException("Lock wait timeout", "HY000", 1205)));
+        Assert.assertEquals(ErrorType.CONNECTION, SQLErrorClassifier.classify(new SQLException("Communications link failure", "08S01", 0)));
+        Assert.assertEquals(ErrorType.CONNECTION, SQLErrorClassifier.classify(new SQLTransientConnectionException("reset")));
+        Assert.assertEquals(ErrorType.PERMANENT, SQLErrorClassifier.classify(new SQLException("Duplicate entry", "23000", 1062)));
+        Assert.assertFalse(ErrorType.PERMANENT.isRetryable());
+
+        // batch errors wrap the server error
+        BatchUpdateException batch = new BatchUpdateException("batch failed", new int[0]);
+        batch.setNextException(new SQLException("Deadlock found", "40001", 1213));
+        Assert.assertEquals(ErrorType.DEADLOCK, SQLErrorClassifier.classify(batch));
+        Assert.assertEquals(ErrorType.LOCK_TIMEOUT,
+                        SQLErrorClassifier.classify(new SQLException("wrapped", new SQLException("Lock wait timeout", "HY000", 1205))));
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.id;
+
+import java.util.Random;
+
+/**
+ * Compares fromString, fromLong and isNull of ObjectId with the implementation they replaced, copied below as OldObjectId: ids parsed with
+ * Long.parseLong, a new instance for every id and isNull through equals. The ids are drawn from a working set small enough for the cache of
+ * recent ids, with a share of small ids and NULL literals, as read from rows and requests. Run it with
+ * java -cp target/classes:target/test-classes com.appgree.core.id.ObjectIdBenchmark
+ */
+public class ObjectIdBenchmark {
+
+    /** The number of distinct ids read. */
+    private static final int WORKING_SET = 2000;
+
+    /** The number of ids of every pass. */
+    private static final int IDS = 100000;
+
+    /** The passes before measuring. */
+    private static final int WARMUP_PASSES = 50;
+
+    /** The measured passes. */
+    private static final int PASSES = 100;
+
+    /** The last created ids, kept as rows keep them so their allocation cannot be optimized away. */
+    private static final Object[] kept = new Object[4096];
+
+    /**
+     * The implementation replaced, kept as the baseline.
+     */
+    private static final class OldObjectId {
+
+        /** The null id. */
+        private static final OldObjectId NULL = new OldObjectId(0L);
+
+        /** The long id. */
+        private final long longId;
+
+        /** The string id. */
+        private String stringId;
+
+        /**
+         * Instantiates a new old object id.
+         *
+         * @param id the id
+         */
+        private OldObjectId(long id) {
+            this.longId = id;
+        }
+
+        /**
+         * Instantiates a new old object id.
+         *
+         * @param id the id
+         */
+        private OldObjectId(String id) {
+            this.longId = Long.parseLong(id);
+            this.stringId = id;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return (int) (this.longId ^ (this.longId >>> 32));
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null || !getClass().equals(obj.getClass())) {
+                return false;
+            }
+            return this.longId == ((OldObjectId) obj).longId;
+        }
+
+        /**
+         * From long.
+         *
+         * @param id the id
+         * @return the old object id
+         */
+        static OldObjectId fromLong(long id) {
+            return new OldObjectId(id);
+        }
+
+        /**
+         * From string.
+         *
+         * @param id the id
+         * @return the old object id
+         */
+        static OldObjectId fromString(String id) {
+            if (id == null || id.isEmpty() || id.equals(ObjectId.VOID) || "null".equals(id) || "nil".equals(id)) {
+                return NULL;
+            }
+            return new OldObjectId(id);
+        }
+
+        /**
+         * Checks if is null.
+         *
+         * @return true, if is null
+         */
+        boolean isNull() {
+            return this.equals(NULL);
+        }
+    }
+
+    /**
+     * The main method.
+     *
+     * @param args the arguments
+     */
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        long[] workingSet = new long[WORKING_SET];
+        for (int i = 0; i < WORKING_SET; i++) {
+            // a tenth of small ids, the rest as generated by a HiLo generator
+            workingSet[i] = i % 10 == 0 ? random.nextInt(1000) : 1000000000L + random.nextInt(100000000);
+        }
+        long[] longs = new long[IDS];
+        String[] strings = new String[IDS];
+        for (int i = 0; i < IDS; i++) {
+            longs[i] = i % 50 == 0 ? 0 : workingSet[random.nextInt(WORKING_SET)];
+            strings[i] = i % 100 == 0 ? "null" : String.valueOf(longs[i]);
+        }
+        ObjectId[] ids = new ObjectId[IDS];
+        OldObjectId[] oldIds = new OldObjectId[IDS];
+        for (int i = 0; i < IDS; i++) {
+            ids[i] = ObjectId.fromLong(longs[i]);
+            oldIds[i] = OldObjectId.fromLong(longs[i]);
+        }
+
+        long sink = 0;
+        for (int pass = 0; pass < WARMUP_PASSES; pass++) {
+            sink += oldFromString(strings) + newFromString(strings) + oldFromLong(longs) + newFromLong(longs) + oldIsNull(oldIds)
+                            + newIsNull(ids);
+        }
+
+        System.out.println("operation\told ns/op\tnew ns/op");
+        long oldStart = System.nanoTime();
+        for (int pass = 0; pass < PASSES; pass++) {
+            sink += oldFromString(strings);
+        }
+        long newStart = System.nanoTime();
+        for (int pass = 0; pass < PASSES; pass++) {
+            sink += newFromString(strings);
+        }
+        print("fromString", oldStart, newStart, System.nanoTime());
+
+        oldStart = System.nanoTime();
+        for (int pass = 0; pass < PASSES; pass++) {
+            sink += oldFromLong(longs);
+        }
+        newStart = System.nanoTime();
+        for (int pass = 0; pass < PASSES; pass++) {
+            sink += newFromLong(longs);
+        }
+        print("fromLong", oldStart, newStart, System.nanoTime());
+
+        oldStart = System.nanoTime();
+        for (int pass = 0; pass < PASSES; pass++) {
+            sink += oldIsNull(oldIds);
+        }
+        newStart = System.nanoTime();
+        for (int pass = 0; pass < PASSES; pass++) {
+            sink += newIsNull(ids);
+        }
+        print("isNull", oldStart, newStart, System.nanoTime());
+
+        // keeps the results alive
+        System.out.println("(" + sink + ")");
+    }
+
+    /**
+     * Prints the time per operation of both implementations.
+     *
+     * @param operation the operation
+     * @param oldStart the start of the old implementation
+     * @param newStart the start of the new implementation, the end of the old one
+     * @param end the end of the new implementation
+     */
+    private static void print(String operation, long oldStart, long newStart, long end) {
+        double ops = (double) IDS * PASSES;
+        System.out.println(String.format("%s\t%.2f\t%.2f", operation, (newStart - oldStart) / ops, (end - newStart) / ops));
+    }
+
+    /**
+     * Parses the ids with the old implementation.
+     *
+     * @param strings the strings
+     * @return a checksum
+     */
+    private static long oldFromString(String[] strings) {
+        long sum = 0;
+        for (int i = 0; i < strings.length; i++) {
+            OldObjectId id = OldObjectId.fromString(strings[i]);
+            kept[i % kept.length] = id;
+            sum += id.longId;
+        }
+        return sum;
+    }
+
+    /**
+     * Parses the ids with the current implementation.
+     *
+     * @param strings the strings
+     * @return a checksum
+     */
+    private static long newFromString(String[] strings) {
+        long sum = 0;
+        for (int i = 0; i < strings.length; i++) {
+            ObjectId id = ObjectId.fromString(strings[i]);
+            kept[i % kept.length] = id;
+            sum += id.toLong();
+        }
+        return sum;
+    }
+
+    /**
+     * Creates the ids with the old implementation.
+     *
+     * @param longs the longs
+     * @return a checksum
+     */
+    private static long oldFromLong(long[] longs) {
+        long sum = 0;
+        for (int i = 0; i < longs.length; i++) {
+            OldObjectId id = OldObjectId.fromLong(longs[i]);
+            kept[i % kept.length] = id;
+            sum += id.hashCode();
+        }
+        return sum;
+    }
+
+    /**
+     * Creates the ids with the current implementation.
+     *
+     * @param longs the longs
+     * @return a checksum
+     */
+    private static long newFromLong(long[] longs) {
+        long sum = 0;
+        for (int i = 0; i < longs.length; i++) {
+            ObjectId id = ObjectId.fromLong(longs[i]);
+            kept[i % kept.length] = id;
+            sum += id.hashCode();
+        }
+        return sum;
+    }
+
+    /**
+     * Counts the null ids with the old implementation.
+     *
+     * @param ids the ids
+     * @return the count
+     */
+    private static long oldIsNull(OldObjectId[] ids) {
+        long count = 0;
+        for (OldObjectId id : ids) {
+            if (id == null || id.isNull()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the null ids with the current implementation.
+     *
+     * @param ids the ids
+     * @return the count
+     */
+    private static long newIsNull(ObjectId[] ids) {
+        long count = 0;
+        for (ObjectId id : ids) {
+            if (ObjectId.isNull(id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
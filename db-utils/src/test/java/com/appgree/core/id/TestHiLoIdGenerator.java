@@ -0,0 +1,290 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.id;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.appgree.core.database.provider.JdbcFakes;
+
+/**
+ * The Class TestHiLoIdGenerator.
+ */
+public class TestHiLoIdGenerator {
+
+    /**
+     * A data source over an in memory sequence table, counting the connections and the transactions.
+     */
+    private static class SequenceDataSource extends JdbcFakes.Handler {
+
+        /** The sequences, by name. */
+        private final Map<String, Long> sequences = new HashMap<>();
+
+        /** The last value of LAST_INSERT_ID. */
+        private long lastInsertId;
+
+        /** The opened connections. */
+        private final AtomicInteger opened = new AtomicInteger();
+
+        /** The closed connections. */
+        private final AtomicInteger closed = new AtomicInteger();
+
+        /** The commits. */
+        private final AtomicInteger commits = new AtomicInteger();
+
+        /** The rollbacks. */
+        private final AtomicInteger rollbacks = new AtomicInteger();
+
+        /** If the updates fail. */
+        private volatile boolean failing;
+
+        /**
+         * Gets the data source.
+         *
+         * @return the data source
+         */
+        DataSource dataSource() {
+            return JdbcFakes.proxy(DataSource.class, this);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.appgree.core.database.provider.JdbcFakes.Handler#answer(java.lang.String, java.lang.Object[])
+         */
+        @Override
+        protected Object answer(String method, Object[] args) {
+            if (method.equals("getConnection")) {
+                opened.incrementAndGet();
+                return JdbcFakes.proxy(Connection.class, new ConnectionHandler());
+            }
+            throw new UnsupportedOperationException(method);
+        }
+
+        /**
+         * A connection of the data source.
+         */
+        private class ConnectionHandler extends JdbcFakes.Handler {
+
+            /** The auto commit. */
+            private boolean autoCommit = true;
+
+            /*
+             * (non-Javadoc)
+             *
+             * @see com.appgree.core.database.provider.JdbcFakes.Handler#answer(java.lang.String, java.lang.Object[])
+             */
+            @Override
+            protected Object answer(String method, Object[] args) {
+                switch (method) {
+                    case "getAutoCommit":
+                        return autoCommit;
+                    case "setAutoCommit":
+                        autoCommit = (Boolean) args[0];
+                        return null;
+                    case "commit":
+                        Assert.assertFalse(autoCommit);
+                        commits.incrementAndGet();
+                        return null;
+                    case "rollback":
+                        rollbacks.incrementAndGet();
+                        return null;
+                    case "close":
+                        closed.incrementAndGet();
+                        return null;
+                    case "prepareStatement":
+                        return JdbcFakes.proxy(PreparedStatement.class, new StatementHandler((String) args[0]));
+                    default:
+                        throw new UnsupportedOperationException(method);
+                }
+            }
+        }
+
+        /**
+         * A statement of the sequence table.
+         */
+        private class StatementHandler extends JdbcFakes.Handler {
+
+            /** The sql. */
+            private final String sql;
+
+            /** The parameters. */
+            private final Map<Integer, Object> parameters = new HashMap<>();
+
+            /**
+             * Instantiates a new statement handler.
+             *
+             * @param sql the sql
+             */
+            StatementHandler(String sql) {
+                this.sql = sql;
+            }
+
+            /*
+             * (non-Javadoc)
+             *
+             * @see com.appgree.core.database.provider.JdbcFakes.Handler#answer(java.lang.String, java.lang.Object[])
+             */
+            @Override
+            protected Object answer(String method, Object[] args) throws SQLException {
+                switch (method) {
+                    case "setLong":
+                    case "setString":
+                        parameters.put((Integer) args[0], args[1]);
+                        return null;
+                    case "close":
+                        return null;
+                    case "executeUpdate":
+                        return executeUpdate();
+                    case "executeQuery":
+                        final long value = lastInsertId;
+                        return JdbcFakes.proxy(ResultSet.class, new JdbcFakes.Handler() {
+
+                            /** If the row was read. */
+                            private boolean read;
+
+                            @Override
+                            protected Object answer(String method, Object[] args) {
+                                switch (method) {
+                                    case "next":
+                                        read = !read;
+                                        return read;
+                                    case "getLong":
+                                        return value;
+                                    case "close":
+                                        return null;
+                                    default:
+                                        throw new UnsupportedOperationException(method);
+                                }
+                            }
+                        });
+                    default:
+                        throw new UnsupportedOperationException(method);
+                }
+            }
+
+            /**
+             * Executes an update of the sequence table.
+             *
+             * @return the number of updated rows
+             * @throws SQLException the SQL exception
+             */
+            private int executeUpdate() throws SQLException {
+                if (failing) {
+                    throw new SQLException("Lock wait timeout exceeded");
+                }
+                if (sql.startsWith("UPDATE")) {
+                    String name = (String) parameters.get(2);
+                    Long next = sequences.get(name);
+                    if (next == null) {
+                        return 0;
+                    }
+                    lastInsertId = next + (Long) parameters.get(1);
+                    sequences.put(name, lastInsertId);
+                    return 1;
+                }
+                String name = (String) parameters.get(1);
+                if (sequences.containsKey(name)) {
+                    return 0;
+                }
+                sequences.put(name, 1L);
+                return 1;
+            }
+        }
+    }
+
+    /**
+     * Test ids are sequential and every block is reserved and committed on its own connection.
+     */
+    @Test
+    public void testBlocks() {
+        SequenceDataSource database = new SequenceDataSource();
+        HiLoIdGenerator generator = new HiLoIdGenerator(database.dataSource(), HiLoIdGenerator.DEFAULT_TABLE, "ITEMS", 10);
+
+        for (long expected = 1; expected <= 25; expected++) {
+            Assert.assertEquals(expected, generator.nextLong());
+        }
+        Assert.assertEquals(ObjectId.fromLong(26), generator.nextId());
+
+        // the sequence is created on the first block, then three blocks are reserved
+        Assert.assertEquals(3, database.opened.get());
+        Assert.assertEquals(3, database.closed.get());
+        Assert.assertEquals(4, database.commits.get());
+        Assert.assertEquals(0, database.rollbacks.get());
+        Assert.assertEquals(Long.valueOf(31), database.sequences.get("ITEMS"));
+    }
+
+    /**
+     * Test ids are unique when generated from several threads.
+     *
+     * @throws InterruptedException the interrupted exception
+     */
+    @Test
+    public void testConcurrentIds() throws InterruptedException {
+        SequenceDataSource database = new SequenceDataSource();
+        final HiLoIdGenerator generator = new HiLoIdGenerator(database.dataSource(), HiLoIdGenerator.DEFAULT_TABLE, "ITEMS", 7);
+        final List<Long> ids = Collections.synchronizedList(new ArrayList<Long>());
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread() {
+
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        ids.add(generator.nextLong());
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Set<Long> unique = new HashSet<>(ids);
+        Assert.assertEquals(4000, unique.size());
+        Assert.assertEquals(database.opened.get(), database.closed.get());
+    }
+
+    /**
+     * Test a failed reservation is rolled back on its own connection and the connection is closed.
+     */
+    @Test
+    public void testFailedReservation() {
+        SequenceDataSource database = new SequenceDataSource();
+        HiLoIdGenerator generator = new HiLoIdGenerator(database.dataSource(), HiLoIdGenerator.DEFAULT_TABLE, "ITEMS", 2);
+        Assert.assertEquals(1, generator.nextLong());
+        Assert.assertEquals(2, generator.nextLong());
+
+        database.failing = true;
+        try {
+            generator.nextLong();
+            Assert.fail("The reservation must fail");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getCause() instanceof SQLException);
+        }
+        Assert.assertEquals(1, database.rollbacks.get());
+        Assert.assertEquals(database.opened.get(), database.closed.get());
+
+        database.failing = false;
+        Assert.assertEquals(3, generator.nextLong());
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.id;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * The Class TestIdGenerator.
+ */
+public class TestIdGenerator {
+
+    /**
+     * Test snowflake ids are unique and increasing.
+     */
+    @Test
+    public void testSnowflake() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        long start = System.currentTimeMillis();
+        long last = 0;
+        for (int i = 0; i < 1000000; i++) {
+            long id = generator.nextLong();
+            Assert.assertTrue(id > last);
+            last = id;
+        }
+        Assert.assertTrue(generator.getTimestamp(ObjectId.fromLong(last)) >= start);
+    }
+}
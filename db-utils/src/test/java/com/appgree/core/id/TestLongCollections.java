@@ -0,0 +1,69 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.id;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * The Class TestLongCollections.
+ */
+public class TestLongCollections {
+
+    /**
+     * Test map and set against java.util.HashMap.
+     */
+    @Test
+    public void testMapAndSet() {
+        Random random = new Random(42);
+        LongObjectMap<String> map = new LongObjectMap<>();
+        LongSet set = new LongSet();
+        Map<Long, String> expected = new HashMap<>();
+
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(2000) - 10;
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+                set.remove(key);
+            } else {
+                String value = String.valueOf(i);
+                Assert.assertEquals(expected.put(key, value), map.put(ObjectId.fromLong(key), value));
+                set.add(key);
+            }
+        }
+
+        Assert.assertEquals(expected.size(), map.size());
+        Assert.assertEquals(expected.size(), set.size());
+        for (long key = -10; key < 2000; key++) {
+            Assert.assertEquals(expected.get(key), map.get(key));
+            Assert.assertEquals(expected.containsKey(key), set.contains(key));
+        }
+        Assert.assertEquals(expected.size(), map.keys().size());
+        Assert.assertEquals(expected.size(), set.toList().size());
+    }
+
+    /**
+     * Test list.
+     */
+    @Test
+    public void testList() {
+        LongList list = new LongList(1);
+        for (long i = 10; i > 0; i--) {
+            list.add(i);
+            list.add(ObjectId.fromLong(i));
+        }
+        Assert.assertEquals(20, list.size());
+
+        list.sortAndDeduplicate();
+        Assert.assertEquals(10, list.size());
+        Assert.assertEquals(1L, list.get(0));
+        Assert.assertEquals(ObjectId.fromLong(10), list.getId(9));
+        Assert.assertArrayEquals(new long[] {3, 4}, list.subList(2, 4).toArray());
+    }
+}
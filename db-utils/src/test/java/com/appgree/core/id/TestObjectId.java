@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013-2014 Appgree S.A. All rights reserved.
+ */
+package com.appgree.core.id;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * The Class TestObjectId.
+ */
+public class TestObjectId {
+
+    /**
+     * Test parsing matches Long.parseLong.
+     */
+    @Test
+    public void testParse() {
+        Random random = new Random(42);
+        long[] values = {1, -1, 9, 10, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE / 10, 1234567890123L};
+        for (int i = 0; i < 10000; i++) {
+            long value = i < values.length ? values[i] : random.nextLong() >> random.nextInt(64);
+            if (value == 0) {
+                continue;
+            }
+            String string = String.valueOf(value);
+            Assert.assertEquals(value, ObjectId.fromString(string).toLong());
+            Assert.assertEquals(value, ObjectId.fromChars("[" + string + "]", 1, string.length() + 1).toLong());
+            byte[] bytes = ("x" + string).getBytes(StandardCharsets.US_ASCII);
+            Assert.assertEquals(value, ObjectId.fromBytes(bytes, 1, bytes.length - 1).toLong());
+        }
+        Assert.assertEquals(42L, ObjectId.fromString("+42").toLong());
+    }
+
+    /**
+     * Test invalid ids are rejected.
+     */
+    @Test
+    public void testInvalid() {
+        String[] invalid = {"-", "+", "12a", "9223372036854775808", "-9223372036854775809", " 1"};
+        for (String string : invalid) {
+            try {
+                ObjectId.fromString(string);
+                Assert.fail("Should have failed: " + string);
+            } catch (NumberFormatException e) {
+            }
+        }
+    }
+
+    /**
+     * Test null ids and canonical instances.
+     */
+    @Test
+    public void testNullAndCache() {
+        Assert.assertTrue(ObjectId.fromString(null).isNull());
+        Assert.assertTrue(ObjectId.fromString("").isNull());
+        Assert.assertTrue(ObjectId.fromString("0").isNull());
+        Assert.assertTrue(ObjectId.fromString("null").isNull());
+        Assert.assertTrue(ObjectId.fromString("nil").isNull());
+        Assert.assertTrue(ObjectId.isNull(ObjectId.fromLong(0)));
+        Assert.assertFalse(ObjectId.fromLong(-1).isNull());
+
+        Assert.assertSame(ObjectId.fromLong(7), ObjectId.fromString("7"));
+        ObjectId big = ObjectId.fromLong(123456789012345L);
+        Assert.assertEquals(big, ObjectId.fromString("123456789012345"));
+        Assert.assertEquals("123456789012345", big.toString());
+
+        // ids not written in canonical form keep their original string
+        Assert.assertEquals("007", ObjectId.fromString("007").toString());
+        Assert.assertEquals("+7", ObjectId.fromString("+7").toString());
+        Assert.assertEquals(ObjectId.fromLong(7), ObjectId.fromString("007"));
+        Assert.assertEquals("-7", ObjectId.fromString("-7").toString());
+    }
+
+    /**
+     * Test binary and base 62 codecs.
+     */
+    @Test
+    public void testCodecs() {
+        Random random = new Random(42);
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        long[] values = {0, 1, -1, 127, 128, Long.MAX_VALUE, Long.MIN_VALUE};
+        byte[] previousKey = null;
+        long previous = 0;
+        for (int i = 0; i < 10000; i++) {
+            long value = i < values.length ? values[i] : random.nextLong() >> random.nextInt(64);
+            ObjectId id = ObjectId.fromLong(value);
+
+            buffer.clear();
+            id.writeVarLong(buffer);
+            Assert.assertEquals(id.getVarLongSize(), buffer.position());
+            id.writeZigZag(buffer);
+            id.writeKey(buffer);
+            buffer.flip();
+            Assert.assertEquals(id, ObjectId.readVarLong(buffer));
+            Assert.assertEquals(id, ObjectId.readZigZag(buffer));
+            Assert.assertEquals(id, ObjectId.readKey(buffer));
+            Assert.assertFalse(buffer.hasRemaining());
+
+            Assert.assertEquals(id, ObjectId.fromBase62(id.toBase62()));
+
+            byte[] key = id.toKey();
+            if (previousKey != null) {
+                Assert.assertEquals(Long.signum(Long.compare(previous, value)), Integer.signum(compareUnsigned(previousKey, key)));
+            }
+            previousKey = key;
+            previous = value;
+        }
+        Assert.assertEquals("LygHa16AHYF", ObjectId.fromLong(-1).toBase62());
+        try {
+            ObjectId.fromBase62("LygHa16AHYG");
+            Assert.fail("Should have overflowed");
+        } catch (NumberFormatException e) {
+        }
+    }
+
+    /**
+     * Compares byte arrays as unsigned bytes.
+     *
+     * @param a the a
+     * @param b the b
+     * @return the int
+     */
+    private static int compareUnsigned(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int diff = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+}